@@ -0,0 +1,156 @@
+package com.healthstore.repository;
+
+import com.healthstore.model.Order;
+import com.healthstore.model.User;
+import com.healthstore.repository.CustomerAnalyticsRepository.CustomerOrderStats;
+import com.healthstore.repository.CustomerAnalyticsRepository.CustomerSort;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.JdbcTemplateAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.autoconfigure.transaction.TransactionAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the grouped customer queries of {@link CustomerAnalyticsRepository} over 100,000 customers
+ * with about 400,000 orders in an in-memory H2 database: the top 10 customers, the first page and the page
+ * 25,000 customers in. The per-customer queries the grouped query replaced are measured
+ * as a baseline, one run at a time since a run takes seconds.
+ * Run with: {@code mvn -Pjmh test-compile exec:exec -Djmh.benchmarks=CustomerAnalyticsBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class CustomerAnalyticsBenchmark {
+
+    private static final int CUSTOMERS = 100_000;
+    private static final int BATCH_SIZE = 10_000;
+    private static final LocalDateTime START = LocalDateTime.of(2025, 1, 1, 0, 0);
+    private static final LocalDateTime END = START.plusMonths(3);
+    private static final Order.OrderStatus[] STATUSES = Order.OrderStatus.values();
+
+    private ConfigurableApplicationContext context;
+    private OrderRepository orderRepository;
+    private UserRepository userRepository;
+
+    @Setup(Level.Trial)
+    public void seed() {
+        // Arguments rather than default properties, so that a local application.properties cannot override them
+        context = new SpringApplicationBuilder(Persistence.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:customer-analytics;MODE=MySQL;DATABASE_TO_LOWER=TRUE;"
+                                + "NON_KEYWORDS=VALUE,USER;DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--spring.main.banner-mode=off",
+                        "--logging.level.root=WARN");
+        orderRepository = context.getBean(OrderRepository.class);
+        userRepository = context.getBean(UserRepository.class);
+
+        // Seeded with JDBC: saving 400,000 orders through JPA would take longer than the measurements.
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        Random random = new Random(42);
+        List<Object[]> users = new ArrayList<>(BATCH_SIZE);
+        List<Object[]> orders = new ArrayList<>(BATCH_SIZE);
+        long orderNumber = 0;
+        for (long id = 1; id <= CUSTOMERS; id++) {
+            users.add(new Object[] {id, "Customer", String.valueOf(id), "customer" + id + "@example.com",
+                    Timestamp.valueOf(START.minusYears(1))});
+            // 0 to 8 orders, spread over the year of which the measured quarter is the first
+            for (int i = random.nextInt(9); i > 0; i--) {
+                orders.add(new Object[] {"ORD-" + ++orderNumber, id, STATUSES[random.nextInt(STATUSES.length)].name(),
+                        BigDecimal.valueOf(100 + random.nextInt(50_000), 2),
+                        Timestamp.valueOf(START.plusMinutes(random.nextInt(365 * 24 * 60)))});
+            }
+            if (users.size() == BATCH_SIZE || id == CUSTOMERS) {
+                jdbcTemplate.batchUpdate(
+                        "INSERT INTO users (id, first_name, last_name, email, created_at) VALUES (?, ?, ?, ?, ?)", users);
+                jdbcTemplate.batchUpdate("INSERT INTO orders (order_number, user_id, status, total_amount, order_date, "
+                        + "is_refunded, is_disputed) VALUES (?, ?, ?, ?, ?, FALSE, FALSE)", orders);
+                users.clear();
+                orders.clear();
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void close() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<CustomerOrderStats> topCustomers() {
+        return orderRepository.findTopCustomers(START, END, CustomerSort.TOTAL_SPENT, 10);
+    }
+
+    @Benchmark
+    public Page<CustomerOrderStats> firstPage() {
+        return orderRepository.findCustomerOrderStats(START, END, CustomerSort.ORDER_COUNT, PageRequest.of(0, 50));
+    }
+
+    @Benchmark
+    public Page<CustomerOrderStats> middlePage() {
+        return orderRepository.findCustomerOrderStats(START, END, CustomerSort.ORDER_COUNT, PageRequest.of(500, 50));
+    }
+
+    /**
+     * What getCustomerActivityReport did before the grouped query: the active customers, then their orders
+     * one customer at a time.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 3)
+    public BigDecimal perCustomerQueries() {
+        BigDecimal revenue = BigDecimal.ZERO;
+        for (User customer : userRepository.findActiveCustomers(START, END)) {
+            for (Order order : orderRepository.findByUserAndOrderDateBetween(customer, START, END)) {
+                revenue = revenue.add(order.getTotalAmount());
+            }
+        }
+        return revenue;
+    }
+
+    /**
+     * The persistence part of the application only: the data source, the entities and the repositories.
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ImportAutoConfiguration({DataSourceAutoConfiguration.class, JdbcTemplateAutoConfiguration.class,
+            HibernateJpaAutoConfiguration.class, TransactionAutoConfiguration.class})
+    @EntityScan("com.healthstore")
+    @EnableJpaRepositories(basePackageClasses = OrderRepository.class)
+    static class Persistence {
+    }
+}
@@ -0,0 +1,53 @@
+package com.healthstore.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares generating order numbers with the {@link BusinessKeyGenerator} against the random UUID
+ * substring order numbers it replaced, on one thread and on 8 threads sharing the generator.
+ * Run with: {@code mvn -Pjmh test-compile exec:exec -Djmh.benchmarks=BusinessKeyGeneratorBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BusinessKeyGeneratorBenchmark {
+
+    private final BusinessKeyGenerator generator = new BusinessKeyGenerator(1, 1);
+
+    @Benchmark
+    public String businessKey() {
+        return generator.next("ORD-");
+    }
+
+    @Benchmark
+    public String uuidSubstring() {
+        return "ORD-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String businessKeyContended() {
+        return generator.next("ORD-");
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String uuidSubstringContended() {
+        return "ORD-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+    }
+}
@@ -1,13 +1,18 @@
 package com.healthstore.admin;
 
 import com.healthstore.dto.AuditFilterDTO;
+import com.healthstore.dto.CursorPageDTO;
 import com.healthstore.dto.UserRoleUpdateDTO;
 import com.healthstore.dto.UserUpdateDTO;
+import com.healthstore.inventory.HotStockLedger;
 import com.healthstore.model.Order;
 import com.healthstore.model.User;
 import com.healthstore.service.OrderService;
 import com.healthstore.service.UserService;
 import jakarta.validation.Valid;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -28,11 +33,14 @@ public class AdminController {
     private final UserService userService;
     private final OrderService orderService;
     private final EntityManager entityManager;
+    private final HotStockLedger hotStockLedger;
 
-    public AdminController(UserService userService, OrderService orderService, EntityManager entityManager) {
+    public AdminController(UserService userService, OrderService orderService, EntityManager entityManager,
+                           HotStockLedger hotStockLedger) {
         this.userService = userService;
         this.orderService = orderService;
         this.entityManager = entityManager;
+        this.hotStockLedger = hotStockLedger;
     }
 
     /**
@@ -156,13 +164,43 @@ public class AdminController {
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size) {
         try {
-            return new ResponseEntity<>(orderService.findAllOrders(org.springframework.data.domain.PageRequest.of(page, size)), 
+            return new ResponseEntity<>(orderService.findAllOrders(PageRequest.of(page, size)), 
                                      HttpStatus.OK);
         } catch (Exception e) {
             return new ResponseEntity<>(e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
     
+    /**
+     * Endpoint to scroll through all orders with keyset pagination.
+     * Deep windows cost the same as the first one and no count query is run,
+     * which suits dashboards scrolling through many orders.
+     * @param cursor The nextCursor of the previous window (optional).
+     * @param size The number of orders per window (default: 10).
+     * @param sort The sort of the first window, on orderDate or totalAmount (default: newest first).
+     * @return A window of orders and the cursor of the next window.
+     */
+    @GetMapping("/orders/scroll")
+    public ResponseEntity<CursorPageDTO<Order>> scrollOrders(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            Sort sort) {
+        return new ResponseEntity<>(orderService.scrollAllOrders(cursor, sort, size), HttpStatus.OK);
+    }
+    
+    /**
+     * Endpoint to retrieve a page of orders without the total count.
+     * @param page The page number (default: 0).
+     * @param size The number of items per page (default: 10).
+     * @return A slice of orders.
+     */
+    @GetMapping("/orders/slice")
+    public ResponseEntity<Slice<Order>> getOrdersSlice(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size) {
+        return new ResponseEntity<>(orderService.findAllOrdersSlice(PageRequest.of(page, size)), HttpStatus.OK);
+    }
+    
     /**
      * Endpoint to update the status of an order.
      * @param orderId The ID of the order to update.
@@ -184,4 +222,43 @@ public class AdminController {
             return new ResponseEntity<>(e.getMessage(), HttpStatus.NOT_FOUND);
         }
     }
+    
+    /**
+     * Endpoint to list the variants whose stock is held in memory.
+     * @return The IDs of the hot variants.
+     */
+    @GetMapping("/inventory/hot")
+    public ResponseEntity<?> getHotVariants() {
+        return new ResponseEntity<>(hotStockLedger.getHotVariantIds(), HttpStatus.OK);
+    }
+    
+    /**
+     * Endpoint to switch a variant into hot stock mode, typically right before a sale starts.
+     * @param variantId The ID of the product variant.
+     * @return The stock now available in memory.
+     */
+    @PutMapping("/inventory/hot/{variantId}")
+    public ResponseEntity<?> enableHotVariant(@PathVariable Long variantId) {
+        try {
+            hotStockLedger.enable(variantId);
+            return new ResponseEntity<>(hotStockLedger.getAvailable(variantId), HttpStatus.OK);
+        } catch (IllegalStateException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.CONFLICT);
+        }
+    }
+    
+    /**
+     * Endpoint to switch a variant back to database stock once the sale is over.
+     * @param variantId The ID of the product variant.
+     * @return No content, or 503 if its reservations could not be written back and it stays hot.
+     */
+    @DeleteMapping("/inventory/hot/{variantId}")
+    public ResponseEntity<?> disableHotVariant(@PathVariable Long variantId) {
+        try {
+            hotStockLedger.disable(variantId);
+            return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+        } catch (IllegalStateException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.SERVICE_UNAVAILABLE);
+        }
+    }
 }
@@ -0,0 +1,17 @@
+package com.healthstore.cache;
+
+import com.github.benmanes.caffeine.cache.RemovalListener;
+
+/**
+ * Listener notified when a named cache evicts an entry on its own,
+ * that is because of its size bound or expiry. Explicit invalidations
+ * and replacements are not reported. Beans implementing this interface
+ * are attached by the cache configuration and are invoked synchronously.
+ */
+public interface CacheEvictionListener extends RemovalListener<Object, Object> {
+
+    /**
+     * @return The name of the cache this listener observes.
+     */
+    String getCacheName();
+}
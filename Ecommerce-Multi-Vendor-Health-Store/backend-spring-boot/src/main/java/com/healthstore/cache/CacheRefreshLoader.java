@@ -0,0 +1,19 @@
+package com.healthstore.cache;
+
+import com.github.benmanes.caffeine.cache.CacheLoader;
+
+/**
+ * Loader used to refresh entries of a named cache ahead of their expiry.
+ * Beans implementing this interface are picked up by the cache configuration;
+ * a cache with {@code refresh-after-write} configured reloads stale entries
+ * in the background through its loader while readers keep getting the old value.
+ * Returning {@code null} from {@link #load(Object)} leaves the key to the
+ * regular {@code @Cacheable} method invocation.
+ */
+public interface CacheRefreshLoader extends CacheLoader<Object, Object> {
+
+    /**
+     * @return The name of the cache this loader serves.
+     */
+    String getCacheName();
+}
@@ -0,0 +1,33 @@
+package com.healthstore.cache;
+
+import com.healthstore.repository.CategoryRepository;
+import com.healthstore.service.CategoryService;
+import org.springframework.stereotype.Component;
+
+/**
+ * Refreshes the full category list held in the "categories" cache
+ * so the menu data never expires on the request path. The list is read as DTOs,
+ * since the refresh runs outside any session.
+ */
+@Component
+public class CategoryCacheRefreshLoader implements CacheRefreshLoader {
+
+    private final CategoryRepository categoryRepository;
+
+    public CategoryCacheRefreshLoader(CategoryRepository categoryRepository) {
+        this.categoryRepository = categoryRepository;
+    }
+
+    @Override
+    public String getCacheName() {
+        return "categories";
+    }
+
+    @Override
+    public Object load(Object key) {
+        if (CategoryService.ALL_CATEGORIES_KEY.equals(key)) {
+            return categoryRepository.findAllCategoryDTOs();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,154 @@
+package com.healthstore.cache;
+
+import com.healthstore.dto.ProductCardDTO;
+import com.healthstore.dto.ProductResponseDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Cache facade for the product catalog.
+ * Catalog pages live in the "products" cache and single products in the "product" cache,
+ * keyed by ID. Single products are cached as {@link ProductResponseDTO}s rather than entities, so no
+ * detached entity is shared between threads or handed to persistence code. A {@link ProductPageIndex} tracks which pages show which products so that
+ * a product write only evicts the affected pages and the product entry.
+ * <p>
+ * Writes are applied by the {@link ProductCacheInvalidator} once they are committed. A page loaded
+ * while a write was being applied may have read the data from before it, so it is dropped again.
+ */
+@Component
+public class ProductCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductCache.class);
+
+    public static final String PAGES_CACHE = "products";
+    public static final String PRODUCT_CACHE = "product";
+
+    /**
+     * Sort properties a product write never changes; pages sorted on anything else can be
+     * reordered by any write.
+     */
+    private static final Set<String> IMMUTABLE_SORT_PROPERTIES = Set.of("id", "createdAt");
+
+    private final Cache pagesCache;
+    private final Cache productCache;
+    private final ProductPageIndex pageIndex;
+    private final SingleFlightLoader singleFlightLoader;
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public ProductCache(CacheManager cacheManager, ProductPageIndex pageIndex,
+                        SingleFlightLoader singleFlightLoader) {
+        this.pagesCache = cacheManager.getCache(PAGES_CACHE);
+        this.productCache = cacheManager.getCache(PRODUCT_CACHE);
+        this.pageIndex = pageIndex;
+        this.singleFlightLoader = singleFlightLoader;
+    }
+
+    /**
+     * Builds the cache key of a catalog page.
+     * @param pageable The pagination information.
+     * @return The cache key.
+     */
+    public static String pageKey(Pageable pageable) {
+        return pageable.getPageNumber() + "-" + pageable.getPageSize() + "-" + pageable.getSort();
+    }
+
+    /**
+     * Returns a cached catalog page, loading and indexing it on a miss.
+     * Concurrent misses for the same page share a single load.
+     * @param pageable The pagination information.
+     * @param loader Loads the page from the database.
+     * @return The page of product cards.
+     */
+    @SuppressWarnings("unchecked")
+    public Page<ProductCardDTO> getPage(Pageable pageable, Supplier<Page<ProductCardDTO>> loader) {
+        String key = pageKey(pageable);
+        Cache.ValueWrapper cached = pagesCache.get(key);
+        if (cached != null) {
+            return (Page<ProductCardDTO>) cached.get();
+        }
+
+        return singleFlightLoader.load(PAGES_CACHE, key, () -> {
+            long generation = invalidations.get();
+            Page<ProductCardDTO> page = loader.get();
+            // Indexed before it is cached, so an invalidation never misses a cached page
+            pageIndex.registerPage(key, page.getContent().stream().map(ProductCardDTO::getId).toList(),
+                    isReorderable(pageable));
+            pagesCache.put(key, page);
+            if (invalidations.get() != generation) {
+                pageIndex.unregisterPage(key);
+                pagesCache.evict(key);
+            }
+            return page;
+        });
+    }
+
+    /**
+     * Returns a cached product, loading it on a miss. Missing products are not cached.
+     * Every call returns its own copy, so callers cannot change the cached entry.
+     * @param id The ID of the product.
+     * @param loader Loads the product from the database.
+     * @return An Optional containing the product if found.
+     */
+    public Optional<ProductResponseDTO> getProduct(Long id, Supplier<Optional<ProductResponseDTO>> loader) {
+        ProductResponseDTO cached = productCache.get(id, ProductResponseDTO.class);
+        if (cached != null) {
+            return Optional.of(new ProductResponseDTO(cached));
+        }
+
+        long generation = invalidations.get();
+        Optional<ProductResponseDTO> product = loader.get();
+        product.ifPresent(p -> productCache.put(id, p));
+        if (invalidations.get() != generation) {
+            productCache.evict(id);
+        }
+        return product.map(ProductResponseDTO::new);
+    }
+
+    /**
+     * Drops changed products and the catalog pages they make stale: the pages that show them
+     * and the pages sorted on a property the change may have moved them by.
+     * @param productIds The IDs of the changed products.
+     */
+    public void productsChanged(Collection<Long> productIds) {
+        invalidations.incrementAndGet();
+        productIds.forEach(productCache::evict);
+        Set<Object> pageKeys = pageIndex.removePagesAffectedBy(productIds);
+        pageKeys.forEach(pagesCache::evict);
+        logger.debug("Evicted {} cached page(s) for changed products {}", pageKeys.size(), productIds);
+    }
+
+    /**
+     * Drops a deleted product and every catalog page.
+     * @param productId The ID of the deleted product.
+     */
+    public void productDeleted(Long productId) {
+        productCache.evict(productId);
+        evictAllPages();
+    }
+
+    /**
+     * Evicts every catalog page. Needed when a product is added or deleted, since a row more or
+     * less changes the totals and boundaries of every page and cannot be targeted.
+     */
+    public void evictAllPages() {
+        invalidations.incrementAndGet();
+        pagesCache.clear();
+        pageIndex.clear();
+    }
+
+    private static boolean isReorderable(Pageable pageable) {
+        return pageable.getSort().stream()
+                .anyMatch(order -> !IMMUTABLE_SORT_PROPERTIES.contains(order.getProperty()));
+    }
+}
@@ -0,0 +1,55 @@
+package com.healthstore.cache;
+
+import com.healthstore.event.ProductChangedEvent;
+import com.healthstore.event.StockChangedEvent;
+import com.healthstore.repository.ProductVariantRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+
+/**
+ * Applies committed catalog writes to the {@link ProductCache}.
+ * Product changes and stock changes are both handled, since the cached products carry their
+ * variants and the cached cards their total stock. Writes that roll back are never seen, and
+ * a reader cannot cache data from before a write after the write has been applied.
+ */
+@Component
+public class ProductCacheInvalidator {
+
+    private final ProductCache productCache;
+    private final ProductVariantRepository productVariantRepository;
+
+    public ProductCacheInvalidator(ProductCache productCache, ProductVariantRepository productVariantRepository) {
+        this.productCache = productCache;
+        this.productVariantRepository = productVariantRepository;
+    }
+
+    /**
+     * Drops a created, updated or deleted product once the change has been committed.
+     * @param event The product change.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        switch (event.getChangeType()) {
+            case CREATED -> productCache.evictAllPages();
+            case UPDATED -> productCache.productsChanged(List.of(event.getProductId()));
+            case DELETED -> productCache.productDeleted(event.getProductId());
+        }
+    }
+
+    /**
+     * Drops the products whose variants changed stock once the change has been committed.
+     * @param event The stock change.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public void onStockChanged(StockChangedEvent event) {
+        List<Long> productIds = productVariantRepository.findProductIdsByIdIn(event.getVariantIds());
+        if (!productIds.isEmpty()) {
+            productCache.productsChanged(productIds);
+        }
+    }
+}
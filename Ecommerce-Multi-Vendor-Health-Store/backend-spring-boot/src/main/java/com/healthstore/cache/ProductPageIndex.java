@@ -0,0 +1,104 @@
+package com.healthstore.cache;
+
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reverse index from product IDs to the keys of the cached catalog pages that contain them.
+ * It lets a product write evict only the pages showing that product instead of the whole
+ * "products" cache. Pages evicted by the cache itself are dropped from the index through
+ * the eviction listener so the index never outgrows the cache.
+ * <p>
+ * Pages sorted on a property a write can change, such as the name or the stock, are also
+ * tracked on their own: such a write can move a product onto or off any of those pages,
+ * not only the pages that showed it.
+ */
+@Component
+public class ProductPageIndex implements CacheEvictionListener {
+
+    private final Map<Long, Set<Object>> pagesByProduct = new HashMap<>();
+    private final Map<Object, List<Long>> productsByPage = new HashMap<>();
+    private final Set<Object> reorderablePages = new HashSet<>();
+
+    @Override
+    public String getCacheName() {
+        return ProductCache.PAGES_CACHE;
+    }
+
+    @Override
+    public void onRemoval(Object key, Object value, RemovalCause cause) {
+        if (key != null) {
+            unregisterPage(key);
+        }
+    }
+
+    /**
+     * Records which products a cached page contains, replacing any previous entry for the page.
+     * @param pageKey The cache key of the page.
+     * @param productIds The IDs of the products on the page.
+     * @param reorderable Whether the page is sorted on a property that a product write can change.
+     */
+    public synchronized void registerPage(Object pageKey, Collection<Long> productIds, boolean reorderable) {
+        unregisterPage(pageKey);
+        List<Long> ids = List.copyOf(productIds);
+        productsByPage.put(pageKey, ids);
+        if (reorderable) {
+            reorderablePages.add(pageKey);
+        }
+        for (Long productId : ids) {
+            pagesByProduct.computeIfAbsent(productId, id -> new HashSet<>()).add(pageKey);
+        }
+    }
+
+    /**
+     * Removes a page from the index.
+     * @param pageKey The cache key of the page.
+     */
+    public synchronized void unregisterPage(Object pageKey) {
+        reorderablePages.remove(pageKey);
+        List<Long> ids = productsByPage.remove(pageKey);
+        if (ids == null) {
+            return;
+        }
+        for (Long productId : ids) {
+            Set<Object> pages = pagesByProduct.get(productId);
+            if (pages != null) {
+                pages.remove(pageKey);
+                if (pages.isEmpty()) {
+                    pagesByProduct.remove(productId);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes every page a change to the given products can make stale from the index: the pages
+     * containing them and every reorderable page.
+     * @param productIds The IDs of the changed products.
+     * @return The keys of the removed pages, which the caller should evict from the cache.
+     */
+    public synchronized Set<Object> removePagesAffectedBy(Collection<Long> productIds) {
+        Set<Object> removed = new HashSet<>(reorderablePages);
+        for (Long productId : productIds) {
+            removed.addAll(pagesByProduct.getOrDefault(productId, Set.of()));
+        }
+        removed.forEach(this::unregisterPage);
+        return removed;
+    }
+
+    /**
+     * Empties the index.
+     */
+    public synchronized void clear() {
+        pagesByProduct.clear();
+        productsByPage.clear();
+        reorderablePages.clear();
+    }
+}
@@ -0,0 +1,96 @@
+package com.healthstore.cache;
+
+import com.healthstore.exception.LoadTimeoutException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent loads of the same data into a single database call.
+ * The first caller for a key runs the loader on its own thread while later callers
+ * for that key wait for its result, up to {@code app.single-flight.wait-timeout}.
+ * Calls are counted in the {@code single.flight.calls} metric, tagged by loader name
+ * and by whether the caller loaded, joined or timed out.
+ */
+@Component
+public class SingleFlightLoader {
+
+    private final Map<FlightKey, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+    private final Duration waitTimeout;
+
+    public SingleFlightLoader(MeterRegistry meterRegistry,
+                              @Value("${app.single-flight.wait-timeout:5s}") Duration waitTimeout) {
+        this.meterRegistry = meterRegistry;
+        this.waitTimeout = waitTimeout;
+        meterRegistry.gauge("single.flight.in.flight", inFlight, Map::size);
+    }
+
+    /**
+     * Loads a value, sharing the result with any concurrent caller using the same name and key.
+     * @param name The name of the loader, used to separate key spaces and tag metrics.
+     * @param key The key of the value to load.
+     * @param loader Loads the value.
+     * @return The loaded value.
+     * @throws LoadTimeoutException if the shared load does not finish within the wait timeout.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T load(String name, Object key, Supplier<T> loader) {
+        FlightKey flightKey = new FlightKey(name, key);
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(flightKey, flight);
+
+        if (existing == null) {
+            counter(name, "loaded").increment();
+            Timer.Sample sample = Timer.start(meterRegistry);
+            try {
+                T value = loader.get();
+                flight.complete(value);
+                return value;
+            } catch (RuntimeException | Error e) {
+                flight.completeExceptionally(e);
+                throw e;
+            } finally {
+                inFlight.remove(flightKey, flight);
+                sample.stop(meterRegistry.timer("single.flight.load", "name", name));
+            }
+        }
+
+        counter(name, "joined").increment();
+        try {
+            return (T) existing.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            counter(name, "timeout").increment();
+            throw new LoadTimeoutException("Timed out waiting for shared load of " + name + " [" + key + "]", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LoadTimeoutException("Interrupted while waiting for shared load of " + name, e);
+        }
+    }
+
+    private Counter counter(String name, String result) {
+        return meterRegistry.counter("single.flight.calls", "name", name, "result", result);
+    }
+
+    private record FlightKey(String name, Object key) {
+    }
+}
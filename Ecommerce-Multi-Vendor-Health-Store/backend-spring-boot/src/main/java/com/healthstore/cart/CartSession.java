@@ -0,0 +1,208 @@
+package com.healthstore.cart;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The in-memory copy of one cart, held by the {@link CartSessionStore} of the node that owns it.
+ * Lines are keyed by product, like the rows of {@code cart_items}. Every change moves the cart to
+ * its next version; the version last written back tells whether the copy has unsaved changes.
+ * Versions continue from the revision the cart was loaded at, and a write-back stores its version
+ * as the new revision, so a version handed to a client stays meaningful when the cart is reloaded.
+ * Callers must hold the monitor of the session while reading or changing it.
+ */
+public class CartSession {
+
+    /**
+     * Revision of a user cart that has no row in the database yet.
+     */
+    static final long NO_CART = -1;
+
+    /**
+     * One line of the cart.
+     * @param productId The ID of the product.
+     * @param variantId The ID of the product variant, or null if the product has no variants.
+     * @param quantity The quantity, greater than zero.
+     */
+    public record Line(Long productId, Long variantId, int quantity) {
+    }
+
+    /**
+     * The state of a user cart to write back.
+     * @param userId The ID of the user owning the cart.
+     * @param revision The database revision the state is based on.
+     * @param version The version of the state.
+     * @param lines The lines of the cart.
+     */
+    record Snapshot(Long userId, long revision, long version, List<Line> lines) {
+    }
+
+    private final Long userId;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private Map<Long, Line> lines = new LinkedHashMap<>();
+    private Map<Long, Line> writtenLines;
+    private long version;
+    private long writtenVersion;
+    private long revision;
+    private boolean discarded;
+    private volatile long lastAccess = System.nanoTime();
+
+    /**
+     * @param userId The ID of the user owning the cart, or null for a guest cart.
+     * @param revision The database revision the lines were loaded from.
+     * @param lines The lines of the cart.
+     */
+    CartSession(Long userId, long revision, List<Line> lines) {
+        this.userId = userId;
+        this.revision = revision;
+        this.version = Math.max(revision, 0);
+        this.writtenVersion = version;
+        lines.forEach(line -> this.lines.put(line.productId(), line));
+        this.writtenLines = new LinkedHashMap<>(this.lines);
+    }
+
+    /**
+     * @return The ID of the user owning the cart, or null for a guest cart.
+     */
+    public Long getUserId() {
+        return userId;
+    }
+
+    /**
+     * @return The version of the cart, which grows with every change.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return The lines of the cart, in the order they were added.
+     */
+    public List<Line> getLines() {
+        return new ArrayList<>(lines.values());
+    }
+
+    /**
+     * @param productId The ID of the product.
+     * @return The line of the product, or null if it is not in the cart.
+     */
+    public Line getLine(Long productId) {
+        return lines.get(productId);
+    }
+
+    /**
+     * Adds or replaces the line of a product.
+     * @param line The line.
+     */
+    public void put(Line line) {
+        lines.put(line.productId(), line);
+        version++;
+    }
+
+    /**
+     * Removes the line of a product.
+     * @param productId The ID of the product.
+     * @return The removed line, or null if the product was not in the cart.
+     */
+    public Line remove(Long productId) {
+        Line removed = lines.remove(productId);
+        if (removed != null) {
+            version++;
+        }
+        return removed;
+    }
+
+    /**
+     * Removes all lines.
+     */
+    public void clear() {
+        if (!lines.isEmpty()) {
+            lines.clear();
+            version++;
+        }
+    }
+
+    boolean isDirty() {
+        return version != writtenVersion;
+    }
+
+    boolean isDiscarded() {
+        return discarded;
+    }
+
+    void discard() {
+        discarded = true;
+    }
+
+    long getRevision() {
+        return revision;
+    }
+
+    Snapshot snapshot() {
+        return new Snapshot(userId, revision, version, getLines());
+    }
+
+    /**
+     * Records that a snapshot was written back.
+     * @param snapshot The written snapshot.
+     * @param newRevision The database revision of the written cart.
+     */
+    void written(Snapshot snapshot, long newRevision) {
+        writtenVersion = Math.max(writtenVersion, snapshot.version());
+        revision = newRevision;
+        writtenLines = new LinkedHashMap<>();
+        snapshot.lines().forEach(line -> writtenLines.put(line.productId(), line));
+    }
+
+    /**
+     * Moves the copy onto a cart written directly in the database, such as by a checkout.
+     * Lines changed in memory since the copy was last written back keep their change; every other
+     * line is taken from the written cart. The version moves past every version handed out so far,
+     * and is stored as the revision of the cart at the next write-back.
+     * @param newRevision The database revision of the written cart.
+     * @param savedLines The lines of the written cart.
+     */
+    void rebase(long newRevision, List<Line> savedLines) {
+        Map<Long, Line> saved = new LinkedHashMap<>();
+        savedLines.forEach(line -> saved.put(line.productId(), line));
+        Map<Long, Line> merged = new LinkedHashMap<>(saved);
+        Set<Long> productIds = new HashSet<>(lines.keySet());
+        productIds.addAll(writtenLines.keySet());
+        for (Long productId : productIds) {
+            Line line = lines.get(productId);
+            if (!Objects.equals(line, writtenLines.get(productId))) {
+                if (line == null) {
+                    merged.remove(productId);
+                } else {
+                    merged.put(productId, line);
+                }
+            }
+        }
+        lines = merged;
+        writtenLines = saved;
+        revision = newRevision;
+        version = Math.max(version, newRevision) + 1;
+        writtenVersion = newRevision;
+    }
+
+    void touch() {
+        lastAccess = System.nanoTime();
+    }
+
+    long getLastAccess() {
+        return lastAccess;
+    }
+
+    /**
+     * @return The lock serializing write-backs of this cart, held while a snapshot is written.
+     */
+    ReentrantLock getWriteLock() {
+        return writeLock;
+    }
+}
@@ -0,0 +1,286 @@
+package com.healthstore.cart;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.healthstore.config.CartProperties;
+import com.healthstore.exception.ResourceNotFoundException;
+import com.healthstore.model.Cart;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Carts held in memory by this node, so that cart changes cost no database writes.
+ * <p>
+ * The cart of a user is loaded on first use and written back to the database every flush interval
+ * while it has changes, when a checkout reads it, and before it is dropped after being idle.
+ * The node that loaded a cart owns it: requests of a user must be routed to the same node (sticky
+ * sessions). A checkout writing the cart directly moves the copy onto the written cart once it commits,
+ * keeping the changes made to the copy meanwhile. If another node writes the cart, the write-back of
+ * the stale copy is refused and the copy is dropped, so the next request loads the current cart.
+ * <p>
+ * Guest carts are identified by a random token and live in memory only, until they are merged into
+ * the cart of the user at login or expire.
+ */
+@Component
+public class CartSessionStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(CartSessionStore.class);
+    private static final int TOKEN_BYTES = 24;
+
+    private final CartWriteBack writeBack;
+    private final CartProperties properties;
+    private final Map<Long, CartSession> userCarts = new ConcurrentHashMap<>();
+    private final Map<Long, Integer> directWrites = new ConcurrentHashMap<>();
+    private final Cache<String, CartSession> guestCarts;
+    private final SecureRandom random = new SecureRandom();
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "cart-flush");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public CartSessionStore(CartWriteBack writeBack, CartProperties properties) {
+        this.writeBack = writeBack;
+        this.properties = properties;
+        this.guestCarts = Caffeine.newBuilder()
+                .expireAfterAccess(properties.getGuestTtl())
+                .maximumSize(properties.getMaxGuestCarts())
+                .build();
+    }
+
+    /**
+     * Starts writing back changed carts every flush interval.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        long interval = properties.getFlushInterval().toMillis();
+        flusher.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Runs an action on the cart of a user while holding it, loading the cart first if needed.
+     * @param userId The ID of the user.
+     * @param action Reads or changes the cart.
+     * @return The result of the action.
+     */
+    public <T> T withUserCart(Long userId, Function<CartSession, T> action) {
+        while (true) {
+            CartSession session = userCarts.get(userId);
+            if (session == null) {
+                // Loaded outside the map, so that the query does not hold up the users of the same bin.
+                CartSession loaded = writeBack.load(userId);
+                CartSession existing = userCarts.putIfAbsent(userId, loaded);
+                session = existing != null ? existing : loaded;
+            }
+            synchronized (session) {
+                // A copy dropped by a concurrent write-back conflict is loaded again.
+                if (!session.isDiscarded()) {
+                    session.touch();
+                    return action.apply(session);
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates an empty guest cart.
+     * @return The token of the cart.
+     */
+    public String createGuestCart() {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        guestCarts.put(token, new CartSession(null, CartSession.NO_CART, List.of()));
+        return token;
+    }
+
+    /**
+     * Runs an action on a guest cart while holding it.
+     * @param token The token of the cart.
+     * @param action Reads or changes the cart.
+     * @return The result of the action.
+     * @throws ResourceNotFoundException if the cart does not exist or has expired
+     */
+    public <T> T withGuestCart(String token, Function<CartSession, T> action) {
+        CartSession session = guestCarts.getIfPresent(token);
+        if (session == null) {
+            throw new ResourceNotFoundException("Guest cart not found");
+        }
+        synchronized (session) {
+            if (session.isDiscarded()) {
+                throw new ResourceNotFoundException("Guest cart not found");
+            }
+            return action.apply(session);
+        }
+    }
+
+    /**
+     * Removes a guest cart, for example to merge it into the cart of a user.
+     * @param token The token of the cart.
+     * @return The lines of the cart, or empty if it does not exist or has expired.
+     */
+    public List<CartSession.Line> removeGuestCart(String token) {
+        CartSession session = guestCarts.asMap().remove(token);
+        if (session == null) {
+            return List.of();
+        }
+        synchronized (session) {
+            session.discard();
+            return session.getLines();
+        }
+    }
+
+    /**
+     * Writes the cart of a user back now if it has changes, for readers of the database such as checkout.
+     * @param userId The ID of the user.
+     */
+    public void writeBack(Long userId) {
+        CartSession session = userCarts.get(userId);
+        if (session != null) {
+            write(session);
+        }
+    }
+
+    /**
+     * Moves the in-memory copy of a user's cart onto a cart written directly in the database by the
+     * current transaction, such as a checkout removing the ordered lines, once the transaction commits.
+     * Changes made to the copy meanwhile are kept, and a write-back refused because of the direct write
+     * does not drop the copy. Without a transaction, the cart is taken as written already.
+     * @param cart The written cart, with its items and its new revision.
+     */
+    public void writtenDirectly(Cart cart) {
+        Long userId = cart.getUser().getId();
+        long revision = cart.getRevision();
+        List<CartSession.Line> lines = CartWriteBack.linesOf(cart);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            rebase(userId, revision, lines);
+            return;
+        }
+        directWrites.merge(userId, 1, Integer::sum);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                try {
+                    if (status == STATUS_COMMITTED) {
+                        rebase(userId, revision, lines);
+                    }
+                } finally {
+                    directWrites.computeIfPresent(userId, (id, count) -> count > 1 ? count - 1 : null);
+                }
+            }
+        });
+    }
+
+    /**
+     * Moves the copy of a cart onto a written revision, unless the copy was loaded from it or a later one.
+     */
+    private void rebase(Long userId, long revision, List<CartSession.Line> lines) {
+        CartSession session = userCarts.get(userId);
+        if (session == null) {
+            return;
+        }
+        session.getWriteLock().lock();
+        try {
+            synchronized (session) {
+                if (!session.isDiscarded() && session.getRevision() < revision) {
+                    session.rebase(revision, lines);
+                }
+            }
+        } finally {
+            session.getWriteLock().unlock();
+        }
+    }
+
+    /**
+     * Writes back every changed cart and drops the copies of carts idle for longer than the idle timeout.
+     */
+    void flush() {
+        long idleNanos = properties.getIdleTimeout().toNanos();
+        for (CartSession session : userCarts.values()) {
+            try {
+                write(session);
+                if (System.nanoTime() - session.getLastAccess() > idleNanos) {
+                    synchronized (session) {
+                        if (!session.isDirty() && System.nanoTime() - session.getLastAccess() > idleNanos) {
+                            session.discard();
+                            userCarts.remove(session.getUserId(), session);
+                        }
+                    }
+                }
+            } catch (RuntimeException e) {
+                logger.error("Failed to write back cart of user {}, retrying", session.getUserId(), e);
+            }
+        }
+    }
+
+    /**
+     * Writes a cart back if it has changes; write-backs of the same cart never overlap.
+     */
+    private void write(CartSession session) {
+        session.getWriteLock().lock();
+        try {
+            CartSession.Snapshot snapshot;
+            synchronized (session) {
+                if (session.isDiscarded() || !session.isDirty()) {
+                    return;
+                }
+                snapshot = session.snapshot();
+            }
+            long revision;
+            try {
+                revision = writeBack.write(snapshot);
+            } catch (DataIntegrityViolationException e) {
+                // The cart row was created concurrently, by another node or at registration.
+                revision = CartWriteBack.CONFLICT;
+            }
+            synchronized (session) {
+                if (revision == CartWriteBack.CONFLICT && directWrites.containsKey(session.getUserId())) {
+                    // Refused because of a direct write, which moves the copy onto its cart once committed.
+                    return;
+                } else if (revision == CartWriteBack.CONFLICT) {
+                    logger.warn("Cart of user {} was written elsewhere, dropping the in-memory copy", session.getUserId());
+                    session.discard();
+                    userCarts.remove(session.getUserId(), session);
+                } else {
+                    session.written(snapshot, revision);
+                }
+            }
+        } finally {
+            session.getWriteLock().unlock();
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (CartSession session : userCarts.values()) {
+            try {
+                write(session);
+            } catch (RuntimeException e) {
+                logger.error("Failed to write back cart of user {} on shutdown", session.getUserId(), e);
+            }
+        }
+    }
+}
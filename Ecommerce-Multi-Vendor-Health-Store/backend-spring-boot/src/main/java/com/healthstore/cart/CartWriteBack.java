@@ -0,0 +1,123 @@
+package com.healthstore.cart;
+
+import com.healthstore.model.Cart;
+import com.healthstore.model.CartItem;
+import com.healthstore.model.Product;
+import com.healthstore.model.ProductVariant;
+import com.healthstore.model.User;
+import com.healthstore.repository.CartRepository;
+import jakarta.persistence.EntityManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Loads user carts into memory and writes them back to {@code carts} and {@code cart_items}.
+ * A write-back only goes through if the cart is still at the revision its copy was loaded or last
+ * written at; otherwise someone else, such as a checkout or another node, wrote the cart meanwhile.
+ */
+@Component
+public class CartWriteBack {
+
+    /**
+     * Returned by {@link #write(CartSession.Snapshot)} when the cart was written by someone else.
+     */
+    static final long CONFLICT = Long.MIN_VALUE;
+
+    private final CartRepository cartRepository;
+    private final EntityManager entityManager;
+
+    public CartWriteBack(CartRepository cartRepository, EntityManager entityManager) {
+        this.cartRepository = cartRepository;
+        this.entityManager = entityManager;
+    }
+
+    /**
+     * Loads the cart of a user with its items in one query.
+     * @param userId The ID of the user.
+     * @return The cart, empty if the user has no cart row yet.
+     */
+    @Transactional(readOnly = true)
+    public CartSession load(Long userId) {
+        Optional<Cart> cart = cartRepository.findByUserIdWithItems(userId);
+        if (cart.isEmpty()) {
+            return new CartSession(userId, CartSession.NO_CART, List.of());
+        }
+        return new CartSession(userId, cart.get().getRevision(), linesOf(cart.get()));
+    }
+
+    /**
+     * @param cart A cart with its items.
+     * @return The lines of the cart.
+     */
+    static List<CartSession.Line> linesOf(Cart cart) {
+        List<CartSession.Line> lines = new ArrayList<>();
+        for (CartItem item : cart.getItems()) {
+            lines.add(new CartSession.Line(item.getProduct().getId(),
+                    item.getProductVariant() != null ? item.getProductVariant().getId() : null,
+                    item.getQuantity()));
+        }
+        return lines;
+    }
+
+    /**
+     * Writes a cart back, changing only the items that differ.
+     * Committed on its own, so a write-back done for a checkout is visible to the checkout's transaction.
+     * @param snapshot The state of the cart.
+     * @return The new revision of the cart, or {@link #CONFLICT} if it was written by someone else meanwhile.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public long write(CartSession.Snapshot snapshot) {
+        Cart cart;
+        long revision;
+        if (snapshot.revision() == CartSession.NO_CART) {
+            if (cartRepository.findByUserId(snapshot.userId()).isPresent()) {
+                return CONFLICT;
+            }
+            cart = new Cart();
+            cart.setUser(entityManager.getReference(User.class, snapshot.userId()));
+            cart.setRevision(snapshot.version());
+            revision = snapshot.version();
+        } else {
+            Optional<Cart> existing = cartRepository.findByUserId(snapshot.userId());
+            if (existing.isEmpty() || cartRepository.advanceRevision(existing.get().getId(), snapshot.revision(), snapshot.version()) == 0) {
+                return CONFLICT;
+            }
+            cart = cartRepository.findByUserIdWithItems(snapshot.userId()).orElseThrow();
+            revision = cart.getRevision();
+        }
+
+        Map<Long, CartItem> items = new HashMap<>();
+        for (CartItem item : cart.getItems()) {
+            items.put(item.getProduct().getId(), item);
+        }
+        for (CartSession.Line line : snapshot.lines()) {
+            CartItem item = items.remove(line.productId());
+            if (item == null) {
+                item = new CartItem();
+                item.setCart(cart);
+                item.setProduct(entityManager.getReference(Product.class, line.productId()));
+                cart.getItems().add(item);
+            }
+            Long variantId = item.getProductVariant() != null ? item.getProductVariant().getId() : null;
+            if (!Objects.equals(variantId, line.variantId())) {
+                item.setProductVariant(line.variantId() != null
+                        ? entityManager.getReference(ProductVariant.class, line.variantId()) : null);
+            }
+            if (item.getQuantity() == null || item.getQuantity() != line.quantity()) {
+                item.setQuantity(line.quantity());
+            }
+        }
+        // Whatever is left in the map is no longer in the cart.
+        cart.getItems().removeIf(item -> items.containsKey(item.getProduct().getId()));
+        cartRepository.save(cart);
+        return revision;
+    }
+}
@@ -0,0 +1,97 @@
+package com.healthstore.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.healthstore.cache.CacheEvictionListener;
+import com.healthstore.cache.CacheRefreshLoader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Cache configuration for the Health Store application.
+ * Caches are backed by Caffeine, which bounds every cache by size using
+ * W-TinyLFU eviction, expires entries per cache and records hit, miss and
+ * eviction statistics that Actuator exports under the {@code cache.*} metrics.
+ */
+@Configuration
+@EnableConfigurationProperties(CacheProperties.class)
+public class CacheConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheConfig.class);
+
+    /**
+     * Creates the cache manager with one bounded cache per configured name.
+     * Caches requested later under an unknown name are created with the default settings.
+     * @param cacheProperties The cache settings.
+     * @param refreshLoaders The loaders available for refresh-ahead.
+     * @param evictionListeners The listeners notified of size and expiry evictions.
+     * @return The cache manager.
+     */
+    @Bean
+    public CacheManager cacheManager(CacheProperties cacheProperties,
+                                     ObjectProvider<CacheRefreshLoader> refreshLoaders,
+                                     ObjectProvider<CacheEvictionListener> evictionListeners) {
+        Map<String, CacheRefreshLoader> loadersByCache = refreshLoaders.orderedStream()
+                .collect(Collectors.toMap(CacheRefreshLoader::getCacheName, Function.identity()));
+        Map<String, CacheEvictionListener> listenersByCache = evictionListeners.orderedStream()
+                .collect(Collectors.toMap(CacheEvictionListener::getCacheName, Function.identity()));
+
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.setCaffeine(newBuilder(cacheProperties.getDefaults()));
+
+        Set<String> cacheNames = new LinkedHashSet<>(cacheProperties.getCacheNames());
+        cacheNames.addAll(cacheProperties.getSpecs().keySet());
+
+        for (String cacheName : cacheNames) {
+            CacheProperties.Spec spec = cacheProperties.resolve(cacheName);
+            Caffeine<Object, Object> builder = newBuilder(spec);
+            CacheRefreshLoader loader = loadersByCache.get(cacheName);
+            CacheEvictionListener evictionListener = listenersByCache.get(cacheName);
+            if (evictionListener != null) {
+                builder.evictionListener(evictionListener);
+            }
+
+            if (spec.getRefreshAfterWrite() != null && loader != null) {
+                builder.refreshAfterWrite(spec.getRefreshAfterWrite());
+                cacheManager.registerCustomCache(cacheName, builder.build(loader));
+            } else {
+                if (spec.getRefreshAfterWrite() != null) {
+                    logger.warn("Ignoring refresh-after-write for cache '{}' because it has no refresh loader", cacheName);
+                }
+                cacheManager.registerCustomCache(cacheName, builder.build());
+            }
+            logger.info("Configured cache '{}' with maximumSize={}, expireAfterWrite={}, refreshAfterWrite={}",
+                    cacheName, spec.getMaximumSize(), spec.getExpireAfterWrite(),
+                    loader != null ? spec.getRefreshAfterWrite() : null);
+        }
+
+        return cacheManager;
+    }
+
+    /**
+     * Builds a Caffeine builder for the given settings with statistics enabled.
+     * @param spec The cache settings.
+     * @return A configured Caffeine builder.
+     */
+    private Caffeine<Object, Object> newBuilder(CacheProperties.Spec spec) {
+        Caffeine<Object, Object> builder = Caffeine.newBuilder().recordStats();
+        if (spec.getMaximumSize() != null) {
+            builder.maximumSize(spec.getMaximumSize());
+        }
+        if (spec.getExpireAfterWrite() != null) {
+            builder.expireAfterWrite(spec.getExpireAfterWrite());
+        }
+        return builder;
+    }
+}
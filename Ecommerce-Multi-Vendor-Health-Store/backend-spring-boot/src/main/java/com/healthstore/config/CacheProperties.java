@@ -0,0 +1,137 @@
+package com.healthstore.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Configuration properties for the application caches.
+ * Every cache is bounded and can be tuned individually, for example:
+ * <pre>
+ * app.cache.defaults.maximum-size=1000
+ * app.cache.defaults.expire-after-write=10m
+ * app.cache.specs.products.maximum-size=500
+ * app.cache.specs.categories.refresh-after-write=5m
+ * </pre>
+ * Values that are not set for a cache fall back to {@code app.cache.defaults}.
+ */
+@ConfigurationProperties(prefix = "app.cache")
+public class CacheProperties {
+
+    /**
+     * Names of the caches created eagerly at startup so their metrics are registered.
+     */
+    private List<String> cacheNames = new ArrayList<>(List.of("products", "product", "categories"));
+
+    /**
+     * Settings applied to any cache that does not override them.
+     */
+    private Spec defaults = new Spec(1000L, Duration.ofMinutes(10), null);
+
+    /**
+     * Per-cache overrides keyed by cache name.
+     */
+    private Map<String, Spec> specs = new LinkedHashMap<>(Map.of(
+            "products", new Spec(500L, Duration.ofMinutes(5), null),
+            "product", new Spec(5000L, Duration.ofMinutes(30), null),
+            "categories", new Spec(100L, Duration.ofHours(1), Duration.ofMinutes(5))));
+
+    /**
+     * Resolves the effective settings for a cache by merging its overrides with the defaults.
+     * @param cacheName The name of the cache.
+     * @return The effective settings for the cache.
+     */
+    public Spec resolve(String cacheName) {
+        Spec spec = specs.get(cacheName);
+        if (spec == null) {
+            return defaults;
+        }
+        return new Spec(
+                spec.getMaximumSize() != null ? spec.getMaximumSize() : defaults.getMaximumSize(),
+                spec.getExpireAfterWrite() != null ? spec.getExpireAfterWrite() : defaults.getExpireAfterWrite(),
+                spec.getRefreshAfterWrite() != null ? spec.getRefreshAfterWrite() : defaults.getRefreshAfterWrite());
+    }
+
+    public List<String> getCacheNames() {
+        return cacheNames;
+    }
+
+    public void setCacheNames(List<String> cacheNames) {
+        this.cacheNames = cacheNames;
+    }
+
+    public Spec getDefaults() {
+        return defaults;
+    }
+
+    public void setDefaults(Spec defaults) {
+        this.defaults = defaults;
+    }
+
+    public Map<String, Spec> getSpecs() {
+        return specs;
+    }
+
+    public void setSpecs(Map<String, Spec> specs) {
+        this.specs = specs;
+    }
+
+    /**
+     * Size and expiry settings of a single cache.
+     */
+    public static class Spec {
+
+        /**
+         * Maximum number of entries before the least valuable ones are evicted.
+         */
+        private Long maximumSize;
+
+        /**
+         * Time after which an entry expires once written.
+         */
+        private Duration expireAfterWrite;
+
+        /**
+         * Time after which an entry is reloaded in the background on its next read.
+         * Only honoured for caches that have a {@link com.healthstore.cache.CacheRefreshLoader}.
+         */
+        private Duration refreshAfterWrite;
+
+        public Spec() {
+        }
+
+        public Spec(Long maximumSize, Duration expireAfterWrite, Duration refreshAfterWrite) {
+            this.maximumSize = maximumSize;
+            this.expireAfterWrite = expireAfterWrite;
+            this.refreshAfterWrite = refreshAfterWrite;
+        }
+
+        public Long getMaximumSize() {
+            return maximumSize;
+        }
+
+        public void setMaximumSize(Long maximumSize) {
+            this.maximumSize = maximumSize;
+        }
+
+        public Duration getExpireAfterWrite() {
+            return expireAfterWrite;
+        }
+
+        public void setExpireAfterWrite(Duration expireAfterWrite) {
+            this.expireAfterWrite = expireAfterWrite;
+        }
+
+        public Duration getRefreshAfterWrite() {
+            return refreshAfterWrite;
+        }
+
+        public void setRefreshAfterWrite(Duration refreshAfterWrite) {
+            this.refreshAfterWrite = refreshAfterWrite;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.healthstore.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for the in-memory cart store, for example:
+ * <pre>
+ * app.cart.flush-interval=10s
+ * app.cart.guest-ttl=48h
+ * </pre>
+ */
+@ConfigurationProperties(prefix = "app.cart")
+public class CartProperties {
+
+    /**
+     * Interval at which changed carts of users are written back to the database.
+     */
+    private Duration flushInterval = Duration.ofSeconds(5);
+
+    /**
+     * How long the cart of a user stays in memory after its last use; it is written back before it is dropped.
+     */
+    private Duration idleTimeout = Duration.ofMinutes(30);
+
+    /**
+     * How long a guest cart is kept after its last use. Guest carts live in memory only.
+     */
+    private Duration guestTtl = Duration.ofHours(24);
+
+    /**
+     * Maximum number of guest carts kept; the least recently used are dropped beyond it.
+     */
+    private long maxGuestCarts = 100_000;
+
+    public Duration getFlushInterval() {
+        return flushInterval;
+    }
+
+    public void setFlushInterval(Duration flushInterval) {
+        this.flushInterval = flushInterval;
+    }
+
+    public Duration getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public void setIdleTimeout(Duration idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    public Duration getGuestTtl() {
+        return guestTtl;
+    }
+
+    public void setGuestTtl(Duration guestTtl) {
+        this.guestTtl = guestTtl;
+    }
+
+    public long getMaxGuestCarts() {
+        return maxGuestCarts;
+    }
+
+    public void setMaxGuestCarts(long maxGuestCarts) {
+        this.maxGuestCarts = maxGuestCarts;
+    }
+}
@@ -0,0 +1,28 @@
+package com.healthstore.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration properties for the order exports, for example:
+ * <pre>
+ * app.export.fetch-size=2000
+ * </pre>
+ */
+@ConfigurationProperties(prefix = "app.export")
+public class ExportProperties {
+
+    /**
+     * Number of rows fetched from the database at a time while an export is written.
+     * With MySQL it is only honoured when the JDBC URL sets {@code useCursorFetch=true};
+     * otherwise the driver reads the whole result before the first row is written.
+     */
+    private int fetchSize = 1000;
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+}
@@ -0,0 +1,69 @@
+package com.healthstore.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for idempotency keys, for example:
+ * <pre>
+ * app.idempotency.ttl=12h
+ * app.idempotency.lock-timeout=1m
+ * </pre>
+ */
+@ConfigurationProperties(prefix = "app.idempotency")
+public class IdempotencyProperties {
+
+    /**
+     * How long the result of a request is kept for replays of the same key.
+     */
+    private Duration ttl = Duration.ofHours(24);
+
+    /**
+     * How long a key stays claimed by a request that has not finished; after that,
+     * the request is considered abandoned and a retry may run it again.
+     */
+    private Duration lockTimeout = Duration.ofSeconds(30);
+
+    /**
+     * Interval at which expired keys are deleted.
+     */
+    private Duration purgeInterval = Duration.ofMinutes(15);
+
+    /**
+     * Maximum accepted length of a key.
+     */
+    private int maxKeyLength = 255;
+
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    public void setTtl(Duration ttl) {
+        this.ttl = ttl;
+    }
+
+    public Duration getLockTimeout() {
+        return lockTimeout;
+    }
+
+    public void setLockTimeout(Duration lockTimeout) {
+        this.lockTimeout = lockTimeout;
+    }
+
+    public Duration getPurgeInterval() {
+        return purgeInterval;
+    }
+
+    public void setPurgeInterval(Duration purgeInterval) {
+        this.purgeInterval = purgeInterval;
+    }
+
+    public int getMaxKeyLength() {
+        return maxKeyLength;
+    }
+
+    public void setMaxKeyLength(int maxKeyLength) {
+        this.maxKeyLength = maxKeyLength;
+    }
+}
@@ -0,0 +1,223 @@
+package com.healthstore.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuration properties for inventory handling, for example:
+ * <pre>
+ * app.inventory.hot.enabled=true
+ * app.inventory.hot.variant-ids=42,43
+ * app.inventory.hot.flush-interval=200ms
+ * app.inventory.hot.journal=/var/lib/healthstore/hot-stock.journal
+ * app.inventory.reservation.ttl=10m
+ * app.inventory.alerts.low-threshold=10
+ * </pre>
+ */
+@ConfigurationProperties(prefix = "app.inventory")
+public class InventoryProperties {
+
+    /**
+     * Settings of the in-memory stock ledger for hot variants.
+     */
+    private Hot hot = new Hot();
+
+    /**
+     * Settings of the soft reservations held by carts.
+     */
+    private Reservation reservation = new Reservation();
+
+    /**
+     * Settings of the low-stock alerts.
+     */
+    private Alerts alerts = new Alerts();
+
+    public Hot getHot() {
+        return hot;
+    }
+
+    public void setHot(Hot hot) {
+        this.hot = hot;
+    }
+
+    public Reservation getReservation() {
+        return reservation;
+    }
+
+    public void setReservation(Reservation reservation) {
+        this.reservation = reservation;
+    }
+
+    public Alerts getAlerts() {
+        return alerts;
+    }
+
+    public void setAlerts(Alerts alerts) {
+        this.alerts = alerts;
+    }
+
+    /**
+     * Settings of hot-SKU mode, where the stock of selected variants is reserved in memory
+     * and written back to the database in batches.
+     */
+    public static class Hot {
+
+        /**
+         * Whether variants may be switched into hot mode at all.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Variants switched into hot mode at startup.
+         */
+        private List<Long> variantIds = new ArrayList<>();
+
+        /**
+         * Number of counters the stock of a hot variant is spread over; 0 uses one per processor.
+         */
+        private int stripes = 0;
+
+        /**
+         * Interval at which journaled reservations are written back to the database.
+         */
+        private Duration flushInterval = Duration.ofMillis(500);
+
+        /**
+         * File the reservations are journaled to before they are acknowledged.
+         */
+        private String journal = "data/hot-stock.journal";
+
+        /**
+         * Maximum number of journal records written and synced together.
+         */
+        private int journalBatchSize = 512;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public List<Long> getVariantIds() {
+            return variantIds;
+        }
+
+        public void setVariantIds(List<Long> variantIds) {
+            this.variantIds = variantIds;
+        }
+
+        public int getStripes() {
+            return stripes;
+        }
+
+        public void setStripes(int stripes) {
+            this.stripes = stripes;
+        }
+
+        public Duration getFlushInterval() {
+            return flushInterval;
+        }
+
+        public void setFlushInterval(Duration flushInterval) {
+            this.flushInterval = flushInterval;
+        }
+
+        public String getJournal() {
+            return journal;
+        }
+
+        public void setJournal(String journal) {
+            this.journal = journal;
+        }
+
+        public int getJournalBatchSize() {
+            return journalBatchSize;
+        }
+
+        public void setJournalBatchSize(int journalBatchSize) {
+            this.journalBatchSize = journalBatchSize;
+        }
+    }
+
+    /**
+     * Settings of cart reservations and the timer wheel that expires them.
+     */
+    public static class Reservation {
+
+        /**
+         * How long a cart holds stock after its last change.
+         */
+        private Duration ttl = Duration.ofMinutes(15);
+
+        /**
+         * Duration of one timer wheel tick, which is the precision of the expiry.
+         */
+        private Duration tickDuration = Duration.ofSeconds(1);
+
+        /**
+         * Number of timer wheel buckets; timeouts further away than one turn wait for extra turns.
+         */
+        private int wheelSize = 1024;
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+
+        public Duration getTickDuration() {
+            return tickDuration;
+        }
+
+        public void setTickDuration(Duration tickDuration) {
+            this.tickDuration = tickDuration;
+        }
+
+        public int getWheelSize() {
+            return wheelSize;
+        }
+
+        public void setWheelSize(int wheelSize) {
+            this.wheelSize = wheelSize;
+        }
+    }
+
+    /**
+     * Settings of the alerts sent when the stock of a variant runs low.
+     */
+    public static class Alerts {
+
+        /**
+         * Stock at or below which a variant is low on stock.
+         */
+        private int lowThreshold = 10;
+
+        /**
+         * Stock at or below which a variant is critically low on stock.
+         */
+        private int criticalThreshold = 3;
+
+        public int getLowThreshold() {
+            return lowThreshold;
+        }
+
+        public void setLowThreshold(int lowThreshold) {
+            this.lowThreshold = lowThreshold;
+        }
+
+        public int getCriticalThreshold() {
+            return criticalThreshold;
+        }
+
+        public void setCriticalThreshold(int criticalThreshold) {
+            this.criticalThreshold = criticalThreshold;
+        }
+    }
+}
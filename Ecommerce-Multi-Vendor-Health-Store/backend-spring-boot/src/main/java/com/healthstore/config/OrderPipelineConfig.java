@@ -0,0 +1,12 @@
+package com.healthstore.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Order placement pipeline configuration for the Health Store application.
+ */
+@Configuration
+@EnableConfigurationProperties(OrderPipelineProperties.class)
+public class OrderPipelineConfig {
+}
@@ -0,0 +1,143 @@
+package com.healthstore.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for the staged order placement pipeline, for example:
+ * <pre>
+ * app.order-pipeline.reserve-timeout=3s
+ * app.order-pipeline.reserved.workers=16
+ * app.order-pipeline.persisted.queue-capacity=5000
+ * </pre>
+ */
+@ConfigurationProperties(prefix = "app.order-pipeline")
+public class OrderPipelineProperties {
+
+    /**
+     * How long a placement request waits for its stock to be reserved before it returns
+     * with the placement still accepted.
+     */
+    private Duration reserveTimeout = Duration.ofSeconds(5);
+
+    /**
+     * How long the status of a placement can be looked up after its last change.
+     */
+    private Duration placementTtl = Duration.ofHours(1);
+
+    /**
+     * Maximum number of placements whose status is kept.
+     */
+    private long maxPlacements = 100_000;
+
+    private Stage accepted = new Stage(2, 1000);
+    private Stage reserved = new Stage(8, 1000);
+    private Stage priced = new Stage(2, 1000);
+    private Stage persisted = new Stage(8, 1000);
+    private Stage notified = new Stage(2, 1000);
+
+    public Duration getReserveTimeout() {
+        return reserveTimeout;
+    }
+
+    public void setReserveTimeout(Duration reserveTimeout) {
+        this.reserveTimeout = reserveTimeout;
+    }
+
+    public Duration getPlacementTtl() {
+        return placementTtl;
+    }
+
+    public void setPlacementTtl(Duration placementTtl) {
+        this.placementTtl = placementTtl;
+    }
+
+    public long getMaxPlacements() {
+        return maxPlacements;
+    }
+
+    public void setMaxPlacements(long maxPlacements) {
+        this.maxPlacements = maxPlacements;
+    }
+
+    public Stage getAccepted() {
+        return accepted;
+    }
+
+    public void setAccepted(Stage accepted) {
+        this.accepted = accepted;
+    }
+
+    public Stage getReserved() {
+        return reserved;
+    }
+
+    public void setReserved(Stage reserved) {
+        this.reserved = reserved;
+    }
+
+    public Stage getPriced() {
+        return priced;
+    }
+
+    public void setPriced(Stage priced) {
+        this.priced = priced;
+    }
+
+    public Stage getPersisted() {
+        return persisted;
+    }
+
+    public void setPersisted(Stage persisted) {
+        this.persisted = persisted;
+    }
+
+    public Stage getNotified() {
+        return notified;
+    }
+
+    public void setNotified(Stage notified) {
+        this.notified = notified;
+    }
+
+    /**
+     * Sizing of one pipeline stage.
+     */
+    public static class Stage {
+
+        /**
+         * Number of worker threads of the stage.
+         */
+        private int workers;
+
+        /**
+         * Maximum number of placements waiting for a worker of the stage.
+         */
+        private int queueCapacity;
+
+        public Stage() {
+        }
+
+        public Stage(int workers, int queueCapacity) {
+            this.workers = workers;
+            this.queueCapacity = queueCapacity;
+        }
+
+        public int getWorkers() {
+            return workers;
+        }
+
+        public void setWorkers(int workers) {
+            this.workers = workers;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.healthstore.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Sales report and report job configuration for the Health Store application.
+ */
+@Configuration
+@EnableConfigurationProperties({SalesReportProperties.class, ReportJobProperties.class})
+public class ReportConfig {
+}
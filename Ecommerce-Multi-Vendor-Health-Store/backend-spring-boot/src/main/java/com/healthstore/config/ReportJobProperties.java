@@ -0,0 +1,134 @@
+package com.healthstore.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for the background sales report jobs, for example:
+ * <pre>
+ * app.report-jobs.workers=4
+ * app.report-jobs.max-jobs-per-admin=3
+ * app.report-jobs.result-ttl=15m
+ * </pre>
+ */
+@ConfigurationProperties(prefix = "app.report-jobs")
+public class ReportJobProperties {
+
+    /**
+     * Number of reports generated at the same time.
+     */
+    private int workers = 2;
+
+    /**
+     * Maximum number of jobs waiting for a worker; further jobs are rejected.
+     */
+    private int queueCapacity = 50;
+
+    /**
+     * Maximum number of queued or running jobs of one admin.
+     */
+    private int maxJobsPerAdmin = 2;
+
+    /**
+     * How long a job, and the report it produced, can be looked up after it was submitted.
+     */
+    private Duration jobTtl = Duration.ofHours(1);
+
+    /**
+     * Maximum number of jobs kept.
+     */
+    private long maxJobs = 1_000;
+
+    /**
+     * How long a generated report is served to identical requests instead of being generated again.
+     */
+    private Duration resultTtl = Duration.ofMinutes(10);
+
+    /**
+     * Maximum number of generated reports kept for identical requests.
+     */
+    private long maxResults = 200;
+
+    /**
+     * How long a progress stream stays open before the client has to reconnect.
+     */
+    private Duration streamTimeout = Duration.ofMinutes(5);
+
+    /**
+     * Number of threads sending progress events to the clients following jobs.
+     */
+    private int streamWorkers = 2;
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    public void setWorkers(int workers) {
+        this.workers = workers;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public int getMaxJobsPerAdmin() {
+        return maxJobsPerAdmin;
+    }
+
+    public void setMaxJobsPerAdmin(int maxJobsPerAdmin) {
+        this.maxJobsPerAdmin = maxJobsPerAdmin;
+    }
+
+    public Duration getJobTtl() {
+        return jobTtl;
+    }
+
+    public void setJobTtl(Duration jobTtl) {
+        this.jobTtl = jobTtl;
+    }
+
+    public long getMaxJobs() {
+        return maxJobs;
+    }
+
+    public void setMaxJobs(long maxJobs) {
+        this.maxJobs = maxJobs;
+    }
+
+    public Duration getResultTtl() {
+        return resultTtl;
+    }
+
+    public void setResultTtl(Duration resultTtl) {
+        this.resultTtl = resultTtl;
+    }
+
+    public long getMaxResults() {
+        return maxResults;
+    }
+
+    public void setMaxResults(long maxResults) {
+        this.maxResults = maxResults;
+    }
+
+    public Duration getStreamTimeout() {
+        return streamTimeout;
+    }
+
+    public void setStreamTimeout(Duration streamTimeout) {
+        this.streamTimeout = streamTimeout;
+    }
+
+    public int getStreamWorkers() {
+        return streamWorkers;
+    }
+
+    public void setStreamWorkers(int streamWorkers) {
+        this.streamWorkers = streamWorkers;
+    }
+}
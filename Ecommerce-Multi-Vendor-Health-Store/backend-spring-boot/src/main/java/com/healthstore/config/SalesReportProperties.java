@@ -0,0 +1,99 @@
+package com.healthstore.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for the generation of sales reports, for example:
+ * <pre>
+ * app.sales-report.section-workers=16
+ * app.sales-report.section-timeout=20s
+ * app.sales-report.rollup-verify-days=90
+ * </pre>
+ */
+@ConfigurationProperties(prefix = "app.sales-report")
+public class SalesReportProperties {
+
+    /**
+     * Number of report sections computed at the same time, across all reports.
+     * Each running section holds a database connection.
+     */
+    private int sectionWorkers = 8;
+
+    /**
+     * Maximum number of sections waiting for a worker; beyond it, the thread generating the report
+     * computes its sections itself.
+     */
+    private int sectionQueueCapacity = 100;
+
+    /**
+     * How long one section may take before the report fails; its queries are cancelled at the same time.
+     */
+    private Duration sectionTimeout = Duration.ofSeconds(30);
+
+    /**
+     * How long to wait before recomputing sales rollups that failed to be recomputed.
+     * The wait doubles with each failure in a row, up to the maximum retry delay.
+     */
+    private Duration rollupRetryDelay = Duration.ofSeconds(1);
+
+    /**
+     * Longest wait before recomputing sales rollups that keep failing to be recomputed.
+     */
+    private Duration rollupMaxRetryDelay = Duration.ofMinutes(5);
+
+    /**
+     * Number of days, up to today, whose rollups are checked against their orders at startup and
+     * recomputed where they disagree, which catches up with changes not yet applied at the last shutdown.
+     */
+    private int rollupVerifyDays = 31;
+
+    public int getSectionWorkers() {
+        return sectionWorkers;
+    }
+
+    public void setSectionWorkers(int sectionWorkers) {
+        this.sectionWorkers = sectionWorkers;
+    }
+
+    public int getSectionQueueCapacity() {
+        return sectionQueueCapacity;
+    }
+
+    public void setSectionQueueCapacity(int sectionQueueCapacity) {
+        this.sectionQueueCapacity = sectionQueueCapacity;
+    }
+
+    public Duration getSectionTimeout() {
+        return sectionTimeout;
+    }
+
+    public void setSectionTimeout(Duration sectionTimeout) {
+        this.sectionTimeout = sectionTimeout;
+    }
+
+    public Duration getRollupRetryDelay() {
+        return rollupRetryDelay;
+    }
+
+    public void setRollupRetryDelay(Duration rollupRetryDelay) {
+        this.rollupRetryDelay = rollupRetryDelay;
+    }
+
+    public Duration getRollupMaxRetryDelay() {
+        return rollupMaxRetryDelay;
+    }
+
+    public void setRollupMaxRetryDelay(Duration rollupMaxRetryDelay) {
+        this.rollupMaxRetryDelay = rollupMaxRetryDelay;
+    }
+
+    public int getRollupVerifyDays() {
+        return rollupVerifyDays;
+    }
+
+    public void setRollupVerifyDays(int rollupVerifyDays) {
+        this.rollupVerifyDays = rollupVerifyDays;
+    }
+}
@@ -1,6 +1,7 @@
 package com.healthstore.config;
 
 import com.healthstore.security.JwtRequestFilter;
+import jakarta.servlet.DispatcherType;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -50,6 +51,10 @@ public class SecurityConfig {
         http
             .csrf(AbstractHttpConfigurer::disable) // Disable CSRF as JWT is stateless
             .authorizeHttpRequests(authorize -> authorize
+                // The completion of an event stream is dispatched again without the JWT filter;
+                // the request itself was authorized when it started
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+                
                 // Public endpoints
                 .requestMatchers("/auth/**").permitAll()
                 .requestMatchers("/oauth2/**").permitAll()
@@ -57,6 +62,7 @@ public class SecurityConfig {
                 .requestMatchers("/api/products/**").permitAll()
                 .requestMatchers("/api/categories/**").permitAll()
                 .requestMatchers("/api/chatbot/**").permitAll()
+                .requestMatchers("/api/guest-cart/**").permitAll()
                 .requestMatchers("/uploads/**").permitAll()
                 
                 // User and cart endpoints
@@ -2,23 +2,50 @@ package com.healthstore.controller;
 
 import com.healthstore.dto.UserActivityReportDTO;
 import com.healthstore.dto.AuditFilterDTO;
+import com.healthstore.dto.report.CustomerActivityDTO;
+import com.healthstore.dto.report.ReportJobDTO;
 import com.healthstore.dto.report.SalesReportRequest;
 import com.healthstore.dto.report.SalesReportResponse;
 import jakarta.validation.Valid;
+import com.healthstore.config.ReportJobProperties;
+import com.healthstore.report.OrderExporter;
+import com.healthstore.report.ReportJob;
+import com.healthstore.report.ReportJobEngine;
+import com.healthstore.report.SalesRollupUpdater;
+import com.healthstore.repository.CustomerAnalyticsRepository;
 import com.healthstore.service.AdminReportService;
 import com.healthstore.service.SalesReportService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * REST controller for administrative reporting operations.
@@ -32,11 +59,21 @@ public class AdminReportController {
 
     private final SalesReportService salesReportService;
     private final AdminReportService adminReportService;
+    private final SalesRollupUpdater salesRollupUpdater;
+    private final OrderExporter orderExporter;
+    private final ReportJobEngine reportJobEngine;
+    private final ReportJobProperties reportJobProperties;
 
     @Autowired
-    public AdminReportController(SalesReportService salesReportService, AdminReportService adminReportService) {
+    public AdminReportController(SalesReportService salesReportService, AdminReportService adminReportService,
+                                 SalesRollupUpdater salesRollupUpdater, OrderExporter orderExporter,
+                                 ReportJobEngine reportJobEngine, ReportJobProperties reportJobProperties) {
         this.salesReportService = salesReportService;
         this.adminReportService = adminReportService;
+        this.salesRollupUpdater = salesRollupUpdater;
+        this.orderExporter = orderExporter;
+        this.reportJobEngine = reportJobEngine;
+        this.reportJobProperties = reportJobProperties;
     }
 
     /**
@@ -59,6 +96,143 @@ public class AdminReportController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Submits a sales report to be generated in the background.
+     * A report of an identical request generated shortly before is returned at once, with status COMPLETED.
+     *
+     * @param request The sales report request containing filtering and grouping options
+     * @param userDetails The authenticated admin
+     * @return The job, to poll at its location or follow at its events
+     */
+    @PostMapping("/jobs")
+    @Operation(summary = "Submit a sales report job", 
+                 description = "Queues a sales report to be generated in the background and returns the job to follow")
+    @ApiResponse(responseCode = "200", description = "Report of an identical request already available")
+    @ApiResponse(responseCode = "202", description = "Report job queued")
+    @ApiResponse(responseCode = "400", description = "Invalid request parameters")
+    @ApiResponse(responseCode = "401", description = "Authentication required")
+    @ApiResponse(responseCode = "403", description = "Insufficient permissions")
+    @ApiResponse(responseCode = "429", description = "Too many report jobs of this admin in progress")
+    @ApiResponse(responseCode = "503", description = "Too many report jobs queued")
+    public ResponseEntity<ReportJobDTO> submitReportJob(
+            @Valid @RequestBody SalesReportRequest request,
+            @AuthenticationPrincipal UserDetails userDetails
+    ) {
+        if (request.getStartDate().isAfter(request.getEndDate())) {
+            throw new IllegalArgumentException("Start date must be before or equal to end date");
+        }
+        ReportJob job;
+        try {
+            job = reportJobEngine.submit(request, userDetails.getUsername());
+        } catch (RejectedExecutionException e) {
+            return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        ReportJobDTO body = ReportJobDTO.fromJob(job);
+        if (job.isDone()) {
+            return ResponseEntity.ok(body);
+        }
+        return ResponseEntity.accepted().location(URI.create("/api/admin/reports/jobs/" + job.getId())).body(body);
+    }
+
+    /**
+     * Gets the state of a sales report job.
+     *
+     * @param jobId The ID of the job
+     * @param userDetails The authenticated admin, who must have submitted the job
+     * @return The job, or 404 if it is unknown or has expired
+     */
+    @GetMapping("/jobs/{jobId}")
+    @Operation(summary = "Get a sales report job", 
+                 description = "Gets the status and progress of a sales report job")
+    @ApiResponse(responseCode = "200", description = "Successfully retrieved the job")
+    @ApiResponse(responseCode = "401", description = "Authentication required")
+    @ApiResponse(responseCode = "403", description = "Insufficient permissions")
+    @ApiResponse(responseCode = "404", description = "Job not found or expired")
+    public ResponseEntity<ReportJobDTO> getReportJob(
+            @PathVariable String jobId,
+            @AuthenticationPrincipal UserDetails userDetails
+    ) {
+        return reportJobEngine.getJob(jobId, userDetails.getUsername())
+                .map(job -> ResponseEntity.ok(ReportJobDTO.fromJob(job)))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Streams the progress of a sales report job as server-sent events named {@code progress},
+     * each with the state of the job. The stream ends once the job has completed or failed.
+     *
+     * @param jobId The ID of the job
+     * @param userDetails The authenticated admin, who must have submitted the job
+     * @return The event stream, or 404 if the job is unknown or has expired
+     */
+    @GetMapping(value = "/jobs/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Follow a sales report job", 
+                 description = "Streams the progress of a sales report job as server-sent events until it is done")
+    @ApiResponse(responseCode = "200", description = "Event stream")
+    @ApiResponse(responseCode = "401", description = "Authentication required")
+    @ApiResponse(responseCode = "403", description = "Insufficient permissions")
+    @ApiResponse(responseCode = "404", description = "Job not found or expired")
+    public ResponseEntity<SseEmitter> followReportJob(
+            @PathVariable String jobId,
+            @AuthenticationPrincipal UserDetails userDetails
+    ) {
+        Optional<ReportJob> found = reportJobEngine.getJob(jobId, userDetails.getUsername());
+        if (found.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        ReportJob job = found.get();
+        SseEmitter emitter = new SseEmitter(reportJobProperties.getStreamTimeout().toMillis());
+        Consumer<ReportJob> listener = new Consumer<>() {
+            @Override
+            public void accept(ReportJob changed) {
+                try {
+                    emitter.send(SseEmitter.event().name("progress").data(ReportJobDTO.fromJob(changed)));
+                    if (changed.isDone()) {
+                        emitter.complete();
+                    }
+                } catch (IOException | IllegalStateException e) {
+                    // The client went away or the stream timed out
+                    changed.unsubscribe(this);
+                }
+            }
+        };
+        emitter.onTimeout(emitter::complete);
+        emitter.onCompletion(() -> job.unsubscribe(listener));
+        emitter.onError(e -> job.unsubscribe(listener));
+        job.subscribe(listener);
+        return ResponseEntity.ok(emitter);
+    }
+
+    /**
+     * Gets the report of a completed sales report job.
+     *
+     * @param jobId The ID of the job
+     * @param userDetails The authenticated admin, who must have submitted the job
+     * @return The report, the state of the job with 409 if it has not completed, or 404 if it is unknown or has expired
+     */
+    @GetMapping("/jobs/{jobId}/result")
+    @Operation(summary = "Get the report of a sales report job", 
+                 description = "Gets the sales report generated by a completed job")
+    @ApiResponse(responseCode = "200", description = "Successfully retrieved the report")
+    @ApiResponse(responseCode = "401", description = "Authentication required")
+    @ApiResponse(responseCode = "403", description = "Insufficient permissions")
+    @ApiResponse(responseCode = "404", description = "Job not found or expired")
+    @ApiResponse(responseCode = "409", description = "Job still running or failed")
+    public ResponseEntity<?> getReportJobResult(
+            @PathVariable String jobId,
+            @AuthenticationPrincipal UserDetails userDetails
+    ) {
+        Optional<ReportJob> found = reportJobEngine.getJob(jobId, userDetails.getUsername());
+        if (found.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        ReportJob job = found.get();
+        if (job.getStatus() != ReportJob.Status.COMPLETED) {
+            return new ResponseEntity<>(ReportJobDTO.fromJob(job), HttpStatus.CONFLICT);
+        }
+        return ResponseEntity.ok(job.getResult());
+    }
+
     /**
      * Generates a quick sales report for a given date range.
      * This is a simplified version of the sales report endpoint.
@@ -130,4 +304,134 @@ public class AdminReportController {
         UserActivityReportDTO report = adminReportService.getUserActivityReport();
         return ResponseEntity.ok(report);
     }
-}
\ No newline at end of file
+
+    /**
+     * Gets the customers who ordered in a date range with their order count, spending and latest
+     * order, one page at a time. The first page is the top customers of the chosen order.
+     *
+     * @param startDate Start date of the report period (inclusive)
+     * @param endDate End date of the report period (inclusive)
+     * @param sort Order of the customers (TOTAL_SPENT, ORDER_COUNT or LAST_ORDER)
+     * @param pageable Page number and size
+     * @return A page of customer activity data
+     */
+    @GetMapping("/customers")
+    @Operation(summary = "Get customer activity", 
+                 description = "Gets a page of the customers who ordered in a date range, ranked by spending, order count or latest order")
+    @ApiResponse(responseCode = "200", description = "Successfully retrieved customer activity")
+    @ApiResponse(responseCode = "400", description = "Invalid date range")
+    @ApiResponse(responseCode = "401", description = "Authentication required")
+    @ApiResponse(responseCode = "403", description = "Insufficient permissions")
+    public ResponseEntity<Page<CustomerActivityDTO>> getCustomerActivity(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(defaultValue = "TOTAL_SPENT") CustomerAnalyticsRepository.CustomerSort sort,
+            @PageableDefault(size = 20) Pageable pageable
+    ) {
+        if (startDate.isAfter(endDate)) {
+            throw new IllegalArgumentException("Start date must be before or equal to end date");
+        }
+        return ResponseEntity.ok(adminReportService.getCustomerActivity(startDate, endDate, sort, pageable));
+    }
+
+    /**
+     * Exports the orders placed in a date range, one row per order, streamed as it is read.
+     *
+     * @param startDate Start date of the export (inclusive)
+     * @param endDate End date of the export (inclusive)
+     * @param format File format (CSV or NDJSON)
+     * @param gzip Whether to gzip the file
+     * @param response The response the file is written to
+     * @throws IOException If the response cannot be written
+     */
+    @GetMapping("/export/orders")
+    @Operation(summary = "Export orders", 
+                 description = "Streams the orders of a date range as CSV or newline-delimited JSON, optionally gzipped")
+    @ApiResponse(responseCode = "200", description = "Export file")
+    @ApiResponse(responseCode = "400", description = "Invalid date range")
+    @ApiResponse(responseCode = "401", description = "Authentication required")
+    @ApiResponse(responseCode = "403", description = "Insufficient permissions")
+    public void exportOrders(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(defaultValue = "CSV") OrderExporter.Format format,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            HttpServletResponse response
+    ) throws IOException {
+        try (OutputStream out = openExport(response, "orders", startDate, endDate, format, gzip)) {
+            orderExporter.exportOrders(startDate, endDate, format, out);
+        }
+    }
+
+    /**
+     * Exports the items of the orders placed in a date range, one row per item, streamed as it is read.
+     *
+     * @param startDate Start date of the export (inclusive)
+     * @param endDate End date of the export (inclusive)
+     * @param format File format (CSV or NDJSON)
+     * @param gzip Whether to gzip the file
+     * @param response The response the file is written to
+     * @throws IOException If the response cannot be written
+     */
+    @GetMapping("/export/order-items")
+    @Operation(summary = "Export order items", 
+                 description = "Streams the order items of a date range as CSV or newline-delimited JSON, optionally gzipped")
+    @ApiResponse(responseCode = "200", description = "Export file")
+    @ApiResponse(responseCode = "400", description = "Invalid date range")
+    @ApiResponse(responseCode = "401", description = "Authentication required")
+    @ApiResponse(responseCode = "403", description = "Insufficient permissions")
+    public void exportOrderItems(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(defaultValue = "CSV") OrderExporter.Format format,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            HttpServletResponse response
+    ) throws IOException {
+        try (OutputStream out = openExport(response, "order-items", startDate, endDate, format, gzip)) {
+            orderExporter.exportOrderItems(startDate, endDate, format, out);
+        }
+    }
+
+    /**
+     * Sets the headers of an export file and returns the stream to write it to.
+     * Closing the stream completes the gzip trailer, if any.
+     */
+    private OutputStream openExport(HttpServletResponse response, String name, LocalDate startDate, LocalDate endDate,
+                                    OrderExporter.Format format, boolean gzip) throws IOException {
+        if (startDate.isAfter(endDate)) {
+            throw new IllegalArgumentException("Start date must be before or equal to end date");
+        }
+        String fileName = name + "_" + startDate + "_" + endDate + "." + format.getExtension() + (gzip ? ".gz" : "");
+        response.setContentType(gzip ? "application/gzip" : format.getContentType());
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment().filename(fileName).build().toString());
+        return gzip ? new GZIPOutputStream(response.getOutputStream(), 8 * 1024) : response.getOutputStream();
+    }
+
+    /**
+     * Recomputes the sales rollups of a date range from its orders, for example after orders
+     * were changed in the database directly.
+     *
+     * @param startDate First day to recompute (inclusive)
+     * @param endDate Last day to recompute (inclusive)
+     * @return Accepted; the rollups are recomputed in the background
+     */
+    @PostMapping("/rollups/rebuild")
+    @Operation(summary = "Recompute sales rollups", 
+                 description = "Recomputes the pre-aggregated sales of a date range from its orders in the background")
+    @ApiResponse(responseCode = "202", description = "Recomputation started")
+    @ApiResponse(responseCode = "400", description = "Invalid date range")
+    @ApiResponse(responseCode = "401", description = "Authentication required")
+    @ApiResponse(responseCode = "403", description = "Insufficient permissions")
+    public ResponseEntity<Void> rebuildSalesRollups(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate
+    ) {
+        if (startDate.isAfter(endDate)) {
+            throw new IllegalArgumentException("Start date must be before or equal to end date");
+        }
+        salesRollupUpdater.rebuild(startDate, endDate);
+        return ResponseEntity.accepted().build();
+    }
+}
@@ -4,6 +4,7 @@ import com.healthstore.dto.AuthRequest;
 import com.healthstore.dto.AuthResponse;
 import com.healthstore.model.User;
 import com.healthstore.security.CustomUserDetailsService;
+import com.healthstore.service.CartService;
 import com.healthstore.util.JwtUtil;
 import com.healthstore.service.UserService;
 import org.springframework.http.HttpStatus;
@@ -29,6 +30,7 @@ public class AuthController {
     private final AuthenticationManager authenticationManager;
     private final CustomUserDetailsService customUserDetailsService;
     private final JwtUtil jwtUtil;
+    private final CartService cartService;
 
     /**
      * Constructor for AuthController.
@@ -36,13 +38,16 @@ public class AuthController {
      * @param authenticationManager The authentication manager for user authentication.
      * @param customUserDetailsService The user details service to load user data.
      * @param jwtUtil The utility for generating and validating JWT tokens.
+     * @param cartService The service that merges guest carts on login.
      */
     public AuthController(UserService userService, AuthenticationManager authenticationManager,
-                         CustomUserDetailsService customUserDetailsService, JwtUtil jwtUtil) {
+                         CustomUserDetailsService customUserDetailsService, JwtUtil jwtUtil,
+                         CartService cartService) {
         this.userService = userService;
         this.authenticationManager = authenticationManager;
         this.customUserDetailsService = customUserDetailsService;
         this.jwtUtil = jwtUtil;
+        this.cartService = cartService;
     }
 
     /**
@@ -64,8 +69,9 @@ public class AuthController {
     /**
      * API endpoint for user login.
      * It authenticates the user using the provided email and password.
-     * If successful, it generates a JWT and returns it in the response.
-     * @param request The authentication request DTO with email and password.
+     * If successful, it merges the guest cart given by the request into the user's cart,
+     * then generates a JWT and returns it in the response.
+     * @param request The authentication request DTO with email, password and optional guest cart token.
      * @return A response entity with the JWT token or an unauthorized status.
      * @throws Exception if authentication fails.
      */
@@ -79,6 +85,11 @@ public class AuthController {
             throw new Exception("Incorrect username or password", e);
         }
 
+        if (request.getCartToken() != null && !request.getCartToken().isBlank()) {
+            userService.findByEmail(request.getEmail())
+                    .ifPresent(user -> cartService.mergeGuestCart(user, request.getCartToken()));
+        }
+
         final UserDetails userDetails = customUserDetailsService.loadUserByUsername(request.getEmail());
         final String jwt = jwtUtil.generateToken(userDetails);
         
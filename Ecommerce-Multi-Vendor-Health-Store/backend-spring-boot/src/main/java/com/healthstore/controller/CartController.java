@@ -1,9 +1,14 @@
 package com.healthstore.controller;
 
-import com.healthstore.model.Cart;
+import com.healthstore.dto.CartDTO;
+import com.healthstore.dto.CartPatchDTO;
+import com.healthstore.dto.CartPatchRequest;
+import com.healthstore.exception.CartVersionConflictException;
+import com.healthstore.inventory.CartReservationRegistry;
 import com.healthstore.model.User;
 import com.healthstore.service.CartService;
 import com.healthstore.service.UserService;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -11,6 +16,7 @@ import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -33,14 +39,16 @@ public class CartController {
      * Adds a product to the authenticated user's cart.
      * @param userDetails The details of the authenticated user.
      * @param productId The ID of the product to add.
+     * @param variantId The ID of the variant to add (optional, defaults to the product's first variant).
      * @param quantity The quantity of the product.
      * @return A response entity with the updated cart or an error status.
      */
     @PreAuthorize("isAuthenticated()")
     @PostMapping("/add/{productId}")
-    public ResponseEntity<Cart> addProductToCart(
+    public ResponseEntity<CartDTO> addProductToCart(
             @AuthenticationPrincipal UserDetails userDetails,
             @PathVariable Long productId,
+            @RequestParam(required = false) Long variantId,
             @RequestParam(defaultValue = "1") int quantity) {
         
         if (quantity <= 0) {
@@ -53,7 +61,7 @@ public class CartController {
         }
         
         try {
-            Cart updatedCart = cartService.addProductToCart(userOpt.get(), productId, quantity);
+            CartDTO updatedCart = cartService.addProductToCart(userOpt.get(), productId, variantId, quantity);
             return ResponseEntity.ok(updatedCart);
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().build();
@@ -67,20 +75,81 @@ public class CartController {
      */
     @PreAuthorize("isAuthenticated()")
     @GetMapping
-    public ResponseEntity<Cart> getCart(@AuthenticationPrincipal UserDetails userDetails) {
+    public ResponseEntity<CartDTO> getCart(@AuthenticationPrincipal UserDetails userDetails) {
         Optional<User> userOpt = userService.findByEmail(userDetails.getUsername());
         if (userOpt.isEmpty()) {
             return ResponseEntity.badRequest().build();
         }
         
         try {
-            Cart cart = cartService.getCartByUser(userOpt.get());
-            return ResponseEntity.ok(cart);
+            CartDTO cart = cartService.getCartByUser(userOpt.get());
+            return ResponseEntity.ok().eTag(Long.toString(cart.getVersion())).body(cart);
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().build();
         }
     }
 
+    /**
+     * Applies a batch of add, set and remove operations to the authenticated user's cart, all or none.
+     * With an If-Match header carrying the ETag of an earlier response, the operations are only applied
+     * if the cart has not changed since.
+     * @param userDetails The details of the authenticated user.
+     * @param ifMatch The version the cart must be at (optional).
+     * @param request The operations to apply, in order.
+     * @return A response entity with the changed lines and new totals, or an error status.
+     */
+    @PreAuthorize("isAuthenticated()")
+    @PatchMapping
+    public ResponseEntity<CartPatchDTO> patchCart(
+            @AuthenticationPrincipal UserDetails userDetails,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestBody CartPatchRequest request) {
+
+        if (request.getOperations() == null || request.getOperations().isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        Optional<User> userOpt = userService.findByEmail(userDetails.getUsername());
+        if (userOpt.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        Long expectedVersion = null;
+        if (ifMatch != null && !ifMatch.isBlank() && !"*".equals(ifMatch.trim())) {
+            try {
+                expectedVersion = Long.parseLong(ifMatch.trim().replaceFirst("^W/", "").replace("\"", ""));
+            } catch (NumberFormatException e) {
+                return ResponseEntity.badRequest().build();
+            }
+        }
+
+        try {
+            CartPatchDTO result = cartService.patchCart(userOpt.get(), request.getOperations(), expectedVersion);
+            return ResponseEntity.ok().eTag(Long.toString(result.getVersion())).body(result);
+        } catch (CartVersionConflictException e) {
+            // Answered with 412 Precondition Failed by GlobalExceptionHandler
+            throw e;
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Retrieves the stock held for the authenticated user's cart and when each hold expires.
+     * @param userDetails The details of the authenticated user.
+     * @return A response entity with the reservations.
+     */
+    @PreAuthorize("isAuthenticated()")
+    @GetMapping("/reservations")
+    public ResponseEntity<List<CartReservationRegistry.Reservation>> getCartReservations(
+            @AuthenticationPrincipal UserDetails userDetails) {
+        Optional<User> userOpt = userService.findByEmail(userDetails.getUsername());
+        if (userOpt.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(cartService.getCartReservations(userOpt.get()));
+    }
+
     /**
      * Updates the quantity of a product in the cart.
      * @param userDetails The details of the authenticated user.
@@ -90,7 +159,7 @@ public class CartController {
      */
     @PreAuthorize("isAuthenticated()")
     @PutMapping("/update/{productId}")
-    public ResponseEntity<Cart> updateCartItem(
+    public ResponseEntity<CartDTO> updateCartItem(
             @AuthenticationPrincipal UserDetails userDetails,
             @PathVariable Long productId,
             @RequestParam int quantity) {
@@ -105,7 +174,7 @@ public class CartController {
         }
         
         try {
-            Cart updatedCart = cartService.updateCartItemQuantity(userOpt.get(), productId, quantity);
+            CartDTO updatedCart = cartService.updateCartItemQuantity(userOpt.get(), productId, quantity);
             return ResponseEntity.ok(updatedCart);
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().build();
@@ -120,7 +189,7 @@ public class CartController {
      */
     @PreAuthorize("isAuthenticated()")
     @DeleteMapping("/remove/{productId}")
-    public ResponseEntity<Cart> removeFromCart(
+    public ResponseEntity<CartDTO> removeFromCart(
             @AuthenticationPrincipal UserDetails userDetails,
             @PathVariable Long productId) {
         
@@ -130,7 +199,7 @@ public class CartController {
         }
         
         try {
-            Cart updatedCart = cartService.removeProductFromCart(userOpt.get(), productId);
+            CartDTO updatedCart = cartService.removeProductFromCart(userOpt.get(), productId);
             return ResponseEntity.ok(updatedCart);
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().build();
@@ -144,14 +213,14 @@ public class CartController {
      */
     @PreAuthorize("isAuthenticated()")
     @DeleteMapping("/clear")
-    public ResponseEntity<Cart> clearCart(@AuthenticationPrincipal UserDetails userDetails) {
+    public ResponseEntity<CartDTO> clearCart(@AuthenticationPrincipal UserDetails userDetails) {
         Optional<User> userOpt = userService.findByEmail(userDetails.getUsername());
         if (userOpt.isEmpty()) {
             return ResponseEntity.badRequest().build();
         }
         
         try {
-            Cart clearedCart = cartService.clearCart(userOpt.get());
+            CartDTO clearedCart = cartService.clearCart(userOpt.get());
             return ResponseEntity.ok(clearedCart);
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().build();
@@ -1,5 +1,6 @@
 package com.healthstore.controller;
 
+import com.healthstore.dto.CategoryDTO;
 import com.healthstore.model.Category;
 import com.healthstore.service.CategoryService;
 import org.springframework.http.HttpStatus;
@@ -43,8 +44,8 @@ public class CategoryController {
      * @return A response entity with a list of all categories.
      */
     @GetMapping
-    public ResponseEntity<List<Category>> getAllCategories() {
-        List<Category> categories = categoryService.getAllCategories();
+    public ResponseEntity<List<CategoryDTO>> getAllCategories() {
+        List<CategoryDTO> categories = categoryService.getAllCategories();
         return new ResponseEntity<>(categories, HttpStatus.OK);
     }
 
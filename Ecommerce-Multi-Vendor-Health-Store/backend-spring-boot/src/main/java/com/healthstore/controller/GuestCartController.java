@@ -0,0 +1,110 @@
+package com.healthstore.controller;
+
+import com.healthstore.dto.CartDTO;
+import com.healthstore.exception.ResourceNotFoundException;
+import com.healthstore.service.CartService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.function.Supplier;
+
+/**
+ * REST controller for the shopping carts of visitors who are not logged in.
+ * A guest cart is identified by the token returned when it is created; it is merged into the
+ * user's cart when the token is passed to the login endpoint.
+ */
+@RestController
+@RequestMapping("/api/guest-cart")
+public class GuestCartController {
+
+    private final CartService cartService;
+
+    public GuestCartController(CartService cartService) {
+        this.cartService = cartService;
+    }
+
+    /**
+     * Creates an empty guest cart.
+     * @return A response entity with the new cart and its token.
+     */
+    @PostMapping
+    public ResponseEntity<CartDTO> createGuestCart() {
+        return new ResponseEntity<>(cartService.createGuestCart(), HttpStatus.CREATED);
+    }
+
+    /**
+     * Retrieves a guest cart.
+     * @param token The token of the guest cart.
+     * @return A response entity with the cart, or not found if it does not exist or has expired.
+     */
+    @GetMapping("/{token}")
+    public ResponseEntity<CartDTO> getGuestCart(@PathVariable String token) {
+        return respond(() -> cartService.getGuestCart(token));
+    }
+
+    /**
+     * Adds a product to a guest cart.
+     * @param token The token of the guest cart.
+     * @param productId The ID of the product to add.
+     * @param variantId The ID of the variant to add (optional, defaults to the product's first variant).
+     * @param quantity The quantity to add.
+     * @return A response entity with the updated cart or an error status.
+     */
+    @PostMapping("/{token}/add/{productId}")
+    public ResponseEntity<CartDTO> addProductToGuestCart(
+            @PathVariable String token,
+            @PathVariable Long productId,
+            @RequestParam(required = false) Long variantId,
+            @RequestParam(defaultValue = "1") int quantity) {
+
+        if (quantity <= 0) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
+        return respond(() -> cartService.addProductToGuestCart(token, productId, variantId, quantity));
+    }
+
+    /**
+     * Updates the quantity of a product in a guest cart.
+     * @param token The token of the guest cart.
+     * @param productId The ID of the product to update.
+     * @param quantity The new quantity.
+     * @return A response entity with the updated cart or an error status.
+     */
+    @PutMapping("/{token}/update/{productId}")
+    public ResponseEntity<CartDTO> updateGuestCartItem(
+            @PathVariable String token,
+            @PathVariable Long productId,
+            @RequestParam int quantity) {
+
+        if (quantity <= 0) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
+        return respond(() -> cartService.updateGuestCartItem(token, productId, quantity));
+    }
+
+    /**
+     * Removes a product from a guest cart.
+     * @param token The token of the guest cart.
+     * @param productId The ID of the product to remove.
+     * @return A response entity with the updated cart or an error status.
+     */
+    @DeleteMapping("/{token}/remove/{productId}")
+    public ResponseEntity<CartDTO> removeFromGuestCart(
+            @PathVariable String token,
+            @PathVariable Long productId) {
+        return respond(() -> cartService.updateGuestCartItem(token, productId, 0));
+    }
+
+    private ResponseEntity<CartDTO> respond(Supplier<CartDTO> action) {
+        try {
+            return ResponseEntity.ok(action.get());
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+}
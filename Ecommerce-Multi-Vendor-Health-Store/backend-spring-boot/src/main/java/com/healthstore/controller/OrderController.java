@@ -1,14 +1,23 @@
 package com.healthstore.controller;
 
+import com.healthstore.dto.CursorPageDTO;
+import com.healthstore.dto.OrderPlacementDTO;
+import com.healthstore.exception.IdempotencyConflictException;
 import com.healthstore.model.Order;
 import com.healthstore.model.User;
 import com.healthstore.model.Address;
+import com.healthstore.order.OrderPipeline;
+import com.healthstore.order.OrderPlacement;
 import com.healthstore.service.OrderService;
 import com.healthstore.service.UserService;
 import com.healthstore.service.AddressService;
+import com.healthstore.service.IdempotencyService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.web.PageableDefault;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -17,6 +26,7 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * REST controller for managing orders.
@@ -26,30 +36,43 @@ import java.util.List;
 @RequestMapping("/api/orders")
 public class OrderController {
 
+    static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    static final String IDEMPOTENT_REPLAYED_HEADER = "Idempotent-Replayed";
+
     private final OrderService orderService;
     private final UserService userService;
     private final AddressService addressService;
+    private final IdempotencyService idempotencyService;
+    private final OrderPipeline orderPipeline;
 
     @Autowired
     public OrderController(OrderService orderService, 
                            UserService userService,
-                           AddressService addressService) {
+                           AddressService addressService,
+                           IdempotencyService idempotencyService,
+                           OrderPipeline orderPipeline) {
         this.orderService = orderService;
         this.userService = userService;
         this.addressService = addressService;
+        this.idempotencyService = idempotencyService;
+        this.orderPipeline = orderPipeline;
     }
 
     /**
      * Creates a new order from the user's cart.
+     * With an Idempotency-Key header, a retry of the same checkout returns the order created by the
+     * first attempt, marked with an Idempotent-Replayed header, instead of placing a second order.
      * @param userDetails The authenticated user details.
      * @param shippingAddressId The ID of the shipping address to use.
+     * @param idempotencyKey A key unique to this checkout, reused by its retries (optional).
      * @return The created order.
      */
     @PostMapping("/checkout/{shippingAddressId}")
     @PreAuthorize("isAuthenticated()")
     public ResponseEntity<?> createOrder(
             @AuthenticationPrincipal UserDetails userDetails,
-            @PathVariable Long shippingAddressId) {
+            @PathVariable Long shippingAddressId,
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
         
         User user = userService.findUserByEmail(userDetails.getUsername())
                 .orElseThrow(() -> new RuntimeException("User not found"));
@@ -57,14 +80,110 @@ public class OrderController {
         Address shippingAddress = addressService.getAddressById(shippingAddressId)
                 .orElseThrow(() -> new RuntimeException("Shipping address not found"));
         
+        IdempotencyService.Claim claim = null;
+        if (idempotencyKey != null) {
+            try {
+                claim = idempotencyService.claim("checkout", user.getId(), idempotencyKey,
+                        "shippingAddressId=" + shippingAddressId);
+            } catch (IllegalArgumentException e) {
+                return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+            }
+            if (claim.isReplay()) {
+                Order order = orderService.getOrderById(claim.resourceId())
+                        .orElseThrow(() -> new RuntimeException("Order not found"));
+                return ResponseEntity.status(HttpStatus.CREATED)
+                        .header(IDEMPOTENT_REPLAYED_HEADER, "true")
+                        .body(order);
+            }
+        }
+        
         try {
-            Order order = orderService.createOrderFromCart(user, shippingAddress);
+            Order order = orderService.createOrderFromCart(user, shippingAddress, claim);
             return new ResponseEntity<>(order, HttpStatus.CREATED);
+        } catch (IdempotencyConflictException e) {
+            // A retry took the key over and owns it now; this attempt was rolled back.
+            throw e;
         } catch (RuntimeException e) {
+            if (claim != null) {
+                idempotencyService.release(claim);
+            }
             return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
         }
     }
 
+    /**
+     * Places an order from the user's cart through the order pipeline.
+     * The call returns once the stock of the cart is reserved, before the order is priced and saved;
+     * the returned placement ID is used to follow the order through the remaining stages.
+     * Supports an Idempotency-Key header like the synchronous checkout.
+     * @param userDetails The authenticated user details.
+     * @param shippingAddressId The ID of the shipping address to use.
+     * @param idempotencyKey A key unique to this placement, reused by its retries (optional).
+     * @return The placement, with status RESERVED or later, or ACCEPTED if reserving took too long.
+     */
+    @PostMapping("/placements/{shippingAddressId}")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<?> placeOrder(
+            @AuthenticationPrincipal UserDetails userDetails,
+            @PathVariable Long shippingAddressId,
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        
+        User user = userService.findUserByEmail(userDetails.getUsername())
+                .orElseThrow(() -> new RuntimeException("User not found"));
+                
+        Address shippingAddress = addressService.getAddressById(shippingAddressId)
+                .orElseThrow(() -> new RuntimeException("Shipping address not found"));
+        
+        IdempotencyService.Claim claim = null;
+        if (idempotencyKey != null) {
+            try {
+                claim = idempotencyService.claim("checkout", user.getId(), idempotencyKey,
+                        "shippingAddressId=" + shippingAddressId);
+            } catch (IllegalArgumentException e) {
+                return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+            }
+            if (claim.isReplay()) {
+                Order order = orderService.getOrderById(claim.resourceId())
+                        .orElseThrow(() -> new RuntimeException("Order not found"));
+                return ResponseEntity.ok()
+                        .header(IDEMPOTENT_REPLAYED_HEADER, "true")
+                        .body(OrderPlacementDTO.fromOrder(order));
+            }
+        }
+        
+        try {
+            OrderPlacement placement = orderPipeline.place(user, shippingAddress, claim);
+            return ResponseEntity.accepted().body(OrderPlacementDTO.fromPlacement(placement));
+        } catch (RejectedExecutionException e) {
+            if (claim != null) {
+                idempotencyService.release(claim);
+            }
+            return new ResponseEntity<>("Too many orders are being placed, please retry", HttpStatus.SERVICE_UNAVAILABLE);
+        } catch (RuntimeException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * Retrieves the status of an order placed through the order pipeline.
+     * @param placementId The ID of the placement.
+     * @param userDetails The authenticated user details.
+     * @return The placement, or 404 if it is unknown or has expired.
+     */
+    @GetMapping("/placements/{placementId}")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<OrderPlacementDTO> getPlacement(
+            @PathVariable String placementId,
+            @AuthenticationPrincipal UserDetails userDetails) {
+        
+        User user = userService.findUserByEmail(userDetails.getUsername())
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        
+        return orderPipeline.getPlacement(placementId, user.getId())
+                .map(placement -> ResponseEntity.ok(OrderPlacementDTO.fromPlacement(placement)))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
     /**
      * Retrieves all orders for the authenticated user.
      * @param userDetails The authenticated user details.
@@ -82,6 +201,46 @@ public class OrderController {
         return new ResponseEntity<>(orders, HttpStatus.OK);
     }
 
+    /**
+     * Scrolls through the authenticated user's orders with keyset pagination.
+     * @param cursor The nextCursor of the previous window (optional).
+     * @param size The number of orders per window.
+     * @param sort The sort of the first window, on orderDate or totalAmount (default: newest first).
+     * @param userDetails The authenticated user details.
+     * @return A window of the user's orders and the cursor of the next window.
+     */
+    @GetMapping("/my-orders/scroll")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<CursorPageDTO<Order>> scrollUserOrders(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            Sort sort,
+            @AuthenticationPrincipal UserDetails userDetails) {
+        
+        User user = userService.findUserByEmail(userDetails.getUsername())
+                .orElseThrow(() -> new RuntimeException("User not found"));
+                
+        return new ResponseEntity<>(orderService.scrollOrdersByUser(user, cursor, sort, size), HttpStatus.OK);
+    }
+
+    /**
+     * Retrieves a page of the authenticated user's orders without the total count.
+     * @param pageable The pagination information.
+     * @param userDetails The authenticated user details.
+     * @return A slice of the user's orders.
+     */
+    @GetMapping("/my-orders/slice")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<Slice<Order>> getUserOrdersSlice(
+            @PageableDefault(size = 10) Pageable pageable,
+            @AuthenticationPrincipal UserDetails userDetails) {
+        
+        User user = userService.findUserByEmail(userDetails.getUsername())
+                .orElseThrow(() -> new RuntimeException("User not found"));
+                
+        return new ResponseEntity<>(orderService.findOrdersByUserSlice(user, pageable), HttpStatus.OK);
+    }
+
     /**
      * Retrieves a specific order by ID.
      * Users can only access their own orders, while admins can access any order.
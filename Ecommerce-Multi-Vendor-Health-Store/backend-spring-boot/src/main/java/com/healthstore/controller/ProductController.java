@@ -1,19 +1,26 @@
 package com.healthstore.controller;
 
+import com.healthstore.dto.CursorPageDTO;
+import com.healthstore.dto.FacetedSearchResponseDTO;
+import com.healthstore.dto.ProductCardDTO;
 import com.healthstore.dto.ProductDTO;
 import com.healthstore.dto.ProductResponseDTO;
 import com.healthstore.model.Product;
 import com.healthstore.dto.SearchFilterDTO;
+import com.healthstore.dto.SuggestionDTO;
+import com.healthstore.search.SuggestionIndex;
+import com.healthstore.service.ProductSearchService;
 import com.healthstore.service.ProductService;
 import jakarta.validation.Valid;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
-import java.util.stream.Collectors;
 
 import java.util.List;
 import java.util.Optional;
@@ -24,9 +31,14 @@ import java.math.BigDecimal;
 public class ProductController {
 
     private final ProductService productService;
+    private final ProductSearchService productSearchService;
+    private final SuggestionIndex suggestionIndex;
 
-    public ProductController(ProductService productService) {
+    public ProductController(ProductService productService, ProductSearchService productSearchService,
+                             SuggestionIndex suggestionIndex) {
         this.productService = productService;
+        this.productSearchService = productSearchService;
+        this.suggestionIndex = suggestionIndex;
     }
 
     @PreAuthorize("hasAnyRole('SELLER', 'ADMIN')")
@@ -40,26 +52,58 @@ public class ProductController {
         }
     }
 
+    /**
+     * Endpoint to get a page of product listing cards, including the average rating and rating count.
+     * Cards are read with a single projection query.
+     */
     @GetMapping
-    public ResponseEntity<Page<ProductResponseDTO>> getAllProducts(
+    public ResponseEntity<Page<ProductCardDTO>> getAllProducts(
             @PageableDefault(size = 10) Pageable pageable) {
-        Page<Product> products = productService.getAllProducts(pageable);
-        Page<ProductResponseDTO> productDTOs = products.map(this::convertToProductResponseDTO);
-        return new ResponseEntity<>(productDTOs, HttpStatus.OK);
+        Page<ProductCardDTO> products = productService.getAllProducts(pageable);
+        return new ResponseEntity<>(products, HttpStatus.OK);
     }
 
     @GetMapping("/page")
-    public ResponseEntity<Page<ProductResponseDTO>> getProductsPage(
+    public ResponseEntity<Page<ProductCardDTO>> getProductsPage(
             @PageableDefault(size = 10) Pageable pageable) {
-        Page<Product> products = productService.getAllProducts(pageable);
-        Page<ProductResponseDTO> dtoPage = products.map(this::convertToProductResponseDTO);
-        return new ResponseEntity<>(dtoPage, HttpStatus.OK);
+        Page<ProductCardDTO> products = productService.getAllProducts(pageable);
+        return new ResponseEntity<>(products, HttpStatus.OK);
+    }
+
+    /**
+     * Endpoint to scroll through products with keyset pagination.
+     * Each window is read with an index seek after the last product of the previous one,
+     * so deep windows cost the same as the first, and no count query is run.
+     * @param cursor The nextCursor of the previous window (optional).
+     * @param size The number of products per window.
+     * @param sort The sort of the first window, on name, createdAt or stock (ignored with a cursor).
+     * @return A response entity with a window of product cards and the cursor of the next window.
+     */
+    @GetMapping("/scroll")
+    public ResponseEntity<CursorPageDTO<ProductCardDTO>> scrollProducts(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            Sort sort) {
+        CursorPageDTO<ProductCardDTO> window = productService.scrollProducts(cursor, sort, size);
+        return new ResponseEntity<>(window, HttpStatus.OK);
+    }
+
+    /**
+     * Endpoint to get a page of products without the total count.
+     * @param pageable The pagination information.
+     * @return A response entity with a slice of product cards.
+     */
+    @GetMapping("/slice")
+    public ResponseEntity<Slice<ProductCardDTO>> getProductsSlice(
+            @PageableDefault(size = 10) Pageable pageable) {
+        Slice<ProductCardDTO> slice = productService.getProductSlice(pageable);
+        return new ResponseEntity<>(slice, HttpStatus.OK);
     }
 
     @GetMapping("/{id}")
     public ResponseEntity<ProductResponseDTO> getProductById(@PathVariable Long id) {
-        Optional<Product> product = productService.getProductById(id);
-        return product.map(value -> new ResponseEntity<>(convertToProductResponseDTO(value), HttpStatus.OK))
+        Optional<ProductResponseDTO> product = productService.getProductById(id);
+        return product.map(value -> new ResponseEntity<>(value, HttpStatus.OK))
                      .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
     }
 
@@ -85,28 +129,24 @@ public class ProductController {
         }
     }
     
-    /**
-     * Endpoint to search for products with optional name and category filters
-     * @param name The product name to search for (optional).
-     * @param categoryId The category ID to filter by (optional).
-     * @return A response entity with a list of matching products.
-     */
     /**
      * Endpoint to search for products with optional name and category filters.
-     * @param name The product name to search for (optional).
+     * Results are served from the in-memory search index, best matches first.
+     * @param name The text to search for in name, description and category (optional).
      * @param categoryId The category ID to filter by (optional).
      * @return A response entity with a list of matching products.
      */
     @GetMapping("/search")
     public ResponseEntity<List<ProductResponseDTO>> searchProducts(@RequestParam(required = false) String name,
                                                                  @RequestParam(required = false) Long categoryId) {
-        List<Product> products = productService.searchProducts(name, categoryId);
-        List<ProductResponseDTO> dtos = products.stream()
-                .map(this::convertToProductResponseDTO)
-                .collect(Collectors.toList());
+        List<ProductResponseDTO> dtos = productSearchService.search(name, categoryId);
         return new ResponseEntity<>(dtos, HttpStatus.OK);
     }
     
+    /**
+     * Endpoint to search for products with text, price and category filters and pagination.
+     * Results are served from the in-memory search index.
+     */
     @GetMapping("/advanced-search")
     public ResponseEntity<Page<ProductResponseDTO>> advancedSearch(
             @RequestParam(required = false) String name,
@@ -115,40 +155,55 @@ public class ProductController {
             @RequestParam(required = false) Long categoryId,
             @PageableDefault(size = 10) Pageable pageable) {
         
-        Page<Product> products = productService.advancedSearch(name, minPrice, maxPrice, categoryId, pageable);
-            
-        Page<ProductResponseDTO> dtoPage = products.map(this::convertToProductResponseDTO);
+        Page<ProductResponseDTO> dtoPage = productSearchService.advancedSearch(name, minPrice, maxPrice, categoryId, pageable);
         return new ResponseEntity<>(dtoPage, HttpStatus.OK);
     }
     
+    /**
+     * Endpoint for faceted search.
+     * Returns a page of products matching the keyword and facet selections, together with the number
+     * of matches per category, price range, rating band and in-stock, computed in the same pass.
+     * @param filters The keyword, categoryIds, minPrice, maxPrice, minRating and inStock selections.
+     * @param pageable The pagination information.
+     * @return A response entity with the matching products and facet counts.
+     */
+    @GetMapping("/faceted-search")
+    public ResponseEntity<FacetedSearchResponseDTO> facetedSearch(SearchFilterDTO filters,
+                                                                  @PageableDefault(size = 10) Pageable pageable) {
+        return new ResponseEntity<>(productSearchService.facetedSearch(filters, pageable), HttpStatus.OK);
+    }
+    
+    /**
+     * Endpoint for search-box typeahead.
+     * Returns the most popular product and category names with a word starting with the typed text.
+     * @param q The typed text.
+     * @param limit The maximum number of suggestions (at most 10).
+     * @return A response entity with the suggestions, most popular first.
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<List<SuggestionDTO>> suggest(@RequestParam String q,
+                                                       @RequestParam(defaultValue = "8") int limit) {
+        List<SuggestionDTO> suggestions = suggestionIndex.suggest(q, limit).stream()
+                .map(SuggestionDTO::fromSuggestion)
+                .toList();
+        return new ResponseEntity<>(suggestions, HttpStatus.OK);
+    }
+    
     /**
      * Converts a Product entity to a ProductResponseDTO.
      * @param product The product to convert.
      * @return The converted ProductResponseDTO.
      */
     private ProductResponseDTO convertToProductResponseDTO(Product product) {
-        ProductResponseDTO dto = new ProductResponseDTO();
-        dto.setId(product.getId());
-        dto.setName(product.getName());
-        dto.setDescription(product.getDescription());
-        dto.setPrice(product.getPrice().doubleValue());
-        dto.setStock(product.getStock());
-        dto.setImageUrl(product.getImageUrl());
-        
-        if (product.getCategory() != null) {
-            dto.setCategoryId(product.getCategory().getId());
-            dto.setCategoryName(product.getCategory().getName());
-        }
-        
-        return dto;
+        return ProductResponseDTO.fromProduct(product);
     }
     
     /**
-     * Get featured products (newest 10)
+     * Get the listing cards of the featured products (newest 10)
      */
     @GetMapping("/featured")
-    public ResponseEntity<List<Product>> getFeaturedProducts() {
-        List<Product> featuredProducts = productService.getFeaturedProducts();
+    public ResponseEntity<List<ProductCardDTO>> getFeaturedProducts() {
+        List<ProductCardDTO> featuredProducts = productService.getFeaturedProducts();
         return new ResponseEntity<>(featuredProducts, HttpStatus.OK);
     }
 }
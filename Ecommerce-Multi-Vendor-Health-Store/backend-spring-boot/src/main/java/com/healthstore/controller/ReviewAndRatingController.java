@@ -1,10 +1,15 @@
 package com.healthstore.controller;
 
+import com.healthstore.dto.CursorPageDTO;
 import com.healthstore.model.Rating;
 import com.healthstore.model.Review;
 import com.healthstore.model.User;
 import com.healthstore.service.ReviewAndRatingService;
 import com.healthstore.service.UserService;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.web.PageableDefault;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -94,4 +99,33 @@ public class ReviewAndRatingController {
         List<Review> reviews = reviewAndRatingService.getReviewsByProductId(productId);
         return new ResponseEntity<>(reviews, HttpStatus.OK);
     }
+
+    /**
+     * Scrolls through the reviews of a product with keyset pagination.
+     * @param productId The ID of the product.
+     * @param cursor The nextCursor of the previous window (optional).
+     * @param size The number of reviews per window.
+     * @param sort The sort of the first window, on createdAt or rating (default: newest first).
+     * @return A window of reviews and the cursor of the next window.
+     */
+    @GetMapping("/reviews/scroll")
+    public ResponseEntity<CursorPageDTO<Review>> scrollReviews(@PathVariable Long productId,
+                                                               @RequestParam(required = false) String cursor,
+                                                               @RequestParam(defaultValue = "10") int size,
+                                                               Sort sort) {
+        return new ResponseEntity<>(reviewAndRatingService.scrollReviewsByProductId(productId, cursor, sort, size),
+                HttpStatus.OK);
+    }
+
+    /**
+     * Retrieves a page of the reviews of a product without the total count.
+     * @param productId The ID of the product.
+     * @param pageable The pagination information.
+     * @return A slice of reviews.
+     */
+    @GetMapping("/reviews/slice")
+    public ResponseEntity<Slice<Review>> getReviewsSlice(@PathVariable Long productId,
+                                                         @PageableDefault(size = 10) Pageable pageable) {
+        return new ResponseEntity<>(reviewAndRatingService.getReviewSliceByProductId(productId, pageable), HttpStatus.OK);
+    }
 }
@@ -1,9 +1,9 @@
 package com.healthstore.controller;
 
 import com.healthstore.model.Order;
+import com.healthstore.order.OrderPipeline;
 import com.healthstore.service.OrderService;
 import com.healthstore.service.PaymentService;
-import com.healthstore.service.EmailService;
 import com.stripe.Stripe;
 import com.stripe.exception.SignatureVerificationException;
 import com.stripe.exception.StripeException;
@@ -44,7 +44,7 @@ public class StripeWebhookController {
 
     private final OrderService orderService;
     private final PaymentService paymentService;
-    private final EmailService emailService;
+    private final OrderPipeline orderPipeline;
 
     @PostConstruct
     public void init() {
@@ -139,7 +139,7 @@ public class StripeWebhookController {
             log.info("Processing checkout.session.completed for order: {}", orderId);
             
             // Get the order to update and send email
-            Order order = orderService.getOrderById(orderId)
+            Order order = orderService.getOrderForEmail(orderId)
                 .orElseThrow(() -> new RuntimeException("Order not found: " + orderId));
                 
             // Update order status to PROCESSING (payment is not yet confirmed)
@@ -150,14 +150,8 @@ public class StripeWebhookController {
                 orderService.updateOrderPaymentInfo(orderId, session.getPaymentIntent(), session.getPaymentStatus());
             }
             
-            // Send order confirmation email
-            try {
-                emailService.sendOrderConfirmation(order);
-                log.info("Sent order confirmation email for order {}", orderId);
-            } catch (Exception e) {
-                log.error("Failed to send order confirmation email for order {}: {}", 
-                         orderId, e.getMessage(), e);
-            }
+            // Send order confirmation email on the notified stage of the order pipeline
+            orderPipeline.sendOrderConfirmation(order);
             
             log.info("Successfully processed checkout.session.completed for order: {}", orderId);
             
@@ -4,12 +4,14 @@ import lombok.Data;
 
 /**
  * DTO for authentication requests.
- * It contains the email and password fields for user login.
+ * It contains the email and password fields for user login, and optionally the token of
+ * a guest cart to merge into the user's cart.
  */
 @Data
 public class AuthRequest {
     private String email;
     private String password;
+    private String cartToken;
 
     // Manual getter and setter methods to ensure compilation works when Lombok fails
     public String getEmail() {
@@ -27,4 +29,12 @@ public class AuthRequest {
     public void setPassword(String password) {
         this.password = password;
     }
+
+    public String getCartToken() {
+        return cartToken;
+    }
+
+    public void setCartToken(String cartToken) {
+        this.cartToken = cartToken;
+    }
 }
@@ -1,15 +1,21 @@
 package com.healthstore.dto;
 
 import lombok.Data;
+
+import java.math.BigDecimal;
 import java.util.List;
 
 /**
  * Data Transfer Object for Cart entity.
  * Used to transfer cart data between the client and server.
+ * The version grows with every change of the cart; guest carts carry the token that identifies them.
  */
 @Data
 public class CartDTO {
     private Long id;
     private Long userId;
+    private String guestToken;
+    private long version;
+    private BigDecimal totalPrice;
     private List<CartItemDTO> cartItems;
 }
@@ -10,6 +10,7 @@ import lombok.Data;
 public class CartItemDTO {
     private Long id;
     private Long productId;
+    private Long variantId;
     private String productName;
     private double productPrice;
     private int quantity;
@@ -0,0 +1,19 @@
+package com.healthstore.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Result of a batch cart update: only the lines the update changed, plus the totals of the whole cart.
+ * The version is the one to send in the If-Match header of the next conditional update.
+ */
+@Data
+public class CartPatchDTO {
+    private long version;
+    private List<CartItemDTO> changedItems;
+    private List<Long> removedProductIds;
+    private int totalQuantity;
+    private BigDecimal totalPrice;
+}
@@ -0,0 +1,34 @@
+package com.healthstore.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Request body of a batch cart update: line operations applied in order, all or none.
+ */
+@Data
+public class CartPatchRequest {
+
+    /**
+     * The kind of a line operation.
+     * ADD adds the quantity to the line, SET replaces the quantity (zero removes the line),
+     * REMOVE removes the line.
+     */
+    public enum OperationType {
+        ADD, SET, REMOVE
+    }
+
+    /**
+     * One line operation.
+     */
+    @Data
+    public static class Operation {
+        private OperationType op;
+        private Long productId;
+        private Long variantId;
+        private int quantity;
+    }
+
+    private List<Operation> operations;
+}
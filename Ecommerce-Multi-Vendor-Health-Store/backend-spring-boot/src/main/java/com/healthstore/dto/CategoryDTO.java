@@ -0,0 +1,33 @@
+package com.healthstore.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data Transfer Object for the category list.
+ * It is filled directly by a projection query in CategoryRepository, so the cached list holds
+ * no entity and nothing lazy is left to load once the session that read it has closed.
+ */
+@Data
+@NoArgsConstructor
+public class CategoryDTO {
+
+    private Long id;
+    private String name;
+    private String description;
+    private String imageUrl;
+    private Long parentId;
+    private boolean active;
+
+    /**
+     * Constructor used by the JPQL constructor expression.
+     */
+    public CategoryDTO(Long id, String name, String description, String imageUrl, Long parentId, boolean active) {
+        this.id = id;
+        this.name = name;
+        this.description = description;
+        this.imageUrl = imageUrl;
+        this.parentId = parentId;
+        this.active = active;
+    }
+}
@@ -0,0 +1,34 @@
+package com.healthstore.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Data Transfer Object for one window of a cursor-paginated listing.
+ * The next window is requested by sending {@code nextCursor} back as the {@code cursor} parameter;
+ * it is null on the last window.
+ * @param <T> The type of the listed items.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPageDTO<T> {
+
+    private List<T> content;
+    private int size;
+    private String nextCursor;
+    private boolean hasNext;
+
+    /**
+     * Converts the items of this window, keeping its cursor.
+     * @param mapper Converts each item.
+     * @return The converted window.
+     */
+    public <R> CursorPageDTO<R> map(Function<T, R> mapper) {
+        return new CursorPageDTO<>(content.stream().map(mapper).toList(), size, nextCursor, hasNext);
+    }
+}
@@ -0,0 +1,28 @@
+package com.healthstore.dto;
+
+import com.healthstore.search.FacetedHits;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data Transfer Object for one value of a search facet and its number of matching products.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FacetValueDTO {
+
+    private String value;
+    private String label;
+    private int count;
+
+    /**
+     * Converts a facet count to a FacetValueDTO.
+     * @param count The facet count to convert.
+     * @return The converted FacetValueDTO.
+     */
+    public static FacetValueDTO fromCount(FacetedHits.Count count) {
+        return new FacetValueDTO(count.value(), count.label(), count.count());
+    }
+}
@@ -0,0 +1,24 @@
+package com.healthstore.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Page;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object for faceted search responses.
+ * Holds a page of matching products and the number of matches for each facet value.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FacetedSearchResponseDTO {
+
+    private Page<ProductResponseDTO> products;
+    private List<FacetValueDTO> categories;
+    private List<FacetValueDTO> priceRanges;
+    private List<FacetValueDTO> ratings;
+    private int inStock;
+}
@@ -0,0 +1,47 @@
+package com.healthstore.dto;
+
+import com.healthstore.model.Order;
+import com.healthstore.order.OrderPlacement;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Data Transfer Object for the status of an order placed through the order pipeline.
+ * The order ID is set once the order is saved; the failure is set if the placement failed.
+ */
+@Data
+@NoArgsConstructor
+public class OrderPlacementDTO {
+
+    private String placementId;
+    private String orderNumber;
+    private String status;
+    private Long orderId;
+    private BigDecimal totalAmount;
+    private String failure;
+
+    public static OrderPlacementDTO fromPlacement(OrderPlacement placement) {
+        OrderPlacementDTO dto = new OrderPlacementDTO();
+        dto.setPlacementId(placement.getId());
+        dto.setOrderNumber(placement.getOrderNumber());
+        dto.setStatus(placement.getStatus().name());
+        dto.setOrderId(placement.getOrderId());
+        dto.setTotalAmount(placement.getTotalAmount());
+        dto.setFailure(placement.getFailure());
+        return dto;
+    }
+
+    /**
+     * Describes an order that was already placed, for replays of an idempotent placement request.
+     */
+    public static OrderPlacementDTO fromOrder(Order order) {
+        OrderPlacementDTO dto = new OrderPlacementDTO();
+        dto.setOrderNumber(order.getOrderNumber());
+        dto.setStatus(OrderPlacement.Status.PERSISTED.name());
+        dto.setOrderId(order.getId());
+        dto.setTotalAmount(order.getTotalAmount());
+        return dto;
+    }
+}
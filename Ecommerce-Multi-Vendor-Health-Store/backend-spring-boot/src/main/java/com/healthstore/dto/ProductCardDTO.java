@@ -0,0 +1,43 @@
+package com.healthstore.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data Transfer Object for product listing cards.
+ * It is filled directly by projection queries in ProductRepository, which select only these
+ * columns and aggregate the ratings in the same statement, so no entity or lazy association is loaded.
+ */
+@Data
+@NoArgsConstructor
+public class ProductCardDTO {
+
+    private Long id;
+    private String name;
+    private String description;
+    private double price;
+    private int stock;
+    private String imageUrl;
+    private Long categoryId;
+    private String categoryName;
+    private Double averageRating;
+    private long ratingCount;
+
+    /**
+     * Constructor used by the JPQL constructor expressions.
+     * The price is the lowest variant price and the stock the total over all variants.
+     */
+    public ProductCardDTO(Long id, String name, String description, Double price, Integer stock, String imageUrl,
+                          Long categoryId, String categoryName, Double averageRating, Long ratingCount) {
+        this.id = id;
+        this.name = name;
+        this.description = description;
+        this.price = price != null ? price : 0.0;
+        this.stock = stock != null ? stock : 0;
+        this.imageUrl = imageUrl;
+        this.categoryId = categoryId;
+        this.categoryName = categoryName;
+        this.averageRating = averageRating;
+        this.ratingCount = ratingCount != null ? ratingCount : 0L;
+    }
+}
@@ -1,8 +1,13 @@
 package com.healthstore.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
+import com.healthstore.model.Product;
+import com.healthstore.search.ProductDocument;
+
+import java.util.List;
 
 /**
  * Data Transfer Object for product responses.
@@ -22,6 +27,80 @@ public class ProductResponseDTO {
     private String imageUrl;
     private Long categoryId;
     private String categoryName;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<Variant> variants;
+
+    /**
+     * A variant of the product, in the order of the product's variants.
+     * @param id The ID of the variant.
+     * @param price The price of the variant.
+     * @param stockQuantity The stock of the variant.
+     */
+    public record Variant(Long id, double price, int stockQuantity) {
+    }
+
+    /**
+     * Copies a product response, sharing its immutable variant list.
+     * @param other The product response to copy.
+     */
+    public ProductResponseDTO(ProductResponseDTO other) {
+        this(other.id, other.name, other.description, other.price, other.stock, other.imageUrl,
+                other.categoryId, other.categoryName, other.variants);
+    }
+
+    /**
+     * Converts a Product entity to a ProductResponseDTO.
+     * @param product The product to convert.
+     * @return The converted ProductResponseDTO.
+     */
+    public static ProductResponseDTO fromProduct(Product product) {
+        ProductResponseDTO dto = new ProductResponseDTO();
+        dto.setId(product.getId());
+        dto.setName(product.getName());
+        dto.setDescription(product.getDescription());
+        dto.setPrice(product.getPrice().doubleValue());
+        dto.setStock(product.getStock());
+        dto.setImageUrl(product.getImageUrl());
+        
+        if (product.getCategory() != null) {
+            dto.setCategoryId(product.getCategory().getId());
+            dto.setCategoryName(product.getCategory().getName());
+        }
+        
+        return dto;
+    }
+
+    /**
+     * Converts a Product entity to a ProductResponseDTO listing its variants.
+     * The variants and category must be loaded, such as by {@code ProductRepository.findByIdForIndexing}.
+     * @param product The product to convert.
+     * @return The converted ProductResponseDTO, holding no reference to the entity.
+     */
+    public static ProductResponseDTO fromProductWithVariants(Product product) {
+        ProductResponseDTO dto = fromProduct(product);
+        dto.setVariants(product.getVariants().stream()
+                .map(variant -> new Variant(variant.getId(), variant.getPrice(), variant.getStockQuantity()))
+                .toList());
+        return dto;
+    }
+
+    /**
+     * Converts an indexed product document to a ProductResponseDTO.
+     * @param document The product document to convert.
+     * @return The converted ProductResponseDTO.
+     */
+    public static ProductResponseDTO fromDocument(ProductDocument document) {
+        return new ProductResponseDTO(
+                document.getId(),
+                document.getName(),
+                document.getDescription(),
+                document.getPrice(),
+                document.getStock(),
+                document.getImageUrl(),
+                document.getCategoryId(),
+                document.getCategoryName(),
+                null);
+    }
 
     // Manual getter and setter methods to ensure compilation works when Lombok fails
     public Long getId() {
@@ -87,4 +166,12 @@ public class ProductResponseDTO {
     public void setCategoryName(String categoryName) {
         this.categoryName = categoryName;
     }
+
+    public List<Variant> getVariants() {
+        return variants;
+    }
+
+    public void setVariants(List<Variant> variants) {
+        this.variants = variants;
+    }
 }
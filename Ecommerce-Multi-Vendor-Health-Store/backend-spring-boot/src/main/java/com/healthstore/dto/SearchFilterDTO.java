@@ -17,6 +17,8 @@ public class SearchFilterDTO {
     private Double minPrice;
     private Double maxPrice;
     private List<Long> categoryIds;
+    private Integer minRating;
+    private Boolean inStock;
     
     // Manual getter methods to ensure compilation works
     public String getKeyword() {
@@ -50,4 +52,20 @@ public class SearchFilterDTO {
     public void setCategoryIds(List<Long> categoryIds) {
         this.categoryIds = categoryIds;
     }
+    
+    public Integer getMinRating() {
+        return minRating;
+    }
+    
+    public void setMinRating(Integer minRating) {
+        this.minRating = minRating;
+    }
+    
+    public Boolean getInStock() {
+        return inStock;
+    }
+    
+    public void setInStock(Boolean inStock) {
+        this.inStock = inStock;
+    }
 }
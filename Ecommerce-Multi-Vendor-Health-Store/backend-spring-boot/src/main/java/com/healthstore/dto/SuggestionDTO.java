@@ -0,0 +1,30 @@
+package com.healthstore.dto;
+
+import com.healthstore.search.SuggestionTrie;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data Transfer Object for typeahead suggestions.
+ * A suggestion is either a product or a category name; the type tells the client
+ * which page the ID refers to.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SuggestionDTO {
+
+    private String text;
+    private String type;
+    private Long id;
+
+    /**
+     * Converts a trie suggestion to a SuggestionDTO.
+     * @param suggestion The suggestion to convert.
+     * @return The converted SuggestionDTO.
+     */
+    public static SuggestionDTO fromSuggestion(SuggestionTrie.Suggestion suggestion) {
+        return new SuggestionDTO(suggestion.text(), suggestion.type(), suggestion.id());
+    }
+}
@@ -0,0 +1,74 @@
+package com.healthstore.dto.report;
+
+import com.healthstore.repository.CustomerAnalyticsRepository;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * DTO for the orders of one customer in a report period.
+ */
+@Data
+@Schema(description = "Order activity of one customer in the report period")
+public class CustomerActivityDTO {
+
+    @Schema(description = "Customer ID")
+    private Long customerId;
+
+    @Schema(description = "Customer name")
+    private String customerName;
+
+    @Schema(description = "Customer email")
+    private String customerEmail;
+
+    @Schema(description = "Number of orders placed")
+    private long orderCount;
+
+    @Schema(description = "Total amount spent")
+    private BigDecimal totalSpent;
+
+    @Schema(description = "Date of the latest order")
+    private LocalDateTime lastOrderDate;
+
+    /**
+     * Creates the DTO from the order aggregates of a customer.
+     * @param stats The order aggregates.
+     * @return The DTO.
+     */
+    public static CustomerActivityDTO fromStats(CustomerAnalyticsRepository.CustomerOrderStats stats) {
+        CustomerActivityDTO dto = new CustomerActivityDTO();
+        dto.setCustomerId(stats.userId());
+        dto.setCustomerName(fullName(stats.firstName(), stats.lastName()));
+        dto.setCustomerEmail(stats.email());
+        dto.setOrderCount(stats.orderCount());
+        dto.setTotalSpent(stats.totalSpent());
+        dto.setLastOrderDate(stats.lastOrderDate());
+        return dto;
+    }
+
+    private static String fullName(String firstName, String lastName) {
+        if (firstName != null && lastName != null) {
+            return firstName + " " + lastName;
+        }
+        if (firstName != null) {
+            return firstName;
+        }
+        return lastName != null ? lastName : "";
+    }
+
+    // Manual getter and setter methods
+    public Long getCustomerId() { return customerId; }
+    public void setCustomerId(Long customerId) { this.customerId = customerId; }
+    public String getCustomerName() { return customerName; }
+    public void setCustomerName(String customerName) { this.customerName = customerName; }
+    public String getCustomerEmail() { return customerEmail; }
+    public void setCustomerEmail(String customerEmail) { this.customerEmail = customerEmail; }
+    public long getOrderCount() { return orderCount; }
+    public void setOrderCount(long orderCount) { this.orderCount = orderCount; }
+    public BigDecimal getTotalSpent() { return totalSpent; }
+    public void setTotalSpent(BigDecimal totalSpent) { this.totalSpent = totalSpent; }
+    public LocalDateTime getLastOrderDate() { return lastOrderDate; }
+    public void setLastOrderDate(LocalDateTime lastOrderDate) { this.lastOrderDate = lastOrderDate; }
+}
@@ -0,0 +1,75 @@
+package com.healthstore.dto.report;
+
+import com.healthstore.report.ReportJob;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.time.Instant;
+
+/**
+ * DTO for the state of a sales report job. The report itself is fetched separately once the job has completed.
+ */
+@Data
+@Schema(description = "State of a sales report job")
+public class ReportJobDTO {
+
+    @Schema(description = "Job ID")
+    private String jobId;
+
+    @Schema(description = "Job status", allowableValues = {"QUEUED", "RUNNING", "COMPLETED", "FAILED"})
+    private String status;
+
+    @Schema(description = "Number of report sections completed")
+    private int sectionsCompleted;
+
+    @Schema(description = "Number of sections of the report, known once the job runs")
+    private int sectionsTotal;
+
+    @Schema(description = "Whether the report was served from an identical earlier request")
+    private boolean cached;
+
+    @Schema(description = "When the job was submitted")
+    private Instant submittedAt;
+
+    @Schema(description = "When the job completed or failed")
+    private Instant finishedAt;
+
+    @Schema(description = "Why the job failed")
+    private String failure;
+
+    /**
+     * Creates the DTO from a job.
+     * @param job The job.
+     * @return The DTO.
+     */
+    public static ReportJobDTO fromJob(ReportJob job) {
+        ReportJobDTO dto = new ReportJobDTO();
+        dto.setJobId(job.getId());
+        dto.setStatus(job.getStatus().name());
+        dto.setSectionsCompleted(job.getSectionsCompleted());
+        dto.setSectionsTotal(job.getSectionsTotal());
+        dto.setCached(job.isCached());
+        dto.setSubmittedAt(job.getSubmittedAt());
+        dto.setFinishedAt(job.getFinishedAt());
+        dto.setFailure(job.getFailure());
+        return dto;
+    }
+
+    // Manual getter and setter methods
+    public String getJobId() { return jobId; }
+    public void setJobId(String jobId) { this.jobId = jobId; }
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+    public int getSectionsCompleted() { return sectionsCompleted; }
+    public void setSectionsCompleted(int sectionsCompleted) { this.sectionsCompleted = sectionsCompleted; }
+    public int getSectionsTotal() { return sectionsTotal; }
+    public void setSectionsTotal(int sectionsTotal) { this.sectionsTotal = sectionsTotal; }
+    public boolean isCached() { return cached; }
+    public void setCached(boolean cached) { this.cached = cached; }
+    public Instant getSubmittedAt() { return submittedAt; }
+    public void setSubmittedAt(Instant submittedAt) { this.submittedAt = submittedAt; }
+    public Instant getFinishedAt() { return finishedAt; }
+    public void setFinishedAt(Instant finishedAt) { this.finishedAt = finishedAt; }
+    public String getFailure() { return failure; }
+    public void setFailure(String failure) { this.failure = failure; }
+}
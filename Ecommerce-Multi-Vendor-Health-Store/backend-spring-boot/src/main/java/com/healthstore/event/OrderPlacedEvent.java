@@ -0,0 +1,31 @@
+package com.healthstore.event;
+
+/**
+ * Application event published by the last stage of the order pipeline once a placed order is saved.
+ * Listeners run on a pipeline worker, outside the transaction that saved the order;
+ * {@code OrderPlacedNotifier} notifies the customer and the store admins from it.
+ */
+public class OrderPlacedEvent {
+
+    private final Long orderId;
+    private final String orderNumber;
+    private final Long userId;
+
+    public OrderPlacedEvent(Long orderId, String orderNumber, Long userId) {
+        this.orderId = orderId;
+        this.orderNumber = orderNumber;
+        this.userId = userId;
+    }
+
+    public Long getOrderId() {
+        return orderId;
+    }
+
+    public String getOrderNumber() {
+        return orderNumber;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+}
@@ -0,0 +1,33 @@
+package com.healthstore.event;
+
+/**
+ * Application event published after a product has been created, updated or deleted.
+ * Listeners use it to keep in-memory views of the catalog in sync with the database.
+ */
+public class ProductChangedEvent {
+
+    /**
+     * The kind of change made to the product.
+     */
+    public enum ChangeType {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+
+    private final Long productId;
+    private final ChangeType changeType;
+
+    public ProductChangedEvent(Long productId, ChangeType changeType) {
+        this.productId = productId;
+        this.changeType = changeType;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public ChangeType getChangeType() {
+        return changeType;
+    }
+}
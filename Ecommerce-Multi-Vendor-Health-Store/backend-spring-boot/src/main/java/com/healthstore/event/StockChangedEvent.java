@@ -0,0 +1,25 @@
+package com.healthstore.event;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Application event published after the stock of one or more product variants has changed.
+ * It names the variants only; listeners read the stock themselves once the change is committed.
+ */
+public class StockChangedEvent {
+
+    private final List<Long> variantIds;
+
+    public StockChangedEvent(Collection<Long> variantIds) {
+        this.variantIds = List.copyOf(variantIds);
+    }
+
+    public StockChangedEvent(Long variantId) {
+        this(List.of(variantId));
+    }
+
+    public List<Long> getVariantIds() {
+        return variantIds;
+    }
+}
@@ -0,0 +1,17 @@
+package com.healthstore.exception;
+
+/**
+ * Exception thrown when a conditional cart update names a version the cart is no longer at,
+ * because the cart was changed since the client last read it.
+ */
+public class CartVersionConflictException extends RuntimeException {
+
+    /**
+     * Constructs a new CartVersionConflictException with the specified detail message.
+     *
+     * @param message The detail message
+     */
+    public CartVersionConflictException(String message) {
+        super(message);
+    }
+}
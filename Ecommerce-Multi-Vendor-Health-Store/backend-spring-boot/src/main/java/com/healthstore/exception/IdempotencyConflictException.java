@@ -0,0 +1,27 @@
+package com.healthstore.exception;
+
+/**
+ * Exception thrown when an idempotency key is reused for a different request,
+ * or while the request that first used it is still running.
+ */
+public class IdempotencyConflictException extends RuntimeException {
+
+    /**
+     * Constructs a new IdempotencyConflictException with the specified detail message.
+     *
+     * @param message The detail message
+     */
+    public IdempotencyConflictException(String message) {
+        super(message);
+    }
+
+    /**
+     * Constructs a new IdempotencyConflictException with the specified detail message and cause.
+     *
+     * @param message The detail message
+     * @param cause The cause of the exception
+     */
+    public IdempotencyConflictException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,27 @@
+package com.healthstore.exception;
+
+/**
+ * Exception thrown when a pagination cursor cannot be decoded
+ * or does not match the listing it was sent to.
+ */
+public class InvalidCursorException extends RuntimeException {
+
+    /**
+     * Constructs a new InvalidCursorException with the specified detail message.
+     *
+     * @param message The detail message
+     */
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+
+    /**
+     * Constructs a new InvalidCursorException with the specified detail message and cause.
+     *
+     * @param message The detail message
+     * @param cause The cause of the exception
+     */
+    public InvalidCursorException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
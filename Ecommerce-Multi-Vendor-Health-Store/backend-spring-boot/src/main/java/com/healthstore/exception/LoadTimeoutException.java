@@ -0,0 +1,27 @@
+package com.healthstore.exception;
+
+/**
+ * Exception thrown when a request gives up waiting for a shared load
+ * of the same data started by another request, or for a section of a report.
+ */
+public class LoadTimeoutException extends RuntimeException {
+
+    /**
+     * Constructs a new LoadTimeoutException with the specified detail message.
+     *
+     * @param message The detail message
+     */
+    public LoadTimeoutException(String message) {
+        super(message);
+    }
+
+    /**
+     * Constructs a new LoadTimeoutException with the specified detail message and cause.
+     *
+     * @param message The detail message
+     * @param cause The cause of the exception
+     */
+    public LoadTimeoutException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,17 @@
+package com.healthstore.exception;
+
+/**
+ * Exception thrown when an admin submits a report job while already having as many jobs
+ * queued or running as allowed.
+ */
+public class TooManyReportJobsException extends RuntimeException {
+
+    /**
+     * Constructs a new TooManyReportJobsException with the specified detail message.
+     *
+     * @param message The detail message
+     */
+    public TooManyReportJobsException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,213 @@
+package com.healthstore.inventory;
+
+import com.healthstore.config.InventoryProperties;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Soft reservations of stock held by carts.
+ * A user who puts a variant into the cart holds that quantity for the reservation TTL; while the hold
+ * lasts, other users cannot put more of the variant into their carts, or check out more of it, than
+ * the stock minus the quantity held for others. Every hold is renewed when the cart line changes and
+ * released on a {@link TimerWheel} once its TTL passes, without any database access.
+ * Holds are kept in memory and are not shared between instances.
+ */
+@Component
+public class CartReservationRegistry {
+
+    /**
+     * A hold on stock by one user's cart.
+     * @param variantId The ID of the held variant.
+     * @param quantity The held quantity.
+     * @param expiresAt When the hold is released unless renewed.
+     */
+    public record Reservation(Long variantId, int quantity, Instant expiresAt) {
+    }
+
+    private final Duration ttl;
+    private final TimerWheel timerWheel;
+    private final Map<Long, VariantHolds> holdsByVariant = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Long>> variantsByUser = new ConcurrentHashMap<>();
+
+    public CartReservationRegistry(InventoryProperties inventoryProperties) {
+        InventoryProperties.Reservation properties = inventoryProperties.getReservation();
+        this.ttl = properties.getTtl();
+        this.timerWheel = new TimerWheel("cart-reservation-expiry", properties.getTickDuration(),
+                properties.getWheelSize());
+    }
+
+    /**
+     * Places or renews the hold of a user on a variant, replacing the quantity held so far.
+     * @param userId The ID of the user.
+     * @param variantId The ID of the product variant.
+     * @param quantity The quantity to hold.
+     * @param stock The current stock of the variant.
+     * @return The reservation, or null if the stock minus the quantity held for others is too low.
+     */
+    public Reservation hold(Long userId, Long variantId, int quantity, int stock) {
+        VariantHolds holds = holdsByVariant.computeIfAbsent(variantId, id -> new VariantHolds());
+        Reservation reservation;
+        synchronized (holds) {
+            Hold current = holds.byUser.get(userId);
+            int heldByOthers = holds.total - (current != null ? current.quantity : 0);
+            if (stock - heldByOthers < quantity) {
+                return null;
+            }
+            if (current != null) {
+                current.timeout.cancel();
+                holds.total -= current.quantity;
+            }
+            Hold hold = new Hold(quantity, Instant.now().plus(ttl));
+            hold.timeout = timerWheel.schedule(() -> expire(userId, variantId, hold), ttl);
+            holds.byUser.put(userId, hold);
+            holds.total += quantity;
+            reservation = new Reservation(variantId, quantity, hold.expiresAt);
+        }
+        variantsByUser.compute(userId, (id, variantIds) -> {
+            Set<Long> updated = variantIds != null ? variantIds : ConcurrentHashMap.newKeySet();
+            updated.add(variantId);
+            return updated;
+        });
+        return reservation;
+    }
+
+    /**
+     * Releases the hold of a user on a variant, if any.
+     * @param userId The ID of the user.
+     * @param variantId The ID of the product variant.
+     */
+    public void release(Long userId, Long variantId) {
+        remove(userId, variantId, null);
+    }
+
+    /**
+     * Releases all holds of a user.
+     * @param userId The ID of the user.
+     */
+    public void releaseAll(Long userId) {
+        Set<Long> variantIds = variantsByUser.get(userId);
+        if (variantIds != null) {
+            for (Long variantId : List.copyOf(variantIds)) {
+                remove(userId, variantId, null);
+            }
+        }
+    }
+
+    /**
+     * @param variantId The ID of the product variant.
+     * @return The quantity of the variant held by all carts.
+     */
+    public int getHeld(Long variantId) {
+        VariantHolds holds = holdsByVariant.get(variantId);
+        if (holds == null) {
+            return 0;
+        }
+        synchronized (holds) {
+            return holds.total;
+        }
+    }
+
+    /**
+     * @param variantId The ID of the product variant.
+     * @param userId The ID of the user whose own hold is not counted, or null to count all holds.
+     * @return The quantity of the variant held by the carts of other users.
+     */
+    public int getHeldByOthers(Long variantId, Long userId) {
+        VariantHolds holds = holdsByVariant.get(variantId);
+        if (holds == null) {
+            return 0;
+        }
+        synchronized (holds) {
+            Hold own = userId != null ? holds.byUser.get(userId) : null;
+            return holds.total - (own != null ? own.quantity : 0);
+        }
+    }
+
+    /**
+     * @param userId The ID of the user.
+     * @return The holds of the user, soonest to expire first.
+     */
+    public List<Reservation> getReservations(Long userId) {
+        Set<Long> variantIds = variantsByUser.get(userId);
+        if (variantIds == null) {
+            return List.of();
+        }
+        List<Reservation> reservations = new ArrayList<>();
+        for (Long variantId : variantIds) {
+            VariantHolds holds = holdsByVariant.get(variantId);
+            if (holds == null) {
+                continue;
+            }
+            synchronized (holds) {
+                Hold hold = holds.byUser.get(userId);
+                if (hold != null) {
+                    reservations.add(new Reservation(variantId, hold.quantity, hold.expiresAt));
+                }
+            }
+        }
+        reservations.sort(Comparator.comparing(Reservation::expiresAt));
+        return reservations;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        timerWheel.close();
+    }
+
+    private void expire(Long userId, Long variantId, Hold hold) {
+        remove(userId, variantId, hold);
+    }
+
+    /**
+     * Removes the hold of a user on a variant.
+     * @param expected The hold to remove, or null for whatever hold is current; a renewed hold is kept.
+     */
+    private void remove(Long userId, Long variantId, Hold expected) {
+        VariantHolds holds = holdsByVariant.get(variantId);
+        if (holds == null) {
+            return;
+        }
+        boolean removed = false;
+        synchronized (holds) {
+            Hold current = holds.byUser.get(userId);
+            if (current != null && (expected == null || current == expected)) {
+                holds.byUser.remove(userId);
+                holds.total -= current.quantity;
+                current.timeout.cancel();
+                removed = true;
+            }
+        }
+        if (removed) {
+            variantsByUser.computeIfPresent(userId, (id, variantIds) -> {
+                variantIds.remove(variantId);
+                return variantIds.isEmpty() ? null : variantIds;
+            });
+        }
+    }
+
+    private static final class VariantHolds {
+        private final Map<Long, Hold> byUser = new HashMap<>();
+        private int total;
+    }
+
+    private static final class Hold {
+        private final int quantity;
+        private final Instant expiresAt;
+        private TimerWheel.Timeout timeout;
+
+        private Hold(int quantity, Instant expiresAt) {
+            this.quantity = quantity;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package com.healthstore.inventory;
+
+import com.healthstore.config.InventoryProperties;
+import com.healthstore.exception.ResourceNotFoundException;
+import com.healthstore.repository.ProductVariantRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * In-memory stock of hot variants, for sales where many buyers check out the same variant at once.
+ * The available stock of a hot variant is held in a {@link StripedStockCounter}, so reservations are
+ * granted without touching its database row. Each reservation is synced to a {@link StockJournal}
+ * before it is acknowledged, and the journal is written back to {@code product_variants} in batches
+ * every flush interval. On startup, journal records past the checkpoint stored in the database are
+ * replayed, so a crash loses no acknowledged reservation; at worst it keeps stock reserved for a
+ * checkout that never committed.
+ * <p>
+ * The in-memory stock belongs to this instance: hot mode assumes a single instance takes the orders
+ * of a hot variant, and variants should be switched into hot mode before the sale starts.
+ * A variant may leave hot mode between a caller's {@link #isHot(Long)} and its reservation, so
+ * reservations and reads report a variant that is no longer hot instead of failing, and the caller
+ * falls back to the database stock.
+ * <p>
+ * Switching a variant in or out of hot mode holds the ledger monitor; reservations never take it, and
+ * the journal is written back under a lock of its own, so a slow write-back only delays the switch it
+ * belongs to.
+ */
+@Component
+public class HotStockLedger {
+
+    private static final Logger logger = LoggerFactory.getLogger(HotStockLedger.class);
+    private static final long JOURNAL_TIMEOUT_SECONDS = 10;
+
+    /**
+     * The outcome of a reservation.
+     */
+    public enum Reservation {
+        /** The stock was reserved and journaled. */
+        RESERVED,
+        /** Not enough stock is available. */
+        INSUFFICIENT,
+        /** The variant is not in hot mode; its stock must be taken from the database. */
+        NOT_HOT
+    }
+
+    private final InventoryProperties.Hot properties;
+    private final ProductVariantRepository productVariantRepository;
+    private final StockWriteBehind writeBehind;
+    private final Map<Long, StripedStockCounter> counters = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "hot-stock-flush");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Object flushLock = new Object();
+    private final Path journalPath;
+    private final String journalName;
+    private volatile StockJournal journal;
+
+    public HotStockLedger(InventoryProperties inventoryProperties,
+                          ProductVariantRepository productVariantRepository,
+                          StockWriteBehind writeBehind) {
+        this.properties = inventoryProperties.getHot();
+        this.productVariantRepository = productVariantRepository;
+        this.writeBehind = writeBehind;
+        this.journalPath = Path.of(properties.getJournal()).toAbsolutePath().normalize();
+        this.journalName = journalPath.toString();
+    }
+
+    /**
+     * Replays the journal left by the previous run, then switches the configured variants into hot mode.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() throws IOException {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        long checkpoint = writeBehind.checkpoint(journalName);
+        StockJournal.Snapshot replayed = StockJournal.replay(journalPath, checkpoint);
+        if (!replayed.isEmpty()) {
+            writeBehind.apply(journalName, replayed.deltas(), replayed.sequence());
+            logger.info("Replayed hot stock journal changes of {} variants", replayed.deltas().size());
+        }
+        journal = StockJournal.open(journalPath, replayed.sequence(), properties.getJournalBatchSize());
+
+        long interval = properties.getFlushInterval().toMillis();
+        flusher.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+        for (Long variantId : properties.getVariantIds()) {
+            enable(variantId);
+        }
+    }
+
+    /**
+     * @param variantId The ID of the product variant.
+     * @return Whether the stock of the variant is held in memory.
+     */
+    public boolean isHot(Long variantId) {
+        return counters.containsKey(variantId);
+    }
+
+    /**
+     * @return The IDs of the variants in hot mode.
+     */
+    public Set<Long> getHotVariantIds() {
+        return Set.copyOf(counters.keySet());
+    }
+
+    /**
+     * Reads the stock of a hot variant that is still available for reservation.
+     * @param variantId The ID of the hot product variant.
+     * @return The available stock.
+     * @throws IllegalStateException if the variant is not in hot mode
+     */
+    public int getAvailable(Long variantId) {
+        return findAvailable(variantId).orElseThrow(
+                () -> new IllegalStateException("Variant " + variantId + " is not in hot stock mode"));
+    }
+
+    /**
+     * Reads the stock of a variant that is still available for reservation, if it is in hot mode.
+     * A variant being switched back to database stock is waited for and reported as not hot.
+     * @param variantId The ID of the product variant.
+     * @return The available stock, or empty if the stock of the variant is held in the database.
+     */
+    public OptionalInt findAvailable(Long variantId) {
+        while (true) {
+            StripedStockCounter counter = counters.get(variantId);
+            if (counter == null) {
+                return OptionalInt.empty();
+            }
+            if (!counter.isRetired()) {
+                return OptionalInt.of(counter.available());
+            }
+            counter.awaitReplaced();
+        }
+    }
+
+    /**
+     * Reserves stock of a hot variant and waits until the reservation is journaled.
+     * When called within a transaction, the stock is handed back if the transaction rolls back.
+     * A variant being switched back to database stock is waited for and reported as not hot.
+     * @param variantId The ID of the product variant.
+     * @param quantity The quantity to reserve, greater than zero.
+     * @return Whether the stock was reserved, was short, or must be taken from the database instead.
+     * @throws IllegalStateException if the reservation could not be journaled
+     */
+    public Reservation reserve(Long variantId, int quantity) {
+        StripedStockCounter counter;
+        while (true) {
+            counter = counters.get(variantId);
+            if (counter == null) {
+                return Reservation.NOT_HOT;
+            }
+            if (counter.enter()) {
+                if (counter.tryTake(quantity)) {
+                    break;
+                }
+                counter.exit();
+                if (!counter.isRetired()) {
+                    return Reservation.INSUFFICIENT;
+                }
+            }
+            counter.awaitReplaced();
+        }
+        // The counter stays entered until the reservation is journaled, so a disable() writes it back.
+        try {
+            journal.append(variantId, -quantity).get(JOURNAL_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            counter.add(quantity);
+            throw new IllegalStateException("Interrupted while journaling stock reservation", e);
+        } catch (ExecutionException | TimeoutException e) {
+            counter.add(quantity);
+            throw new IllegalStateException("Failed to journal stock reservation of variant " + variantId, e);
+        } finally {
+            counter.exit();
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_ROLLED_BACK) {
+                        release(variantId, quantity);
+                    }
+                }
+            });
+        }
+        return Reservation.RESERVED;
+    }
+
+    /**
+     * Hands stock back to a variant, for example when an order is cancelled or rolled back.
+     * The variant may have left hot mode since the stock was reserved; stock handed back to a variant
+     * leaving hot mode only reaches the database, through the journal.
+     * @param variantId The ID of the product variant.
+     * @param quantity The quantity to hand back.
+     */
+    public void release(Long variantId, int quantity) {
+        StripedStockCounter counter = counters.get(variantId);
+        if (counter != null && counter.enter()) {
+            counter.add(quantity);
+            counter.exit();
+        }
+        journal.append(variantId, quantity).whenComplete((ignored, e) -> {
+            if (e != null) {
+                logger.error("Failed to journal {} units returned to variant {}", quantity, variantId, e);
+            }
+        });
+    }
+
+    /**
+     * Switches a variant into hot mode, starting from its current database stock.
+     * @param variantId The ID of the product variant.
+     * @throws IllegalStateException if hot mode is disabled
+     * @throws ResourceNotFoundException if the variant does not exist
+     */
+    public synchronized void enable(Long variantId) {
+        if (journal == null) {
+            throw new IllegalStateException("Hot stock mode is not enabled");
+        }
+        if (isHot(variantId)) {
+            return;
+        }
+        // Write back what is journaled for the variant first, so that the database stock is current.
+        flush();
+        int stock = productVariantRepository.findStockQuantityById(variantId)
+                .orElseThrow(() -> new ResourceNotFoundException("Product variant not found with id: " + variantId));
+        counters.put(variantId, new StripedStockCounter(stripes(), stock));
+        logger.info("Variant {} switched to hot stock mode with {} units", variantId, stock);
+    }
+
+    /**
+     * Switches a variant back to database stock, writing its reservations back first.
+     * Reservations arriving meanwhile wait for the switch and then take their stock from the database.
+     * @param variantId The ID of the product variant.
+     * @throws IllegalStateException if the reservations could not be written back; the variant then stays hot
+     */
+    public synchronized void disable(Long variantId) {
+        StripedStockCounter counter = counters.get(variantId);
+        if (counter == null) {
+            return;
+        }
+        try {
+            // Refuse new reservations, and wait for those already taken to be journaled so the flush includes them.
+            counter.retire();
+            counter.awaitIdle();
+            int available = counter.drain();
+            if (!flush()) {
+                // The database stock would still count the reserved units.
+                counters.put(variantId, new StripedStockCounter(stripes(), available));
+                throw new IllegalStateException("Failed to write back the hot stock of variant " + variantId
+                        + ", it stays in hot stock mode");
+            }
+            counters.remove(variantId);
+        } finally {
+            counter.replaced();
+        }
+        logger.info("Variant {} switched back to database stock", variantId);
+    }
+
+    /**
+     * Writes the journaled changes back to the database.
+     * On failure the changes are kept and written back with the next flush.
+     * @return Whether every change journaled so far has been written back.
+     */
+    boolean flush() {
+        synchronized (flushLock) {
+            StockJournal current = journal;
+            if (current == null) {
+                return true;
+            }
+            StockJournal.Snapshot snapshot = current.drain();
+            if (snapshot.isEmpty()) {
+                return true;
+            }
+            try {
+                writeBehind.apply(journalName, snapshot.deltas(), snapshot.sequence());
+                current.truncateIfFlushed();
+                return true;
+            } catch (RuntimeException e) {
+                current.restore(snapshot);
+                logger.error("Failed to write back hot stock of {} variants, retrying", snapshot.deltas().size(), e);
+                return false;
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        flusher.shutdown();
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.close();
+            flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private int stripes() {
+        return properties.getStripes() > 0 ? properties.getStripes() : Runtime.getRuntime().availableProcessors();
+    }
+}
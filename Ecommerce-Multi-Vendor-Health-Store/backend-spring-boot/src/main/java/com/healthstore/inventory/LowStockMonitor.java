@@ -0,0 +1,169 @@
+package com.healthstore.inventory;
+
+import com.healthstore.config.InventoryProperties;
+import com.healthstore.event.StockChangedEvent;
+import com.healthstore.model.ProductVariant;
+import com.healthstore.repository.ProductVariantRepository;
+import com.healthstore.service.NotificationService;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Sends low-stock, out-of-stock and back-in-stock notifications as the stock of variants changes.
+ * <p>
+ * Committed {@link StockChangedEvent}s only mark variants as changed; a single background thread
+ * reads the current stock of all marked variants with one query and moves each through its alert
+ * state (OK, LOW, CRITICAL, OUT). A notification is sent when a variant enters a worse state, or
+ * comes back in stock after being out, so a variant that stays low is reported once rather than
+ * on every sale. Alert states live in memory: after a restart, a variant still low is reported
+ * again on its next stock change.
+ */
+@Component
+public class LowStockMonitor {
+
+    /**
+     * Alert state of a variant, from best to worst.
+     */
+    enum Level {
+        OK, LOW, CRITICAL, OUT
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(LowStockMonitor.class);
+
+    private final ProductVariantRepository productVariantRepository;
+    private final HotStockLedger hotStockLedger;
+    private final NotificationService notificationService;
+    private final InventoryProperties.Alerts properties;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Map<Long, Level> levels = new ConcurrentHashMap<>();
+    private final Set<Long> changed = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "low-stock-monitor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public LowStockMonitor(ProductVariantRepository productVariantRepository,
+                           HotStockLedger hotStockLedger,
+                           NotificationService notificationService,
+                           InventoryProperties inventoryProperties,
+                           PlatformTransactionManager transactionManager) {
+        this.productVariantRepository = productVariantRepository;
+        this.hotStockLedger = hotStockLedger;
+        this.notificationService = notificationService;
+        this.properties = inventoryProperties.getAlerts();
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Marks the variants of a committed stock change for checking; changes that roll back are never seen.
+     * @param event The stock change.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockChanged(StockChangedEvent event) {
+        changed.addAll(event.getVariantIds());
+        if (drainScheduled.compareAndSet(false, true)) {
+            executor.execute(this::drain);
+        }
+    }
+
+    /**
+     * Checks all marked variants; variants marked while it runs are picked up by the next run.
+     */
+    private void drain() {
+        drainScheduled.set(false);
+        List<Long> variantIds = new ArrayList<>(changed);
+        changed.removeAll(variantIds);
+        if (variantIds.isEmpty()) {
+            return;
+        }
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> check(variantIds));
+        } catch (RuntimeException e) {
+            logger.error("Failed to check stock levels of {} variants", variantIds.size(), e);
+        }
+    }
+
+    /**
+     * Moves the given variants to the alert state of their current stock, notifying as it changes.
+     * Runs on the monitor thread, inside a read-only transaction.
+     * @param variantIds The variants to check.
+     */
+    void check(List<Long> variantIds) {
+        Map<Long, Integer> stock = new HashMap<>();
+        for (Object[] row : productVariantRepository.findStockQuantitiesByIdIn(variantIds)) {
+            stock.put((Long) row[0], (Integer) row[1]);
+        }
+        for (Long variantId : variantIds) {
+            hotStockLedger.findAvailable(variantId).ifPresent(available -> stock.put(variantId, available));
+        }
+        // Deleted variants are forgotten.
+        variantIds.stream().filter(variantId -> !stock.containsKey(variantId)).forEach(levels::remove);
+
+        Map<Long, Level> alerts = new HashMap<>();
+        Map<Long, Level> previousLevels = new HashMap<>();
+        stock.forEach((variantId, quantity) -> {
+            Level level = levelOf(quantity);
+            Level previous = levels.getOrDefault(variantId, Level.OK);
+            if (level != previous) {
+                levels.put(variantId, level);
+                if (level.compareTo(previous) > 0 || previous == Level.OUT) {
+                    alerts.put(variantId, level);
+                    previousLevels.put(variantId, previous);
+                }
+            }
+            if (level == Level.OK) {
+                levels.remove(variantId);
+            }
+        });
+        if (alerts.isEmpty()) {
+            return;
+        }
+
+        for (ProductVariant variant : productVariantRepository.findAllById(alerts.keySet())) {
+            Level level = alerts.get(variant.getId());
+            // Hot variants report their in-memory stock; the transaction is read-only, so this is never written.
+            variant.setStockQuantity(stock.get(variant.getId()));
+            if (level == Level.OUT) {
+                notificationService.sendOutOfStockNotification(variant);
+            } else if (previousLevels.get(variant.getId()) == Level.OUT) {
+                notificationService.sendBackInStockNotification(variant);
+            } else {
+                notificationService.sendLowStockAlert(variant, level.name());
+            }
+        }
+    }
+
+    private Level levelOf(int quantity) {
+        if (quantity <= 0) {
+            return Level.OUT;
+        } else if (quantity <= properties.getCriticalThreshold()) {
+            return Level.CRITICAL;
+        } else if (quantity <= properties.getLowThreshold()) {
+            return Level.LOW;
+        }
+        return Level.OK;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+}
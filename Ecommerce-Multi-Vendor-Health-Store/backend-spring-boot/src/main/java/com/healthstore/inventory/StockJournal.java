@@ -0,0 +1,267 @@
+package com.healthstore.inventory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Append-only file of hot-stock changes that have not been written back to the database yet.
+ * Every record is a line {@code sequence variantId delta}. Records are written by a single thread
+ * that collects whatever was appended meanwhile and syncs the whole batch to disk at once, so
+ * concurrent buyers share one sync instead of waiting for one each.
+ * Synced changes are summed per variant until {@link #drain()} hands them over for write-back.
+ */
+class StockJournal implements AutoCloseable {
+
+    /**
+     * Changes summed per variant, and the sequence of the last record they include.
+     */
+    record Snapshot(Map<Long, Integer> deltas, long sequence) {
+
+        boolean isEmpty() {
+            return deltas.isEmpty();
+        }
+    }
+
+    private record Pending(long variantId, int delta, CompletableFuture<Void> written) {
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(StockJournal.class);
+
+    /**
+     * Size from which the journal is truncated once everything in it has been written back.
+     */
+    private static final long TRUNCATE_SIZE = 1024 * 1024;
+
+    private final FileChannel channel;
+    private final int batchSize;
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final Object lock = new Object();
+    private final Map<Long, Integer> unflushed = new HashMap<>();
+    private final Thread writer;
+    private long lastSequence;
+    private volatile boolean closed;
+
+    private StockJournal(FileChannel channel, long lastSequence, int batchSize) {
+        this.channel = channel;
+        this.lastSequence = lastSequence;
+        this.batchSize = Math.max(1, batchSize);
+        this.writer = new Thread(this::run, "stock-journal");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Opens an empty journal; anything left in the file must have been replayed before.
+     * @param path The journal file.
+     * @param lastSequence The sequence to continue numbering records after.
+     * @param batchSize The maximum number of records synced together.
+     * @return The journal.
+     * @throws IOException if the file cannot be opened
+     */
+    static StockJournal open(Path path, long lastSequence, int batchSize) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        channel.force(true);
+        return new StockJournal(channel, lastSequence, batchSize);
+    }
+
+    /**
+     * Reads the records of a journal file that come after a sequence.
+     * Reading stops at the first incomplete or malformed line, which can only be a write
+     * interrupted by a crash and was therefore never acknowledged.
+     * @param path The journal file.
+     * @param afterSequence The sequence of the last record already applied.
+     * @return The changes of the remaining records, and the highest sequence seen.
+     * @throws IOException if the file cannot be read
+     */
+    static Snapshot replay(Path path, long afterSequence) throws IOException {
+        Map<Long, Integer> deltas = new HashMap<>();
+        long sequence = afterSequence;
+        String content;
+        try {
+            content = Files.readString(path, StandardCharsets.UTF_8);
+        } catch (NoSuchFileException e) {
+            return new Snapshot(deltas, afterSequence);
+        }
+        int start = 0;
+        int end;
+        while ((end = content.indexOf('\n', start)) >= 0) {
+            String[] fields = content.substring(start, end).split(" ");
+            start = end + 1;
+            if (fields.length != 3) {
+                break;
+            }
+            long recordSequence;
+            try {
+                recordSequence = Long.parseLong(fields[0]);
+                if (recordSequence > afterSequence) {
+                    deltas.merge(Long.parseLong(fields[1]), Integer.parseInt(fields[2]), StockJournal::sum);
+                }
+            } catch (NumberFormatException e) {
+                break;
+            }
+            sequence = Math.max(sequence, recordSequence);
+        }
+        return new Snapshot(deltas, sequence);
+    }
+
+    /**
+     * Appends a stock change.
+     * @param variantId The ID of the variant.
+     * @param delta The change in stock.
+     * @return A future completed once the record is synced to disk.
+     */
+    CompletableFuture<Void> append(long variantId, int delta) {
+        CompletableFuture<Void> written = new CompletableFuture<>();
+        if (closed) {
+            written.completeExceptionally(new IOException("Stock journal is closed"));
+            return written;
+        }
+        queue.add(new Pending(variantId, delta, written));
+        return written;
+    }
+
+    /**
+     * Hands over the synced changes not drained yet.
+     * @return The changes, which must either be written back or {@link #restore(Snapshot) restored}.
+     */
+    Snapshot drain() {
+        synchronized (lock) {
+            Snapshot snapshot = new Snapshot(new HashMap<>(unflushed), lastSequence);
+            unflushed.clear();
+            return snapshot;
+        }
+    }
+
+    /**
+     * Puts back changes that could not be written back, so that the next drain includes them.
+     * @param snapshot The drained changes.
+     */
+    void restore(Snapshot snapshot) {
+        synchronized (lock) {
+            snapshot.deltas().forEach((variantId, delta) -> unflushed.merge(variantId, delta, StockJournal::sum));
+        }
+    }
+
+    /**
+     * Empties the file once it has grown large, provided every record in it has been written back.
+     * Must only be called after the last drained snapshot has been written back.
+     */
+    void truncateIfFlushed() {
+        synchronized (lock) {
+            try {
+                // The last flush on shutdown runs after the journal is closed.
+                if (unflushed.isEmpty() && channel.isOpen() && channel.size() >= TRUNCATE_SIZE) {
+                    channel.truncate(0);
+                    channel.force(true);
+                }
+            } catch (IOException e) {
+                logger.warn("Failed to truncate stock journal", e);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        // Not interrupted: an interrupt during a write would close the channel under it.
+        closed = true;
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+    }
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        while (!closed || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            queue.drainTo(batch, batchSize - batch.size());
+            write(batch);
+            batch.clear();
+        }
+        Pending pending;
+        while ((pending = queue.poll()) != null) {
+            pending.written().completeExceptionally(new IOException("Stock journal is closed"));
+        }
+    }
+
+    private void write(List<Pending> batch) {
+        synchronized (lock) {
+            long position = -1;
+            long sequence = lastSequence;
+            try {
+                position = channel.size();
+                StringBuilder records = new StringBuilder(batch.size() * 24);
+                for (Pending pending : batch) {
+                    records.append(++sequence).append(' ').append(pending.variantId()).append(' ')
+                            .append(pending.delta()).append('\n');
+                }
+                ByteBuffer buffer = ByteBuffer.wrap(records.toString().getBytes(StandardCharsets.UTF_8));
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer, channel.size());
+                }
+                channel.force(false);
+            } catch (IOException e) {
+                logger.error("Failed to write {} stock journal records", batch.size(), e);
+                discardFrom(position);
+                batch.forEach(pending -> pending.written().completeExceptionally(e));
+                return;
+            }
+            lastSequence = sequence;
+            for (Pending pending : batch) {
+                unflushed.merge(pending.variantId(), pending.delta(), StockJournal::sum);
+            }
+        }
+        batch.forEach(pending -> pending.written().complete(null));
+    }
+
+    /**
+     * Cuts off a partially written batch, so that later records do not follow a torn line.
+     */
+    private void discardFrom(long position) {
+        if (position < 0) {
+            return;
+        }
+        try {
+            channel.truncate(position);
+        } catch (IOException e) {
+            logger.error("Failed to discard partially written stock journal records", e);
+        }
+    }
+
+    private static Integer sum(Integer a, Integer b) {
+        int sum = a + b;
+        return sum == 0 ? null : sum;
+    }
+}
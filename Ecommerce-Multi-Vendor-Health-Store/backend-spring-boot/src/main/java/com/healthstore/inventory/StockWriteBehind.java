@@ -0,0 +1,84 @@
+package com.healthstore.inventory;
+
+import com.healthstore.event.StockChangedEvent;
+import com.healthstore.model.StockJournalCheckpoint;
+import com.healthstore.repository.ProductRepository;
+import com.healthstore.repository.ProductVariantRepository;
+import com.healthstore.repository.StockJournalCheckpointRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes journaled hot-stock changes back to the database.
+ * The stock of every variant, the stock summary of its product and the journal checkpoint
+ * are updated in one transaction, so a batch is either applied and checkpointed, or neither.
+ * A {@link StockChangedEvent} for the written variants lets the listeners that read the product
+ * stock summary, such as the search index, pick up the new totals once the batch commits.
+ */
+@Component
+public class StockWriteBehind {
+
+    private final ProductVariantRepository productVariantRepository;
+    private final ProductRepository productRepository;
+    private final StockJournalCheckpointRepository checkpointRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public StockWriteBehind(ProductVariantRepository productVariantRepository,
+                            ProductRepository productRepository,
+                            StockJournalCheckpointRepository checkpointRepository,
+                            ApplicationEventPublisher eventPublisher) {
+        this.productVariantRepository = productVariantRepository;
+        this.productRepository = productRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Reads the sequence of the last journal record applied to the database.
+     * @param journal The journal name.
+     * @return The sequence, or 0 if nothing was applied yet.
+     */
+    @Transactional(readOnly = true)
+    public long checkpoint(String journal) {
+        return checkpointRepository.findById(journal)
+                .map(StockJournalCheckpoint::getLastSequence)
+                .orElse(0L);
+    }
+
+    /**
+     * Applies a batch of stock changes and moves the checkpoint past them.
+     * The batch is committed on its own, since the journal no longer holds it once drained.
+     * Listeners of the published {@link StockChangedEvent} run once it has committed.
+     * @param journal The journal name.
+     * @param deltas The change in stock per variant ID.
+     * @param sequence The sequence of the last journal record included in the batch.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void apply(String journal, Map<Long, Integer> deltas, long sequence) {
+        List<Long> written = new ArrayList<>();
+        deltas.forEach((variantId, delta) -> {
+            if (delta != 0 && productVariantRepository.adjustStock(variantId, delta) > 0) {
+                productVariantRepository.findProductIdById(variantId)
+                        .ifPresent(productId -> productRepository.adjustTotalStock(productId, delta));
+                written.add(variantId);
+            }
+        });
+        if (!written.isEmpty()) {
+            eventPublisher.publishEvent(new StockChangedEvent(written));
+        }
+
+        StockJournalCheckpoint checkpoint = checkpointRepository.findById(journal).orElseGet(() -> {
+            StockJournalCheckpoint created = new StockJournalCheckpoint();
+            created.setJournal(journal);
+            return created;
+        });
+        checkpoint.setLastSequence(sequence);
+        checkpointRepository.save(checkpoint);
+    }
+}
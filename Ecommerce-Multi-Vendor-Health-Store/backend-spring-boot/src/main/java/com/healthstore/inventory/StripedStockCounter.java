@@ -0,0 +1,196 @@
+package com.healthstore.inventory;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Available stock of one hot variant, spread over several counters.
+ * Each thread takes stock from its own counter first, so buyers on different cores rarely
+ * compete for the same compare-and-set, and only reach into the other counters once its own
+ * runs short. Counters are spaced a cache line apart to keep them from sharing one.
+ * The total never goes below zero, but a request may be refused while stock that another
+ * thread is handing back is briefly out of reach.
+ * <p>
+ * A counter is retired when its variant leaves hot mode. Callers changing the counter
+ * {@link #enter() enter} it first and {@link #exit() exit} once the change is journaled, so that the
+ * retiring thread can wait for every change made before the retirement to be journaled.
+ */
+final class StripedStockCounter {
+
+    /**
+     * Distance between two counters in the array, 16 ints being 64 bytes.
+     */
+    private static final int PADDING = 16;
+
+    private final AtomicIntegerArray cells;
+    private final int stripes;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final CountDownLatch replaced = new CountDownLatch(1);
+    private volatile boolean retired;
+
+    StripedStockCounter(int stripes, int stock) {
+        this.stripes = Math.max(1, stripes);
+        this.cells = new AtomicIntegerArray(this.stripes * PADDING);
+        int share = stock / this.stripes;
+        for (int i = 0; i < this.stripes; i++) {
+            cells.set(i * PADDING, share + (i < stock % this.stripes ? 1 : 0));
+        }
+    }
+
+    /**
+     * Takes stock if enough is available.
+     * @param quantity The quantity to take, greater than zero.
+     * @return Whether the stock was taken; if not, the counter is left unchanged.
+     */
+    boolean tryTake(int quantity) {
+        int home = home();
+        if (takeUpTo(home, quantity, true) == quantity) {
+            return true;
+        }
+
+        int[] taken = new int[stripes];
+        int remaining = quantity;
+        for (int i = 0; i < stripes && remaining > 0; i++) {
+            int stripe = (home + i) % stripes;
+            taken[stripe] = takeUpTo(stripe, remaining, false);
+            remaining -= taken[stripe];
+        }
+        if (remaining == 0) {
+            return true;
+        }
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            if (taken[stripe] > 0) {
+                cells.addAndGet(stripe * PADDING, taken[stripe]);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Hands stock back.
+     * @param quantity The quantity to add.
+     */
+    void add(int quantity) {
+        cells.addAndGet(home() * PADDING, quantity);
+    }
+
+    /**
+     * @return The stock available over all counters.
+     */
+    int available() {
+        int total = 0;
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            total += cells.get(stripe * PADDING);
+        }
+        return total;
+    }
+
+    /**
+     * Registers a change of the counter that is not journaled yet.
+     * @return Whether the change may go ahead; false if the counter is retired, in which case
+     *         nothing is registered and {@link #exit()} must not be called.
+     */
+    boolean enter() {
+        inFlight.incrementAndGet();
+        if (retired) {
+            inFlight.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Ends a change registered with {@link #enter()}, once it is journaled or undone.
+     */
+    void exit() {
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * Marks the counter retired, so that no new change can {@link #enter()} it.
+     */
+    void retire() {
+        retired = true;
+    }
+
+    /**
+     * Waits until every change that entered the counter before it was retired has exited.
+     * Changes give up journaling after a timeout, so this does not wait longer than that.
+     */
+    void awaitIdle() {
+        while (inFlight.get() > 0) {
+            LockSupport.parkNanos(100_000);
+        }
+    }
+
+    /**
+     * Marks the switch away from this counter done, waking the callers waiting for it.
+     */
+    void replaced() {
+        replaced.countDown();
+    }
+
+    /**
+     * Waits until the retired counter has been replaced, either by the database stock or by a new counter.
+     */
+    void awaitReplaced() {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                replaced.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Takes all available stock, so that nothing more can be reserved, and marks the counter retired.
+     * A request refused from then on can tell that it was refused for that reason.
+     * @return The stock that was available.
+     */
+    int drain() {
+        retired = true;
+        int total = 0;
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            total += cells.getAndSet(stripe * PADDING, 0);
+        }
+        return total;
+    }
+
+    /**
+     * @return Whether the counter has been drained because its variant is leaving hot mode.
+     */
+    boolean isRetired() {
+        return retired;
+    }
+
+    /**
+     * Takes at most {@code quantity} from one counter.
+     * @param all Whether to take nothing unless the whole quantity is available.
+     * @return The quantity taken.
+     */
+    private int takeUpTo(int stripe, int quantity, boolean all) {
+        int index = stripe * PADDING;
+        while (true) {
+            int current = cells.get(index);
+            int take = Math.min(current, quantity);
+            if (take <= 0 || (all && take < quantity)) {
+                return 0;
+            }
+            if (cells.compareAndSet(index, current, current - take)) {
+                return take;
+            }
+        }
+    }
+
+    private int home() {
+        return (int) (Thread.currentThread().getId() % stripes);
+    }
+}
@@ -0,0 +1,220 @@
+package com.healthstore.inventory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hashed timer wheel for large numbers of coarse timeouts.
+ * Time is cut into ticks and timeouts are hashed into a ring of buckets by the tick they expire in;
+ * a timeout further away than one turn of the ring also records how many turns it has to wait.
+ * Scheduling and cancelling are O(1) and never touch the buckets directly: both go through queues
+ * that the wheel thread drains once per tick before expiring the bucket of that tick.
+ * Timeouts fire on the wheel thread, up to one tick late, so tasks must be short.
+ */
+public final class TimerWheel implements AutoCloseable {
+
+    /**
+     * A scheduled task.
+     */
+    public interface Timeout {
+
+        /**
+         * Cancels the task unless it already ran.
+         * @return Whether the task was cancelled by this call.
+         */
+        boolean cancel();
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(TimerWheel.class);
+
+    /**
+     * Maximum number of timeouts moved into the wheel per tick, so a burst cannot stall expiry.
+     */
+    private static final int MAX_TRANSFERS_PER_TICK = 100_000;
+
+    private static final int WAITING = 0;
+    private static final int CANCELLED = 1;
+    private static final int EXPIRED = 2;
+
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final Queue<Entry> scheduled = new ConcurrentLinkedQueue<>();
+    private final Queue<Entry> cancelled = new ConcurrentLinkedQueue<>();
+    private final long startTime;
+    private final Thread worker;
+    private volatile boolean closed;
+    private long tick;
+
+    /**
+     * Creates and starts a timer wheel.
+     * @param name The name of the wheel thread.
+     * @param tickDuration The duration of one tick, which is also the timing precision.
+     * @param wheelSize The number of buckets, rounded up to a power of two.
+     */
+    public TimerWheel(String name, Duration tickDuration, int wheelSize) {
+        this.tickNanos = Math.max(TimeUnit.MILLISECONDS.toNanos(1), tickDuration.toNanos());
+        int size = Integer.highestOneBit(Math.max(1, wheelSize - 1)) << 1;
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = size - 1;
+        this.startTime = System.nanoTime();
+        this.worker = new Thread(this::run, name);
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * Schedules a task.
+     * @param task The task to run once the delay has passed.
+     * @param delay The delay.
+     * @return The timeout, which can be cancelled.
+     */
+    public Timeout schedule(Runnable task, Duration delay) {
+        if (closed) {
+            throw new IllegalStateException("Timer wheel is closed");
+        }
+        Entry entry = new Entry(task, System.nanoTime() - startTime + delay.toNanos());
+        scheduled.add(entry);
+        return entry;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        worker.interrupt();
+    }
+
+    private void run() {
+        while (!closed) {
+            long deadline = tickNanos * (tick + 1);
+            long sleep = deadline - (System.nanoTime() - startTime);
+            if (sleep > 0) {
+                LockSupport.parkNanos(this, sleep);
+                continue;
+            }
+            removeCancelled();
+            transferScheduled();
+            wheel[(int) (tick & mask)].expire();
+            tick++;
+        }
+    }
+
+    private void removeCancelled() {
+        Entry entry;
+        while ((entry = cancelled.poll()) != null) {
+            if (entry.bucket != null) {
+                entry.bucket.remove(entry);
+            }
+        }
+    }
+
+    private void transferScheduled() {
+        for (int i = 0; i < MAX_TRANSFERS_PER_TICK; i++) {
+            Entry entry = scheduled.poll();
+            if (entry == null) {
+                return;
+            }
+            if (entry.state.get() == CANCELLED) {
+                continue;
+            }
+            long expiryTick = entry.deadline / tickNanos;
+            entry.rounds = (expiryTick - tick) / wheel.length;
+            // A timeout already due goes into the current bucket instead of one in the past.
+            wheel[(int) (Math.max(expiryTick, tick) & mask)].add(entry);
+        }
+    }
+
+    private final class Entry implements Timeout {
+        private final Runnable task;
+        private final long deadline;
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+        private long rounds;
+        private Bucket bucket;
+        private Entry previous;
+        private Entry next;
+
+        private Entry(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public boolean cancel() {
+            if (!state.compareAndSet(WAITING, CANCELLED)) {
+                return false;
+            }
+            cancelled.add(this);
+            return true;
+        }
+
+        private void expire() {
+            if (!state.compareAndSet(WAITING, EXPIRED)) {
+                return;
+            }
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                logger.error("Timer wheel task failed", e);
+            }
+        }
+    }
+
+    /**
+     * Doubly linked list of the timeouts hashed to one tick, only accessed by the wheel thread.
+     */
+    private final class Bucket {
+        private Entry head;
+        private Entry tail;
+
+        private void add(Entry entry) {
+            entry.bucket = this;
+            if (head == null) {
+                head = tail = entry;
+            } else {
+                tail.next = entry;
+                entry.previous = tail;
+                tail = entry;
+            }
+        }
+
+        private void remove(Entry entry) {
+            if (entry.previous != null) {
+                entry.previous.next = entry.next;
+            } else {
+                head = entry.next;
+            }
+            if (entry.next != null) {
+                entry.next.previous = entry.previous;
+            } else {
+                tail = entry.previous;
+            }
+            entry.previous = null;
+            entry.next = null;
+            entry.bucket = null;
+        }
+
+        private void expire() {
+            Entry entry = head;
+            while (entry != null) {
+                Entry next = entry.next;
+                if (entry.rounds <= 0) {
+                    remove(entry);
+                    entry.expire();
+                } else {
+                    entry.rounds--;
+                }
+                entry = next;
+            }
+        }
+    }
+}
@@ -26,6 +26,14 @@ public class Cart {
     @OneToMany(mappedBy = "cart", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<CartItem> items = new ArrayList<>();
 
+    /**
+     * Advanced by every write of the cart, so that a node writing back its in-memory copy
+     * can tell whether someone else wrote the cart since the copy was loaded. A write-back
+     * stores the version of the copy it wrote.
+     */
+    @Column(nullable = false, columnDefinition = "BIGINT NOT NULL DEFAULT 0")
+    private long revision;
+
     @Transient
     public BigDecimal getTotalPrice() {
         return items.stream()
@@ -97,6 +105,14 @@ public class Cart {
         this.items = items;
     }
 
+    public long getRevision() {
+        return revision;
+    }
+
+    public void setRevision(long revision) {
+        this.revision = revision;
+    }
+
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 
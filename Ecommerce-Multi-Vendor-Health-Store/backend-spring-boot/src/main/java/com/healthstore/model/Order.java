@@ -1,7 +1,9 @@
 package com.healthstore.model;
 
 import jakarta.persistence.*;
+import com.healthstore.report.OrderRollupListener;
 import lombok.Data;
+import org.hibernate.annotations.BatchSize;
 import org.hibernate.envers.Audited;
 import org.hibernate.envers.NotAudited;
 import java.math.BigDecimal;
@@ -12,12 +14,46 @@ import java.util.List;
 /**
  * The Order entity represents a customer's order in the e-commerce store.
  * It contains information about the order status, total amount, and associated items.
+ *
+ * The named entity graphs are the fetch profiles used by {@code OrderRepository}:
+ * the summary graph for order listings, the detail graph for a single order with its items,
+ * and the email graph for what the order email templates render.
+ * Every change of an order is reported to the sales rollups by {@link OrderRollupListener}.
  */
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        @Index(name = "idx_orders_order_date_id", columnList = "order_date, id"),
+        @Index(name = "idx_orders_user_order_date_id", columnList = "user_id, order_date, id"),
+        @Index(name = "idx_orders_total_amount_id", columnList = "total_amount, id"),
+        @Index(name = "idx_orders_user_total_amount_id", columnList = "user_id, total_amount, id")
+})
+@NamedEntityGraph(name = Order.GRAPH_SUMMARY, attributeNodes = {
+        @NamedAttributeNode("user"),
+        @NamedAttributeNode("shippingAddress")
+})
+@NamedEntityGraph(name = Order.GRAPH_DETAIL, attributeNodes = {
+        @NamedAttributeNode("user"),
+        @NamedAttributeNode("shippingAddress"),
+        @NamedAttributeNode(value = "orderItems", subgraph = "items")
+}, subgraphs = @NamedSubgraph(name = "items", attributeNodes = {
+        @NamedAttributeNode("product"),
+        @NamedAttributeNode("productVariant")
+}))
+@NamedEntityGraph(name = Order.GRAPH_EMAIL, attributeNodes = {
+        @NamedAttributeNode("user"),
+        @NamedAttributeNode("shippingAddress"),
+        @NamedAttributeNode(value = "orderItems", subgraph = "items")
+}, subgraphs = @NamedSubgraph(name = "items", attributeNodes = {
+        @NamedAttributeNode("product")
+}))
+@EntityListeners(OrderRollupListener.class)
 @Data
 @Audited
 public class Order {
+    public static final String GRAPH_SUMMARY = "Order.summary";
+    public static final String GRAPH_DETAIL = "Order.detail";
+    public static final String GRAPH_EMAIL = "Order.email";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -30,7 +66,9 @@ public class Order {
     @NotAudited
     private User user;
 
+    // Items of the orders of a page are loaded together instead of one order at a time
     @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, orphanRemoval = true)
+    @BatchSize(size = 50)
     @NotAudited
     private List<OrderItem> orderItems = new ArrayList<>();
 
@@ -3,6 +3,7 @@ package com.healthstore.model;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 import jakarta.persistence.*;
 import lombok.Data;
+import org.hibernate.annotations.BatchSize;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -15,8 +16,15 @@ import java.util.OptionalDouble;
  * Products are associated with categories and can have multiple images.
  */
 @Entity
-@Table(name = "products")
+@Table(name = "products", indexes = {
+        @Index(name = "idx_products_min_price", columnList = "min_price"),
+        @Index(name = "idx_products_max_price", columnList = "max_price"),
+        @Index(name = "idx_products_total_stock", columnList = "total_stock"),
+        @Index(name = "idx_products_created_at_id", columnList = "created_at, id"),
+        @Index(name = "idx_products_name_id", columnList = "name, id")
+})
 @Data
+@BatchSize(size = 50)
 public class Product {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -58,6 +66,18 @@ public class Product {
     @Transient
     private Double averageRating;
 
+    // Summary of the variants, kept in sync by ProductRepository update queries so that price and
+    // stock filters and sorts can use the indexes above. Never written from entity state.
+    @Column(name = "min_price", insertable = false, updatable = false)
+    private Double minPrice;
+
+    @Column(name = "max_price", insertable = false, updatable = false)
+    private Double maxPrice;
+
+    @Column(name = "total_stock", nullable = false, insertable = false, updatable = false,
+            columnDefinition = "INT NOT NULL DEFAULT 0")
+    private int totalStock;
+
     @Column(nullable = false)
     private boolean active = true;
 
@@ -187,4 +207,16 @@ public class Product {
     public void setVariants(List<ProductVariant> variants) {
         this.variants = variants;
     }
+
+    public Double getMinPrice() {
+        return minPrice;
+    }
+
+    public Double getMaxPrice() {
+        return maxPrice;
+    }
+
+    public int getTotalStock() {
+        return totalStock;
+    }
 }
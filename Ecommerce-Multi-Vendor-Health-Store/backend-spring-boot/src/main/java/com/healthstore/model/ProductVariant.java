@@ -4,6 +4,7 @@ import com.fasterxml.jackson.annotation.JsonManagedReference;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.BatchSize;
 import org.hibernate.envers.Audited;
 import org.hibernate.envers.NotAudited;
 
@@ -15,6 +16,7 @@ import java.util.List;
 @Getter
 @Setter
 @Audited
+@BatchSize(size = 50)
 public class ProductVariant {
 
     @Id
@@ -32,6 +34,7 @@ public class ProductVariant {
 
     @JsonManagedReference
     @OneToMany(mappedBy = "productVariant", cascade = CascadeType.ALL, orphanRemoval = true)
+    @BatchSize(size = 50)
     @NotAudited
     private List<VariantOption> options = new ArrayList<>();
 
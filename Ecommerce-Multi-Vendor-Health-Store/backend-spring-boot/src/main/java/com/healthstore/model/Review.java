@@ -13,7 +13,10 @@ import java.util.List;
  * It includes a rating, comment, and optional images.
  */
 @Entity
-@Table(name = "reviews")
+@Table(name = "reviews", indexes = {
+        @Index(name = "idx_reviews_product_created_at_id", columnList = "product_id, created_at, id"),
+        @Index(name = "idx_reviews_product_rating_id", columnList = "product_id, rating, id")
+})
 @Data
 @Audited
 public class Review {
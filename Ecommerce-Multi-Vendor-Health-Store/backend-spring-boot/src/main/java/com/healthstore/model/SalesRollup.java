@@ -0,0 +1,198 @@
+package com.healthstore.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Sales of one day, week or month, in total or for one category or product variant.
+ * Rows are kept up to date from the orders by {@code SalesRollupUpdater}, so reports read a few
+ * rows per period instead of the orders themselves. Weeks are the weeks of the year that start on
+ * January 1st, as grouped by the sales trend report.
+ */
+@Entity
+@Table(name = "sales_rollups")
+@IdClass(SalesRollup.Key.class)
+@Data
+public class SalesRollup {
+
+    /**
+     * Orders in these states are not counted as sales.
+     */
+    public static final Set<Order.OrderStatus> EXCLUDED_STATUSES =
+            Set.of(Order.OrderStatus.CANCELLED, Order.OrderStatus.REFUNDED, Order.OrderStatus.PAYMENT_FAILED);
+
+    /**
+     * The length of the period a row covers.
+     */
+    public enum PeriodType {
+        DAY,
+        WEEK,
+        MONTH;
+
+        /**
+         * @param date A day.
+         * @return The first day of the period of this type containing the day.
+         */
+        public LocalDate startOf(LocalDate date) {
+            return switch (this) {
+                case DAY -> date;
+                case WEEK -> date.withDayOfYear((date.getDayOfYear() - 1) / 7 * 7 + 1);
+                case MONTH -> date.withDayOfMonth(1);
+            };
+        }
+
+        /**
+         * @param date A day.
+         * @return The last day of the period of this type containing the day.
+         */
+        public LocalDate endOf(LocalDate date) {
+            return switch (this) {
+                case DAY -> date;
+                case WEEK -> {
+                    LocalDate end = startOf(date).plusDays(6);
+                    LocalDate lastDayOfYear = date.with(TemporalAdjusters.lastDayOfYear());
+                    yield end.isAfter(lastDayOfYear) ? lastDayOfYear : end;
+                }
+                case MONTH -> date.with(TemporalAdjusters.lastDayOfMonth());
+            };
+        }
+    }
+
+    /**
+     * What the sales of a row are broken down by; total rows have dimension ID 0.
+     */
+    public enum Dimension {
+        TOTAL,
+        CATEGORY,
+        VARIANT
+    }
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(name = "period_type", length = 8)
+    private PeriodType periodType;
+
+    @Id
+    @Column(name = "period_start")
+    private LocalDate periodStart;
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(length = 10)
+    private Dimension dimension;
+
+    @Id
+    @Column(name = "dimension_id")
+    private long dimensionId;
+
+    @Column(nullable = false, precision = 15, scale = 2)
+    private BigDecimal revenue;
+
+    @Column(name = "order_count", nullable = false)
+    private long orderCount;
+
+    @Column(nullable = false)
+    private long units;
+
+    // Manual getter and setter methods to ensure compilation works when Lombok fails
+    public PeriodType getPeriodType() {
+        return periodType;
+    }
+
+    public void setPeriodType(PeriodType periodType) {
+        this.periodType = periodType;
+    }
+
+    public LocalDate getPeriodStart() {
+        return periodStart;
+    }
+
+    public void setPeriodStart(LocalDate periodStart) {
+        this.periodStart = periodStart;
+    }
+
+    public Dimension getDimension() {
+        return dimension;
+    }
+
+    public void setDimension(Dimension dimension) {
+        this.dimension = dimension;
+    }
+
+    public long getDimensionId() {
+        return dimensionId;
+    }
+
+    public void setDimensionId(long dimensionId) {
+        this.dimensionId = dimensionId;
+    }
+
+    public BigDecimal getRevenue() {
+        return revenue;
+    }
+
+    public void setRevenue(BigDecimal revenue) {
+        this.revenue = revenue;
+    }
+
+    public long getOrderCount() {
+        return orderCount;
+    }
+
+    public void setOrderCount(long orderCount) {
+        this.orderCount = orderCount;
+    }
+
+    public long getUnits() {
+        return units;
+    }
+
+    public void setUnits(long units) {
+        this.units = units;
+    }
+
+    /**
+     * Primary key of a rollup row.
+     */
+    public static class Key implements Serializable {
+
+        private PeriodType periodType;
+        private LocalDate periodStart;
+        private Dimension dimension;
+        private long dimensionId;
+
+        public Key() {
+        }
+
+        public Key(PeriodType periodType, LocalDate periodStart, Dimension dimension, long dimensionId) {
+            this.periodType = periodType;
+            this.periodStart = periodStart;
+            this.dimension = dimension;
+            this.dimensionId = dimensionId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key key)) {
+                return false;
+            }
+            return dimensionId == key.dimensionId && periodType == key.periodType
+                    && Objects.equals(periodStart, key.periodStart) && dimension == key.dimension;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(periodType, periodStart, dimension, dimensionId);
+        }
+    }
+}
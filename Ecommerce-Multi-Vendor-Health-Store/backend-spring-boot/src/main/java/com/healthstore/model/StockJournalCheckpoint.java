@@ -0,0 +1,39 @@
+package com.healthstore.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+/**
+ * The last hot-stock journal record written back to the database.
+ * It is updated in the same transaction as the stock it accounts for, so replaying the journal
+ * after a crash skips exactly the records that were already applied.
+ */
+@Entity
+@Table(name = "stock_journal_checkpoints")
+@Data
+public class StockJournalCheckpoint {
+
+    @Id
+    @Column(length = 512)
+    private String journal;
+
+    @Column(nullable = false)
+    private long lastSequence;
+
+    // Manual getter and setter methods to ensure compilation works when Lombok fails
+    public String getJournal() {
+        return journal;
+    }
+
+    public void setJournal(String journal) {
+        this.journal = journal;
+    }
+
+    public long getLastSequence() {
+        return lastSequence;
+    }
+
+    public void setLastSequence(long lastSequence) {
+        this.lastSequence = lastSequence;
+    }
+}
@@ -0,0 +1,354 @@
+package com.healthstore.order;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.healthstore.config.OrderPipelineProperties;
+import com.healthstore.event.OrderPlacedEvent;
+import com.healthstore.model.Address;
+import com.healthstore.model.Cart;
+import com.healthstore.model.CartItem;
+import com.healthstore.model.Order;
+import com.healthstore.model.OrderItem;
+import com.healthstore.model.Product;
+import com.healthstore.model.ProductVariant;
+import com.healthstore.model.User;
+import com.healthstore.repository.OrderRepository;
+import com.healthstore.service.CartService;
+import com.healthstore.service.EmailService;
+import com.healthstore.service.IdempotencyService;
+import com.healthstore.service.InventoryService;
+import com.healthstore.service.OrderService;
+import com.healthstore.util.BusinessKeyGenerator;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Places orders through a pipeline of stages, each with its own bounded queue and worker pool:
+ * <ol>
+ *     <li><b>accepted</b> reads the cart and checks that it can be ordered;</li>
+ *     <li><b>reserved</b> takes the stock of the cart and removes the ordered lines from it, in one transaction;</li>
+ *     <li><b>priced</b> computes the line totals and the order total;</li>
+ *     <li><b>persisted</b> saves the order, and completes its idempotency key, in one transaction;</li>
+ *     <li><b>notified</b> publishes an {@link OrderPlacedEvent}, from which the {@link OrderPlacedNotifier} notifies
+ *     the customer and the store admins, and also sends the confirmation emails of paid orders.</li>
+ * </ol>
+ * The caller waits only until the stock is reserved; the slower stages run afterwards, so each can be
+ * sized on its own. A placement failing after its stock was reserved returns the stock.
+ * <p>
+ * The state of a placement between the reserved and persisted stages lives in memory only: if the
+ * instance stops in between, the taken stock stays taken without an order, as with hot stock.
+ */
+@Component
+public class OrderPipeline {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderPipeline.class);
+    private static final String PLACEMENT_ID_PREFIX = "PLC-";
+
+    private final OrderPipelineProperties properties;
+    private final CartService cartService;
+    private final InventoryService inventoryService;
+    private final OrderService orderService;
+    private final BusinessKeyGenerator businessKeyGenerator;
+    private final OrderRepository orderRepository;
+    private final IdempotencyService idempotencyService;
+    private final EmailService emailService;
+    private final EntityManager entityManager;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final Cache<String, OrderPlacement> placements;
+    private final PipelineStage acceptedStage;
+    private final PipelineStage reservedStage;
+    private final PipelineStage pricedStage;
+    private final PipelineStage persistedStage;
+    private final PipelineStage notifiedStage;
+
+    public OrderPipeline(OrderPipelineProperties properties,
+                         CartService cartService,
+                         InventoryService inventoryService,
+                         OrderService orderService,
+                         BusinessKeyGenerator businessKeyGenerator,
+                         OrderRepository orderRepository,
+                         IdempotencyService idempotencyService,
+                         EmailService emailService,
+                         EntityManager entityManager,
+                         ApplicationEventPublisher eventPublisher,
+                         PlatformTransactionManager transactionManager,
+                         MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.cartService = cartService;
+        this.inventoryService = inventoryService;
+        this.orderService = orderService;
+        this.businessKeyGenerator = businessKeyGenerator;
+        this.orderRepository = orderRepository;
+        this.idempotencyService = idempotencyService;
+        this.emailService = emailService;
+        this.entityManager = entityManager;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.placements = Caffeine.newBuilder()
+                .expireAfterWrite(properties.getPlacementTtl())
+                .maximumSize(properties.getMaxPlacements())
+                .build();
+        this.acceptedStage = stage("accepted", properties.getAccepted(), true, meterRegistry);
+        this.reservedStage = stage("reserved", properties.getReserved(), false, meterRegistry);
+        this.pricedStage = stage("priced", properties.getPriced(), false, meterRegistry);
+        this.persistedStage = stage("persisted", properties.getPersisted(), false, meterRegistry);
+        this.notifiedStage = stage("notified", properties.getNotified(), false, meterRegistry);
+    }
+
+    /**
+     * Places an order from a user's cart and waits until its stock is reserved, or the reserve timeout passes.
+     * @param user The user placing the order.
+     * @param shippingAddress The shipping address of the order.
+     * @param claim The claimed idempotency key of the request, or null if it was sent without one.
+     * @return The placement, reserved or further along, or still accepted if the reserve timeout passed.
+     * @throws RejectedExecutionException if the pipeline is too busy to accept the placement
+     * @throws RuntimeException whatever made the placement fail before its stock was reserved,
+     *         such as an InsufficientStockException
+     */
+    public OrderPlacement place(User user, Address shippingAddress, IdempotencyService.Claim claim) {
+        OrderPlacement placement = new OrderPlacement(businessKeyGenerator.next(PLACEMENT_ID_PREFIX), orderService.generateOrderNumber(),
+                user, shippingAddress, claim);
+
+        CompletableFuture<OrderPlacement> reserved = acceptedStage.submit(() -> accept(placement))
+                .thenCompose(ignored -> reservedStage.submit(() -> reserve(placement)));
+        placements.put(placement.getId(), placement);
+        reserved.thenCompose(ignored -> pricedStage.submit(() -> price(placement)))
+                .thenCompose(ignored -> persistedStage.submit(() -> persist(placement)))
+                .thenCompose(ignored -> notifiedStage.submit(() -> notifyPlaced(placement)))
+                .whenComplete((ignored, e) -> {
+                    if (e != null) {
+                        fail(placement, unwrap(e));
+                    }
+                });
+
+        try {
+            return reserved.get(properties.getReserveTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            return placement;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return placement;
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        }
+    }
+
+    /**
+     * Looks up a placement of a user.
+     * @param placementId The ID of the placement.
+     * @param userId The ID of the user, who must own the placement.
+     * @return The placement, or empty if it does not exist, has expired or belongs to someone else.
+     */
+    public Optional<OrderPlacement> getPlacement(String placementId, Long userId) {
+        return Optional.ofNullable(placements.getIfPresent(placementId))
+                .filter(placement -> placement.getUserId().equals(userId));
+    }
+
+    /**
+     * Sends the confirmation email of a paid order on the notified stage, so the caller does not wait for the mail server.
+     * The order must have the associations used by the email loaded.
+     * @param order The order to confirm.
+     */
+    public void sendOrderConfirmation(Order order) {
+        notifiedStage.submit(() -> emailService.sendOrderConfirmation(order))
+                .whenComplete((sent, e) -> {
+                    if (e != null) {
+                        logger.error("Failed to send order confirmation email for order {}", order.getId(), unwrap(e));
+                    } else {
+                        logger.info("Sent order confirmation email for order {}", order.getId());
+                    }
+                });
+    }
+
+    private OrderPlacement accept(OrderPlacement placement) {
+        Map<Long, Integer> variantQuantities = new HashMap<>();
+        readOnlyTransactionTemplate.executeWithoutResult(status -> {
+            Cart cart = cartService.getUserCart(placement.getUser());
+            for (CartItem cartItem : cart.getCartItems()) {
+                if (cartItem.getProductVariant() == null) {
+                    throw new IllegalStateException("Cart item is missing product variant information");
+                }
+                variantQuantities.merge(cartItem.getProductVariant().getId(), cartItem.getQuantity(), Integer::sum);
+            }
+        });
+        if (variantQuantities.isEmpty()) {
+            throw new IllegalArgumentException("Cannot create an order from an empty cart.");
+        }
+        placement.setVariantQuantities(variantQuantities);
+        return placement;
+    }
+
+    private OrderPlacement reserve(OrderPlacement placement) {
+        Map<Long, Integer> variantQuantities = placement.getVariantQuantities();
+        List<OrderPlacement.Line> lines = transactionTemplate.execute(status -> {
+            // Locked first: a cart read after the stock would come from a snapshot older than its write-back.
+            Cart cart = cartService.lockUserCart(placement.getUser());
+            Map<Long, ProductVariant> variants =
+                    inventoryService.reduceStockForCart(placement.getUserId(), variantQuantities);
+            List<OrderPlacement.Line> reservedLines = new ArrayList<>(variantQuantities.size());
+            variantQuantities.forEach((variantId, quantity) -> {
+                ProductVariant variant = variants.get(variantId);
+                reservedLines.add(new OrderPlacement.Line(variant.getProduct().getId(), variantId, quantity,
+                        BigDecimal.valueOf(variant.getPrice())));
+            });
+            removeOrderedLines(cart, variantQuantities);
+            return reservedLines;
+        });
+        placement.setLines(lines);
+        placement.advance(OrderPlacement.Status.RESERVED);
+        return placement;
+    }
+
+    /**
+     * Removes the ordered quantities from the cart, keeping whatever was added after the cart was read.
+     */
+    private void removeOrderedLines(Cart cart, Map<Long, Integer> variantQuantities) {
+        Map<Long, Integer> remaining = new HashMap<>(variantQuantities);
+        Iterator<CartItem> items = cart.getCartItems().iterator();
+        while (items.hasNext()) {
+            CartItem item = items.next();
+            Long variantId = item.getProductVariant().getId();
+            int ordered = remaining.getOrDefault(variantId, 0);
+            if (ordered <= 0) {
+                continue;
+            }
+            int removed = Math.min(ordered, item.getQuantity());
+            remaining.put(variantId, ordered - removed);
+            if (removed == item.getQuantity()) {
+                items.remove();
+            } else {
+                item.setQuantity(item.getQuantity() - removed);
+            }
+        }
+        cartService.save(cart);
+    }
+
+    private OrderPlacement price(OrderPlacement placement) {
+        BigDecimal totalAmount = BigDecimal.ZERO;
+        for (OrderPlacement.Line line : placement.getLines()) {
+            totalAmount = totalAmount.add(line.total());
+        }
+        placement.setTotalAmount(totalAmount);
+        placement.advance(OrderPlacement.Status.PRICED);
+        return placement;
+    }
+
+    private OrderPlacement persist(OrderPlacement placement) {
+        Long orderId = transactionTemplate.execute(status -> {
+            Order order = new Order();
+            order.setOrderNumber(placement.getOrderNumber());
+            order.setUser(placement.getUser());
+            order.setOrderDate(LocalDateTime.now());
+            order.setStatus(Order.OrderStatus.PENDING);
+            order.setShippingAddress(placement.getShippingAddress());
+            order.setTotalAmount(placement.getTotalAmount());
+            for (OrderPlacement.Line line : placement.getLines()) {
+                OrderItem orderItem = new OrderItem();
+                orderItem.setOrder(order);
+                orderItem.setProduct(entityManager.getReference(Product.class, line.productId()));
+                orderItem.setProductVariant(entityManager.getReference(ProductVariant.class, line.variantId()));
+                orderItem.setQuantity(line.quantity());
+                orderItem.setPriceAtPurchase(line.unitPrice());
+                orderItem.setFinalPrice(line.total());
+                order.getOrderItems().add(orderItem);
+            }
+            Order savedOrder = orderRepository.save(order);
+            if (placement.getClaim() != null) {
+                idempotencyService.complete(placement.getClaim(), savedOrder.getId());
+            }
+            return savedOrder.getId();
+        });
+        placement.setOrderId(orderId);
+        placement.advance(OrderPlacement.Status.PERSISTED);
+        placements.put(placement.getId(), placement);
+        return placement;
+    }
+
+    private OrderPlacement notifyPlaced(OrderPlacement placement) {
+        eventPublisher.publishEvent(new OrderPlacedEvent(placement.getOrderId(), placement.getOrderNumber(),
+                placement.getUserId()));
+        placement.advance(OrderPlacement.Status.NOTIFIED);
+        placements.put(placement.getId(), placement);
+        return placement;
+    }
+
+    /**
+     * Ends a failed placement, returning its stock if it was reserved but the order was not saved.
+     */
+    private void fail(OrderPlacement placement, RuntimeException e) {
+        OrderPlacement.Status reached = placement.getStatus();
+        if (reached == OrderPlacement.Status.PERSISTED) {
+            // The order exists; only listeners missed it.
+            logger.error("Failed to notify placed order {}", placement.getOrderNumber(), e);
+            return;
+        }
+        if (reached == OrderPlacement.Status.RESERVED || reached == OrderPlacement.Status.PRICED) {
+            for (OrderPlacement.Line line : placement.getLines()) {
+                try {
+                    inventoryService.increaseStock(line.variantId(), line.quantity());
+                } catch (RuntimeException returnFailure) {
+                    logger.error("Failed to return {} units of variant {} of failed order {}", line.quantity(),
+                            line.variantId(), placement.getOrderNumber(), returnFailure);
+                }
+            }
+            logger.error("Order {} failed after its stock was reserved", placement.getOrderNumber(), e);
+        }
+        if (placement.getClaim() != null) {
+            idempotencyService.release(placement.getClaim());
+        }
+        placement.fail(e.getMessage());
+        placements.put(placement.getId(), placement);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        // Drain in pipeline order, so that placements in flight can still move on to the next stage.
+        acceptedStage.close();
+        reservedStage.close();
+        pricedStage.close();
+        persistedStage.close();
+        notifiedStage.close();
+    }
+
+    private static PipelineStage stage(String name, OrderPipelineProperties.Stage stage, boolean rejectWhenFull,
+                                       MeterRegistry meterRegistry) {
+        return new PipelineStage(name, stage.getWorkers(), stage.getQueueCapacity(), rejectWhenFull, meterRegistry);
+    }
+
+    private static RuntimeException unwrap(Throwable e) {
+        Throwable cause = e;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof RuntimeException runtimeException) {
+            return runtimeException;
+        }
+        return new IllegalStateException(cause.getMessage(), cause);
+    }
+}
@@ -0,0 +1,49 @@
+package com.healthstore.order;
+
+import com.healthstore.event.OrderPlacedEvent;
+import com.healthstore.model.Order;
+import com.healthstore.service.NotificationService;
+import com.healthstore.service.OrderService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Tells the customer and the store admins about each order placed through the {@link OrderPipeline}.
+ * Runs on the notified stage of the pipeline, which publishes the {@link OrderPlacedEvent} once the
+ * order is saved. The confirmation email follows separately, once the order is paid.
+ */
+@Component
+public class OrderPlacedNotifier {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderPlacedNotifier.class);
+
+    private final OrderService orderService;
+    private final NotificationService notificationService;
+
+    public OrderPlacedNotifier(OrderService orderService, NotificationService notificationService) {
+        this.orderService = orderService;
+        this.notificationService = notificationService;
+    }
+
+    /**
+     * Sends the order placed notification to the customer and the new order alert to the admins.
+     * A failure of the first does not stop the second.
+     * @param event The placed order.
+     */
+    @EventListener
+    public void onOrderPlaced(OrderPlacedEvent event) {
+        Order order = orderService.getOrderForEmail(event.getOrderId()).orElse(null);
+        if (order == null) {
+            logger.warn("Placed order {} no longer exists, not notifying", event.getOrderNumber());
+            return;
+        }
+        try {
+            notificationService.sendOrderPlacedNotification(order);
+        } catch (RuntimeException e) {
+            logger.error("Failed to notify the customer of placed order {}", order.getOrderNumber(), e);
+        }
+        notificationService.sendNewOrderAlert(order);
+    }
+}
@@ -0,0 +1,157 @@
+package com.healthstore.order;
+
+import com.healthstore.model.Address;
+import com.healthstore.model.User;
+import com.healthstore.service.IdempotencyService;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An order on its way through the {@link OrderPipeline}.
+ * Each stage fills in its part and moves the placement to the next status; the status fields are
+ * volatile because the placement is looked up by its owner while workers move it along.
+ */
+public class OrderPlacement {
+
+    /**
+     * The last stage a placement completed.
+     */
+    public enum Status {
+        /** Queued and, once the accept stage ran, checked and with its cart read. */
+        ACCEPTED,
+        /** The stock of every line is taken and the lines are removed from the cart. */
+        RESERVED,
+        /** The line totals and the order total are computed. */
+        PRICED,
+        /** The order is saved. */
+        PERSISTED,
+        /** Listeners of the placed order have been notified. */
+        NOTIFIED,
+        /** The placement failed; any stock it took has been returned. */
+        FAILED
+    }
+
+    /**
+     * One line of the order.
+     * @param productId The ID of the product.
+     * @param variantId The ID of the product variant.
+     * @param quantity The ordered quantity.
+     * @param unitPrice The price of the variant when its stock was reserved.
+     */
+    public record Line(Long productId, Long variantId, int quantity, BigDecimal unitPrice) {
+
+        public BigDecimal total() {
+            return unitPrice.multiply(BigDecimal.valueOf(quantity));
+        }
+    }
+
+    private final String id;
+    private final String orderNumber;
+    private final User user;
+    private final Address shippingAddress;
+    private final IdempotencyService.Claim claim;
+    private final Instant acceptedAt = Instant.now();
+    private Map<Long, Integer> variantQuantities;
+    private List<Line> lines;
+    private volatile BigDecimal totalAmount;
+    private volatile Long orderId;
+    private volatile Status status = Status.ACCEPTED;
+    private volatile Status failedAfter;
+    private volatile String failure;
+
+    OrderPlacement(String id, String orderNumber, User user, Address shippingAddress, IdempotencyService.Claim claim) {
+        this.id = id;
+        this.orderNumber = orderNumber;
+        this.user = user;
+        this.shippingAddress = shippingAddress;
+        this.claim = claim;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getOrderNumber() {
+        return orderNumber;
+    }
+
+    public Long getUserId() {
+        return user.getId();
+    }
+
+    public BigDecimal getTotalAmount() {
+        return totalAmount;
+    }
+
+    public Long getOrderId() {
+        return orderId;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * @return The stage after which the placement failed, or null if it did not fail.
+     */
+    public Status getFailedAfter() {
+        return failedAfter;
+    }
+
+    public String getFailure() {
+        return failure;
+    }
+
+    public Instant getAcceptedAt() {
+        return acceptedAt;
+    }
+
+    User getUser() {
+        return user;
+    }
+
+    Address getShippingAddress() {
+        return shippingAddress;
+    }
+
+    IdempotencyService.Claim getClaim() {
+        return claim;
+    }
+
+    Map<Long, Integer> getVariantQuantities() {
+        return variantQuantities;
+    }
+
+    void setVariantQuantities(Map<Long, Integer> variantQuantities) {
+        this.variantQuantities = variantQuantities;
+    }
+
+    List<Line> getLines() {
+        return lines;
+    }
+
+    void setLines(List<Line> lines) {
+        this.lines = lines;
+    }
+
+    void setTotalAmount(BigDecimal totalAmount) {
+        this.totalAmount = totalAmount;
+    }
+
+    void setOrderId(Long orderId) {
+        this.orderId = orderId;
+    }
+
+    void advance(Status status) {
+        this.status = status;
+    }
+
+    void fail(String failure) {
+        this.failedAfter = status;
+        this.failure = failure;
+        this.status = Status.FAILED;
+    }
+}
@@ -0,0 +1,127 @@
+package com.healthstore.order;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * One stage of the order pipeline: a bounded queue served by its own pool of worker threads.
+ * A full queue either rejects new work, at the entry of the pipeline, or makes the submitting
+ * worker of the previous stage run the task itself, which slows that stage down to the pace of
+ * this one instead of dropping placements whose stock is already taken. Once the stage is shut down,
+ * the futures of new tasks fail instead, so the placements behind them fail and return their stock.
+ * <p>
+ * Metrics, tagged with the stage name: {@code order.pipeline.queue.depth},
+ * {@code order.pipeline.queue.wait}, {@code order.pipeline.stage.duration} (also tagged by outcome)
+ * and {@code order.pipeline.rejected}.
+ */
+final class PipelineStage implements AutoCloseable {
+
+    /**
+     * Runs the task on the submitting thread, unless the stage is shut down.
+     */
+    private static final RejectedExecutionHandler RUN_ON_CALLER = (task, executor) -> {
+        if (executor.isShutdown()) {
+            throw new RejectedExecutionException("Order pipeline stage is shut down");
+        }
+        task.run();
+    };
+
+    private final String name;
+    private final boolean rejectWhenFull;
+    private final ThreadPoolExecutor executor;
+    private final Timer waitTimer;
+    private final Timer successTimer;
+    private final Timer failureTimer;
+    private final Counter rejected;
+
+    /**
+     * Creates and starts a stage.
+     * @param name The name of the stage, used for its threads and metrics.
+     * @param workers The number of worker threads.
+     * @param queueCapacity The maximum number of tasks waiting for a worker.
+     * @param rejectWhenFull Whether a full queue rejects new tasks instead of running them on the caller.
+     * @param meterRegistry The registry of the stage metrics.
+     */
+    PipelineStage(String name, int workers, int queueCapacity, boolean rejectWhenFull, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.rejectWhenFull = rejectWhenFull;
+        BlockingQueue<Runnable> queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(Math.max(1, workers), Math.max(1, workers), 0, TimeUnit.MILLISECONDS,
+                queue, runnable -> {
+                    Thread thread = new Thread(runnable, "order-" + name + "-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                rejectWhenFull ? new ThreadPoolExecutor.AbortPolicy() : RUN_ON_CALLER);
+        meterRegistry.gauge("order.pipeline.queue.depth", Tags.of("stage", name),
+                queue, BlockingQueue::size);
+        this.waitTimer = meterRegistry.timer("order.pipeline.queue.wait", "stage", name);
+        this.successTimer = meterRegistry.timer("order.pipeline.stage.duration", "stage", name, "outcome", "success");
+        this.failureTimer = meterRegistry.timer("order.pipeline.stage.duration", "stage", name, "outcome", "failure");
+        this.rejected = meterRegistry.counter("order.pipeline.rejected", "stage", name);
+    }
+
+    /**
+     * Queues a task.
+     * @param task The task.
+     * @return A future completed with the result of the task once a worker has run it, or failed with a
+     *         RejectedExecutionException if the stage is shut down.
+     * @throws RejectedExecutionException if the stage rejects work when full and its queue is full,
+     *         or the stage is shut down
+     */
+    <T> CompletableFuture<T> submit(Supplier<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        long queuedAt = System.nanoTime();
+        try {
+            executor.execute(() -> {
+                long startedAt = System.nanoTime();
+                waitTimer.record(startedAt - queuedAt, TimeUnit.NANOSECONDS);
+                try {
+                    T value = task.get();
+                    successTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                    result.complete(value);
+                } catch (RuntimeException | Error e) {
+                    failureTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            if (rejectWhenFull) {
+                throw e;
+            }
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
+    }
+}
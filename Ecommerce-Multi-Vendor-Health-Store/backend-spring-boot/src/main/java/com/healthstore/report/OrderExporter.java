@@ -0,0 +1,266 @@
+package com.healthstore.report;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.healthstore.config.ExportProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Writes the orders or order items of a date range as CSV or newline-delimited JSON.
+ * <p>
+ * Rows are read through a forward-only, read-only cursor a fixed number at a time and each row is
+ * written to the output as soon as it is read, so an export holds one fetch of rows in memory
+ * whatever the size of the range. Orders of every status are exported, with their status.
+ */
+@Component
+public class OrderExporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderExporter.class);
+
+    private static final String IN_RANGE = "o.order_date >= ? AND o.order_date < ?";
+    private static final String ORDERS_SQL =
+            "SELECT o.id AS orderId, o.order_number AS orderNumber, o.order_date AS orderDate, o.status AS status, "
+            + "o.user_id AS customerId, u.email AS customerEmail, o.total_amount AS totalAmount, "
+            + "o.payment_status AS paymentStatus, o.payment_method AS paymentMethod "
+            + "FROM orders o JOIN users u ON u.id = o.user_id WHERE " + IN_RANGE + " ORDER BY o.order_date, o.id";
+    private static final String ORDER_ITEMS_SQL =
+            "SELECT o.id AS orderId, o.order_number AS orderNumber, o.order_date AS orderDate, o.status AS status, "
+            + "oi.id AS itemId, oi.product_id AS productId, p.name AS productName, "
+            + "oi.product_variant_id AS variantId, v.sku AS sku, oi.quantity AS quantity, "
+            + "oi.price_at_purchase AS priceAtPurchase, oi.discount AS discount, oi.final_price AS finalPrice "
+            + "FROM order_items oi JOIN orders o ON o.id = oi.order_id JOIN products p ON p.id = oi.product_id "
+            + "LEFT JOIN product_variants v ON v.id = oi.product_variant_id "
+            + "WHERE " + IN_RANGE + " ORDER BY o.order_date, o.id, oi.id";
+
+    /**
+     * The file formats of an export.
+     */
+    public enum Format {
+        CSV("text/csv", "csv"),
+        NDJSON("application/x-ndjson", "ndjson");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final ExportProperties properties;
+
+    public OrderExporter(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper, ExportProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+    }
+
+    /**
+     * Writes one row per order placed in a date range, oldest first.
+     * @param startDate The first day of the range
+     * @param endDate The last day of the range
+     * @param format The format to write
+     * @param out The stream to write to; it is flushed but not closed
+     * @return The number of rows written
+     * @throws IOException If the output cannot be written, for example because the client went away
+     */
+    public long exportOrders(LocalDate startDate, LocalDate endDate, Format format, OutputStream out) throws IOException {
+        return export(ORDERS_SQL, startDate, endDate, format, out);
+    }
+
+    /**
+     * Writes one row per item of the orders placed in a date range, with the number, date and
+     * status of its order, oldest order first.
+     * @param startDate The first day of the range
+     * @param endDate The last day of the range
+     * @param format The format to write
+     * @param out The stream to write to; it is flushed but not closed
+     * @return The number of rows written
+     * @throws IOException If the output cannot be written, for example because the client went away
+     */
+    public long exportOrderItems(LocalDate startDate, LocalDate endDate, Format format, OutputStream out) throws IOException {
+        return export(ORDER_ITEMS_SQL, startDate, endDate, format, out);
+    }
+
+    private long export(String sql, LocalDate startDate, LocalDate endDate, Format format, OutputStream out)
+            throws IOException {
+        RowWriter writer = format == Format.CSV ? new CsvRowWriter(out) : new JsonRowWriter(out, objectMapper);
+        Long rows;
+        try {
+            rows = jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(sql,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                statement.setFetchSize(properties.getFetchSize());
+                statement.setTimestamp(1, Timestamp.valueOf(startDate.atStartOfDay()));
+                statement.setTimestamp(2, Timestamp.valueOf(endDate.plusDays(1).atStartOfDay()));
+                return statement;
+            }, resultSet -> {
+                return writeRows(resultSet, writer);
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.finish();
+        logger.info("Exported {} rows as {} for {} to {}", rows, format, startDate, endDate);
+        return rows == null ? 0 : rows;
+    }
+
+    private long writeRows(ResultSet resultSet, RowWriter writer) throws SQLException {
+        ResultSetMetaData metaData = resultSet.getMetaData();
+        String[] columns = new String[metaData.getColumnCount()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = metaData.getColumnLabel(i + 1);
+        }
+        Object[] values = new Object[columns.length];
+        long rows = 0;
+        try {
+            writer.start(columns);
+            while (resultSet.next()) {
+                for (int i = 0; i < values.length; i++) {
+                    Object value = resultSet.getObject(i + 1);
+                    values[i] = value instanceof Timestamp timestamp ? format(timestamp.toLocalDateTime())
+                            : value instanceof LocalDateTime dateTime ? format(dateTime) : value;
+                }
+                writer.write(values);
+                rows++;
+            }
+        } catch (IOException e) {
+            // Stops reading the cursor; unwrapped again in export
+            throw new UncheckedIOException(e);
+        }
+        return rows;
+    }
+
+    private static String format(LocalDateTime dateTime) {
+        return DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(dateTime);
+    }
+
+    private interface RowWriter {
+
+        void start(String[] columns) throws IOException;
+
+        void write(Object[] values) throws IOException;
+
+        void finish() throws IOException;
+    }
+
+    /**
+     * CSV as per RFC 4180, with a header line. Text starting with a character a spreadsheet would
+     * read as a formula is prefixed with an apostrophe.
+     */
+    private static class CsvRowWriter implements RowWriter {
+
+        private final Writer writer;
+
+        CsvRowWriter(OutputStream out) {
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 16 * 1024);
+        }
+
+        @Override
+        public void start(String[] columns) throws IOException {
+            write(columns);
+        }
+
+        @Override
+        public void write(Object[] values) throws IOException {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                if (values[i] instanceof String text) {
+                    writeText(text);
+                } else if (values[i] instanceof BigDecimal number) {
+                    writer.write(number.toPlainString());
+                } else if (values[i] != null) {
+                    writer.write(values[i].toString());
+                }
+            }
+            writer.write("\r\n");
+        }
+
+        private void writeText(String text) throws IOException {
+            if (!text.isEmpty() && "=+-@".indexOf(text.charAt(0)) >= 0) {
+                text = "'" + text;
+            }
+            if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+                writer.write(text);
+                return;
+            }
+            writer.write('"');
+            writer.write(text.replace("\"", "\"\""));
+            writer.write('"');
+        }
+
+        @Override
+        public void finish() throws IOException {
+            writer.flush();
+        }
+    }
+
+    /**
+     * One JSON object per line, keyed by column name.
+     */
+    private static class JsonRowWriter implements RowWriter {
+
+        private final JsonGenerator generator;
+        private String[] columns;
+
+        JsonRowWriter(OutputStream out, ObjectMapper objectMapper) throws IOException {
+            this.generator = objectMapper.getFactory().createGenerator(out);
+            this.generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            this.generator.setRootValueSeparator(null);
+        }
+
+        @Override
+        public void start(String[] columns) {
+            this.columns = columns;
+        }
+
+        @Override
+        public void write(Object[] values) throws IOException {
+            generator.writeStartObject();
+            for (int i = 0; i < columns.length; i++) {
+                generator.writeFieldName(columns[i]);
+                generator.writeObject(values[i]);
+            }
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        public void finish() throws IOException {
+            generator.flush();
+        }
+    }
+}
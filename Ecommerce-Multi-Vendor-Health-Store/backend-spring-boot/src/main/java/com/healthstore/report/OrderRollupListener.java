@@ -0,0 +1,32 @@
+package com.healthstore.report;
+
+import com.healthstore.model.Order;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA entity listener reporting every insert, update and delete of an {@link Order} to the
+ * {@link SalesRollupUpdater}, whichever service made it.
+ */
+@Component
+public class OrderRollupListener {
+
+    // Looked up on use: entity listeners are created with the entity manager factory, before most beans.
+    private final ObjectProvider<SalesRollupUpdater> salesRollupUpdater;
+
+    public OrderRollupListener(ObjectProvider<SalesRollupUpdater> salesRollupUpdater) {
+        this.salesRollupUpdater = salesRollupUpdater;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void orderChanged(Order order) {
+        if (order.getOrderDate() != null) {
+            salesRollupUpdater.getObject().orderChanged(order.getOrderDate().toLocalDate());
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.healthstore.report;
+
+import com.healthstore.dto.report.SalesReportResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * A sales report generated in the background by the {@link ReportJobEngine}.
+ * The worker moves the job along while its owner polls it or follows its progress, so the state
+ * fields are volatile. Changes are passed to the subscribed listeners on a separate executor, never
+ * on the thread making the change: a listener is called one call at a time with the latest state, and
+ * changes made while it is busy are coalesced into its next call, so a slow listener only delays itself.
+ */
+public class ReportJob {
+
+    /**
+     * The state of a job.
+     */
+    public enum Status {
+        /** Waiting for a worker. */
+        QUEUED,
+        /** The report is being generated. */
+        RUNNING,
+        /** The report is available. */
+        COMPLETED,
+        /** The report could not be generated. */
+        FAILED
+    }
+
+    private final String id;
+    private final String owner;
+    private final Instant submittedAt = Instant.now();
+    private static final Logger logger = LoggerFactory.getLogger(ReportJob.class);
+
+    private final Executor notifier;
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private volatile Status status = Status.QUEUED;
+    private volatile int sectionsCompleted;
+    private volatile int sectionsTotal;
+    private volatile boolean cached;
+    private volatile SalesReportResponse result;
+    private volatile String failure;
+    private volatile Instant finishedAt;
+
+    ReportJob(String id, String owner, Executor notifier) {
+        this.id = id;
+        this.owner = owner;
+        this.notifier = notifier;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public Instant getSubmittedAt() {
+        return submittedAt;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public int getSectionsCompleted() {
+        return sectionsCompleted;
+    }
+
+    public int getSectionsTotal() {
+        return sectionsTotal;
+    }
+
+    /**
+     * @return Whether the report was served from the reports of earlier identical requests.
+     */
+    public boolean isCached() {
+        return cached;
+    }
+
+    /**
+     * @return The report, or null if the job has not completed.
+     */
+    public SalesReportResponse getResult() {
+        return result;
+    }
+
+    public String getFailure() {
+        return failure;
+    }
+
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    public boolean isDone() {
+        Status current = status;
+        return current == Status.COMPLETED || current == Status.FAILED;
+    }
+
+    /**
+     * Passes the state of the job to a listener, starting with its current state, until it is done.
+     * The listener is called on the notifier, one call at a time; a state may be passed twice, and
+     * intermediate states may be skipped, but the final state is always passed.
+     * @param listener The listener.
+     */
+    public void subscribe(Consumer<ReportJob> listener) {
+        Subscription subscription = new Subscription(listener);
+        subscriptions.add(subscription);
+        subscription.changed();
+    }
+
+    public void unsubscribe(Consumer<ReportJob> listener) {
+        subscriptions.removeIf(subscription -> subscription.listener == listener);
+    }
+
+    void start() {
+        status = Status.RUNNING;
+        changed();
+    }
+
+    /**
+     * Records the progress of the report. Sections may report out of order, so the count only grows.
+     */
+    void progress(int completed, int total) {
+        synchronized (this) {
+            sectionsTotal = total;
+            sectionsCompleted = Math.max(sectionsCompleted, completed);
+        }
+        changed();
+    }
+
+    void complete(SalesReportResponse report, boolean fromCache) {
+        result = report;
+        cached = fromCache;
+        finishedAt = Instant.now();
+        status = Status.COMPLETED;
+        changed();
+    }
+
+    void fail(String message) {
+        failure = message;
+        finishedAt = Instant.now();
+        status = Status.FAILED;
+        changed();
+    }
+
+    private void changed() {
+        for (Subscription subscription : subscriptions) {
+            subscription.changed();
+        }
+    }
+
+    /**
+     * Delivers the state of the job to one listener. At most one delivery of a subscription is
+     * queued or running at a time; a change arriving meanwhile makes it deliver once more.
+     */
+    private final class Subscription implements Runnable {
+
+        private final Consumer<ReportJob> listener;
+        private final AtomicBoolean dirty = new AtomicBoolean();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        Subscription(Consumer<ReportJob> listener) {
+            this.listener = listener;
+        }
+
+        void changed() {
+            dirty.set(true);
+            schedule();
+        }
+
+        private void schedule() {
+            if (!scheduled.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                notifier.execute(this);
+            } catch (RejectedExecutionException e) {
+                scheduled.set(false);
+                subscriptions.remove(this);
+                logger.warn("Dropped the progress listener of report job {}", id, e);
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (dirty.getAndSet(false) && subscriptions.contains(this)) {
+                    boolean done = isDone();
+                    listener.accept(ReportJob.this);
+                    if (done) {
+                        subscriptions.remove(this);
+                    }
+                }
+            } catch (RuntimeException e) {
+                subscriptions.remove(this);
+                logger.warn("Progress listener of report job {} failed", id, e);
+            } finally {
+                scheduled.set(false);
+            }
+            // A change that arrived after the last check but before the flag was cleared.
+            if (dirty.get() && subscriptions.contains(this)) {
+                schedule();
+            }
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package com.healthstore.report;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.healthstore.config.ReportJobProperties;
+import com.healthstore.dto.report.SalesReportRequest;
+import com.healthstore.dto.report.SalesReportResponse;
+import com.healthstore.exception.TooManyReportJobsException;
+import com.healthstore.service.SalesReportService;
+import com.healthstore.util.BusinessKeyGenerator;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates sales reports in the background, so the request submitting a report returns at once
+ * and the report is fetched once it is ready.
+ * <p>
+ * Jobs run on a fixed pool of workers with a bounded queue, and each admin can only have a few
+ * jobs queued or running at a time. A generated report is kept for a while under its normalized
+ * request, and a job for an identical request is completed with it right away instead of running.
+ * A job for a request identical to one still queued or running is attached to it and completed
+ * with its report, without taking a worker or counting against the limit of its admin.
+ */
+@Component
+public class ReportJobEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReportJobEngine.class);
+    private static final String JOB_ID_PREFIX = "RPT-";
+
+    /**
+     * What makes two report requests identical: fields that do not change the report, such as the
+     * case of the grouping or the threshold of an inventory section that is not included, are left out.
+     */
+    record ReportKey(LocalDate startDate, LocalDate endDate, Long categoryId, Long productId, String groupBy,
+                     boolean includeProductDetails, boolean includeCustomerStats, boolean includeInventoryStatus,
+                     int lowStockThreshold) {
+
+        static ReportKey of(SalesReportRequest request) {
+            String groupBy = request.getGroupBy() == null || request.getGroupBy().isBlank()
+                    ? "day" : request.getGroupBy().trim().toLowerCase(Locale.ROOT);
+            return new ReportKey(request.getStartDate(), request.getEndDate(), request.getCategoryId(),
+                    request.getProductId(), groupBy, request.isIncludeProductDetails(),
+                    request.isIncludeCustomerStats(), request.isIncludeInventoryStatus(),
+                    request.isIncludeInventoryStatus() ? request.getLowStockThreshold() : 0);
+        }
+    }
+
+    /**
+     * The jobs of one run of a report: the job that runs it, first, and the identical jobs attached to it.
+     * Every change of the running job is applied to the attached jobs as well.
+     */
+    private static final class Flight {
+
+        private final List<ReportJob> jobs = new ArrayList<>();
+
+        Flight(ReportJob leader) {
+            jobs.add(leader);
+        }
+
+        ReportJob leader() {
+            return jobs.get(0);
+        }
+
+        boolean isLedBy(ReportJob job) {
+            return leader() == job;
+        }
+
+        synchronized void attach(ReportJob job) {
+            ReportJob leader = leader();
+            if (leader.getStatus() == ReportJob.Status.RUNNING) {
+                job.start();
+                job.progress(leader.getSectionsCompleted(), leader.getSectionsTotal());
+            }
+            jobs.add(job);
+        }
+
+        synchronized void start() {
+            jobs.forEach(ReportJob::start);
+        }
+
+        synchronized void progress(int completed, int total) {
+            jobs.forEach(job -> job.progress(completed, total));
+        }
+
+        synchronized void complete(SalesReportResponse report, boolean fromCache) {
+            for (int i = 0; i < jobs.size(); i++) {
+                jobs.get(i).complete(report, fromCache || i > 0);
+            }
+        }
+
+        synchronized void fail(String message) {
+            jobs.forEach(job -> job.fail(message));
+        }
+    }
+
+    private final SalesReportService salesReportService;
+    private final BusinessKeyGenerator businessKeyGenerator;
+    private final ReportJobProperties properties;
+    private final Cache<String, ReportJob> jobs;
+    private final Cache<ReportKey, SalesReportResponse> results;
+    private final Map<ReportKey, Flight> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> activeJobs = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor executor;
+    private final ThreadPoolExecutor notifier;
+
+    public ReportJobEngine(SalesReportService salesReportService,
+                           BusinessKeyGenerator businessKeyGenerator,
+                           ReportJobProperties properties) {
+        this.salesReportService = salesReportService;
+        this.businessKeyGenerator = businessKeyGenerator;
+        this.properties = properties;
+        this.jobs = Caffeine.newBuilder()
+                .expireAfterWrite(properties.getJobTtl())
+                .maximumSize(properties.getMaxJobs())
+                .build();
+        this.results = Caffeine.newBuilder()
+                .expireAfterWrite(properties.getResultTtl())
+                .maximumSize(properties.getMaxResults())
+                .build();
+        int workers = Math.max(1, properties.getWorkers());
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, properties.getQueueCapacity())), runnable -> {
+                    Thread thread = new Thread(runnable, "report-job-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        // Progress streams write to clients over the network; a slow client must not hold up the workers.
+        int notifiers = Math.max(1, properties.getStreamWorkers());
+        AtomicInteger notifierCount = new AtomicInteger();
+        this.notifier = new ThreadPoolExecutor(notifiers, notifiers, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "report-job-events-" + notifierCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Submits a report; a report of an identical request generated within the result TTL completes the job at once,
+     * and a job of an identical request still queued or running shares its report.
+     * @param request The report request.
+     * @param owner The username of the admin submitting the report, who alone can look the job up.
+     * @return The job, queued or completed.
+     * @throws TooManyReportJobsException if the admin already has the maximum number of jobs queued or running
+     * @throws RejectedExecutionException if the queue of jobs is full
+     */
+    public ReportJob submit(SalesReportRequest request, String owner) {
+        ReportKey key = ReportKey.of(request);
+        ReportJob job = new ReportJob(businessKeyGenerator.next(JOB_ID_PREFIX), owner, notifier);
+        SalesReportResponse cached = results.getIfPresent(key);
+        if (cached != null) {
+            job.complete(cached, true);
+            jobs.put(job.getId(), job);
+            return job;
+        }
+
+        AtomicInteger active = activeJobs.computeIfAbsent(owner, ignored -> new AtomicInteger());
+        // Attaching and leaving the map are atomic per key, so an attached job is always completed by its run.
+        Flight flight = inFlight.compute(key, (ignored, running) -> {
+            if (running != null) {
+                running.attach(job);
+                return running;
+            }
+            if (active.incrementAndGet() > properties.getMaxJobsPerAdmin()) {
+                active.decrementAndGet();
+                throw new TooManyReportJobsException("At most " + properties.getMaxJobsPerAdmin()
+                        + " report jobs can be queued or running at a time");
+            }
+            return new Flight(job);
+        });
+        jobs.put(job.getId(), job);
+        if (!flight.isLedBy(job)) {
+            return job;
+        }
+        try {
+            executor.execute(() -> run(flight, request, key, active));
+        } catch (RejectedExecutionException e) {
+            active.decrementAndGet();
+            inFlight.remove(key, flight);
+            jobs.invalidate(job.getId());
+            flight.fail("Too many report jobs are queued");
+            throw e;
+        }
+        return job;
+    }
+
+    /**
+     * Looks up a job of an admin.
+     * @param jobId The ID of the job.
+     * @param owner The username of the admin, who must have submitted the job.
+     * @return The job, or empty if it does not exist, has expired or belongs to someone else.
+     */
+    public Optional<ReportJob> getJob(String jobId, String owner) {
+        return Optional.ofNullable(jobs.getIfPresent(jobId))
+                .filter(job -> job.getOwner().equals(owner));
+    }
+
+    private void run(Flight flight, SalesReportRequest request, ReportKey key, AtomicInteger active) {
+        try {
+            // An identical job may have finished while this one was queued.
+            SalesReportResponse cached = results.getIfPresent(key);
+            if (cached != null) {
+                inFlight.remove(key, flight);
+                flight.complete(cached, true);
+                return;
+            }
+            flight.start();
+            SalesReportResponse report = salesReportService.generateSalesReport(request, (section, completed, total) ->
+                    flight.progress(completed, total));
+            results.put(key, report);
+            inFlight.remove(key, flight);
+            flight.complete(report, false);
+        } catch (RuntimeException e) {
+            logger.error("Report job {} failed", flight.leader().getId(), e);
+            inFlight.remove(key, flight);
+            flight.fail(e.getMessage());
+        } finally {
+            active.decrementAndGet();
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+        notifier.shutdownNow();
+    }
+}
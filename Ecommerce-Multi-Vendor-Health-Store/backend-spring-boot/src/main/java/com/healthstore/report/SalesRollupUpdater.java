@@ -0,0 +1,210 @@
+package com.healthstore.report;
+
+import com.healthstore.config.SalesReportProperties;
+import com.healthstore.model.SalesRollup;
+import com.healthstore.repository.SalesRollupRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps the {@link SalesRollup} rows up to date as orders are placed and change status.
+ * <p>
+ * A committed change of an order marks the day of the order. A single background thread then
+ * recomputes the day rows of every marked day from its orders, and the week and month rows
+ * containing it from their day rows. Only one day of orders is read per change, and the rows are
+ * recomputed rather than adjusted, so a missed or repeated change cannot make them drift.
+ * Days that fail to be recomputed are retried after a delay that doubles with each failure in a row;
+ * changes made meanwhile wait for the retry.
+ * <p>
+ * When the rollups are empty at startup, they are built from all existing orders. Otherwise the days
+ * of the last {@code app.sales-report.rollup-verify-days} are checked against their orders and the
+ * days that disagree are recomputed, catching up with the changes that were still marked when the
+ * application last stopped.
+ */
+@Component
+public class SalesRollupUpdater {
+
+    private static final Logger logger = LoggerFactory.getLogger(SalesRollupUpdater.class);
+
+    private final SalesRollupRepository salesRollupRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final SalesReportProperties properties;
+    private final Set<LocalDate> changedDays = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+        Thread thread = new Thread(runnable, "sales-rollup");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Failed passes in a row, only used on the executor thread
+    private int failures;
+
+    public SalesRollupUpdater(SalesRollupRepository salesRollupRepository,
+                              JdbcTemplate jdbcTemplate,
+                              PlatformTransactionManager transactionManager,
+                              SalesReportProperties properties) {
+        this.salesRollupRepository = salesRollupRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.properties = properties;
+        // A retry waiting at shutdown is dropped; the startup check catches its days up.
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    /**
+     * Builds the rollups from the existing orders if there are none yet, and otherwise recomputes
+     * the recent days that disagree with their orders.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        executor.execute(() -> {
+            if (salesRollupRepository.count() > 0) {
+                verifyRecentDays();
+                return;
+            }
+            List<LocalDate> days = jdbcTemplate.queryForList(
+                    "SELECT DISTINCT CAST(order_date AS DATE) FROM orders", Date.class)
+                    .stream().map(Date::toLocalDate).toList();
+            if (!days.isEmpty()) {
+                logger.info("Building sales rollups for {} days of orders", days.size());
+                rebuild(new TreeSet<>(days));
+            }
+        });
+    }
+
+    /**
+     * Marks the day of a changed order for recomputation once the current transaction commits.
+     * @param orderDate The day the order was placed.
+     */
+    public void orderChanged(LocalDate orderDate) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    markChanged(orderDate);
+                }
+            });
+        } else {
+            markChanged(orderDate);
+        }
+    }
+
+    /**
+     * Recomputes the rollups of a date range, for example after orders were changed in the database directly.
+     * @param startDate The first day to recompute.
+     * @param endDate The last day to recompute.
+     * @return Completes when the range is recomputed.
+     */
+    public Future<?> rebuild(LocalDate startDate, LocalDate endDate) {
+        return executor.submit(() -> rebuild(new TreeSet<>(startDate.datesUntil(endDate.plusDays(1)).toList())));
+    }
+
+    private void verifyRecentDays() {
+        LocalDate today = LocalDate.now();
+        try {
+            List<LocalDate> staleDays = salesRollupRepository.findStaleDays(
+                    today.minusDays(properties.getRollupVerifyDays() - 1L), today);
+            if (!staleDays.isEmpty()) {
+                logger.info("Recomputing sales rollups of {} days that disagree with their orders", staleDays.size());
+                rebuild(new TreeSet<>(staleDays));
+            }
+        } catch (RuntimeException e) {
+            logger.error("Failed to check the recent sales rollups against the orders", e);
+        }
+    }
+
+    private void markChanged(LocalDate day) {
+        changedDays.add(day);
+        if (drainScheduled.compareAndSet(false, true)) {
+            executor.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        drainScheduled.set(false);
+        TreeSet<LocalDate> days = new TreeSet<>(changedDays);
+        changedDays.removeAll(days);
+        rebuild(days);
+    }
+
+    private void rebuild(TreeSet<LocalDate> days) {
+        boolean failed = false;
+        Set<LocalDate> weeks = new TreeSet<>();
+        Set<LocalDate> months = new TreeSet<>();
+        for (LocalDate day : days) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> salesRollupRepository.rebuildDay(day));
+                weeks.add(SalesRollup.PeriodType.WEEK.startOf(day));
+                months.add(SalesRollup.PeriodType.MONTH.startOf(day));
+            } catch (RuntimeException e) {
+                logger.error("Failed to recompute sales rollups of {}", day, e);
+                changedDays.add(day);
+                failed = true;
+            }
+        }
+        failed |= !rebuildPeriods(SalesRollup.PeriodType.WEEK, weeks);
+        failed |= !rebuildPeriods(SalesRollup.PeriodType.MONTH, months);
+        if (failed) {
+            retryLater();
+        } else {
+            failures = 0;
+        }
+    }
+
+    /**
+     * @return Whether every period was recomputed; the first day of a failed period is marked changed again.
+     */
+    private boolean rebuildPeriods(SalesRollup.PeriodType periodType, Set<LocalDate> periodStarts) {
+        boolean rebuilt = true;
+        for (LocalDate periodStart : periodStarts) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> salesRollupRepository.rebuildPeriod(periodType, periodStart));
+            } catch (RuntimeException e) {
+                logger.error("Failed to recompute {} sales rollups of {}", periodType, periodStart, e);
+                changedDays.add(periodStart);
+                rebuilt = false;
+            }
+        }
+        return rebuilt;
+    }
+
+    /**
+     * Schedules the next pass over the changed days, later with each failure in a row.
+     */
+    private void retryLater() {
+        long delay = Math.min(properties.getRollupRetryDelay().toMillis() << Math.min(failures, 20),
+                properties.getRollupMaxRetryDelay().toMillis());
+        failures++;
+        // A pass already scheduled by a new change retries the failed days with it.
+        if (drainScheduled.compareAndSet(false, true)) {
+            logger.warn("Retrying the failed sales rollups in {} ms", delay);
+            executor.schedule(this::drain, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+}
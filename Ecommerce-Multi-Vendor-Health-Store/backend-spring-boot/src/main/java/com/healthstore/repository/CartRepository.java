@@ -2,7 +2,9 @@ package com.healthstore.repository;
 
 import com.healthstore.model.Cart;
 import com.healthstore.model.User;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -19,6 +21,28 @@ public interface CartRepository extends JpaRepository<Cart, Long> {
     @Query("SELECT c FROM Cart c LEFT JOIN FETCH c.items ci LEFT JOIN FETCH ci.product WHERE c.user.id = :userId")
     Optional<Cart> findByUserIdWithItems(@Param("userId") Long userId);
     
+    /**
+     * Loads the cart of a user and locks its row until the end of the transaction.
+     * Write-backs move the revision of the row before touching its items, so they wait for the lock.
+     * @param userId The ID of the user
+     * @return The cart, read as last committed
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Cart c WHERE c.user.id = :userId")
+    Optional<Cart> findByUserIdForUpdate(@Param("userId") Long userId);
+    
+    /**
+     * Moves a cart to a later revision if, and only if, it is still at the expected one.
+     * @param cartId The ID of the cart
+     * @param revision The revision the writer last saw
+     * @param newRevision The revision to move to, greater than the expected one
+     * @return 1 if the cart moved to the new revision, 0 if someone else wrote it meanwhile
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Cart c SET c.revision = :newRevision WHERE c.id = :cartId AND c.revision = :revision")
+    int advanceRevision(@Param("cartId") Long cartId, @Param("revision") long revision,
+                        @Param("newRevision") long newRevision);
+    
     @Modifying
     @Transactional
     @Query("DELETE FROM CartItem ci WHERE ci.cart.id = :cartId")
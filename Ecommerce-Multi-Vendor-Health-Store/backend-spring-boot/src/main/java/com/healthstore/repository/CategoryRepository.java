@@ -1,5 +1,6 @@
 package com.healthstore.repository;
 
+import com.healthstore.dto.CategoryDTO;
 import com.healthstore.model.Category;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
@@ -21,6 +22,14 @@ public interface CategoryRepository extends JpaRepository<Category, Long> {
      * @return A list of top-level categories.
      */
     List<Category> findByParentIsNull();
+
+    /**
+     * Lists every category as a DTO, without loading the entities or their associations.
+     * @return All categories, ordered by name.
+     */
+    @Query("SELECT new com.healthstore.dto.CategoryDTO(c.id, c.name, c.description, c.imageUrl, p.id, c.active) " +
+           "FROM Category c LEFT JOIN c.parent p ORDER BY c.name")
+    List<CategoryDTO> findAllCategoryDTOs();
     
     /**
      * Finds all active categories.
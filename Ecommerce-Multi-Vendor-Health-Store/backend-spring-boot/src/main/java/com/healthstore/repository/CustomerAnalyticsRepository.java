@@ -0,0 +1,88 @@
+package com.healthstore.repository;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Per-customer order aggregates for {@link OrderRepository}, computed by the database with one
+ * grouped query instead of one query per customer.
+ * Orders in the states not counted as sales by the sales rollups are left out.
+ */
+public interface CustomerAnalyticsRepository {
+
+    /**
+     * The orders of one customer in a period.
+     * @param userId The ID of the customer
+     * @param firstName The first name of the customer
+     * @param lastName The last name of the customer
+     * @param email The email of the customer
+     * @param orderCount The number of orders
+     * @param totalSpent The total amount of the orders
+     * @param lastOrderDate The date of the latest order
+     */
+    record CustomerOrderStats(Long userId, String firstName, String lastName, String email,
+                              long orderCount, BigDecimal totalSpent, LocalDateTime lastOrderDate) {
+    }
+
+    /**
+     * The orders of all customers in a period.
+     * @param customers The number of customers who ordered
+     * @param orders The number of orders
+     * @param revenue The total amount of the orders
+     */
+    record CustomerOrderTotals(long customers, long orders, BigDecimal revenue) {
+    }
+
+    /**
+     * Orderings of customers, each broken by customer ID.
+     */
+    enum CustomerSort {
+        TOTAL_SPENT("SUM(o.totalAmount) DESC"),
+        ORDER_COUNT("COUNT(o) DESC"),
+        LAST_ORDER("MAX(o.orderDate) DESC");
+
+        private final String orderBy;
+
+        CustomerSort(String orderBy) {
+            this.orderBy = orderBy;
+        }
+
+        String getOrderBy() {
+            return orderBy;
+        }
+    }
+
+    /**
+     * Reads a page of customers who ordered in a period, with their order aggregates.
+     * @param startDate The start of the period (inclusive)
+     * @param endDate The end of the period (exclusive)
+     * @param sort The order of the customers
+     * @param pageable The page to read; its sort is ignored
+     * @return The page of customers, counted with one more aggregate query
+     */
+    Page<CustomerOrderStats> findCustomerOrderStats(LocalDateTime startDate, LocalDateTime endDate,
+                                                    CustomerSort sort, Pageable pageable);
+
+    /**
+     * Reads the first customers who ordered in a period, without counting them all.
+     * @param startDate The start of the period (inclusive)
+     * @param endDate The end of the period (exclusive)
+     * @param sort The order of the customers
+     * @param limit The number of customers to read
+     * @return The top customers
+     */
+    List<CustomerOrderStats> findTopCustomers(LocalDateTime startDate, LocalDateTime endDate,
+                                              CustomerSort sort, int limit);
+
+    /**
+     * Counts the customers, orders and revenue of a period with one query.
+     * @param startDate The start of the period (inclusive)
+     * @param endDate The end of the period (exclusive)
+     * @return The totals
+     */
+    CustomerOrderTotals findCustomerOrderTotals(LocalDateTime startDate, LocalDateTime endDate);
+}
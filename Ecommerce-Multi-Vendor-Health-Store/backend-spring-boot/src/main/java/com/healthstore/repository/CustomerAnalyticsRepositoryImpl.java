@@ -0,0 +1,72 @@
+package com.healthstore.repository;
+
+import com.healthstore.model.SalesRollup;
+import jakarta.persistence.EntityManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * JPQL implementation of {@link CustomerAnalyticsRepository}.
+ * The grouping, ordering and paging all happen in the database, so only the rows of the requested
+ * page reach the application, whatever the number of customers.
+ */
+public class CustomerAnalyticsRepositoryImpl implements CustomerAnalyticsRepository {
+
+    private static final String COUNTED =
+            "o.orderDate >= :startDate AND o.orderDate < :endDate AND o.status NOT IN :excluded";
+    private static final String STATS_JPQL =
+            "SELECT u.id, u.firstName, u.lastName, u.email, COUNT(o), SUM(o.totalAmount), MAX(o.orderDate) "
+            + "FROM Order o JOIN o.user u WHERE " + COUNTED + " "
+            + "GROUP BY u.id, u.firstName, u.lastName, u.email ORDER BY ";
+    private static final String TOTALS_JPQL =
+            "SELECT COUNT(DISTINCT o.user.id), COUNT(o), COALESCE(SUM(o.totalAmount), 0) FROM Order o WHERE " + COUNTED;
+
+    private final EntityManager entityManager;
+
+    public CustomerAnalyticsRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public Page<CustomerOrderStats> findCustomerOrderStats(LocalDateTime startDate, LocalDateTime endDate,
+                                                           CustomerSort sort, Pageable pageable) {
+        List<CustomerOrderStats> content = findStats(startDate, endDate, sort,
+                (int) pageable.getOffset(), pageable.getPageSize());
+        return new PageImpl<>(content, pageable, findCustomerOrderTotals(startDate, endDate).customers());
+    }
+
+    @Override
+    public List<CustomerOrderStats> findTopCustomers(LocalDateTime startDate, LocalDateTime endDate,
+                                                     CustomerSort sort, int limit) {
+        return findStats(startDate, endDate, sort, 0, limit);
+    }
+
+    @Override
+    public CustomerOrderTotals findCustomerOrderTotals(LocalDateTime startDate, LocalDateTime endDate) {
+        Object[] row = entityManager.createQuery(TOTALS_JPQL, Object[].class)
+                .setParameter("startDate", startDate)
+                .setParameter("endDate", endDate)
+                .setParameter("excluded", SalesRollup.EXCLUDED_STATUSES)
+                .getSingleResult();
+        return new CustomerOrderTotals((Long) row[0], (Long) row[1], (BigDecimal) row[2]);
+    }
+
+    private List<CustomerOrderStats> findStats(LocalDateTime startDate, LocalDateTime endDate,
+                                               CustomerSort sort, int offset, int limit) {
+        return entityManager.createQuery(STATS_JPQL + sort.getOrderBy() + ", u.id", Object[].class)
+                .setParameter("startDate", startDate)
+                .setParameter("endDate", endDate)
+                .setParameter("excluded", SalesRollup.EXCLUDED_STATUSES)
+                .setFirstResult(offset)
+                .setMaxResults(limit)
+                .getResultStream()
+                .map(row -> new CustomerOrderStats((Long) row[0], (String) row[1], (String) row[2], (String) row[3],
+                        (Long) row[4], (BigDecimal) row[5], (LocalDateTime) row[6]))
+                .toList();
+    }
+}
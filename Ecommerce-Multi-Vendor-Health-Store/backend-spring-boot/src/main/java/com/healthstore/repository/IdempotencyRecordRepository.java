@@ -0,0 +1,62 @@
+package com.healthstore.repository;
+
+import com.healthstore.model.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+
+    /**
+     * Records the resource created by the request holding a key.
+     * @param id The ID of the idempotency record
+     * @param claimedAt When the request claimed the key
+     * @param resourceId The ID of the created resource
+     * @return 1 if the record was completed, 0 if it does not exist or its claim was taken over
+     */
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.resourceId = :resourceId " +
+           "WHERE r.id = :id AND r.claimedAt = :claimedAt AND r.resourceId IS NULL")
+    int complete(@Param("id") String id, @Param("claimedAt") LocalDateTime claimedAt,
+                 @Param("resourceId") Long resourceId);
+
+    /**
+     * Hands an abandoned claim over to a new request, unless another request took it over first.
+     * @param id The ID of the idempotency record
+     * @param claimedAt When the abandoned claim was made
+     * @param now The time of the new claim
+     * @param expiresAt When the new claim expires
+     * @return 1 if the claim was taken over, 0 otherwise
+     */
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.claimedAt = :now, r.expiresAt = :expiresAt " +
+           "WHERE r.id = :id AND r.claimedAt = :claimedAt AND r.resourceId IS NULL")
+    int takeOver(@Param("id") String id, @Param("claimedAt") LocalDateTime claimedAt,
+                 @Param("now") LocalDateTime now, @Param("expiresAt") LocalDateTime expiresAt);
+
+    /**
+     * Drops the claim of a request that failed, so that a retry can run it again.
+     * @param id The ID of the idempotency record
+     * @param claimedAt When the request claimed the key
+     * @return 1 if the claim was dropped, 0 if it does not exist, the request completed or its claim was taken over
+     */
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.id = :id AND r.claimedAt = :claimedAt AND r.resourceId IS NULL")
+    int deleteUncompleted(@Param("id") String id, @Param("claimedAt") LocalDateTime claimedAt);
+
+    /**
+     * Deletes the records whose time to live has passed.
+     * @param now The current time
+     * @return The number of deleted records
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
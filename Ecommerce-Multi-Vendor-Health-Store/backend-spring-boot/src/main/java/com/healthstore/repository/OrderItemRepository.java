@@ -2,6 +2,7 @@ package com.healthstore.repository;
 
 import com.healthstore.model.OrderItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -25,4 +26,11 @@ public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
      * @return A list of order items containing the specified product.
      */
     List<OrderItem> findByProductId(Long productId);
+
+    /**
+     * Sums the quantity sold per product across all orders.
+     * @return Rows of [productId, totalQuantity].
+     */
+    @Query("SELECT oi.product.id, SUM(oi.quantity) FROM OrderItem oi GROUP BY oi.product.id")
+    List<Object[]> sumQuantityByProduct();
 }
@@ -3,8 +3,14 @@ package com.healthstore.repository;
 import com.healthstore.model.Order;
 import com.healthstore.model.User;
 import com.healthstore.model.Order.OrderStatus;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -15,11 +21,62 @@ import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
+/**
+ * Repository for orders.
+ * Listing queries load the {@link Order#GRAPH_SUMMARY} graph, single-order reads choose between the
+ * {@link Order#GRAPH_DETAIL} and {@link Order#GRAPH_EMAIL} graphs, and whatever a graph leaves out
+ * is batch-fetched, so walking an order or a page of orders costs a fixed number of statements.
+ */
 @Repository
-public interface OrderRepository extends JpaRepository<Order, Long> {
+public interface OrderRepository extends JpaRepository<Order, Long>, CustomerAnalyticsRepository {
     
+    @Override
+    @EntityGraph(Order.GRAPH_SUMMARY)
+    Page<Order> findAll(Pageable pageable);
+    
+    @EntityGraph(Order.GRAPH_SUMMARY)
     Page<Order> findByUserId(Long userId, Pageable pageable);
     
+    /**
+     * Finds an order with its user, shipping address, items and their products and variants.
+     * @param id The ID of the order.
+     * @return An Optional containing the order if found.
+     */
+    @EntityGraph(Order.GRAPH_DETAIL)
+    Optional<Order> findDetailById(Long id);
+    
+    /**
+     * Finds an order with everything the order email templates render.
+     * @param id The ID of the order.
+     * @return An Optional containing the order if found.
+     */
+    @EntityGraph(Order.GRAPH_EMAIL)
+    Optional<Order> findForEmailById(Long id);
+    
+    /**
+     * Reads a window of a user's orders after a keyset position, without a count query.
+     */
+    @EntityGraph(Order.GRAPH_SUMMARY)
+    Window<Order> findWindowByUserId(Long userId, ScrollPosition position, Sort sort, Limit limit);
+    
+    /**
+     * Reads a page of a user's orders without counting the total.
+     */
+    @EntityGraph(Order.GRAPH_SUMMARY)
+    Slice<Order> findSliceByUserId(Long userId, Pageable pageable);
+    
+    /**
+     * Reads a window of all orders after a keyset position, without a count query.
+     */
+    @EntityGraph(Order.GRAPH_SUMMARY)
+    Window<Order> findWindowBy(ScrollPosition position, Sort sort, Limit limit);
+    
+    /**
+     * Reads a page of all orders without counting the total.
+     */
+    @EntityGraph(Order.GRAPH_SUMMARY)
+    Slice<Order> findSliceBy(Pageable pageable);
+    
     List<Order> findByOrderDateBetween(LocalDateTime startDate, LocalDateTime endDate);
     
     List<Order> findByUserAndOrderDateBetween(User user, LocalDateTime startDate, LocalDateTime endDate);
@@ -47,8 +104,10 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
             @Param("endDate") LocalDateTime endDate
     );
     
+    @EntityGraph(Order.GRAPH_SUMMARY)
     Page<Order> findByStatus(OrderStatus status, Pageable pageable);
     
+    @EntityGraph(Order.GRAPH_SUMMARY)
     @Query("SELECT o FROM Order o WHERE " +
            "o.user = :user AND " +
            "(:status IS NULL OR o.status = :status) AND " +
@@ -80,6 +139,7 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
      * @param paymentIntentId The Stripe payment intent ID
      * @return An Optional containing the order if found, or empty otherwise
      */
+    @EntityGraph(Order.GRAPH_EMAIL)
     Optional<Order> findByPaymentIntentId(String paymentIntentId);
     
     /**
@@ -88,5 +148,6 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
      * @param paymentId The Stripe payment/charge ID
      * @return An Optional containing the order if found, or empty otherwise
      */
+    @EntityGraph(Order.GRAPH_EMAIL)
     Optional<Order> findByPaymentId(String paymentId);
 }
@@ -1,21 +1,39 @@
 package com.healthstore.repository;
 
+import com.healthstore.dto.ProductCardDTO;
 import com.healthstore.model.Product;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpecificationExecutor<Product> {
     
+    /**
+     * Selects the listing card columns of products, with the rating average and count as subqueries.
+     */
+    String CARD_SELECT = "SELECT new com.healthstore.dto.ProductCardDTO(" +
+           "p.id, p.name, p.description, p.minPrice, p.totalStock, p.imageUrl, c.id, c.name, " +
+           "(SELECT AVG(r.value) FROM Rating r WHERE r.product.id = p.id), " +
+           "(SELECT COUNT(r) FROM Rating r WHERE r.product.id = p.id)) " +
+           "FROM Product p LEFT JOIN p.category c";
+    
     List<Product> findByNameContainingIgnoreCaseAndCategoryId(String name, Long categoryId);
     
     List<Product> findByNameContainingIgnoreCase(String name);
@@ -30,17 +48,98 @@ public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpec
     );
     
     /**
-     * Advanced search with multiple filters
+     * Advanced search with multiple filters.
+     * A product matches a price range when any of its variants may fall in it,
+     * using the indexed min_price and max_price columns.
      */
     @Query("SELECT p FROM Product p WHERE " +
            "(:name IS NULL OR LOWER(p.name) LIKE LOWER(CONCAT('%', :name, '%'))) AND " +
-           "(:categoryId IS NULL OR p.category.id = :categoryId)")
+           "(:categoryId IS NULL OR p.category.id = :categoryId) AND " +
+           "(:minPrice IS NULL OR p.maxPrice >= :minPrice) AND " +
+           "(:maxPrice IS NULL OR p.minPrice <= :maxPrice)")
     Page<Product> searchProducts(@Param("name") String name, 
                                 @Param("categoryId") Long categoryId, 
+                                @Param("minPrice") Double minPrice,
+                                @Param("maxPrice") Double maxPrice,
                                 Pageable pageable);
     
+    /**
+     * Reads a page of listing cards in a single statement.
+     */
+    @Query(value = CARD_SELECT, countQuery = "SELECT COUNT(p) FROM Product p")
+    Page<ProductCardDTO> findCards(Pageable pageable);
+    
+    /**
+     * Reads a page of listing cards without counting the total.
+     */
+    @Query(CARD_SELECT)
+    Slice<ProductCardDTO> findCardSlice(Pageable pageable);
+    
+    /**
+     * Reads the listing cards of the given products, in no particular order.
+     */
+    @Query(CARD_SELECT + " WHERE p.id IN :ids")
+    List<ProductCardDTO> findCardsByIdIn(@Param("ids") Collection<Long> ids);
+    
+    /**
+     * Reads a window of products after a keyset position, without a count query.
+     */
+    Window<Product> findWindowBy(ScrollPosition position, Sort sort, Limit limit);
+    
+    /**
+     * Reads a page of products without counting the total.
+     */
+    Slice<Product> findSliceBy(Pageable pageable);
+    
     /**
      * Get featured products (newest 10)
      */
     List<Product> findTop10ByOrderByCreatedAtDesc();
+    
+    /**
+     * Loads every product with the variants and category needed to build the search index.
+     */
+    @Query("SELECT DISTINCT p FROM Product p LEFT JOIN FETCH p.variants LEFT JOIN FETCH p.category")
+    List<Product> findAllForIndexing();
+    
+    /**
+     * Loads a single product with the variants and category needed to index or cache it.
+     */
+    @Query("SELECT p FROM Product p LEFT JOIN FETCH p.variants LEFT JOIN FETCH p.category WHERE p.id = :id")
+    Optional<Product> findByIdForIndexing(@Param("id") Long id);
+
+    /**
+     * Adds a stock change of one of the variants to the product's total stock.
+     * @param productId The ID of the product.
+     * @param delta The change in stock, negative for a reduction.
+     * @return The number of updated products.
+     */
+    @Modifying
+    @Query("UPDATE Product p SET p.totalStock = p.totalStock + :delta WHERE p.id = :productId")
+    int adjustTotalStock(@Param("productId") Long productId, @Param("delta") int delta);
+
+    /**
+     * Recomputes the price range and total stock of a product from its variants.
+     * @param productId The ID of the product.
+     * @return The number of updated products.
+     */
+    @Modifying
+    @Query("UPDATE Product p SET " +
+           "p.minPrice = (SELECT MIN(v.price) FROM ProductVariant v WHERE v.product.id = p.id), " +
+           "p.maxPrice = (SELECT MAX(v.price) FROM ProductVariant v WHERE v.product.id = p.id), " +
+           "p.totalStock = (SELECT COALESCE(SUM(v.stockQuantity), 0) FROM ProductVariant v WHERE v.product.id = p.id) " +
+           "WHERE p.id = :productId")
+    int refreshSummary(@Param("productId") Long productId);
+
+    /**
+     * Computes the price range and total stock of products with variants that have no summary yet.
+     * @return The number of updated products.
+     */
+    @Modifying
+    @Query("UPDATE Product p SET " +
+           "p.minPrice = (SELECT MIN(v.price) FROM ProductVariant v WHERE v.product.id = p.id), " +
+           "p.maxPrice = (SELECT MAX(v.price) FROM ProductVariant v WHERE v.product.id = p.id), " +
+           "p.totalStock = (SELECT COALESCE(SUM(v.stockQuantity), 0) FROM ProductVariant v WHERE v.product.id = p.id) " +
+           "WHERE p.minPrice IS NULL AND EXISTS (SELECT v.id FROM ProductVariant v WHERE v.product.id = p.id)")
+    int refreshMissingSummaries();
 }
@@ -4,17 +4,19 @@ import com.healthstore.model.ProductVariant;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface ProductVariantRepository extends JpaRepository<ProductVariant, Long> {
+public interface ProductVariantRepository extends JpaRepository<ProductVariant, Long>, ProductVariantStockRepository {
     
     Optional<ProductVariant> findById(Long id);
     
@@ -24,6 +26,69 @@ public interface ProductVariantRepository extends JpaRepository<ProductVariant,
     
     List<ProductVariant> findByStockQuantityLessThanEqual(int quantity);
     
+    /**
+     * Takes stock from a variant if, and only if, enough is left.
+     * The check and the update are a single statement, so concurrent buyers cannot oversell the variant.
+     * @param variantId The ID of the product variant
+     * @param quantity The quantity to take
+     * @param held The quantity that must be left over for others, such as stock held by their carts
+     * @return 1 if the stock was taken, 0 if the variant does not exist or has less stock than requested
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE ProductVariant v SET v.stockQuantity = v.stockQuantity - :quantity " +
+           "WHERE v.id = :variantId AND v.stockQuantity >= :quantity + :held")
+    int decrementStock(@Param("variantId") Long variantId, @Param("quantity") int quantity, @Param("held") int held);
+    
+    /**
+     * Changes the stock of a variant without reading it first.
+     * @param variantId The ID of the product variant
+     * @param delta The change in stock
+     * @return 1 if the stock was changed, 0 if the variant does not exist
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE ProductVariant v SET v.stockQuantity = v.stockQuantity + :delta WHERE v.id = :variantId")
+    int adjustStock(@Param("variantId") Long variantId, @Param("delta") int delta);
+    
+    /**
+     * Reads the current stock of a variant from the database.
+     * @param variantId The ID of the product variant
+     * @return The stock quantity, or empty if the variant does not exist
+     */
+    @Query("SELECT v.stockQuantity FROM ProductVariant v WHERE v.id = :variantId")
+    Optional<Integer> findStockQuantityById(@Param("variantId") Long variantId);
+    
+    /**
+     * Reads the current stock of several variants from the database in one query.
+     * @param variantIds The IDs of the product variants
+     * @return Pairs of variant ID and stock quantity; variants that do not exist are left out
+     */
+    @Query("SELECT v.id, v.stockQuantity FROM ProductVariant v WHERE v.id IN :variantIds")
+    List<Object[]> findStockQuantitiesByIdIn(@Param("variantIds") Collection<Long> variantIds);
+    
+    /**
+     * Reads the ID of the product a variant belongs to.
+     * @param variantId The ID of the product variant
+     * @return The product ID, or empty if the variant does not exist
+     */
+    @Query("SELECT v.product.id FROM ProductVariant v WHERE v.id = :variantId")
+    Optional<Long> findProductIdById(@Param("variantId") Long variantId);
+    
+    /**
+     * Reads the IDs of the products several variants belong to.
+     * @param variantIds The IDs of the product variants
+     * @return The distinct product IDs; variants that do not exist are left out
+     */
+    @Query("SELECT DISTINCT v.product.id FROM ProductVariant v WHERE v.id IN :variantIds")
+    List<Long> findProductIdsByIdIn(@Param("variantIds") Collection<Long> variantIds);
+    
+    /**
+     * Reads the total stock of the products several variants belong to.
+     * @param variantIds The IDs of the product variants
+     * @return Pairs of product ID and total stock, one per product
+     */
+    @Query("SELECT DISTINCT p.id, p.totalStock FROM ProductVariant v JOIN v.product p WHERE v.id IN :variantIds")
+    List<Object[]> findProductStocksByIdIn(@Param("variantIds") Collection<Long> variantIds);
+    
     /**
      * Finds top selling product variants within a date range
      * @param startDate Start date of the period
@@ -0,0 +1,35 @@
+package com.healthstore.repository;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Batched stock updates for {@link ProductVariantRepository}, sent as one JDBC batch per call
+ * instead of one update statement per variant.
+ */
+public interface ProductVariantStockRepository {
+
+    /**
+     * A conditional stock reduction of one variant.
+     * @param variantId The ID of the product variant
+     * @param quantity The quantity to take
+     * @param held The quantity that must be left over for others, such as stock held by their carts
+     */
+    record StockDecrement(Long variantId, int quantity, int held) {
+    }
+
+    /**
+     * Takes stock from several variants, each if, and only if, enough is left.
+     * Pending changes of the persistence context are flushed first.
+     * @param decrements The reductions, applied in the given order
+     * @return The update count of each reduction: 1 if the stock was taken, 0 otherwise, or
+     *         {@link java.sql.Statement#SUCCESS_NO_INFO} if the driver could not tell
+     */
+    int[] decrementStockBatch(List<StockDecrement> decrements);
+
+    /**
+     * Changes the total stock summarized on several products.
+     * @param deltas The change in stock by product ID
+     */
+    void adjustTotalStockBatch(Map<Long, Integer> deltas);
+}
@@ -0,0 +1,55 @@
+package com.healthstore.repository;
+
+import jakarta.persistence.EntityManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JDBC implementation of {@link ProductVariantStockRepository}.
+ * Runs on the connection of the current JPA transaction, so the batches commit or roll back with it.
+ * With {@code rewriteBatchedStatements=true} on the MySQL connection URL each batch is a single round trip.
+ */
+public class ProductVariantStockRepositoryImpl implements ProductVariantStockRepository {
+
+    private static final String DECREMENT_STOCK_SQL =
+            "UPDATE product_variants SET stock_quantity = stock_quantity - ? WHERE id = ? AND stock_quantity >= ?";
+    private static final String ADJUST_TOTAL_STOCK_SQL =
+            "UPDATE products SET total_stock = total_stock + ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManager entityManager;
+
+    public ProductVariantStockRepositoryImpl(JdbcTemplate jdbcTemplate, EntityManager entityManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public int[] decrementStockBatch(List<StockDecrement> decrements) {
+        if (decrements.isEmpty()) {
+            return new int[0];
+        }
+        entityManager.flush();
+        List<Object[]> args = new ArrayList<>(decrements.size());
+        for (StockDecrement decrement : decrements) {
+            args.add(new Object[] {decrement.quantity(), decrement.variantId(), decrement.quantity() + decrement.held()});
+        }
+        return jdbcTemplate.batchUpdate(DECREMENT_STOCK_SQL, args);
+    }
+
+    @Override
+    public void adjustTotalStockBatch(Map<Long, Integer> deltas) {
+        List<Object[]> args = new ArrayList<>(deltas.size());
+        deltas.forEach((productId, delta) -> {
+            if (delta != 0) {
+                args.add(new Object[] {delta, productId});
+            }
+        });
+        if (!args.isEmpty()) {
+            jdbcTemplate.batchUpdate(ADJUST_TOTAL_STOCK_SQL, args);
+        }
+    }
+}
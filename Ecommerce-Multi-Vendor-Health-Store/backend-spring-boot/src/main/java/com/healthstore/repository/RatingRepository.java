@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -29,6 +30,13 @@ public interface RatingRepository extends JpaRepository<Rating, Long> {
      */
     @Query("SELECT AVG(r.value) FROM Rating r WHERE r.product.id = :productId")
     Optional<Double> findAverageRatingByProductId(@Param("productId") Long productId);
+
+    /**
+     * Finds the average rating of every rated product.
+     * @return Rows of [productId, averageRating].
+     */
+    @Query("SELECT r.product.id, AVG(r.value) FROM Rating r GROUP BY r.product.id")
+    List<Object[]> findAverageRatings();
     
     /**
      * Deletes a rating by product ID and user ID.
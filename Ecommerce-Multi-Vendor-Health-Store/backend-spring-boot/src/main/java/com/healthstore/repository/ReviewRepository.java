@@ -3,8 +3,13 @@ package com.healthstore.repository;
 import com.healthstore.model.Product;
 import com.healthstore.model.Review;
 import com.healthstore.model.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -18,6 +23,16 @@ public interface ReviewRepository extends JpaRepository<Review, Long> {
     
     Page<Review> findByProductId(Long productId, Pageable pageable);
     
+    /**
+     * Reads a window of a product's reviews after a keyset position, without a count query.
+     */
+    Window<Review> findWindowByProductId(Long productId, ScrollPosition position, Sort sort, Limit limit);
+    
+    /**
+     * Reads a page of a product's reviews without counting the total.
+     */
+    Slice<Review> findSliceByProductId(Long productId, Pageable pageable);
+    
     Page<Review> findByUserId(Long userId, Pageable pageable);
     
     Optional<Review> findByProductAndUser(Product product, User user);
@@ -0,0 +1,100 @@
+package com.healthstore.repository;
+
+import com.healthstore.model.SalesRollup;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Repository for sales rollups.
+ * A date range is read as the week or month rows of the periods it fully covers plus the day rows
+ * of the partial periods at its ends, described by a {@link Coverage}, so a query reads a few rows
+ * per period whatever the number of orders.
+ */
+@Repository
+public interface SalesRollupRepository extends JpaRepository<SalesRollup, SalesRollup.Key>, SalesRollupWriteRepository {
+
+    String COVERED = "r.dimension = :dimension AND ("
+            + "(r.periodType = :unit AND r.periodStart BETWEEN :unitFrom AND :unitTo) OR "
+            + "(r.periodType = :day AND (r.periodStart BETWEEN :headFrom AND :headTo "
+            + "OR r.periodStart BETWEEN :tailFrom AND :tailTo)))";
+
+    /**
+     * The rows that together cover a date range exactly. Empty ranges end before they start.
+     * @param unit The type of the rows of the fully covered periods
+     * @param unitFrom The start of the first fully covered period
+     * @param unitTo The start of the last fully covered period
+     * @param headFrom The first day before the fully covered periods
+     * @param headTo The last day before the fully covered periods
+     * @param tailFrom The first day after the fully covered periods
+     * @param tailTo The last day after the fully covered periods
+     */
+    record Coverage(SalesRollup.PeriodType unit, LocalDate unitFrom, LocalDate unitTo,
+                    LocalDate headFrom, LocalDate headTo, LocalDate tailFrom, LocalDate tailTo) {
+
+        /**
+         * Covers a date range with the periods of a type, and days where it covers a period in part.
+         * @param startDate The first day of the range
+         * @param endDate The last day of the range
+         * @param unit The type of the periods to read where possible
+         * @return The coverage of the range
+         */
+        public static Coverage of(LocalDate startDate, LocalDate endDate, SalesRollup.PeriodType unit) {
+            LocalDate firstFull = unit.startOf(startDate).equals(startDate) ? startDate : unit.endOf(startDate).plusDays(1);
+            LocalDate lastFullEnd = unit.endOf(endDate).equals(endDate) ? endDate : unit.startOf(endDate).minusDays(1);
+            if (firstFull.isAfter(lastFullEnd)) {
+                return new Coverage(unit, endDate.plusDays(1), endDate,
+                        startDate, endDate, endDate.plusDays(1), endDate);
+            }
+            return new Coverage(unit, firstFull, unit.startOf(lastFullEnd),
+                    startDate, firstFull.minusDays(1), lastFullEnd.plusDays(1), endDate);
+        }
+    }
+
+    @Query("SELECT r FROM SalesRollup r WHERE " + COVERED)
+    List<SalesRollup> findCovered(@Param("dimension") SalesRollup.Dimension dimension,
+                                  @Param("unit") SalesRollup.PeriodType unit,
+                                  @Param("unitFrom") LocalDate unitFrom, @Param("unitTo") LocalDate unitTo,
+                                  @Param("day") SalesRollup.PeriodType day,
+                                  @Param("headFrom") LocalDate headFrom, @Param("headTo") LocalDate headTo,
+                                  @Param("tailFrom") LocalDate tailFrom, @Param("tailTo") LocalDate tailTo);
+
+    @Query("SELECT r.dimensionId, SUM(r.revenue), SUM(r.orderCount), SUM(r.units) FROM SalesRollup r WHERE " + COVERED
+           + " GROUP BY r.dimensionId ORDER BY SUM(r.units) DESC, r.dimensionId")
+    List<Object[]> sumCovered(@Param("dimension") SalesRollup.Dimension dimension,
+                              @Param("unit") SalesRollup.PeriodType unit,
+                              @Param("unitFrom") LocalDate unitFrom, @Param("unitTo") LocalDate unitTo,
+                              @Param("day") SalesRollup.PeriodType day,
+                              @Param("headFrom") LocalDate headFrom, @Param("headTo") LocalDate headTo,
+                              @Param("tailFrom") LocalDate tailFrom, @Param("tailTo") LocalDate tailTo,
+                              Pageable pageable);
+
+    /**
+     * Reads the rows covering a date range.
+     * @param dimension The breakdown of the rows
+     * @param coverage The rows covering the range
+     * @return The rows, of mixed period types
+     */
+    default List<SalesRollup> findCovered(SalesRollup.Dimension dimension, Coverage coverage) {
+        return findCovered(dimension, coverage.unit(), coverage.unitFrom(), coverage.unitTo(),
+                SalesRollup.PeriodType.DAY, coverage.headFrom(), coverage.headTo(), coverage.tailFrom(), coverage.tailTo());
+    }
+
+    /**
+     * Sums the rows covering a date range by dimension ID, most units sold first.
+     * @param dimension The breakdown of the rows
+     * @param coverage The rows covering the range
+     * @param pageable The page of dimension IDs to read
+     * @return Rows of dimension ID, revenue, order count and units sold
+     */
+    default List<Object[]> sumCovered(SalesRollup.Dimension dimension, Coverage coverage, Pageable pageable) {
+        return sumCovered(dimension, coverage.unit(), coverage.unitFrom(), coverage.unitTo(),
+                SalesRollup.PeriodType.DAY, coverage.headFrom(), coverage.headTo(), coverage.tailFrom(), coverage.tailTo(),
+                pageable);
+    }
+}
@@ -0,0 +1,35 @@
+package com.healthstore.repository;
+
+import com.healthstore.model.SalesRollup;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Recomputation of {@link SalesRollup} rows for {@link SalesRollupRepository}, with aggregate
+ * queries over one period at a time.
+ */
+public interface SalesRollupWriteRepository {
+
+    /**
+     * Recomputes the day rows of a day from its orders.
+     * @param day The day
+     */
+    void rebuildDay(LocalDate day);
+
+    /**
+     * Recomputes the rows of a week or month from the day rows it contains.
+     * @param periodType The type of the period, WEEK or MONTH
+     * @param day A day of the period
+     */
+    void rebuildPeriod(SalesRollup.PeriodType periodType, LocalDate day);
+
+    /**
+     * Finds the days of a date range whose total row disagrees with their orders in order count or revenue,
+     * including days with a total row but no counted orders left.
+     * @param startDate The first day to check
+     * @param endDate The last day to check
+     * @return The disagreeing days, in order
+     */
+    List<LocalDate> findStaleDays(LocalDate startDate, LocalDate endDate);
+}
@@ -0,0 +1,129 @@
+package com.healthstore.repository;
+
+import com.healthstore.model.Order;
+import com.healthstore.model.SalesRollup;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * JDBC implementation of {@link SalesRollupWriteRepository}.
+ * A period is recomputed by deleting its rows and inserting fresh aggregates in one batch, on the
+ * connection of the current transaction, so readers see either the old or the new rows.
+ */
+public class SalesRollupWriteRepositoryImpl implements SalesRollupWriteRepository {
+
+    private static final String COUNTED = "o.order_date >= ? AND o.order_date < ? AND o.status NOT IN ("
+            + SalesRollup.EXCLUDED_STATUSES.stream().map(Order.OrderStatus::name).sorted()
+                    .collect(Collectors.joining("', '", "'", "'")) + ")";
+    private static final String ORDER_TOTALS_SQL =
+            "SELECT COUNT(*), COALESCE(SUM(o.total_amount), 0) FROM orders o WHERE " + COUNTED;
+    private static final String ITEM_UNITS_SQL =
+            "SELECT COALESCE(SUM(oi.quantity), 0) FROM order_items oi JOIN orders o ON o.id = oi.order_id WHERE " + COUNTED;
+    private static final String VARIANT_SALES_SQL =
+            "SELECT oi.product_variant_id, SUM(oi.final_price), COUNT(DISTINCT o.id), SUM(oi.quantity) "
+            + "FROM order_items oi JOIN orders o ON o.id = oi.order_id "
+            + "WHERE oi.product_variant_id IS NOT NULL AND " + COUNTED + " GROUP BY oi.product_variant_id";
+    private static final String CATEGORY_SALES_SQL =
+            "SELECT p.category_id, SUM(oi.final_price), COUNT(DISTINCT o.id), SUM(oi.quantity) "
+            + "FROM order_items oi JOIN orders o ON o.id = oi.order_id JOIN products p ON p.id = oi.product_id "
+            + "WHERE p.category_id IS NOT NULL AND " + COUNTED + " GROUP BY p.category_id";
+    private static final String DAY_SUMS_SQL =
+            "SELECT dimension, dimension_id, SUM(revenue), SUM(order_count), SUM(units) FROM sales_rollups "
+            + "WHERE period_type = 'DAY' AND period_start BETWEEN ? AND ? GROUP BY dimension, dimension_id";
+    private static final String DAY_ORDER_TOTALS_SQL =
+            "SELECT CAST(o.order_date AS DATE), COUNT(*), SUM(o.total_amount) FROM orders o WHERE " + COUNTED
+            + " GROUP BY CAST(o.order_date AS DATE)";
+    private static final String DAY_TOTAL_ROWS_SQL =
+            "SELECT period_start, order_count, revenue FROM sales_rollups "
+            + "WHERE period_type = 'DAY' AND dimension = 'TOTAL' AND period_start BETWEEN ? AND ?";
+    private static final String DELETE_SQL =
+            "DELETE FROM sales_rollups WHERE period_type = ? AND period_start = ?";
+    private static final String INSERT_SQL =
+            "INSERT INTO sales_rollups (period_type, period_start, dimension, dimension_id, revenue, order_count, units) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public SalesRollupWriteRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void rebuildDay(LocalDate day) {
+        Timestamp from = Timestamp.valueOf(day.atStartOfDay());
+        Timestamp to = Timestamp.valueOf(day.plusDays(1).atStartOfDay());
+        Date periodStart = Date.valueOf(day);
+        String periodType = SalesRollup.PeriodType.DAY.name();
+        List<Object[]> rows = new ArrayList<>();
+
+        Object[] totals = jdbcTemplate.queryForObject(ORDER_TOTALS_SQL,
+                (rs, rowNum) -> new Object[] {rs.getLong(1), rs.getBigDecimal(2)}, from, to);
+        if ((Long) totals[0] == 0) {
+            // No sales that day, so there are no item rows either.
+            replace(periodType, periodStart, rows);
+            return;
+        }
+        rows.add(new Object[] {periodType, periodStart, SalesRollup.Dimension.TOTAL.name(), 0L, totals[1], totals[0],
+                jdbcTemplate.queryForObject(ITEM_UNITS_SQL, Long.class, from, to)});
+        jdbcTemplate.query(VARIANT_SALES_SQL, rs -> {
+            rows.add(new Object[] {periodType, periodStart, SalesRollup.Dimension.VARIANT.name(), rs.getLong(1),
+                    rs.getBigDecimal(2), rs.getLong(3), rs.getLong(4)});
+        }, from, to);
+        jdbcTemplate.query(CATEGORY_SALES_SQL, rs -> {
+            rows.add(new Object[] {periodType, periodStart, SalesRollup.Dimension.CATEGORY.name(), rs.getLong(1),
+                    rs.getBigDecimal(2), rs.getLong(3), rs.getLong(4)});
+        }, from, to);
+        replace(periodType, periodStart, rows);
+    }
+
+    @Override
+    public void rebuildPeriod(SalesRollup.PeriodType periodType, LocalDate day) {
+        Date periodStart = Date.valueOf(periodType.startOf(day));
+        List<Object[]> rows = new ArrayList<>();
+        jdbcTemplate.query(DAY_SUMS_SQL, rs -> {
+            BigDecimal revenue = rs.getBigDecimal(3);
+            rows.add(new Object[] {periodType.name(), periodStart, rs.getString(1), rs.getLong(2),
+                    revenue != null ? revenue : BigDecimal.ZERO, rs.getLong(4), rs.getLong(5)});
+        }, periodStart, Date.valueOf(periodType.endOf(day)));
+        replace(periodType.name(), periodStart, rows);
+    }
+
+    @Override
+    public List<LocalDate> findStaleDays(LocalDate startDate, LocalDate endDate) {
+        Map<LocalDate, Object[]> orderTotals = new HashMap<>();
+        jdbcTemplate.query(DAY_ORDER_TOTALS_SQL, rs -> {
+            orderTotals.put(rs.getDate(1).toLocalDate(), new Object[] {rs.getLong(2), rs.getBigDecimal(3)});
+        }, Timestamp.valueOf(startDate.atStartOfDay()), Timestamp.valueOf(endDate.plusDays(1).atStartOfDay()));
+
+        // Days with orders are stale until their total row is found to agree with them.
+        TreeSet<LocalDate> stale = new TreeSet<>(orderTotals.keySet());
+        jdbcTemplate.query(DAY_TOTAL_ROWS_SQL, rs -> {
+            LocalDate day = rs.getDate(1).toLocalDate();
+            Object[] totals = orderTotals.get(day);
+            if (totals != null && (Long) totals[0] == rs.getLong(2)
+                    && ((BigDecimal) totals[1]).compareTo(rs.getBigDecimal(3)) == 0) {
+                stale.remove(day);
+            } else {
+                stale.add(day);
+            }
+        }, Date.valueOf(startDate), Date.valueOf(endDate));
+        return List.copyOf(stale);
+    }
+
+    private void replace(String periodType, Date periodStart, List<Object[]> rows) {
+        jdbcTemplate.update(DELETE_SQL, periodType, periodStart);
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.healthstore.search;
+
+import java.util.Collection;
+
+/**
+ * Facet selections applied to a faceted search. Null fields are not filtered on.
+ * @param categoryIds Categories a product must belong to one of.
+ * @param minPrice Minimum price, inclusive.
+ * @param maxPrice Maximum price, inclusive.
+ * @param minRating Minimum average rating in whole stars.
+ * @param inStock Whether only products with stock are returned.
+ */
+public record FacetFilter(Collection<Long> categoryIds, Double minPrice, Double maxPrice,
+                          Integer minRating, Boolean inStock) {
+}
@@ -0,0 +1,166 @@
+package com.healthstore.search;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bitset postings of the facet values of indexed products.
+ * Each product gets a dense ordinal, reused after the product is removed, and every facet
+ * value keeps the set of ordinals having that value. Counting a facet value for a result set
+ * is then a single bitset intersection. Not thread-safe; guarded by {@link ProductSearchIndex}.
+ */
+class FacetIndex {
+
+    /**
+     * Upper bounds of the price buckets; the last bucket has no upper bound.
+     */
+    static final double[] PRICE_BOUNDS = {10, 25, 50, 100};
+
+    /**
+     * Highest rating band; band {@code n} holds the products rated {@code n} stars or more.
+     */
+    static final int MAX_RATING = 5;
+
+    private final Map<Long, Integer> ordinals = new HashMap<>();
+    private final List<ProductDocument> documents = new ArrayList<>();
+    private final BitSet freeOrdinals = new BitSet();
+    private final Map<Long, BitSet> byCategory = new HashMap<>();
+    private final Map<Long, String> categoryNames = new HashMap<>();
+    private final BitSet[] byPriceBucket = new BitSet[PRICE_BOUNDS.length + 1];
+    private final BitSet[] byRatingBand = new BitSet[MAX_RATING + 1];
+    private final BitSet inStock = new BitSet();
+
+    FacetIndex() {
+        for (int i = 0; i < byPriceBucket.length; i++) {
+            byPriceBucket[i] = new BitSet();
+        }
+        for (int i = 0; i < byRatingBand.length; i++) {
+            byRatingBand[i] = new BitSet();
+        }
+    }
+
+    void add(ProductDocument document) {
+        remove(document.getId());
+        int ordinal = freeOrdinals.isEmpty() ? documents.size() : freeOrdinals.nextSetBit(0);
+        if (ordinal == documents.size()) {
+            documents.add(document);
+        } else {
+            freeOrdinals.clear(ordinal);
+            documents.set(ordinal, document);
+        }
+        ordinals.put(document.getId(), ordinal);
+
+        if (document.getCategoryId() != null) {
+            byCategory.computeIfAbsent(document.getCategoryId(), id -> new BitSet()).set(ordinal);
+            categoryNames.put(document.getCategoryId(), document.getCategoryName());
+        }
+        byPriceBucket[priceBucket(document.getPrice())].set(ordinal);
+        for (int band = 1; band <= ratingBand(document.getAverageRating()); band++) {
+            byRatingBand[band].set(ordinal);
+        }
+        if (document.getStock() > 0) {
+            inStock.set(ordinal);
+        }
+    }
+
+    void remove(Long productId) {
+        Integer ordinal = ordinals.remove(productId);
+        if (ordinal == null) {
+            return;
+        }
+        ProductDocument document = documents.set(ordinal, null);
+        freeOrdinals.set(ordinal);
+
+        if (document.getCategoryId() != null) {
+            BitSet category = byCategory.get(document.getCategoryId());
+            category.clear(ordinal);
+            if (category.isEmpty()) {
+                byCategory.remove(document.getCategoryId());
+                categoryNames.remove(document.getCategoryId());
+            }
+        }
+        byPriceBucket[priceBucket(document.getPrice())].clear(ordinal);
+        for (BitSet band : byRatingBand) {
+            band.clear(ordinal);
+        }
+        inStock.clear(ordinal);
+    }
+
+    /**
+     * Replaces the document of an indexed product whose stock changed, keeping its ordinal.
+     * @param document The product with its new stock.
+     */
+    void updateStock(ProductDocument document) {
+        Integer ordinal = ordinals.get(document.getId());
+        if (ordinal == null) {
+            return;
+        }
+        documents.set(ordinal, document);
+        inStock.set(ordinal, document.getStock() > 0);
+    }
+
+    void clear() {
+        ordinals.clear();
+        documents.clear();
+        freeOrdinals.clear();
+        byCategory.clear();
+        categoryNames.clear();
+        for (BitSet bucket : byPriceBucket) {
+            bucket.clear();
+        }
+        for (BitSet band : byRatingBand) {
+            band.clear();
+        }
+        inStock.clear();
+    }
+
+    int ordinal(Long productId) {
+        return ordinals.get(productId);
+    }
+
+    ProductDocument document(int ordinal) {
+        return documents.get(ordinal);
+    }
+
+    Map<Long, BitSet> categories() {
+        return byCategory;
+    }
+
+    String categoryName(Long categoryId) {
+        return categoryNames.get(categoryId);
+    }
+
+    BitSet category(Long categoryId) {
+        return byCategory.getOrDefault(categoryId, new BitSet());
+    }
+
+    BitSet priceBucket(int bucket) {
+        return byPriceBucket[bucket];
+    }
+
+    BitSet ratingBand(int band) {
+        return byRatingBand[band];
+    }
+
+    BitSet inStock() {
+        return inStock;
+    }
+
+    static int priceBucket(double price) {
+        int bucket = 0;
+        while (bucket < PRICE_BOUNDS.length && price >= PRICE_BOUNDS[bucket]) {
+            bucket++;
+        }
+        return bucket;
+    }
+
+    static int ratingBand(Double averageRating) {
+        if (averageRating == null) {
+            return 0;
+        }
+        return (int) Math.min(MAX_RATING, Math.floor(averageRating));
+    }
+}
@@ -0,0 +1,26 @@
+package com.healthstore.search;
+
+import java.util.List;
+
+/**
+ * Result of a faceted search: the matching products and the number of matches per facet value.
+ * The counts of a facet take every selection into account except the selection on that facet,
+ * so that clients can show how many results each alternative value would give.
+ * @param hits The products matching the query and all selections, best matches first.
+ * @param categories Counts per category.
+ * @param priceRanges Counts per price bucket.
+ * @param ratings Counts per minimum rating band.
+ * @param inStock Number of matches with stock.
+ */
+public record FacetedHits(List<ProductDocument> hits, List<Count> categories, List<Count> priceRanges,
+                          List<Count> ratings, int inStock) {
+
+    /**
+     * Number of matches for one facet value.
+     * @param value The value to send back as a selection.
+     * @param label The display label.
+     * @param count The number of matches.
+     */
+    public record Count(String value, String label, int count) {
+    }
+}
@@ -0,0 +1,115 @@
+package com.healthstore.search;
+
+import com.healthstore.model.Product;
+
+import java.time.LocalDateTime;
+
+/**
+ * Immutable snapshot of the product fields held by the in-memory search index.
+ * It carries everything a search result needs so results can be served without the database.
+ */
+public class ProductDocument {
+
+    private final Long id;
+    private final String name;
+    private final String description;
+    private final String imageUrl;
+    private final Long categoryId;
+    private final String categoryName;
+    private final double price;
+    private final int stock;
+    private final boolean active;
+    private final LocalDateTime createdAt;
+    private final Double averageRating;
+
+    public ProductDocument(Long id, String name, String description, String imageUrl,
+                           Long categoryId, String categoryName, double price, int stock,
+                           boolean active, LocalDateTime createdAt, Double averageRating) {
+        this.id = id;
+        this.name = name;
+        this.description = description;
+        this.imageUrl = imageUrl;
+        this.categoryId = categoryId;
+        this.categoryName = categoryName;
+        this.price = price;
+        this.stock = stock;
+        this.active = active;
+        this.createdAt = createdAt;
+        this.averageRating = averageRating;
+    }
+
+    /**
+     * Creates a snapshot of a product whose variants and category are loaded.
+     * @param product The product to snapshot.
+     * @param averageRating The average rating of the product, or null if it has no ratings.
+     * @return The product document.
+     */
+    public static ProductDocument fromProduct(Product product, Double averageRating) {
+        return new ProductDocument(
+                product.getId(),
+                product.getName(),
+                product.getDescription(),
+                product.getImageUrl(),
+                product.getCategory() != null ? product.getCategory().getId() : null,
+                product.getCategory() != null ? product.getCategory().getName() : null,
+                product.getPrice().doubleValue(),
+                product.getTotalStock(),
+                product.isActive(),
+                product.getCreatedAt(),
+                averageRating);
+    }
+
+    /**
+     * Creates a copy of this snapshot with another stock.
+     * @param stock The total stock of the product.
+     * @return The product document.
+     */
+    public ProductDocument withStock(int stock) {
+        return new ProductDocument(id, name, description, imageUrl, categoryId, categoryName, price, stock,
+                active, createdAt, averageRating);
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public String getImageUrl() {
+        return imageUrl;
+    }
+
+    public Long getCategoryId() {
+        return categoryId;
+    }
+
+    public String getCategoryName() {
+        return categoryName;
+    }
+
+    public double getPrice() {
+        return price;
+    }
+
+    public int getStock() {
+        return stock;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public Double getAverageRating() {
+        return averageRating;
+    }
+}
@@ -0,0 +1,100 @@
+package com.healthstore.search;
+
+import com.healthstore.event.ProductChangedEvent;
+import com.healthstore.event.StockChangedEvent;
+import com.healthstore.repository.ProductRepository;
+import com.healthstore.repository.ProductVariantRepository;
+import com.healthstore.repository.RatingRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the {@link ProductSearchIndex} in sync with the products table.
+ * The index is built once when the application is ready and then updated
+ * one product at a time from {@link ProductChangedEvent}s. Every change also
+ * requests a background rebuild of the {@link SuggestionIndex}. Committed
+ * {@link StockChangedEvent}s update the stock and in-stock facet of the affected products; for hot
+ * variants, whose product totals change when the write-behind checkpoints, that is the write-behind's event.
+ */
+@Component
+public class ProductIndexer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductIndexer.class);
+
+    private final ProductRepository productRepository;
+    private final RatingRepository ratingRepository;
+    private final ProductVariantRepository productVariantRepository;
+    private final ProductSearchIndex searchIndex;
+    private final SuggestionIndex suggestionIndex;
+
+    public ProductIndexer(ProductRepository productRepository, RatingRepository ratingRepository,
+                          ProductVariantRepository productVariantRepository,
+                          ProductSearchIndex searchIndex, SuggestionIndex suggestionIndex) {
+        this.productRepository = productRepository;
+        this.ratingRepository = ratingRepository;
+        this.productVariantRepository = productVariantRepository;
+        this.searchIndex = searchIndex;
+        this.suggestionIndex = suggestionIndex;
+    }
+
+    /**
+     * Builds the index from all products once the application has started.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        Map<Long, Double> averageRatings = new HashMap<>();
+        for (Object[] row : ratingRepository.findAverageRatings()) {
+            averageRatings.put((Long) row[0], ((Number) row[1]).doubleValue());
+        }
+        List<ProductDocument> documents = productRepository.findAllForIndexing().stream()
+                .map(product -> ProductDocument.fromProduct(product, averageRatings.get(product.getId())))
+                .toList();
+        searchIndex.rebuild(documents);
+        logger.info("Indexed {} products for search in {} ms", documents.size(), System.currentTimeMillis() - start);
+        suggestionIndex.requestRebuild();
+    }
+
+    /**
+     * Applies a product change to the index once it has been committed.
+     * @param event The product change.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.getChangeType() == ProductChangedEvent.ChangeType.DELETED) {
+            searchIndex.remove(event.getProductId());
+        } else {
+            productRepository.findByIdForIndexing(event.getProductId())
+                    .map(product -> ProductDocument.fromProduct(product,
+                            ratingRepository.findAverageRatingByProductId(product.getId()).orElse(null)))
+                    .ifPresentOrElse(searchIndex::index, () -> searchIndex.remove(event.getProductId()));
+        }
+        suggestionIndex.requestRebuild();
+    }
+
+    /**
+     * Applies the new total stock of the products whose variants changed once the change has been committed.
+     * @param event The stock change.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public void onStockChanged(StockChangedEvent event) {
+        Map<Long, Integer> stockByProduct = new HashMap<>();
+        for (Object[] row : productVariantRepository.findProductStocksByIdIn(event.getVariantIds())) {
+            stockByProduct.put((Long) row[0], ((Number) row[1]).intValue());
+        }
+        searchIndex.updateStock(stockByProduct);
+    }
+}
@@ -0,0 +1,445 @@
+package com.healthstore.search;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+/**
+ * In-memory inverted index over product name, description and category name.
+ * Terms come from {@link TextAnalyzer}; postings keep a field-weighted term frequency per
+ * product and results are ranked with BM25. The last query word also matches as a prefix,
+ * and words with no exact match fall back to terms within a small edit distance.
+ * Facet values are kept in a {@link FacetIndex} so that faceted searches count matches per
+ * category, price bucket, rating band and stock with bitset intersections.
+ * The index is updated one product at a time and is safe for concurrent readers.
+ */
+@Component
+public class ProductSearchIndex {
+
+    private static final float NAME_BOOST = 3.0f;
+    private static final float CATEGORY_BOOST = 2.0f;
+    private static final float DESCRIPTION_BOOST = 1.0f;
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private static final double PREFIX_WEIGHT = 0.8;
+    private static final double FUZZY_WEIGHT = 0.6;
+    private static final int MAX_EXPANSIONS = 50;
+    private static final int MIN_FUZZY_LENGTH = 4;
+
+    private final NavigableMap<String, Map<Long, Float>> postings = new TreeMap<>();
+    private final Map<Long, IndexedDocument> documents = new HashMap<>();
+    private final FacetIndex facets = new FacetIndex();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private double totalLength;
+    private volatile boolean ready;
+
+    /**
+     * Replaces the whole index content and marks the index as ready.
+     * @param products The products to index.
+     */
+    public void rebuild(Collection<ProductDocument> products) {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documents.clear();
+            facets.clear();
+            totalLength = 0;
+            products.forEach(this::addDocument);
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a product to the index or replaces its previous version.
+     * @param product The product to index.
+     */
+    public void index(ProductDocument product) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(product.getId());
+            addDocument(product);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Updates the stock of indexed products, leaving their text postings alone.
+     * Products that are not indexed are skipped.
+     * @param stockByProduct The total stock of each product, keyed by product ID.
+     */
+    public void updateStock(Map<Long, Integer> stockByProduct) {
+        lock.writeLock().lock();
+        try {
+            for (Map.Entry<Long, Integer> entry : stockByProduct.entrySet()) {
+                IndexedDocument existing = documents.get(entry.getKey());
+                if (existing == null || existing.document().getStock() == entry.getValue()) {
+                    continue;
+                }
+                ProductDocument updated = existing.document().withStock(entry.getValue());
+                documents.put(entry.getKey(), new IndexedDocument(updated, existing.terms(), existing.length()));
+                facets.updateStock(updated);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a product from the index.
+     * @param productId The ID of the product.
+     */
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return Whether the initial build has completed.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * @return The number of indexed products.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return A snapshot of all indexed products.
+     */
+    public List<ProductDocument> documents() {
+        lock.readLock().lock();
+        try {
+            return documents.values().stream().map(IndexedDocument::document).toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the products matching every word of the query, best matches first.
+     * A blank query matches all products, ordered by ID.
+     * @param text The search text, may be null.
+     * @param filter Additional condition the products must satisfy.
+     * @return The matching products ranked by relevance.
+     */
+    public List<ProductDocument> search(String text, Predicate<ProductDocument> filter) {
+        List<String> words = TextAnalyzer.tokenize(text);
+        lock.readLock().lock();
+        try {
+            return find(words, filter);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the products matching the query and facet selections, and counts the matches per facet value.
+     * @param text The search text, may be null.
+     * @param filter The facet selections.
+     * @return The matching products ranked by relevance, with the facet counts.
+     */
+    public FacetedHits facetedSearch(String text, FacetFilter filter) {
+        List<String> words = TextAnalyzer.tokenize(text);
+        lock.readLock().lock();
+        try {
+            List<ProductDocument> matches = find(words, document -> true);
+            BitSet base = new BitSet();
+            for (ProductDocument document : matches) {
+                base.set(facets.ordinal(document.getId()));
+            }
+
+            BitSet category = null;
+            if (filter.categoryIds() != null && !filter.categoryIds().isEmpty()) {
+                category = new BitSet();
+                for (Long categoryId : filter.categoryIds()) {
+                    category.or(facets.category(categoryId));
+                }
+            }
+            BitSet price = null;
+            if (filter.minPrice() != null || filter.maxPrice() != null) {
+                double min = filter.minPrice() != null ? filter.minPrice() : Double.NEGATIVE_INFINITY;
+                double max = filter.maxPrice() != null ? filter.maxPrice() : Double.POSITIVE_INFINITY;
+                price = new BitSet();
+                for (int i = base.nextSetBit(0); i >= 0; i = base.nextSetBit(i + 1)) {
+                    double value = facets.document(i).getPrice();
+                    if (value >= min && value <= max) {
+                        price.set(i);
+                    }
+                }
+            }
+            BitSet rating = null;
+            if (filter.minRating() != null) {
+                int band = Math.max(1, Math.min(FacetIndex.MAX_RATING, filter.minRating()));
+                rating = facets.ratingBand(band);
+            }
+            BitSet stock = Boolean.TRUE.equals(filter.inStock()) ? facets.inStock() : null;
+
+            BitSet selected = intersect(base, category, price, rating, stock);
+            List<ProductDocument> hits = new ArrayList<>(selected.cardinality());
+            for (ProductDocument document : matches) {
+                if (selected.get(facets.ordinal(document.getId()))) {
+                    hits.add(document);
+                }
+            }
+
+            // Each facet is counted without its own selection so alternatives keep their counts
+            BitSet withoutCategory = intersect(base, price, rating, stock);
+            List<FacetedHits.Count> categoryCounts = new ArrayList<>();
+            for (Map.Entry<Long, BitSet> entry : facets.categories().entrySet()) {
+                int count = countIntersection(withoutCategory, entry.getValue());
+                if (count > 0) {
+                    categoryCounts.add(new FacetedHits.Count(String.valueOf(entry.getKey()),
+                            facets.categoryName(entry.getKey()), count));
+                }
+            }
+            categoryCounts.sort(Comparator.comparingInt(FacetedHits.Count::count).reversed()
+                    .thenComparing(FacetedHits.Count::label, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER)));
+
+            BitSet withoutPrice = intersect(base, category, rating, stock);
+            List<FacetedHits.Count> priceCounts = new ArrayList<>();
+            for (int bucket = 0; bucket <= FacetIndex.PRICE_BOUNDS.length; bucket++) {
+                priceCounts.add(priceCount(bucket, countIntersection(withoutPrice, facets.priceBucket(bucket))));
+            }
+
+            BitSet withoutRating = intersect(base, category, price, stock);
+            List<FacetedHits.Count> ratingCounts = new ArrayList<>();
+            for (int band = FacetIndex.MAX_RATING - 1; band >= 1; band--) {
+                ratingCounts.add(new FacetedHits.Count(String.valueOf(band), band + (band == 1 ? " star & up" : " stars & up"),
+                        countIntersection(withoutRating, facets.ratingBand(band))));
+            }
+
+            int inStockCount = countIntersection(intersect(base, category, price, rating), facets.inStock());
+            return new FacetedHits(hits, categoryCounts, priceCounts, ratingCounts, inStockCount);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the products matching every word of the query. Must be called under the read lock.
+     */
+    private List<ProductDocument> find(List<String> words, Predicate<ProductDocument> filter) {
+        if (words.isEmpty()) {
+            return documents.values().stream()
+                    .map(IndexedDocument::document)
+                    .filter(filter)
+                    .sorted(Comparator.comparing(ProductDocument::getId))
+                    .toList();
+        }
+
+        Map<Long, Double> scores = null;
+        for (int i = 0; i < words.size(); i++) {
+            Map<String, Double> expansions = expand(words.get(i), i == words.size() - 1);
+            if (expansions == null) {
+                continue; // stop word
+            }
+            Map<Long, Double> wordScores = scoreWord(expansions);
+            if (scores == null) {
+                scores = wordScores;
+            } else {
+                Map<Long, Double> combined = new HashMap<>();
+                for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+                    Double wordScore = wordScores.get(entry.getKey());
+                    if (wordScore != null) {
+                        combined.put(entry.getKey(), entry.getValue() + wordScore);
+                    }
+                }
+                scores = combined;
+            }
+            if (scores.isEmpty()) {
+                return List.of();
+            }
+        }
+        if (scores == null) {
+            return List.of();
+        }
+
+        List<Map.Entry<Long, Double>> ranked = new ArrayList<>(scores.entrySet());
+        ranked.sort(Map.Entry.<Long, Double>comparingByValue().reversed()
+                .thenComparing(Map.Entry.comparingByKey()));
+        List<ProductDocument> results = new ArrayList<>(ranked.size());
+        for (Map.Entry<Long, Double> entry : ranked) {
+            ProductDocument document = documents.get(entry.getKey()).document();
+            if (filter.test(document)) {
+                results.add(document);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Intersects the base set with every non-null constraint into a new bitset.
+     */
+    private static BitSet intersect(BitSet base, BitSet... constraints) {
+        BitSet result = (BitSet) base.clone();
+        for (BitSet constraint : constraints) {
+            if (constraint != null) {
+                result.and(constraint);
+            }
+        }
+        return result;
+    }
+
+    private static int countIntersection(BitSet a, BitSet b) {
+        BitSet intersection = (BitSet) a.clone();
+        intersection.and(b);
+        return intersection.cardinality();
+    }
+
+    private static FacetedHits.Count priceCount(int bucket, int count) {
+        double[] bounds = FacetIndex.PRICE_BOUNDS;
+        if (bucket == 0) {
+            return new FacetedHits.Count("0-" + format(bounds[0]), "Under $" + format(bounds[0]), count);
+        }
+        if (bucket == bounds.length) {
+            return new FacetedHits.Count(format(bounds[bucket - 1]) + "-", "$" + format(bounds[bucket - 1]) + " & above", count);
+        }
+        return new FacetedHits.Count(format(bounds[bucket - 1]) + "-" + format(bounds[bucket]),
+                "$" + format(bounds[bucket - 1]) + " - $" + format(bounds[bucket]), count);
+    }
+
+    private static String format(double value) {
+        return value == Math.floor(value) ? String.valueOf((long) value) : String.valueOf(value);
+    }
+
+    /**
+     * Expands a query word into the index terms it matches, each with a weight.
+     * @return The matching terms, empty if nothing matches, or null for a stop word.
+     */
+    private Map<String, Double> expand(String word, boolean allowPrefix) {
+        List<String> analyzed = TextAnalyzer.analyze(word);
+        if (analyzed.isEmpty()) {
+            return null;
+        }
+        String term = analyzed.get(0);
+        Map<String, Double> expansions = new HashMap<>();
+        if (postings.containsKey(term)) {
+            expansions.put(term, 1.0);
+        }
+
+        if (allowPrefix) {
+            for (String candidate : postings.subMap(word, true, word + Character.MAX_VALUE, false).keySet()) {
+                if (expansions.size() >= MAX_EXPANSIONS) {
+                    break;
+                }
+                expansions.putIfAbsent(candidate, PREFIX_WEIGHT);
+            }
+        }
+
+        if (expansions.isEmpty() && term.length() >= MIN_FUZZY_LENGTH) {
+            int maxDistance = term.length() >= 8 ? 2 : 1;
+            for (String candidate : postings.keySet()) {
+                if (Math.abs(candidate.length() - term.length()) > maxDistance) {
+                    continue;
+                }
+                int distance = TextAnalyzer.editDistance(term, candidate, maxDistance);
+                if (distance <= maxDistance) {
+                    expansions.put(candidate, FUZZY_WEIGHT / distance);
+                    if (expansions.size() >= MAX_EXPANSIONS) {
+                        break;
+                    }
+                }
+            }
+        }
+        return expansions;
+    }
+
+    /**
+     * Scores every product containing one of the expanded terms with BM25,
+     * keeping the best expansion per product.
+     */
+    private Map<Long, Double> scoreWord(Map<String, Double> expansions) {
+        Map<Long, Double> scores = new HashMap<>();
+        int documentCount = documents.size();
+        double averageLength = documentCount > 0 ? totalLength / documentCount : 1.0;
+
+        for (Map.Entry<String, Double> expansion : expansions.entrySet()) {
+            Map<Long, Float> termPostings = postings.get(expansion.getKey());
+            if (termPostings == null) {
+                continue;
+            }
+            int documentFrequency = termPostings.size();
+            double idf = Math.log(1 + (documentCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+            for (Map.Entry<Long, Float> posting : termPostings.entrySet()) {
+                double tf = posting.getValue();
+                double length = documents.get(posting.getKey()).length();
+                double score = idf * (tf * (K1 + 1)) / (tf + K1 * (1 - B + B * length / averageLength));
+                scores.merge(posting.getKey(), score * expansion.getValue(), Math::max);
+            }
+        }
+        return scores;
+    }
+
+    private void addDocument(ProductDocument product) {
+        Map<String, Float> frequencies = new HashMap<>();
+        float length = 0;
+        length += addField(frequencies, product.getName(), NAME_BOOST);
+        length += addField(frequencies, product.getCategoryName(), CATEGORY_BOOST);
+        length += addField(frequencies, product.getDescription(), DESCRIPTION_BOOST);
+
+        for (Map.Entry<String, Float> entry : frequencies.entrySet()) {
+            postings.computeIfAbsent(entry.getKey(), term -> new HashMap<>()).put(product.getId(), entry.getValue());
+        }
+        documents.put(product.getId(), new IndexedDocument(product, List.copyOf(frequencies.keySet()), length));
+        facets.add(product);
+        totalLength += length;
+    }
+
+    private float addField(Map<String, Float> frequencies, String text, float boost) {
+        List<String> terms = TextAnalyzer.analyze(text);
+        for (String term : terms) {
+            frequencies.merge(term, boost, Float::sum);
+        }
+        return terms.size() * boost;
+    }
+
+    private void removeDocument(Long productId) {
+        IndexedDocument existing = documents.remove(productId);
+        if (existing == null) {
+            return;
+        }
+        facets.remove(productId);
+        for (String term : existing.terms()) {
+            Map<Long, Float> termPostings = postings.get(term);
+            if (termPostings != null) {
+                termPostings.remove(productId);
+                if (termPostings.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+        totalLength -= existing.length();
+    }
+
+    private record IndexedDocument(ProductDocument document, List<String> terms, float length) {
+    }
+}
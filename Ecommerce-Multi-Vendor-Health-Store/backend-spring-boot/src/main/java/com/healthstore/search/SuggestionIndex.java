@@ -0,0 +1,115 @@
+package com.healthstore.search;
+
+import com.healthstore.repository.OrderItemRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Serves typeahead suggestions for product and category names from a {@link SuggestionTrie}.
+ * Products are weighted by the quantity sold and categories by the weight of their products.
+ * The trie is immutable and rebuilt on a background thread from the {@link ProductSearchIndex};
+ * rebuild requests arriving within the rebuild delay are folded into a single rebuild,
+ * and readers keep using the previous trie until the new one is swapped in.
+ */
+@Component
+public class SuggestionIndex {
+
+    public static final String TYPE_PRODUCT = "PRODUCT";
+    public static final String TYPE_CATEGORY = "CATEGORY";
+
+    private static final Logger logger = LoggerFactory.getLogger(SuggestionIndex.class);
+    private static final int TOP_K = 10;
+
+    private final ProductSearchIndex searchIndex;
+    private final OrderItemRepository orderItemRepository;
+    private final Duration rebuildDelay;
+    private final AtomicBoolean rebuildPending = new AtomicBoolean();
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "suggestion-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile SuggestionTrie trie = SuggestionTrie.empty();
+
+    public SuggestionIndex(ProductSearchIndex searchIndex,
+                           OrderItemRepository orderItemRepository,
+                           @Value("${app.suggest.rebuild-delay:2s}") Duration rebuildDelay) {
+        this.searchIndex = searchIndex;
+        this.orderItemRepository = orderItemRepository;
+        this.rebuildDelay = rebuildDelay;
+    }
+
+    /**
+     * Returns the most popular suggestions starting with the given prefix.
+     * @param prefix The typed text.
+     * @param limit The maximum number of suggestions, capped at {@value #TOP_K}.
+     * @return The suggestions, most popular first.
+     */
+    public List<SuggestionTrie.Suggestion> suggest(String prefix, int limit) {
+        return trie.suggest(prefix, Math.max(0, Math.min(limit, TOP_K)));
+    }
+
+    /**
+     * Schedules a rebuild of the trie unless one is already pending.
+     */
+    public void requestRebuild() {
+        if (rebuildPending.compareAndSet(false, true)) {
+            executor.schedule(this::rebuild, rebuildDelay.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Rebuilds the trie from the current search index content and sales figures.
+     */
+    void rebuild() {
+        rebuildPending.set(false);
+        try {
+            long start = System.currentTimeMillis();
+            Map<Long, Long> quantitySold = new HashMap<>();
+            for (Object[] row : orderItemRepository.sumQuantityByProduct()) {
+                quantitySold.put((Long) row[0], ((Number) row[1]).longValue());
+            }
+
+            List<SuggestionTrie.Suggestion> entries = new ArrayList<>();
+            Map<Long, String> categoryNames = new HashMap<>();
+            Map<Long, Long> categoryWeights = new HashMap<>();
+            for (ProductDocument document : searchIndex.documents()) {
+                if (!document.isActive()) {
+                    continue;
+                }
+                // Every product counts once so that unsold products still rank by name.
+                long weight = quantitySold.getOrDefault(document.getId(), 0L) + 1;
+                entries.add(new SuggestionTrie.Suggestion(document.getName(), TYPE_PRODUCT, document.getId(), weight));
+                if (document.getCategoryId() != null) {
+                    categoryNames.put(document.getCategoryId(), document.getCategoryName());
+                    categoryWeights.merge(document.getCategoryId(), weight, Long::sum);
+                }
+            }
+            categoryNames.forEach((id, name) ->
+                    entries.add(new SuggestionTrie.Suggestion(name, TYPE_CATEGORY, id, categoryWeights.get(id))));
+
+            trie = SuggestionTrie.build(entries, TOP_K);
+            logger.info("Built suggestion trie with {} entries in {} ms", entries.size(), System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            logger.error("Failed to rebuild suggestion trie, keeping the previous one", e);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,222 @@
+package com.healthstore.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Immutable radix trie for typeahead suggestions.
+ * Every suggestion is reachable from the start of each of its words, and each node
+ * stores the indices of the best suggestions below it, so a lookup only walks the
+ * typed prefix and never scans the subtree. Edges hold whole label runs instead of
+ * single characters to keep the node count small.
+ */
+public final class SuggestionTrie {
+
+    /**
+     * A suggestion offered by the trie.
+     */
+    public record Suggestion(String text, String type, Long id, long weight) {
+    }
+
+    private static final SuggestionTrie EMPTY = new SuggestionTrie(new Suggestion[0], new Node(new char[0], new char[0], new Node[0], new int[0]));
+
+    private final Suggestion[] suggestions;
+    private final Node root;
+
+    private SuggestionTrie(Suggestion[] suggestions, Node root) {
+        this.suggestions = suggestions;
+        this.root = root;
+    }
+
+    /**
+     * @return A trie without suggestions.
+     */
+    public static SuggestionTrie empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Builds a trie keeping at most {@code topK} suggestions per prefix.
+     * @param entries The suggestions to index.
+     * @param topK The number of suggestions kept per node.
+     * @return The trie.
+     */
+    public static SuggestionTrie build(List<Suggestion> entries, int topK) {
+        Suggestion[] suggestions = entries.toArray(new Suggestion[0]);
+        // Rank suggestions once so that lower indices always mean better suggestions.
+        Arrays.sort(suggestions, Comparator.comparingLong(Suggestion::weight).reversed()
+                .thenComparing(Suggestion::text));
+
+        List<Key> keys = new ArrayList<>();
+        for (int i = 0; i < suggestions.length; i++) {
+            String normalized = normalize(suggestions[i].text());
+            if (normalized.isEmpty()) {
+                continue;
+            }
+            keys.add(new Key(normalized, i));
+            for (int j = 1; j < normalized.length(); j++) {
+                if (normalized.charAt(j - 1) == ' ') {
+                    keys.add(new Key(normalized.substring(j), i));
+                }
+            }
+        }
+        keys.sort(Comparator.comparing(Key::text).thenComparingInt(Key::suggestion));
+        Key[] sorted = keys.toArray(new Key[0]);
+
+        Node root = sorted.length == 0 ? EMPTY.root : buildNode(sorted, 0, sorted.length, 0, 0, topK);
+        return new SuggestionTrie(suggestions, root);
+    }
+
+    /**
+     * Returns the best suggestions starting with the given prefix at a word boundary.
+     * @param prefix The typed text.
+     * @param limit The maximum number of suggestions.
+     * @return The suggestions, best first.
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        String query = normalize(prefix);
+        if (query.isEmpty()) {
+            return List.of();
+        }
+        Node node = root;
+        int position = 0;
+        while (true) {
+            char[] label = node.label;
+            for (int i = 0; i < label.length && position < query.length(); i++, position++) {
+                if (label[i] != query.charAt(position)) {
+                    return List.of();
+                }
+            }
+            if (position == query.length()) {
+                break;
+            }
+            int child = Arrays.binarySearch(node.childChars, query.charAt(position));
+            if (child < 0) {
+                return List.of();
+            }
+            node = node.children[child];
+        }
+
+        int count = Math.min(limit, node.top.length);
+        List<Suggestion> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(suggestions[node.top[i]]);
+        }
+        return result;
+    }
+
+    /**
+     * @return The number of distinct suggestions in the trie.
+     */
+    public int size() {
+        return suggestions.length;
+    }
+
+    /**
+     * Lower-cases text and collapses anything that is not a letter or digit into single spaces.
+     * @param text The text to normalize, may be null.
+     * @return The normalized text.
+     */
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder builder = new StringBuilder(text.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                if (pendingSpace && builder.length() > 0) {
+                    builder.append(' ');
+                }
+                builder.append(Character.toLowerCase(c));
+                pendingSpace = false;
+            } else {
+                pendingSpace = true;
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Builds the node for keys[from, to), which all share their first {@code depth} characters.
+     * The node label starts at {@code labelStart} and runs to the longest common prefix of the range.
+     */
+    private static Node buildNode(Key[] keys, int from, int to, int labelStart, int depth, int topK) {
+        int end = depth;
+        String first = keys[from].text();
+        String last = keys[to - 1].text();
+        while (end < first.length() && end < last.length() && first.charAt(end) == last.charAt(end)) {
+            end++;
+        }
+        char[] label = first.substring(labelStart, end).toCharArray();
+
+        int terminalEnd = from;
+        while (terminalEnd < to && keys[terminalEnd].text().length() == end) {
+            terminalEnd++;
+        }
+
+        List<Node> children = new ArrayList<>();
+        StringBuilder childChars = new StringBuilder();
+        int start = terminalEnd;
+        while (start < to) {
+            char c = keys[start].text().charAt(end);
+            int stop = start;
+            while (stop < to && keys[stop].text().charAt(end) == c) {
+                stop++;
+            }
+            childChars.append(c);
+            children.add(buildNode(keys, start, stop, end, end + 1, topK));
+            start = stop;
+        }
+
+        int[] top = mergeTop(keys, from, terminalEnd, children, topK);
+        return new Node(label, childChars.toString().toCharArray(), children.toArray(new Node[0]), top);
+    }
+
+    /**
+     * Merges the suggestions ending at a node with the best suggestions of its children.
+     * Suggestions are identified by rank, so the best ones are simply the smallest indices.
+     */
+    private static int[] mergeTop(Key[] keys, int from, int to, List<Node> children, int topK) {
+        int[] candidates = new int[(to - from) + children.size() * topK];
+        int size = 0;
+        for (int i = from; i < to; i++) {
+            candidates[size++] = keys[i].suggestion();
+        }
+        for (Node child : children) {
+            for (int index : child.top) {
+                candidates[size++] = index;
+            }
+        }
+        int[] sorted = Arrays.copyOf(candidates, size);
+        Arrays.sort(sorted);
+        int[] top = new int[Math.min(topK, sorted.length)];
+        int count = 0;
+        for (int i = 0; i < sorted.length && count < top.length; i++) {
+            if (count == 0 || top[count - 1] != sorted[i]) {
+                top[count++] = sorted[i];
+            }
+        }
+        return count == top.length ? top : Arrays.copyOf(top, count);
+    }
+
+    private record Key(String text, int suggestion) {
+    }
+
+    private static final class Node {
+        private final char[] label;
+        private final char[] childChars;
+        private final Node[] children;
+        private final int[] top;
+
+        private Node(char[] label, char[] childChars, Node[] children, int[] top) {
+            this.label = label;
+            this.childChars = childChars;
+            this.children = children;
+            this.top = top;
+        }
+    }
+}
@@ -1,12 +1,17 @@
 package com.healthstore.service;
 
 import com.healthstore.dto.UserActivityReportDTO;
+import com.healthstore.dto.report.CustomerActivityDTO;
 import com.healthstore.model.Order;
 import com.healthstore.model.Product;
 import com.healthstore.model.ProductVariant;
 import com.healthstore.model.User;
+import com.healthstore.repository.CustomerAnalyticsRepository;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
@@ -17,6 +22,26 @@ import java.util.Map;
  */
 public interface AdminReportService {
 
+    /**
+     * Revenue, number of orders and units sold of a period.
+     *
+     * @param revenue The total revenue
+     * @param orders The total number of orders
+     * @param units The total number of units sold
+     */
+    record SalesTotals(BigDecimal revenue, long orders, long units) {
+
+        /**
+         * @return The average order value, or zero if there were no orders
+         */
+        public BigDecimal averageOrderValue() {
+            if (orders == 0) {
+                return BigDecimal.ZERO;
+            }
+            return revenue.divide(BigDecimal.valueOf(orders), 2, RoundingMode.HALF_UP);
+        }
+    }
+
     /**
      * Generates a sales report for the specified date range.
      *
@@ -53,6 +78,29 @@ public interface AdminReportService {
      */
     List<Map<String, Object>> getCustomerActivityReport(LocalDate startDate, LocalDate endDate);
 
+    /**
+     * Gets a page of the customers who ordered in a period, with their order count, spending and latest order.
+     * The first page of a sort is the top-K list of that sort.
+     *
+     * @param startDate The start date of the report period
+     * @param endDate The end date of the report period
+     * @param sort The order of the customers
+     * @param pageable The page to get
+     * @return A page of customer activity data
+     */
+    Page<CustomerActivityDTO> getCustomerActivity(LocalDate startDate, LocalDate endDate,
+                                                  CustomerAnalyticsRepository.CustomerSort sort, Pageable pageable);
+
+    /**
+     * Gets the total revenue, number of orders and units sold for a specific period with one read,
+     * for callers needing more than one of them.
+     *
+     * @param startDate The start date of the period
+     * @param endDate The end date of the period
+     * @return The sales totals of the period
+     */
+    SalesTotals getSalesTotals(LocalDate startDate, LocalDate endDate);
+
     /**
      * Gets the total revenue for a specific period.
      *
@@ -1,33 +1,58 @@
 package com.healthstore.service;
 
+import com.healthstore.cart.CartSession;
+import com.healthstore.cart.CartSessionStore;
+import com.healthstore.dto.CartDTO;
+import com.healthstore.dto.CartItemDTO;
+import com.healthstore.dto.CartPatchDTO;
+import com.healthstore.dto.CartPatchRequest;
+import com.healthstore.dto.ProductResponseDTO;
+import com.healthstore.exception.CartVersionConflictException;
+import com.healthstore.exception.InsufficientStockException;
+import com.healthstore.inventory.CartReservationRegistry;
 import com.healthstore.model.Cart;
-import com.healthstore.model.CartItem;
-import com.healthstore.model.Product;
 import com.healthstore.model.User;
-import com.healthstore.repository.CartItemRepository;
 import com.healthstore.repository.CartRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Optional;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 /**
  * Service class for handling shopping cart-related business logic.
+ * Every cart line holds the stock of its variant through the {@link InventoryService} for a limited time,
+ * so that users learn that an item sold out when they put it into the cart rather than at checkout.
+ * Cart changes are made to the in-memory carts of the {@link CartSessionStore}, which writes them back
+ * to the database in the background; readers of the cart entity get it written back first.
  */
 @Service
 @Transactional
 public class CartService {
 
+    private static final Logger logger = LoggerFactory.getLogger(CartService.class);
+
     private final CartRepository cartRepository;
-    private final CartItemRepository cartItemRepository;
     private final ProductService productService;
+    private final InventoryService inventoryService;
+    private final CartSessionStore cartSessionStore;
 
-    public CartService(CartRepository cartRepository, 
-                      CartItemRepository cartItemRepository, 
-                      ProductService productService) {
+    public CartService(CartRepository cartRepository,
+                      ProductService productService,
+                      InventoryService inventoryService,
+                      CartSessionStore cartSessionStore) {
         this.cartRepository = cartRepository;
-        this.cartItemRepository = cartItemRepository;
         this.productService = productService;
+        this.inventoryService = inventoryService;
+        this.cartSessionStore = cartSessionStore;
     }
 
     /**
@@ -60,59 +85,118 @@ public class CartService {
      * @return The updated cart.
      * @throws RuntimeException if the product is not found.
      */
-    public Cart addProductToCart(User user, Long productId, int quantity) {
-        Cart cart = findOrCreateCart(user);
-        Product product = productService.getProductById(productId)
-                .orElseThrow(() -> new RuntimeException("Product not found with id: " + productId));
+    public CartDTO addProductToCart(User user, Long productId, int quantity) {
+        return addProductToCart(user, productId, null, quantity);
+    }
 
-        // Check if product already exists in cart
-        Optional<CartItem> existingItem = cart.getItems().stream()
-                .filter(item -> item.getProduct().getId().equals(productId))
-                .findFirst();
-
-        if (existingItem.isPresent()) {
-            // Update quantity if product already in cart
-            CartItem item = existingItem.get();
-            item.setQuantity(item.getQuantity() + quantity);
-            cartItemRepository.save(item);
-        } else {
-            // Add new item to cart
-            CartItem newItem = new CartItem();
-            newItem.setCart(cart);
-            newItem.setProduct(product);
-            newItem.setQuantity(quantity);
-            cart.getItems().add(newItem);
-            cartItemRepository.save(newItem);
+    /**
+     * Adds a variant of a product to a user's cart and holds its stock.
+     * If the product is already in the cart, it updates the quantity.
+     * @param user The user whose cart to modify.
+     * @param productId The ID of the product to add.
+     * @param variantId The ID of the variant to add, or null for the product's default variant.
+     * @param quantity The quantity of the product.
+     * @return The updated cart.
+     * @throws RuntimeException if the product or variant is not found.
+     * @throws InsufficientStockException if the stock not held by other carts is too low.
+     */
+    @Transactional(readOnly = true)
+    public CartDTO addProductToCart(User user, Long productId, Long variantId, int quantity) {
+        ProductResponseDTO product = getProduct(productId);
+        return cartSessionStore.withUserCart(user.getId(), session -> {
+            CartSession.Line existing = session.getLine(productId);
+            Long lineVariantId = existing != null && existing.variantId() != null
+                    ? existing.variantId() : resolveVariantId(product, variantId);
+            int newQuantity = (existing != null ? existing.quantity() : 0) + quantity;
+            reserveStock(user, lineVariantId, newQuantity);
+            session.put(new CartSession.Line(productId, lineVariantId, newQuantity));
+            return toDto(session, null);
+        });
+    }
+
+    /**
+     * Finds the variant a cart line is for.
+     * @param product The product added to the cart.
+     * @param variantId The requested variant, or null for the first variant, which sets the product's price and stock.
+     * @return The ID of the variant, or null if the product has no variants.
+     */
+    private Long resolveVariantId(ProductResponseDTO product, Long variantId) {
+        if (variantId == null) {
+            return product.getVariants().isEmpty() ? null : product.getVariants().get(0).id();
         }
+        return product.getVariants().stream()
+                .filter(variant -> variant.id().equals(variantId))
+                .findFirst()
+                .map(ProductResponseDTO.Variant::id)
+                .orElseThrow(() -> new RuntimeException("Variant " + variantId + " not found for product: " + product.getId()));
+    }
 
-        return cartRepository.save(cart);
+    /**
+     * Holds the stock of a cart line for the user, renewing the hold.
+     * @param user The owner of the cart.
+     * @param variantId The variant of the line, or null if the product has no variants.
+     * @param quantity The quantity of the line.
+     */
+    private void reserveStock(User user, Long variantId, int quantity) {
+        if (variantId != null) {
+            inventoryService.reserveForCart(user.getId(), variantId, quantity);
+        }
+    }
+
+    /**
+     * Retrieves the stock currently held for a user's cart.
+     * @param user The owner of the cart.
+     * @return The reservations, soonest to expire first.
+     */
+    @Transactional(readOnly = true)
+    public List<CartReservationRegistry.Reservation> getCartReservations(User user) {
+        return inventoryService.getCartReservations(user.getId());
     }
 
     /**
-     * Retrieves the cart for a specific user.
+     * Retrieves the cart entity of a specific user, for readers of the stored cart such as checkout.
+     * Changes still held in memory are written back first.
      * @param user The user whose cart to retrieve.
      * @return The user's cart.
      * @throws RuntimeException if the cart is not found.
      */
     @Transactional(readOnly = true)
     public Cart getUserCart(User user) {
+        cartSessionStore.writeBack(user.getId());
         return cartRepository.findByUserId(user.getId())
                 .orElseThrow(() -> new RuntimeException("Cart not found for user: " + user.getEmail()));
     }
 
+    /**
+     * Retrieves the cart entity of a user and locks it until the end of the current transaction, for
+     * checkouts that change the cart. Changes still held in memory are written back first.
+     * Called before any other read of the transaction, so that its snapshot starts after the write-back.
+     * @param user The user whose cart to retrieve.
+     * @return The user's cart.
+     * @throws RuntimeException if the cart is not found.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Cart lockUserCart(User user) {
+        cartSessionStore.writeBack(user.getId());
+        return cartRepository.findByUserIdForUpdate(user.getId())
+                .orElseThrow(() -> new RuntimeException("Cart not found for user: " + user.getEmail()));
+    }
+
     /**
      * Removes an item from the user's cart.
      * @param user The user whose cart to modify.
      * @param productId The ID of the product to remove.
      * @return The updated cart.
      */
-    public Cart removeItemFromCart(User user, Long productId) {
-        Cart cart = getUserCart(user);
-        boolean removed = cart.getItems().removeIf(item -> item.getProduct().getId().equals(productId));
-        if (removed) {
-            cartRepository.save(cart);
-        }
-        return cart;
+    @Transactional(readOnly = true)
+    public CartDTO removeItemFromCart(User user, Long productId) {
+        return cartSessionStore.withUserCart(user.getId(), session -> {
+            CartSession.Line removed = session.remove(productId);
+            if (removed != null && removed.variantId() != null) {
+                inventoryService.releaseCartReservation(user.getId(), removed.variantId());
+            }
+            return toDto(session, null);
+        });
     }
 
     /**
@@ -123,20 +207,22 @@ public class CartService {
      * @return The updated cart.
      * @throws RuntimeException if the product is not in the cart.
      */
-    public Cart updateCartItemQuantity(User user, Long productId, int quantity) {
+    @Transactional(readOnly = true)
+    public CartDTO updateCartItemQuantity(User user, Long productId, int quantity) {
         if (quantity <= 0) {
             return removeItemFromCart(user, productId);
         }
 
-        Cart cart = getUserCart(user);
-        CartItem item = cart.getItems().stream()
-                .filter(cartItem -> cartItem.getProduct().getId().equals(productId))
-                .findFirst()
-                .orElseThrow(() -> new RuntimeException("Product not found in cart"));
-
-        item.setQuantity(quantity);
-        cartItemRepository.save(item);
-        return cartRepository.save(cart);
+        return cartSessionStore.withUserCart(user.getId(), session -> {
+            CartSession.Line line = session.getLine(productId);
+            if (line == null) {
+                throw new RuntimeException("Product not found in cart");
+            }
+            Long variantId = line.variantId() != null ? line.variantId() : resolveVariantId(getProduct(productId), null);
+            reserveStock(user, variantId, quantity);
+            session.put(new CartSession.Line(productId, variantId, quantity));
+            return toDto(session, null);
+        });
     }
 
     /**
@@ -144,29 +230,157 @@ public class CartService {
      * @param user The user whose cart to clear.
      * @return The cleared cart.
      */
-    public Cart clearCart(User user) {
-        Cart cart = getUserCart(user);
-        cart.getItems().clear();
-        return cartRepository.save(cart);
+    @Transactional(readOnly = true)
+    public CartDTO clearCart(User user) {
+        return cartSessionStore.withUserCart(user.getId(), session -> {
+            session.clear();
+            inventoryService.releaseCartReservations(user.getId());
+            return toDto(session, null);
+        });
+    }
+
+    /**
+     * Applies a batch of line operations to the user's cart, all or none.
+     * The stock of every changed line is held before the cart changes; if a hold fails, the holds already
+     * changed are put back and the cart is left as it was.
+     * @param user The user whose cart to modify.
+     * @param operations The operations, applied in order.
+     * @param expectedVersion The version the cart must be at, or null to apply the operations unconditionally.
+     * @return The changed lines, the removed products and the new totals and version of the cart.
+     * @throws CartVersionConflictException if the cart is no longer at the expected version.
+     * @throws IllegalArgumentException if an operation is malformed.
+     * @throws InsufficientStockException if the stock for a changed line is too low.
+     */
+    @Transactional(readOnly = true)
+    public CartPatchDTO patchCart(User user, List<CartPatchRequest.Operation> operations, Long expectedVersion) {
+        Map<Long, ProductResponseDTO> products = new HashMap<>();
+        for (CartPatchRequest.Operation operation : operations) {
+            validate(operation);
+            if (operation.getOp() != CartPatchRequest.OperationType.REMOVE) {
+                products.computeIfAbsent(operation.getProductId(), this::getProduct);
+            }
+        }
+
+        return cartSessionStore.withUserCart(user.getId(), session -> {
+            if (expectedVersion != null && expectedVersion != session.getVersion()) {
+                throw new CartVersionConflictException(
+                    "Cart is at version " + session.getVersion() + ", not " + expectedVersion);
+            }
+
+            // Work out the resulting line of every product touched before changing anything.
+            Map<Long, CartSession.Line> before = new LinkedHashMap<>();
+            Map<Long, CartSession.Line> after = new LinkedHashMap<>();
+            for (CartPatchRequest.Operation operation : operations) {
+                Long productId = operation.getProductId();
+                if (!before.containsKey(productId)) {
+                    before.put(productId, session.getLine(productId));
+                    after.put(productId, session.getLine(productId));
+                }
+                CartSession.Line current = after.get(productId);
+                int quantity = switch (operation.getOp()) {
+                    case ADD -> (current != null ? current.quantity() : 0) + operation.getQuantity();
+                    case SET -> operation.getQuantity();
+                    case REMOVE -> 0;
+                };
+                if (quantity == 0) {
+                    after.put(productId, null);
+                    continue;
+                }
+                Long variantId = operation.getVariantId() == null && current != null && current.variantId() != null
+                        ? current.variantId() : resolveVariantId(products.get(productId), operation.getVariantId());
+                after.put(productId, new CartSession.Line(productId, variantId, quantity));
+            }
+            after.keySet().removeIf(productId -> Objects.equals(before.get(productId), after.get(productId)));
+
+            List<Long> moved = new ArrayList<>();
+            try {
+                for (Map.Entry<Long, CartSession.Line> change : after.entrySet()) {
+                    moveHold(user, before.get(change.getKey()), change.getValue());
+                    moved.add(change.getKey());
+                }
+            } catch (RuntimeException e) {
+                for (Long productId : moved) {
+                    try {
+                        moveHold(user, after.get(productId), before.get(productId));
+                    } catch (RuntimeException restoreFailure) {
+                        logger.warn("Could not restore stock hold of product {} for user {}: {}",
+                                productId, user.getId(), restoreFailure.getMessage());
+                    }
+                }
+                throw e;
+            }
+
+            CartPatchDTO result = new CartPatchDTO();
+            List<CartItemDTO> changedItems = new ArrayList<>();
+            List<Long> removedProductIds = new ArrayList<>();
+            after.forEach((productId, line) -> {
+                if (line == null) {
+                    session.remove(productId);
+                    removedProductIds.add(productId);
+                } else {
+                    session.put(line);
+                    changedItems.add(toItemDto(line));
+                }
+            });
+            CartDTO cart = toDto(session, null);
+            result.setVersion(cart.getVersion());
+            result.setChangedItems(changedItems);
+            result.setRemovedProductIds(removedProductIds);
+            result.setTotalQuantity(cart.getCartItems().stream().mapToInt(CartItemDTO::getQuantity).sum());
+            result.setTotalPrice(cart.getTotalPrice());
+            return result;
+        });
+    }
+
+    private static void validate(CartPatchRequest.Operation operation) {
+        if (operation == null || operation.getOp() == null || operation.getProductId() == null) {
+            throw new IllegalArgumentException("Every operation needs an op and a productId");
+        }
+        if (operation.getOp() == CartPatchRequest.OperationType.ADD && operation.getQuantity() <= 0) {
+            throw new IllegalArgumentException("ADD needs a positive quantity for product " + operation.getProductId());
+        }
+        if (operation.getOp() == CartPatchRequest.OperationType.SET && operation.getQuantity() < 0) {
+            throw new IllegalArgumentException("SET needs a quantity of zero or more for product " + operation.getProductId());
+        }
+    }
+
+    /**
+     * Moves the stock hold of a cart line from its old state to its new one.
+     * @param user The owner of the cart.
+     * @param from The old line, or null if the product was not in the cart.
+     * @param to The new line, or null if the product leaves the cart.
+     */
+    private void moveHold(User user, CartSession.Line from, CartSession.Line to) {
+        if (from != null && from.variantId() != null && (to == null || !from.variantId().equals(to.variantId()))) {
+            inventoryService.releaseCartReservation(user.getId(), from.variantId());
+        }
+        if (to != null) {
+            reserveStock(user, to.variantId(), to.quantity());
+        }
     }
 
     /**
-     * Saves a cart to the database.
+     * Saves a cart entity to the database, such as the cart emptied by a checkout.
+     * The in-memory copy of the cart moves onto the saved cart once it is committed, keeping the changes
+     * made to the copy since the cart was read.
      * @param cart The cart to save.
      * @return The saved cart.
      */
     public Cart save(Cart cart) {
-        return cartRepository.save(cart);
+        cart.setRevision(cart.getRevision() + 1);
+        Cart saved = cartRepository.save(cart);
+        cartSessionStore.writtenDirectly(saved);
+        return saved;
     }
 
     /**
-     * Alias for getUserCart method to maintain compatibility.
+     * Retrieves the cart of a user.
      * @param user The user whose cart to retrieve.
      * @return The user's cart.
      */
     @Transactional(readOnly = true)
-    public Cart getCartByUser(User user) {
-        return getUserCart(user);
+    public CartDTO getCartByUser(User user) {
+        return cartSessionStore.withUserCart(user.getId(), session -> toDto(session, null));
     }
 
     /**
@@ -175,7 +389,151 @@ public class CartService {
      * @param productId The ID of the product to remove.
      * @return The updated cart.
      */
-    public Cart removeProductFromCart(User user, Long productId) {
+    @Transactional(readOnly = true)
+    public CartDTO removeProductFromCart(User user, Long productId) {
         return removeItemFromCart(user, productId);
     }
+
+    /**
+     * Creates an empty cart for a visitor who is not logged in.
+     * @return The guest cart, with the token that identifies it.
+     */
+    public CartDTO createGuestCart() {
+        String token = cartSessionStore.createGuestCart();
+        return cartSessionStore.withGuestCart(token, session -> toDto(session, token));
+    }
+
+    /**
+     * Retrieves a guest cart.
+     * @param token The token of the guest cart.
+     * @return The guest cart.
+     * @throws com.healthstore.exception.ResourceNotFoundException if the cart does not exist or has expired.
+     */
+    @Transactional(readOnly = true)
+    public CartDTO getGuestCart(String token) {
+        return cartSessionStore.withGuestCart(token, session -> toDto(session, token));
+    }
+
+    /**
+     * Adds a product to a guest cart.
+     * If the product is already in the cart, it updates the quantity.
+     * @param token The token of the guest cart.
+     * @param productId The ID of the product to add.
+     * @param variantId The ID of the variant to add, or null for the product's default variant.
+     * @param quantity The quantity to add.
+     * @return The updated guest cart.
+     * @throws InsufficientStockException if the stock not held by carts is too low.
+     */
+    @Transactional(readOnly = true)
+    public CartDTO addProductToGuestCart(String token, Long productId, Long variantId, int quantity) {
+        return changeGuestCartItem(token, productId, variantId, quantity, true);
+    }
+
+    /**
+     * Sets the quantity of a product in a guest cart, or removes the product if the quantity is zero.
+     * @param token The token of the guest cart.
+     * @param productId The ID of the product.
+     * @param quantity The new quantity.
+     * @return The updated guest cart.
+     * @throws RuntimeException if the product is not in the cart.
+     * @throws InsufficientStockException if the stock not held by carts is too low.
+     */
+    @Transactional(readOnly = true)
+    public CartDTO updateGuestCartItem(String token, Long productId, int quantity) {
+        return changeGuestCartItem(token, productId, null, quantity, false);
+    }
+
+    /**
+     * Guest carts hold no stock; quantities are only checked against the stock not held by any cart.
+     */
+    private CartDTO changeGuestCartItem(String token, Long productId, Long variantId, int quantity, boolean add) {
+        ProductResponseDTO product = quantity > 0 ? getProduct(productId) : null;
+        return cartSessionStore.withGuestCart(token, session -> {
+            CartSession.Line existing = session.getLine(productId);
+            if (quantity <= 0) {
+                session.remove(productId);
+                return toDto(session, token);
+            }
+            if (existing == null && !add) {
+                throw new RuntimeException("Product not found in cart");
+            }
+            Long lineVariantId = existing != null && existing.variantId() != null
+                    ? existing.variantId() : resolveVariantId(product, variantId);
+            int newQuantity = add && existing != null ? existing.quantity() + quantity : quantity;
+            if (lineVariantId != null && inventoryService.getAvailableToPromise(lineVariantId) < newQuantity) {
+                throw new InsufficientStockException(
+                    String.format("Insufficient stock for variant %d. Requested: %d", lineVariantId, newQuantity));
+            }
+            session.put(new CartSession.Line(productId, lineVariantId, newQuantity));
+            return toDto(session, token);
+        });
+    }
+
+    /**
+     * Merges a guest cart into the cart of a user who just logged in, adding up the quantities.
+     * A line whose stock is no longer available is left out. The guest cart is removed.
+     * @param user The user who logged in.
+     * @param token The token of the guest cart.
+     * @return The merged cart of the user.
+     */
+    @Transactional(readOnly = true)
+    public CartDTO mergeGuestCart(User user, String token) {
+        for (CartSession.Line line : cartSessionStore.removeGuestCart(token)) {
+            try {
+                addProductToCart(user, line.productId(), line.variantId(), line.quantity());
+            } catch (RuntimeException e) {
+                logger.info("Guest cart line of product {} not merged into cart of user {}: {}",
+                        line.productId(), user.getId(), e.getMessage());
+            }
+        }
+        return getCartByUser(user);
+    }
+
+    /**
+     * Converts an in-memory cart, taking product names and prices from the product cache.
+     */
+    private CartDTO toDto(CartSession session, String guestToken) {
+        List<CartItemDTO> items = new ArrayList<>();
+        BigDecimal totalPrice = BigDecimal.ZERO;
+        for (CartSession.Line line : session.getLines()) {
+            CartItemDTO item = toItemDto(line);
+            totalPrice = totalPrice.add(BigDecimal.valueOf(item.getProductPrice()).multiply(BigDecimal.valueOf(line.quantity())));
+            items.add(item);
+        }
+        CartDTO cart = new CartDTO();
+        cart.setUserId(session.getUserId());
+        cart.setGuestToken(guestToken);
+        cart.setVersion(session.getVersion());
+        cart.setTotalPrice(totalPrice);
+        cart.setCartItems(items);
+        return cart;
+    }
+
+    private CartItemDTO toItemDto(CartSession.Line line) {
+        CartItemDTO item = new CartItemDTO();
+        item.setProductId(line.productId());
+        item.setVariantId(line.variantId());
+        item.setQuantity(line.quantity());
+        productService.getProductById(line.productId()).ifPresent(product -> {
+            item.setProductName(product.getName());
+            item.setProductPrice(unitPrice(product, line.variantId()));
+        });
+        return item;
+    }
+
+    private static double unitPrice(ProductResponseDTO product, Long variantId) {
+        if (variantId != null) {
+            for (ProductResponseDTO.Variant variant : product.getVariants()) {
+                if (variant.id().equals(variantId)) {
+                    return variant.price();
+                }
+            }
+        }
+        return product.getPrice();
+    }
+
+    private ProductResponseDTO getProduct(Long productId) {
+        return productService.getProductById(productId)
+                .orElseThrow(() -> new RuntimeException("Product not found with id: " + productId));
+    }
 }
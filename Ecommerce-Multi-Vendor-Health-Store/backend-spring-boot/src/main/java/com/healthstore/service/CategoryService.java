@@ -1,7 +1,11 @@
 package com.healthstore.service;
 
+import com.healthstore.cache.SingleFlightLoader;
+import com.healthstore.dto.CategoryDTO;
 import com.healthstore.model.Category;
 import com.healthstore.repository.CategoryRepository;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -17,10 +21,17 @@ import java.util.Optional;
 @Transactional
 public class CategoryService {
 
+    /**
+     * Cache key under which the full category list is stored in the "categories" cache.
+     */
+    public static final String ALL_CATEGORIES_KEY = "all";
+
     private final CategoryRepository categoryRepository;
+    private final SingleFlightLoader singleFlightLoader;
 
-    public CategoryService(CategoryRepository categoryRepository) {
+    public CategoryService(CategoryRepository categoryRepository, SingleFlightLoader singleFlightLoader) {
         this.categoryRepository = categoryRepository;
+        this.singleFlightLoader = singleFlightLoader;
     }
 
     /**
@@ -28,16 +39,21 @@ public class CategoryService {
      * @param category The category object to be saved.
      * @return The saved category.
      */
+    @CacheEvict(value = "categories", allEntries = true)
     public Category createCategory(Category category) {
         return categoryRepository.save(category);
     }
 
     /**
      * Retrieves all categories from the database.
+     * Concurrent cache misses share a single query. The list holds DTOs rather than entities,
+     * since it outlives the session it was read in.
      * @return A list of all categories.
      */
-    public List<Category> getAllCategories() {
-        return categoryRepository.findAll();
+    @Cacheable(value = "categories", key = "T(com.healthstore.service.CategoryService).ALL_CATEGORIES_KEY")
+    @Transactional(readOnly = true)
+    public List<CategoryDTO> getAllCategories() {
+        return singleFlightLoader.load("categories", ALL_CATEGORIES_KEY, categoryRepository::findAllCategoryDTOs);
     }
 
     /**
@@ -71,6 +87,7 @@ public class CategoryService {
      * @param categoryDetails The category details to update.
      * @return The updated category.
      */
+    @CacheEvict(value = "categories", allEntries = true)
     public Category updateCategory(Long id, Category categoryDetails) {
         return categoryRepository.findById(id).map(category -> {
             category.setName(categoryDetails.getName());
@@ -0,0 +1,200 @@
+package com.healthstore.service;
+
+import com.healthstore.config.IdempotencyProperties;
+import com.healthstore.exception.IdempotencyConflictException;
+import com.healthstore.model.IdempotencyRecord;
+import com.healthstore.repository.IdempotencyRecordRepository;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service for idempotency keys, which let clients retry a request that creates a resource without
+ * creating it twice.
+ * A request first claims its key. The claim is committed on its own, so concurrent retries see it
+ * at once; the created resource is recorded in the transaction that creates it, so a key is either
+ * completed together with its resource or not at all. A retry of a completed request gets the ID of
+ * the resource to replay instead of running again. Keys expire after a TTL and are purged periodically.
+ * <p>
+ * A claim older than the lock timeout can be taken over by a retry, since its request may have died.
+ * Each claim is identified by the time it was made, and a request only completes or releases the key
+ * while it still holds its own claim, so a request that was merely slow rolls back instead of creating
+ * a second resource.
+ */
+@Service
+public class IdempotencyService {
+
+    /**
+     * A claimed key.
+     * @param id The ID of the idempotency record.
+     * @param resourceId The ID of the resource created by an earlier request with the same key,
+     *                   or null if the request is new and must be run.
+     * @param claimedAt When the request claimed the key, which identifies its claim.
+     */
+    public record Claim(String id, Long resourceId, LocalDateTime claimedAt) {
+
+        /**
+         * @return Whether an earlier request with the same key already completed.
+         */
+        public boolean isReplay() {
+            return resourceId != null;
+        }
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyService.class);
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final EntityManager entityManager;
+    private final IdempotencyProperties properties;
+    private final ScheduledExecutorService purger = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "idempotency-purge");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public IdempotencyService(IdempotencyRecordRepository idempotencyRecordRepository,
+                              EntityManager entityManager,
+                              IdempotencyProperties properties) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.entityManager = entityManager;
+        this.properties = properties;
+    }
+
+    /**
+     * Claims an idempotency key for a request.
+     * @param scope The kind of request, such as "checkout"; keys of different scopes never collide.
+     * @param userId The ID of the user sending the request; keys of different users never collide.
+     * @param key The idempotency key sent by the client.
+     * @param fingerprint The parameters of the request, which must be the same for every retry.
+     * @return The claim, telling whether the request must be run or replayed.
+     * @throws IllegalArgumentException if the key is blank or too long
+     * @throws IdempotencyConflictException if the key was used for a different request,
+     *         or the request that claimed it is still running
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public Claim claim(String scope, Long userId, String key, String fingerprint) {
+        if (key == null || key.isBlank() || key.length() > properties.getMaxKeyLength()) {
+            throw new IllegalArgumentException(
+                "Idempotency key must be between 1 and " + properties.getMaxKeyLength() + " characters");
+        }
+        String id = hash(scope + ':' + userId + ':' + key);
+        String requestHash = hash(fingerprint);
+        // Stored with microsecond precision, and compared to the stored value to identify the claim
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+
+        Optional<IdempotencyRecord> existing = idempotencyRecordRepository.findById(id);
+        if (existing.isPresent() && existing.get().getExpiresAt().isAfter(now)) {
+            IdempotencyRecord record = existing.get();
+            if (!record.getFingerprint().equals(requestHash)) {
+                throw new IdempotencyConflictException("Idempotency key was already used for a different request");
+            }
+            if (record.getResourceId() != null) {
+                return new Claim(id, record.getResourceId(), record.getClaimedAt());
+            }
+            if (record.getClaimedAt().plus(properties.getLockTimeout()).isAfter(now)
+                    || idempotencyRecordRepository.takeOver(id, record.getClaimedAt(), now, now.plus(properties.getTtl())) == 0) {
+                throw new IdempotencyConflictException("A request with this idempotency key is still in progress");
+            }
+            logger.warn("Idempotency key {} of user {} taken over from an abandoned request", id, userId);
+            return new Claim(id, null, now);
+        }
+
+        existing.ifPresent(record -> {
+            idempotencyRecordRepository.delete(record);
+            idempotencyRecordRepository.flush();
+        });
+        IdempotencyRecord record = new IdempotencyRecord();
+        record.setId(id);
+        record.setFingerprint(requestHash);
+        record.setClaimedAt(now);
+        record.setExpiresAt(now.plus(properties.getTtl()));
+        try {
+            entityManager.persist(record);
+            entityManager.flush();
+        } catch (PersistenceException e) {
+            // A concurrent retry inserted the same key first.
+            throw new IdempotencyConflictException("A request with this idempotency key is still in progress", e);
+        }
+        return new Claim(id, null, now);
+    }
+
+    /**
+     * Records the resource created for a claimed key, in the transaction that creates it.
+     * @param claim The claim of the request.
+     * @param resourceId The ID of the created resource.
+     * @throws IdempotencyConflictException if a retry took the key over, in which case the transaction
+     *         must roll back so that the retry's resource is the only one
+     */
+    @Transactional
+    public void complete(Claim claim, Long resourceId) {
+        if (idempotencyRecordRepository.complete(claim.id(), claim.claimedAt(), resourceId) == 0) {
+            throw new IdempotencyConflictException(
+                "The idempotency key was taken over by a retry while this request was running");
+        }
+    }
+
+    /**
+     * Drops the claim of a request that failed, so that a retry with the same key runs it again.
+     * A claim taken over by a retry is left to the retry.
+     * @param claim The claim of the request.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void release(Claim claim) {
+        idempotencyRecordRepository.deleteUncompleted(claim.id(), claim.claimedAt());
+    }
+
+    /**
+     * Starts purging expired keys every purge interval.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void startPurging() {
+        long interval = properties.getPurgeInterval().toMillis();
+        purger.scheduleWithFixedDelay(this::purgeExpired, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Deletes the keys whose TTL has passed.
+     */
+    void purgeExpired() {
+        try {
+            int deleted = idempotencyRecordRepository.deleteExpired(LocalDateTime.now());
+            if (deleted > 0) {
+                logger.debug("Purged {} expired idempotency keys", deleted);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Failed to purge expired idempotency keys", e);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        purger.shutdownNow();
+    }
+
+    private static String hash(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
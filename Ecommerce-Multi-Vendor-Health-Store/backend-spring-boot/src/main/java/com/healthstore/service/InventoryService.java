@@ -1,35 +1,70 @@
 package com.healthstore.service;
 
+import com.healthstore.event.StockChangedEvent;
 import com.healthstore.exception.InsufficientStockException;
 import com.healthstore.exception.ResourceNotFoundException;
+import com.healthstore.inventory.CartReservationRegistry;
+import com.healthstore.inventory.HotStockLedger;
+import com.healthstore.inventory.LowStockMonitor;
 import com.healthstore.model.ProductVariant;
+import com.healthstore.repository.ProductRepository;
 import com.healthstore.repository.ProductVariantRepository;
+import com.healthstore.repository.ProductVariantStockRepository;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.OptionalInt;
+import java.util.TreeMap;
 
 /**
  * Service for managing inventory operations including stock checks and updates.
+ * Stock is taken and returned with conditional update statements rather than read-modify-write,
+ * so concurrent checkouts of the same variant can neither oversell it nor lose each other's updates.
+ * Variants in hot mode are served from the in-memory {@link HotStockLedger} instead.
+ * Stock put into a cart is soft-reserved for the cart's owner through the {@link CartReservationRegistry}.
+ * Every stock change publishes a {@link StockChangedEvent}, from which the {@link LowStockMonitor} sends
+ * low-stock alerts in the background.
  */
 @Service
 @Transactional
 public class InventoryService {
 
-    private static final int LOW_STOCK_THRESHOLD = 10; // Threshold for low stock alerts
-    private static final int CRITICAL_STOCK_THRESHOLD = 3; // Threshold for critical stock alerts
+    private static final Logger logger = LoggerFactory.getLogger(InventoryService.class);
 
     private final ProductVariantRepository productVariantRepository;
-    private final NotificationService notificationService;
+    private final ProductRepository productRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final EntityManager entityManager;
+    private final HotStockLedger hotStockLedger;
+    private final CartReservationRegistry cartReservations;
 
     @Autowired
     public InventoryService(ProductVariantRepository productVariantRepository,
-                          NotificationService notificationService) {
+                          ProductRepository productRepository,
+                          ApplicationEventPublisher eventPublisher,
+                          EntityManager entityManager,
+                          HotStockLedger hotStockLedger,
+                          CartReservationRegistry cartReservations) {
         this.productVariantRepository = productVariantRepository;
-        this.notificationService = notificationService;
+        this.productRepository = productRepository;
+        this.eventPublisher = eventPublisher;
+        this.entityManager = entityManager;
+        this.hotStockLedger = hotStockLedger;
+        this.cartReservations = cartReservations;
     }
 
     /**
@@ -40,6 +75,11 @@ public class InventoryService {
      * @return true if sufficient stock is available, false otherwise
      */
     public boolean isInStock(Long variantId, int quantity) {
+        OptionalInt hotStock = hotStockLedger.findAvailable(variantId);
+        if (hotStock.isPresent()) {
+            return hotStock.getAsInt() >= quantity;
+        }
+        
         ProductVariant variant = productVariantRepository.findById(variantId)
                 .orElseThrow(() -> new ResourceNotFoundException("Product variant not found with id: " + variantId));
         
@@ -48,26 +88,46 @@ public class InventoryService {
 
     /**
      * Reduces the stock level of a product variant.
+     * The stock is checked and reduced by a single conditional update, so the reduction either
+     * fully succeeds or leaves the stock untouched, whatever other checkouts run concurrently.
      *
      * @param variantId The ID of the product variant
      * @param quantity The quantity to reduce
      * @throws InsufficientStockException if there is not enough stock available
      */
     public void reduceStock(Long variantId, int quantity) {
-        ProductVariant variant = productVariantRepository.findById(variantId)
-                .orElseThrow(() -> new ResourceNotFoundException("Product variant not found with id: " + variantId));
+        takeStock(variantId, quantity, 0);
+    }
+
+    /**
+     * Takes stock of a product variant, leaving at least the given quantity for others.
+     *
+     * @param variantId The ID of the product variant
+     * @param quantity The quantity to take
+     * @param held The quantity to leave over, such as stock held by the carts of other users
+     * @throws InsufficientStockException if there is not enough stock available
+     */
+    private void takeStock(Long variantId, int quantity, int held) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be greater than zero");
+        }
         
-        if (variant.getStockQuantity() < quantity) {
-            throw new InsufficientStockException(
-                String.format("Insufficient stock for variant %d. Requested: %d, Available: %d",
-                    variantId, quantity, variant.getStockQuantity()));
+        // Cart holds are not applied to hot variants, whose stock goes to whoever checks out first.
+        HotStockLedger.Reservation reservation = hotStockLedger.reserve(variantId, quantity);
+        if (reservation == HotStockLedger.Reservation.INSUFFICIENT) {
+            throw hotInsufficientStock(variantId, quantity);
+        }
+        if (reservation == HotStockLedger.Reservation.RESERVED) {
+            eventPublisher.publishEvent(new StockChangedEvent(variantId));
+            return;
         }
         
-        variant.setStockQuantity(variant.getStockQuantity() - quantity);
-        productVariantRepository.save(variant);
+        if (productVariantRepository.decrementStock(variantId, quantity, held) == 0) {
+            throw insufficientStock(variantId, quantity, held);
+        }
         
-        // Check if stock is low after reduction
-        checkAndNotifyLowStock(variant);
+        adjustProductStock(reloadVariant(variantId), -quantity);
+        eventPublisher.publishEvent(new StockChangedEvent(variantId));
     }
 
     /**
@@ -81,11 +141,18 @@ public class InventoryService {
             throw new IllegalArgumentException("Quantity must be greater than zero");
         }
         
-        ProductVariant variant = productVariantRepository.findById(variantId)
-                .orElseThrow(() -> new ResourceNotFoundException("Product variant not found with id: " + variantId));
+        if (hotStockLedger.isHot(variantId)) {
+            hotStockLedger.release(variantId, quantity);
+            eventPublisher.publishEvent(new StockChangedEvent(variantId));
+            return;
+        }
         
-        variant.setStockQuantity(variant.getStockQuantity() + quantity);
-        productVariantRepository.save(variant);
+        if (productVariantRepository.adjustStock(variantId, quantity) == 0) {
+            throw new ResourceNotFoundException("Product variant not found with id: " + variantId);
+        }
+        
+        adjustProductStock(reloadVariant(variantId), quantity);
+        eventPublisher.publishEvent(new StockChangedEvent(variantId));
     }
 
     /**
@@ -99,46 +166,116 @@ public class InventoryService {
             throw new IllegalArgumentException("Stock level cannot be negative");
         }
         
-        ProductVariant variant = productVariantRepository.findById(variantId)
-                .orElseThrow(() -> new ResourceNotFoundException("Product variant not found with id: " + variantId));
+        // A hot variant is switched off before anything is written, which writes its journal back, and
+        // takes the new level as its in-memory stock once switched back on after the transaction. Switching
+        // it on within the transaction would write the journal back while this transaction holds the rows.
+        boolean hot = hotStockLedger.isHot(variantId);
+        if (hot) {
+            hotStockLedger.disable(variantId);
+        }
+        
+        ProductVariant variant = reloadVariant(variantId);
         
+        int delta = newStock - variant.getStockQuantity();
         variant.setStockQuantity(newStock);
         productVariantRepository.save(variant);
+        adjustProductStock(variant, delta);
+        eventPublisher.publishEvent(new StockChangedEvent(variantId));
         
-        // Check if stock is low after update
-        checkAndNotifyLowStock(variant);
+        if (hot) {
+            afterCompletion(() -> hotStockLedger.enable(variantId));
+        }
     }
 
     /**
-     * Scheduled task to check for low stock items and send notifications.
-     * Runs every hour.
+     * Runs an action once the current transaction has committed or rolled back, or at once without one.
+     * A failure of the action is logged, since the transaction outcome cannot change any more.
+     *
+     * @param action The action
      */
-    @Scheduled(fixedRate = 3600000) // 1 hour in milliseconds
-    public void checkLowStockItems() {
-        List<ProductVariant> lowStockItems = productVariantRepository.findByStockQuantityLessThanEqual(LOW_STOCK_THRESHOLD);
-        
-        for (ProductVariant variant : lowStockItems) {
-            checkAndNotifyLowStock(variant);
+    private void afterCompletion(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
         }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                try {
+                    action.run();
+                } catch (RuntimeException e) {
+                    logger.error("Failed to run action after transaction completion", e);
+                }
+            }
+        });
     }
 
     /**
-     * Checks if a variant is low or critical on stock and sends appropriate notifications.
+     * Explains why a conditional stock reduction did not update anything.
      *
-     * @param variant The product variant to check
+     * @param variantId The ID of the product variant
+     * @param quantity The requested quantity
+     * @param held The quantity that had to be left over for others
+     * @return The exception to throw
+     * @throws ResourceNotFoundException if the variant does not exist
      */
-    private void checkAndNotifyLowStock(ProductVariant variant) {
-        int currentStock = variant.getStockQuantity();
-        
-        if (currentStock <= 0) {
-            // Out of stock
-            notificationService.sendOutOfStockNotification(variant);
-        } else if (currentStock <= CRITICAL_STOCK_THRESHOLD) {
-            // Critical stock level
-            notificationService.sendLowStockAlert(variant, "CRITICAL");
-        } else if (currentStock <= LOW_STOCK_THRESHOLD) {
-            // Low stock level
-            notificationService.sendLowStockAlert(variant, "LOW");
+    private InsufficientStockException insufficientStock(Long variantId, int quantity, int held) {
+        int available = productVariantRepository.findStockQuantityById(variantId)
+                .orElseThrow(() -> new ResourceNotFoundException("Product variant not found with id: " + variantId))
+                - held;
+        return new InsufficientStockException(
+            String.format("Insufficient stock for variant %d. Requested: %d, Available: %d",
+                variantId, quantity, available));
+    }
+
+    /**
+     * Explains why a hot variant reservation was refused.
+     *
+     * @param variantId The ID of the hot product variant
+     * @param quantity The requested quantity
+     * @return The exception to throw
+     */
+    private InsufficientStockException hotInsufficientStock(Long variantId, int quantity) {
+        return new InsufficientStockException(
+            String.format("Insufficient stock for variant %d. Requested: %d, Available: %d",
+                variantId, quantity, hotStockLedger.findAvailable(variantId).orElse(0)));
+    }
+
+    /**
+     * Loads a product variant after its stock was changed by an update statement,
+     * which bypasses the copy already held by the persistence context.
+     *
+     * @param variantId The ID of the product variant
+     * @return The product variant with its current stock
+     */
+    private ProductVariant reloadVariant(Long variantId) {
+        ProductVariant variant = productVariantRepository.findById(variantId)
+                .orElseThrow(() -> new ResourceNotFoundException("Product variant not found with id: " + variantId));
+        entityManager.refresh(variant);
+        return variant;
+    }
+
+    /**
+     * Applies a variant stock change to the total stock summarized on its product.
+     *
+     * @param variant The product variant whose stock changed
+     * @param delta The change in stock
+     */
+    private void adjustProductStock(ProductVariant variant, int delta) {
+        if (delta != 0 && variant.getProduct() != null) {
+            productRepository.adjustTotalStock(variant.getProduct().getId(), delta);
+        }
+    }
+
+    /**
+     * Computes the price and stock summary of products that do not have one yet,
+     * such as products created before the summary columns existed.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initializeProductSummaries() {
+        int updated = productRepository.refreshMissingSummaries();
+        if (updated > 0) {
+            logger.info("Initialized price and stock summary of {} products", updated);
         }
     }
 
@@ -149,6 +286,10 @@ public class InventoryService {
      * @return The current stock quantity
      */
     public int getStockLevel(Long variantId) {
+        OptionalInt hotStock = hotStockLedger.findAvailable(variantId);
+        if (hotStock.isPresent()) {
+            return hotStock.getAsInt();
+        }
         return productVariantRepository.findById(variantId)
                 .map(ProductVariant::getStockQuantity)
                 .orElseThrow(() -> new ResourceNotFoundException("Product variant not found with id: " + variantId));
@@ -156,32 +297,240 @@ public class InventoryService {
 
     /**
      * Checks if multiple product variants are in stock.
+     * The stock of all variants that are not hot is read with a single query.
      *
      * @param variantQuantities A map of variant IDs to quantities
      * @return true if all variants have sufficient stock, false otherwise
+     * @throws ResourceNotFoundException if any variant does not exist
      */
     public boolean areAllInStock(Map<Long, Integer> variantQuantities) {
+        Map<Long, Integer> stockLevels = getStockLevels(variantQuantities.keySet());
         return variantQuantities.entrySet().stream()
-                .allMatch(entry -> isInStock(entry.getKey(), entry.getValue()));
+                .allMatch(entry -> stockLevels.get(entry.getKey()) >= entry.getValue());
+    }
+
+    /**
+     * Gets the current stock level of several product variants.
+     * Hot variants are read from the ledger and all others with a single query.
+     *
+     * @param variantIds The IDs of the product variants
+     * @return The stock quantity by variant ID
+     * @throws ResourceNotFoundException if any variant does not exist
+     */
+    public Map<Long, Integer> getStockLevels(Collection<Long> variantIds) {
+        Map<Long, Integer> stockLevels = new HashMap<>();
+        List<Long> stored = new ArrayList<>();
+        for (Long variantId : variantIds) {
+            OptionalInt hotStock = hotStockLedger.findAvailable(variantId);
+            if (hotStock.isPresent()) {
+                stockLevels.put(variantId, hotStock.getAsInt());
+            } else {
+                stored.add(variantId);
+            }
+        }
+        if (!stored.isEmpty()) {
+            for (Object[] row : productVariantRepository.findStockQuantitiesByIdIn(stored)) {
+                stockLevels.put((Long) row[0], (Integer) row[1]);
+            }
+        }
+        for (Long variantId : variantIds) {
+            if (!stockLevels.containsKey(variantId)) {
+                throw new ResourceNotFoundException("Product variant not found with id: " + variantId);
+            }
+        }
+        return stockLevels;
     }
 
     /**
      * Reduces stock for multiple product variants in a single transaction.
+     * Variants are updated in ID order so that concurrent bulk reductions lock rows in the same order,
+     * and a variant running short rolls back the reductions already made.
      *
      * @param variantQuantities A map of variant IDs to quantities to reduce
      * @throws InsufficientStockException if any variant has insufficient stock
      */
     public void reduceStockBulk(Map<Long, Integer> variantQuantities) {
-        // First, verify all items are in stock
-        for (Map.Entry<Long, Integer> entry : variantQuantities.entrySet()) {
-            if (!isInStock(entry.getKey(), entry.getValue())) {
-                throw new InsufficientStockException("Insufficient stock for variant: " + entry.getKey());
+        takeStockBatch(variantQuantities, null);
+    }
+
+    /**
+     * Takes the stock of a user's cart at checkout, leaving alone the stock held by other carts.
+     * The whole cart costs a constant number of statements: one read of the variants, one batch
+     * of conditional stock updates and one batch of product total updates, whatever its size.
+     * The user's own holds are released once the transaction commits.
+     *
+     * @param userId The ID of the user checking out
+     * @param variantQuantities A map of variant IDs to quantities to reduce
+     * @return The product variants of the cart by ID, for building the order without reading them again
+     * @throws InsufficientStockException if any variant has insufficient stock
+     * @throws ResourceNotFoundException if any variant does not exist
+     */
+    public Map<Long, ProductVariant> reduceStockForCart(Long userId, Map<Long, Integer> variantQuantities) {
+        Map<Long, ProductVariant> variants = takeStockBatch(variantQuantities, userId);
+        
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cartReservations.releaseAll(userId);
+                }
+            });
+        } else {
+            cartReservations.releaseAll(userId);
+        }
+        return variants;
+    }
+
+    /**
+     * Loads several product variants with one query and takes their stock with one batch of
+     * conditional updates, in ID order. Hot variants are reserved through the ledger instead.
+     * A variant running short fails the call, and the transaction rolls back whatever was taken.
+     * So does a batch whose update counts do not say whether each variant's stock was taken.
+     *
+     * @param variantQuantities A map of variant IDs to quantities to take
+     * @param userId The ID of the user whose cart holds may be used, or null to ignore cart holds
+     * @return The loaded product variants by ID, carrying the stock read before it was taken
+     * @throws InsufficientStockException if any variant has insufficient stock
+     * @throws ResourceNotFoundException if any variant does not exist
+     * @throws IllegalStateException if the driver did not report an update count for every variant
+     */
+    private Map<Long, ProductVariant> takeStockBatch(Map<Long, Integer> variantQuantities, Long userId) {
+        if (variantQuantities.values().stream().anyMatch(quantity -> quantity == null || quantity <= 0)) {
+            throw new IllegalArgumentException("Quantity must be greater than zero");
+        }
+        
+        Map<Long, ProductVariant> variants = new HashMap<>();
+        for (ProductVariant variant : productVariantRepository.findAllById(variantQuantities.keySet())) {
+            variants.put(variant.getId(), variant);
+        }
+        
+        List<ProductVariantStockRepository.StockDecrement> decrements = new ArrayList<>();
+        List<Long> hotVariantIds = new ArrayList<>();
+        for (Map.Entry<Long, Integer> entry : new TreeMap<>(variantQuantities).entrySet()) {
+            Long variantId = entry.getKey();
+            int quantity = entry.getValue();
+            if (!variants.containsKey(variantId)) {
+                throw new ResourceNotFoundException("Product variant not found with id: " + variantId);
+            }
+            // Cart holds are not applied to hot variants, whose stock goes to whoever checks out first.
+            HotStockLedger.Reservation reservation = hotStockLedger.reserve(variantId, quantity);
+            if (reservation == HotStockLedger.Reservation.INSUFFICIENT) {
+                throw hotInsufficientStock(variantId, quantity);
+            }
+            if (reservation == HotStockLedger.Reservation.RESERVED) {
+                hotVariantIds.add(variantId);
+            } else {
+                int held = userId != null ? cartReservations.getHeldByOthers(variantId, userId) : 0;
+                decrements.add(new ProductVariantStockRepository.StockDecrement(variantId, quantity, held));
             }
         }
+        if (!hotVariantIds.isEmpty()) {
+            eventPublisher.publishEvent(new StockChangedEvent(hotVariantIds));
+        }
+        if (decrements.isEmpty()) {
+            return variants;
+        }
         
-        // Then process the stock reduction
-        for (Map.Entry<Long, Integer> entry : variantQuantities.entrySet()) {
-            reduceStock(entry.getKey(), entry.getValue());
+        int[] updateCounts = productVariantRepository.decrementStockBatch(decrements);
+        if (updateCounts.length != decrements.size()) {
+            throw new IllegalStateException(String.format(
+                "Stock batch of %d updates reported %d update counts", decrements.size(), updateCounts.length));
         }
+        for (int i = 0; i < decrements.size(); i++) {
+            if (updateCounts[i] == 1) {
+                continue;
+            }
+            ProductVariantStockRepository.StockDecrement decrement = decrements.get(i);
+            if (updateCounts[i] == 0) {
+                throw insufficientStock(decrement.variantId(), decrement.quantity(), decrement.held());
+            }
+            // Statement.SUCCESS_NO_INFO or any other count leaves unknown whether the stock was taken,
+            // so the checkout fails and the transaction rolls back every reduction of the batch.
+            throw new IllegalStateException(String.format(
+                "Unknown update count %d taking stock of variant %d", updateCounts[i], decrement.variantId()));
+        }
+        
+        Map<Long, Integer> productDeltas = new HashMap<>();
+        for (ProductVariantStockRepository.StockDecrement decrement : decrements) {
+            ProductVariant variant = variants.get(decrement.variantId());
+            if (variant.getProduct() != null) {
+                productDeltas.merge(variant.getProduct().getId(), -decrement.quantity(), Integer::sum);
+            }
+        }
+        productVariantRepository.adjustTotalStockBatch(productDeltas);
+        
+        eventPublisher.publishEvent(new StockChangedEvent(
+            decrements.stream().map(ProductVariantStockRepository.StockDecrement::variantId).toList()));
+        return variants;
+    }
+
+    /**
+     * Holds stock of a product variant for a user's cart, replacing any quantity held so far.
+     * The hold lasts for the reservation TTL and is renewed by every call.
+     *
+     * @param userId The ID of the user
+     * @param variantId The ID of the product variant
+     * @param quantity The quantity in the cart
+     * @return The reservation
+     * @throws InsufficientStockException if the stock not held by other carts is too low
+     */
+    public CartReservationRegistry.Reservation reserveForCart(Long userId, Long variantId, int quantity) {
+        int stock = getStockLevel(variantId);
+        CartReservationRegistry.Reservation reservation = cartReservations.hold(userId, variantId, quantity, stock);
+        if (reservation == null) {
+            throw new InsufficientStockException(
+                String.format("Insufficient stock for variant %d. Requested: %d, Available: %d",
+                    variantId, quantity, Math.max(0, stock - cartReservations.getHeldByOthers(variantId, userId))));
+        }
+        return reservation;
+    }
+
+    /**
+     * Releases the stock held for a user's cart on a product variant.
+     *
+     * @param userId The ID of the user
+     * @param variantId The ID of the product variant
+     */
+    public void releaseCartReservation(Long userId, Long variantId) {
+        cartReservations.release(userId, variantId);
+    }
+
+    /**
+     * Releases all stock held for a user's cart.
+     *
+     * @param userId The ID of the user
+     */
+    public void releaseCartReservations(Long userId) {
+        cartReservations.releaseAll(userId);
+    }
+
+    /**
+     * Gets the stock currently held for a user's cart.
+     *
+     * @param userId The ID of the user
+     * @return The reservations, soonest to expire first
+     */
+    public List<CartReservationRegistry.Reservation> getCartReservations(Long userId) {
+        return cartReservations.getReservations(userId);
+    }
+
+    /**
+     * Gets the quantity of a product variant held by all carts.
+     *
+     * @param variantId The ID of the product variant
+     * @return The held quantity
+     */
+    public int getReservedQuantity(Long variantId) {
+        return cartReservations.getHeld(variantId);
+    }
+
+    /**
+     * Gets the stock of a product variant that is not held by any cart.
+     *
+     * @param variantId The ID of the product variant
+     * @return The stock available to new carts
+     */
+    public int getAvailableToPromise(Long variantId) {
+        return Math.max(0, getStockLevel(variantId) - cartReservations.getHeld(variantId));
     }
 }
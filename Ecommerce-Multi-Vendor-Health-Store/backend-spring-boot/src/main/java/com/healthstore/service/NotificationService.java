@@ -1,5 +1,6 @@
 package com.healthstore.service;
 
+import com.healthstore.model.Order;
 import com.healthstore.model.ProductVariant;
 
 /**
@@ -28,4 +29,18 @@ public interface NotificationService {
      * @param variant The product variant that is back in stock
      */
     void sendBackInStockNotification(ProductVariant variant);
+    
+    /**
+     * Tells a customer that their order was received.
+     *
+     * @param order The placed order, with its user and items loaded
+     */
+    void sendOrderPlacedNotification(Order order);
+    
+    /**
+     * Alerts the store admins to a newly placed order.
+     *
+     * @param order The placed order, with its user and items loaded
+     */
+    void sendNewOrderAlert(Order order);
 }
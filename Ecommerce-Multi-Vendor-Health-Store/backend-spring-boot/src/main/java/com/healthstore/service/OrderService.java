@@ -1,15 +1,19 @@
 package com.healthstore.service;
 
+import com.healthstore.dto.CursorPageDTO;
 import com.healthstore.exception.InsufficientStockException;
 import com.healthstore.exception.ResourceNotFoundException;
 import com.healthstore.model.*;
 import com.healthstore.repository.OrderRepository;
-import com.healthstore.repository.ProductVariantRepository;
+import com.healthstore.util.BusinessKeyGenerator;
+import com.healthstore.util.ScrollCursor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -27,12 +31,17 @@ public class OrderService {
 
     private static final Logger logger = LoggerFactory.getLogger(OrderService.class);
 
+    private static final Set<String> SCROLL_PROPERTIES = Set.of("orderDate", "totalAmount");
+    private static final Sort DEFAULT_SCROLL_SORT = Sort.by(Sort.Direction.DESC, "orderDate");
+    private static final String ORDER_NUMBER_PREFIX = "ORD-";
+
     private final OrderRepository orderRepository;
     private final CartService cartService;
     private final ProductService productService;
     private final UserService userService;
     private final InventoryService inventoryService;
-    private final ProductVariantRepository productVariantRepository;
+    private final IdempotencyService idempotencyService;
+    private final BusinessKeyGenerator businessKeyGenerator;
 
     @Autowired
     public OrderService(OrderRepository orderRepository, 
@@ -40,13 +49,15 @@ public class OrderService {
                        ProductService productService,
                        UserService userService,
                        InventoryService inventoryService,
-                       ProductVariantRepository productVariantRepository) {
+                       IdempotencyService idempotencyService,
+                       BusinessKeyGenerator businessKeyGenerator) {
         this.orderRepository = orderRepository;
         this.cartService = cartService;
         this.productService = productService;
         this.userService = userService;
         this.inventoryService = inventoryService;
-        this.productVariantRepository = productVariantRepository;
+        this.idempotencyService = idempotencyService;
+        this.businessKeyGenerator = businessKeyGenerator;
     }
 
     /**
@@ -68,26 +79,42 @@ public class OrderService {
      */
     @Transactional
     public Order createOrderFromCart(User user, Address shippingAddress) {
-        Cart cart = cartService.getUserCart(user);
+        return createOrderFromCart(user, shippingAddress, null);
+    }
+
+    /**
+     * Creates a new order from a user's cart for a request sent with an idempotency key.
+     * The order is recorded as the outcome of the key in the same transaction, so a retry
+     * with the same key finds either the order or nothing.
+     * @param user The user placing the order.
+     * @param shippingAddress The shipping address for the order.
+     * @param claim The claimed idempotency key of the request, or null if it was sent without one.
+     * @return The newly created Order.
+     * @throws InsufficientStockException if any product variant is out of stock
+     * @throws ResourceNotFoundException if any resource is not found
+     */
+    @Transactional
+    public Order createOrderFromCart(User user, Address shippingAddress, IdempotencyService.Claim claim) {
+        Cart cart = cartService.lockUserCart(user);
 
         if (cart.getCartItems().isEmpty()) {
             throw new IllegalArgumentException("Cannot create an order from an empty cart.");
         }
 
-        // First, validate all items are in stock
+        // First, collect the quantity of each variant
         Map<Long, Integer> variantQuantities = new HashMap<>();
         for (CartItem cartItem : cart.getCartItems()) {
             if (cartItem.getProductVariant() == null) {
                 throw new IllegalStateException("Cart item is missing product variant information");
             }
-            variantQuantities.put(cartItem.getProductVariant().getId(), cartItem.getQuantity());
+            variantQuantities.merge(cartItem.getProductVariant().getId(), cartItem.getQuantity(), Integer::sum);
         }
 
         try {
-            // Check if all items are in stock (throws InsufficientStockException if not)
-            if (!inventoryService.areAllInStock(variantQuantities)) {
-                throw new InsufficientStockException("One or more items are out of stock");
-            }
+            // Load and take the stock of every item with one read and one batch of conditional updates,
+            // leaving the stock held by other carts; throws InsufficientStockException and rolls back
+            // the whole order if any item has run out
+            Map<Long, ProductVariant> variants = inventoryService.reduceStockForCart(user.getId(), variantQuantities);
 
             // Create the order
             Order order = new Order();
@@ -101,8 +128,7 @@ public class OrderService {
             
             // Process each cart item
             for (CartItem cartItem : cart.getCartItems()) {
-                ProductVariant variant = productVariantRepository.findById(cartItem.getProductVariant().getId())
-                        .orElseThrow(() -> new ResourceNotFoundException("Product variant not found: " + cartItem.getProductVariant().getId()));
+                ProductVariant variant = variants.get(cartItem.getProductVariant().getId());
                 
                 int quantity = cartItem.getQuantity();
                 BigDecimal itemPrice = BigDecimal.valueOf(variant.getPrice());
@@ -111,6 +137,7 @@ public class OrderService {
                 // Create order item
                 OrderItem orderItem = new OrderItem();
                 orderItem.setOrder(order);
+                orderItem.setProduct(variant.getProduct());
                 orderItem.setProductVariant(variant);
                 orderItem.setQuantity(quantity);
                 orderItem.setPriceAtPurchase(itemPrice);
@@ -118,9 +145,6 @@ public class OrderService {
                 
                 order.getOrderItems().add(orderItem);
                 totalAmount = totalAmount.add(itemTotal);
-                
-                // Update inventory (will throw InsufficientStockException if stock is not available)
-                inventoryService.reduceStock(variant.getId(), quantity);
             }
 
             order.setTotalAmount(totalAmount);
@@ -129,7 +153,11 @@ public class OrderService {
             cart.getCartItems().clear();
             cartService.save(cart);
 
-            return orderRepository.save(order);
+            Order savedOrder = orderRepository.save(order);
+            if (claim != null) {
+                idempotencyService.complete(claim, savedOrder.getId());
+            }
+            return savedOrder;
             
         } catch (Exception e) {
             logger.error("Error creating order: " + e.getMessage(), e);
@@ -139,10 +167,11 @@ public class OrderService {
 
     /**
      * Generates a unique order number.
+     * Order numbers are time-ordered, so they are unique across nodes and grow with the index on them.
      * @return A unique order number string.
      */
-    private String generateOrderNumber() {
-        return "ORD-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+    public String generateOrderNumber() {
+        return businessKeyGenerator.next(ORDER_NUMBER_PREFIX);
     }
 
     /**
@@ -163,7 +192,17 @@ public class OrderService {
      */
     @Transactional(readOnly = true)
     public Optional<Order> getOrderById(Long orderId) {
-        return orderRepository.findById(orderId);
+        return orderRepository.findDetailById(orderId);
+    }
+
+    /**
+     * Finds an order with everything needed to render the order emails.
+     * @param orderId The ID of the order to find.
+     * @return An Optional containing the order if found.
+     */
+    @Transactional(readOnly = true)
+    public Optional<Order> getOrderForEmail(Long orderId) {
+        return orderRepository.findForEmailById(orderId);
     }
 
     /**
@@ -175,7 +214,7 @@ public class OrderService {
      */
     @Transactional
     public Order updateOrderStatus(Long orderId, Order.OrderStatus newStatus) {
-        Order order = orderRepository.findById(orderId)
+        Order order = orderRepository.findDetailById(orderId)
                 .orElseThrow(() -> new RuntimeException("Order not found with id: " + orderId));
         
         order.setStatus(newStatus);
@@ -204,6 +243,10 @@ public class OrderService {
      */
     private void restoreProductStock(Order order) {
         for (OrderItem item : order.getOrderItems()) {
+            if (item.getProductVariant() != null) {
+                inventoryService.increaseStock(item.getProductVariant().getId(), item.getQuantity());
+                continue;
+            }
             Product product = item.getProduct();
             product.setStock(product.getStock() + item.getQuantity());
             productService.save(product);
@@ -220,6 +263,30 @@ public class OrderService {
         return orderRepository.findAll(pageable);
     }
     
+    /**
+     * Reads a window of all orders with keyset pagination, without a count query.
+     * @param cursor The cursor returned with the previous window, or null for the first window.
+     * @param sort The sort of the first window, on orderDate or totalAmount (default: newest first).
+     * @param size The number of orders per window.
+     * @return A window of orders with the cursor of the next window.
+     */
+    @Transactional(readOnly = true)
+    public CursorPageDTO<Order> scrollAllOrders(String cursor, Sort sort, int size) {
+        ScrollCursor.Request request = ScrollCursor.resolve(cursor, sort, DEFAULT_SCROLL_SORT, SCROLL_PROPERTIES, size);
+        return ScrollCursor.toPage(
+                orderRepository.findWindowBy(request.position(), request.sort(), request.limit()), request);
+    }
+
+    /**
+     * Finds a page of all orders without counting the total number of orders.
+     * @param pageable The pagination information.
+     * @return A slice of orders.
+     */
+    @Transactional(readOnly = true)
+    public Slice<Order> findAllOrdersSlice(Pageable pageable) {
+        return orderRepository.findSliceBy(pageable);
+    }
+    
     /**
      * Updates the payment information for an order.
      * This is typically called from a webhook when a payment status changes.
@@ -288,4 +355,30 @@ public class OrderService {
     public Page<Order> findOrdersByUser(User user, Pageable pageable) {
         return orderRepository.findByUserId(user.getId(), pageable);
     }
+
+    /**
+     * Reads a window of a user's orders with keyset pagination, without a count query.
+     * @param user The user whose orders to read.
+     * @param cursor The cursor returned with the previous window, or null for the first window.
+     * @param sort The sort of the first window, on orderDate or totalAmount (default: newest first).
+     * @param size The number of orders per window.
+     * @return A window of orders with the cursor of the next window.
+     */
+    @Transactional(readOnly = true)
+    public CursorPageDTO<Order> scrollOrdersByUser(User user, String cursor, Sort sort, int size) {
+        ScrollCursor.Request request = ScrollCursor.resolve(cursor, sort, DEFAULT_SCROLL_SORT, SCROLL_PROPERTIES, size);
+        return ScrollCursor.toPage(orderRepository.findWindowByUserId(
+                user.getId(), request.position(), request.sort(), request.limit()), request);
+    }
+
+    /**
+     * Finds a page of a user's orders without counting the total number of orders.
+     * @param user The user whose orders to find.
+     * @param pageable The pagination information.
+     * @return A slice of orders.
+     */
+    @Transactional(readOnly = true)
+    public Slice<Order> findOrdersByUserSlice(User user, Pageable pageable) {
+        return orderRepository.findSliceByUserId(user.getId(), pageable);
+    }
 }
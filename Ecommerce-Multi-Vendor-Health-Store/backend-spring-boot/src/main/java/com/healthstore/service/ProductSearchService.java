@@ -0,0 +1,165 @@
+package com.healthstore.service;
+
+import com.healthstore.dto.FacetValueDTO;
+import com.healthstore.dto.FacetedSearchResponseDTO;
+import com.healthstore.dto.ProductResponseDTO;
+import com.healthstore.dto.SearchFilterDTO;
+import com.healthstore.search.FacetFilter;
+import com.healthstore.search.FacetedHits;
+import com.healthstore.search.ProductDocument;
+import com.healthstore.search.ProductSearchIndex;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Service class for product search.
+ * Queries are answered from the in-memory {@link ProductSearchIndex}; until the index
+ * has been built, they fall back to the database queries in {@link ProductService}.
+ */
+@Service
+public class ProductSearchService {
+
+    private final ProductSearchIndex searchIndex;
+    private final ProductService productService;
+
+    public ProductSearchService(ProductSearchIndex searchIndex, ProductService productService) {
+        this.searchIndex = searchIndex;
+        this.productService = productService;
+    }
+
+    /**
+     * Searches products by text and category, best matches first.
+     * @param name The text to search for (optional).
+     * @param categoryId The category ID to filter by (optional).
+     * @return A list of matching products.
+     */
+    public List<ProductResponseDTO> search(String name, Long categoryId) {
+        if (!searchIndex.isReady()) {
+            return productService.searchProducts(name, categoryId).stream()
+                    .map(ProductResponseDTO::fromProduct)
+                    .toList();
+        }
+        return searchIndex.search(name, filter(null, null, categoryId)).stream()
+                .map(ProductResponseDTO::fromDocument)
+                .toList();
+    }
+
+    /**
+     * Searches products by text, price range and category with pagination.
+     * Results are ranked by relevance unless the pageable requests a sort on
+     * id, name, price, stock or createdAt.
+     * @param name The text to search for (optional).
+     * @param minPrice The minimum price (optional).
+     * @param maxPrice The maximum price (optional).
+     * @param categoryId The category ID to filter by (optional).
+     * @param pageable The pagination information.
+     * @return A page of matching products.
+     */
+    public Page<ProductResponseDTO> advancedSearch(String name, BigDecimal minPrice, BigDecimal maxPrice,
+                                                   Long categoryId, Pageable pageable) {
+        if (!searchIndex.isReady()) {
+            return productService.advancedSearch(name, minPrice, maxPrice, categoryId, pageable)
+                    .map(ProductResponseDTO::fromProduct);
+        }
+
+        List<ProductDocument> hits = searchIndex.search(name, filter(minPrice, maxPrice, categoryId));
+        return toPage(hits, pageable);
+    }
+
+    /**
+     * Searches products by keyword and facet selections, and counts the matches per category,
+     * price range, rating band and stock in the same pass.
+     * Until the search index is ready, products are filtered in the database and no counts are returned.
+     * @param filters The keyword and facet selections.
+     * @param pageable The pagination information.
+     * @return A page of matching products with the facet counts.
+     */
+    public FacetedSearchResponseDTO facetedSearch(SearchFilterDTO filters, Pageable pageable) {
+        if (!searchIndex.isReady()) {
+            Page<ProductResponseDTO> products = productService.findWithFilters(filters, pageable)
+                    .map(ProductResponseDTO::fromProduct);
+            return new FacetedSearchResponseDTO(products, List.of(), List.of(), List.of(), 0);
+        }
+
+        FacetFilter facetFilter = new FacetFilter(filters.getCategoryIds(), filters.getMinPrice(),
+                filters.getMaxPrice(), filters.getMinRating(), filters.getInStock());
+        FacetedHits result = searchIndex.facetedSearch(filters.getKeyword(), facetFilter);
+        return new FacetedSearchResponseDTO(
+                toPage(result.hits(), pageable),
+                result.categories().stream().map(FacetValueDTO::fromCount).toList(),
+                result.priceRanges().stream().map(FacetValueDTO::fromCount).toList(),
+                result.ratings().stream().map(FacetValueDTO::fromCount).toList(),
+                result.inStock());
+    }
+
+    /**
+     * Sorts the hits as requested by the pageable and cuts out the requested page.
+     */
+    private Page<ProductResponseDTO> toPage(List<ProductDocument> hits, Pageable pageable) {
+        Comparator<ProductDocument> comparator = comparator(pageable.getSort());
+        if (comparator != null) {
+            hits = hits.stream().sorted(comparator).toList();
+        }
+
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(hits.stream().map(ProductResponseDTO::fromDocument).toList(), pageable, hits.size());
+        }
+        int from = (int) Math.min(pageable.getOffset(), hits.size());
+        int to = Math.min(from + pageable.getPageSize(), hits.size());
+        List<ProductResponseDTO> content = hits.subList(from, to).stream()
+                .map(ProductResponseDTO::fromDocument)
+                .toList();
+        return new PageImpl<>(content, pageable, hits.size());
+    }
+
+    private Predicate<ProductDocument> filter(BigDecimal minPrice, BigDecimal maxPrice, Long categoryId) {
+        Predicate<ProductDocument> filter = document -> true;
+        if (categoryId != null) {
+            filter = filter.and(document -> categoryId.equals(document.getCategoryId()));
+        }
+        if (minPrice != null) {
+            double min = minPrice.doubleValue();
+            filter = filter.and(document -> document.getPrice() >= min);
+        }
+        if (maxPrice != null) {
+            double max = maxPrice.doubleValue();
+            filter = filter.and(document -> document.getPrice() <= max);
+        }
+        return filter;
+    }
+
+    /**
+     * Builds a comparator for the supported sort properties, or null to keep relevance order.
+     */
+    private Comparator<ProductDocument> comparator(Sort sort) {
+        Comparator<ProductDocument> comparator = null;
+        for (Sort.Order order : sort) {
+            Comparator<ProductDocument> next = switch (order.getProperty()) {
+                case "id" -> Comparator.comparing(ProductDocument::getId);
+                case "name" -> Comparator.comparing(ProductDocument::getName,
+                        Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER));
+                case "price" -> Comparator.comparingDouble(ProductDocument::getPrice);
+                case "stock" -> Comparator.comparingInt(ProductDocument::getStock);
+                case "createdAt" -> Comparator.comparing(ProductDocument::getCreatedAt,
+                        Comparator.nullsLast(Comparator.naturalOrder()));
+                default -> null;
+            };
+            if (next == null) {
+                continue;
+            }
+            if (order.isDescending()) {
+                next = next.reversed();
+            }
+            comparator = comparator == null ? next : comparator.thenComparing(next);
+        }
+        return comparator;
+    }
+}
@@ -1,45 +1,104 @@
 package com.healthstore.service;
 
+import com.healthstore.cache.ProductCache;
+import com.healthstore.cache.SingleFlightLoader;
 import com.healthstore.dto.ProductDTO;
+import com.healthstore.dto.ProductResponseDTO;
+import com.healthstore.event.ProductChangedEvent;
 import com.healthstore.model.Category;
 import com.healthstore.model.Product;
 import com.healthstore.repository.ProductRepository;
 import com.healthstore.specification.ProductSpecification;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.healthstore.dto.CursorPageDTO;
+import com.healthstore.dto.ProductCardDTO;
 import com.healthstore.dto.SearchFilterDTO;
+import com.healthstore.util.ScrollCursor;
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class ProductService {
 
+    private static final Set<String> SCROLL_PROPERTIES = Set.of("name", "createdAt", "totalStock");
+    private static final Sort DEFAULT_SCROLL_SORT = Sort.by("id");
+    private static final Pageable FEATURED_PAGE = PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "createdAt"));
+
     private final ProductRepository productRepository;
     private final CategoryService categoryService;
+    private final ProductCache productCache;
+    private final SingleFlightLoader singleFlightLoader;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public ProductService(ProductRepository productRepository, CategoryService categoryService) {
+    public ProductService(ProductRepository productRepository, CategoryService categoryService,
+                          ProductCache productCache, SingleFlightLoader singleFlightLoader,
+                          ApplicationEventPublisher eventPublisher) {
         this.productRepository = productRepository;
         this.categoryService = categoryService;
+        this.productCache = productCache;
+        this.singleFlightLoader = singleFlightLoader;
+        this.eventPublisher = eventPublisher;
     }
 
-    @CacheEvict(value = "products", allEntries = true)
     public Product createProduct(ProductDTO productDTO) {
         Product product = new Product();
         product.setName(productDTO.getName());
         product.setDescription(productDTO.getDescription());
         product.setImageUrl(productDTO.getImageUrl());
         product.setActive(true);
-        return productRepository.save(product);
+        Product savedProduct = productRepository.save(product);
+        eventPublisher.publishEvent(new ProductChangedEvent(savedProduct.getId(), ProductChangedEvent.ChangeType.CREATED));
+        return savedProduct;
+    }
+    
+    /**
+     * Gets a page of product listing cards, served from the "products" cache when possible.
+     * @param pageable The pagination information
+     * @return A page of product cards
+     */
+    public Page<ProductCardDTO> getAllProducts(Pageable pageable) {
+        return productCache.getPage(pageable, () -> productRepository.findCards(toSummarySort(pageable)));
     }
     
-    @Cacheable(value = "products", key = "#pageable.pageNumber + '-' + #pageable.pageSize + '-' + #pageable.sort")
-    public Page<Product> getAllProducts(Pageable pageable) {
-        return productRepository.findAll(pageable);
+    /**
+     * Reads a window of products with keyset pagination, without a count query.
+     * @param cursor The cursor returned with the previous window, or null for the first window
+     * @param sort The sort of the first window, on name, createdAt or stock (default: id)
+     * @param size The number of products per window
+     * @return A window of product cards with the cursor of the next window
+     */
+    public CursorPageDTO<ProductCardDTO> scrollProducts(String cursor, Sort sort, int size) {
+        ScrollCursor.Request request = ScrollCursor.resolve(cursor, toSummarySort(sort),
+                DEFAULT_SCROLL_SORT, SCROLL_PROPERTIES, size);
+        CursorPageDTO<Product> window = ScrollCursor.toPage(
+                productRepository.findWindowBy(request.position(), request.sort(), request.limit()), request);
+        // The window only reads product rows; the cards of the whole window come from one projection query
+        Map<Long, ProductCardDTO> cards = productRepository.findCardsByIdIn(
+                        window.getContent().stream().map(Product::getId).toList()).stream()
+                .collect(Collectors.toMap(ProductCardDTO::getId, Function.identity()));
+        return window.map(product -> cards.get(product.getId()));
+    }
+
+    /**
+     * Gets a page of product listing cards without counting the total number of products.
+     * @param pageable The pagination information
+     * @return A slice of product cards
+     */
+    public Slice<ProductCardDTO> getProductSlice(Pageable pageable) {
+        return productRepository.findCardSlice(toSummarySort(pageable));
     }
     
     /**
@@ -49,29 +108,38 @@ public class ProductService {
      * @return A page of filtered products
      */
     public Page<Product> findWithFilters(SearchFilterDTO filters, Pageable pageable) {
-        return productRepository.findAll(ProductSpecification.filterBy(filters), pageable);
+        return productRepository.findAll(ProductSpecification.filterBy(filters), toSummarySort(pageable));
     }
 
-    public Optional<Product> getProductById(Long id) {
-        return productRepository.findById(id);
+    /**
+     * Finds a product with its variants by its ID, served from the "product" cache when possible.
+     * The product is read with its variants and category in one query and cached as a DTO; writers
+     * that need the entity take a reference from the repository instead.
+     * @param id The ID of the product
+     * @return An Optional containing the product if found
+     */
+    public Optional<ProductResponseDTO> getProductById(Long id) {
+        return productCache.getProduct(id,
+                () -> productRepository.findByIdForIndexing(id).map(ProductResponseDTO::fromProductWithVariants));
     }
     
-    @CacheEvict(value = "products", allEntries = true)
     public Product updateProduct(Long id, ProductDTO productDTO) {
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Product not found with id: " + id));
         product.setName(productDTO.getName());
         product.setDescription(productDTO.getDescription());
         product.setImageUrl(productDTO.getImageUrl());
-        return productRepository.save(product);
+        Product savedProduct = productRepository.save(product);
+        eventPublisher.publishEvent(new ProductChangedEvent(savedProduct.getId(), ProductChangedEvent.ChangeType.UPDATED));
+        return savedProduct;
     }
     
-    @CacheEvict(value = "products", allEntries = true)
     public void deleteProduct(Long id) {
         if (!productRepository.existsById(id)) {
             throw new RuntimeException("Product not found with id: " + id);
         }
         productRepository.deleteById(id);
+        eventPublisher.publishEvent(new ProductChangedEvent(id, ProductChangedEvent.ChangeType.DELETED));
     }
     
     /**
@@ -97,7 +165,10 @@ public class ProductService {
      */
     public Page<Product> searchProducts(String name, BigDecimal minPrice, BigDecimal maxPrice, 
                                       Long categoryId, Pageable pageable) {
-        return productRepository.searchProducts(name, categoryId, pageable);
+        return productRepository.searchProducts(name, categoryId,
+                minPrice != null ? minPrice.doubleValue() : null,
+                maxPrice != null ? maxPrice.doubleValue() : null,
+                toSummarySort(pageable));
     }
     
     /**
@@ -109,18 +180,51 @@ public class ProductService {
     }
     
     /**
-     * Get featured products (newest 10)
+     * Get the listing cards of the featured products (newest 10). Concurrent callers share a single
+     * projection query, so the threads joining it only receive DTOs and never touch the loader's session.
      */
-    public List<Product> getFeaturedProducts() {
-        return productRepository.findTop10ByOrderByCreatedAtDesc();
+    public List<ProductCardDTO> getFeaturedProducts() {
+        return singleFlightLoader.load("featuredProducts", "top10",
+                () -> List.copyOf(productRepository.findCardSlice(FEATURED_PAGE).getContent()));
     }
     
     /**
      * Saves a product to the database.
+     * Variants are saved with the product, so its price and stock summary is recomputed.
+     * The cached product and pages are dropped once the transaction commits.
      * @param product The product to save.
      * @return The saved product.
      */
+    @Transactional
     public Product save(Product product) {
-        return productRepository.save(product);
+        Product savedProduct = productRepository.saveAndFlush(product);
+        productRepository.refreshSummary(savedProduct.getId());
+        eventPublisher.publishEvent(new ProductChangedEvent(savedProduct.getId(), ProductChangedEvent.ChangeType.UPDATED));
+        return savedProduct;
+    }
+
+    /**
+     * Maps sorts on the derived price and stock properties to the indexed summary columns.
+     * @param pageable The requested pagination.
+     * @return The pagination with a sort the database can serve from an index.
+     */
+    private Pageable toSummarySort(Pageable pageable) {
+        if (pageable.getSort().isUnsorted()) {
+            return pageable;
+        }
+        Sort sort = toSummarySort(pageable.getSort());
+        return pageable.isPaged()
+                ? PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), sort)
+                : Pageable.unpaged(sort);
+    }
+
+    private Sort toSummarySort(Sort sort) {
+        return Sort.by(sort.stream()
+                .map(order -> switch (order.getProperty()) {
+                    case "price" -> order.withProperty("minPrice");
+                    case "stock" -> order.withProperty("totalStock");
+                    default -> order;
+                })
+                .toList());
     }
 }
@@ -1,6 +1,7 @@
 package com.healthstore.service;
 
 import com.healthstore.dto.RatingRequestDTO;
+import com.healthstore.event.ProductChangedEvent;
 import com.healthstore.exception.ResourceNotFoundException;
 import com.healthstore.model.Product;
 import com.healthstore.model.Rating;
@@ -8,6 +9,7 @@ import com.healthstore.model.User;
 import com.healthstore.repository.ProductRepository;
 import com.healthstore.repository.RatingRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -23,14 +25,17 @@ public class RatingService {
     private final RatingRepository ratingRepository;
     private final ProductRepository productRepository;
     private final UserService userService;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Autowired
     public RatingService(RatingRepository ratingRepository, 
                         ProductRepository productRepository,
-                        UserService userService) {
+                        UserService userService,
+                        ApplicationEventPublisher eventPublisher) {
         this.ratingRepository = ratingRepository;
         this.productRepository = productRepository;
         this.userService = userService;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
@@ -54,7 +59,10 @@ public class RatingService {
         rating.setProduct(product);
         rating.setValue(ratingValue);
 
-        return ratingRepository.save(rating);
+        Rating savedRating = ratingRepository.save(rating);
+        // The average rating is part of the search index, so re-index the product
+        eventPublisher.publishEvent(new ProductChangedEvent(productId, ProductChangedEvent.ChangeType.UPDATED));
+        return savedRating;
     }
 
     /**
@@ -88,6 +96,10 @@ public class RatingService {
      */
     public boolean removeRating(Long productId) {
         User currentUser = userService.getCurrentUser();
-        return ratingRepository.deleteByProductIdAndUserId(productId, currentUser.getId()) > 0;
+        boolean deleted = ratingRepository.deleteByProductIdAndUserId(productId, currentUser.getId()) > 0;
+        if (deleted) {
+            eventPublisher.publishEvent(new ProductChangedEvent(productId, ProductChangedEvent.ChangeType.UPDATED));
+        }
+        return deleted;
     }
 }
@@ -1,16 +1,22 @@
 package com.healthstore.service;
 
-import com.healthstore.model.Product;
+import com.healthstore.dto.CursorPageDTO;
 import com.healthstore.model.Rating;
 import com.healthstore.model.Review;
 import com.healthstore.model.User;
+import com.healthstore.repository.ProductRepository;
 import com.healthstore.repository.RatingRepository;
 import com.healthstore.repository.ReviewRepository;
+import com.healthstore.util.ScrollCursor;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * Service class for managing product reviews and ratings.
@@ -19,22 +25,29 @@ import java.util.Optional;
 @Service
 public class ReviewAndRatingService {
 
+    private static final Set<String> SCROLL_PROPERTIES = Set.of("createdAt", "rating");
+    private static final Sort DEFAULT_SCROLL_SORT = Sort.by(Sort.Direction.DESC, "createdAt");
+
     private final ReviewRepository reviewRepository;
     private final RatingRepository ratingRepository;
     private final ProductService productService;
+    private final ProductRepository productRepository;
 
     /**
      * Constructs a new ReviewAndRatingService with the required repositories and services.
      * @param reviewRepository The repository for review operations.
      * @param ratingRepository The repository for rating operations.
      * @param productService The service for product-related operations.
+     * @param productRepository The repository the reviewed products are referenced from.
      */
     public ReviewAndRatingService(ReviewRepository reviewRepository, 
                                  RatingRepository ratingRepository, 
-                                 ProductService productService) {
+                                 ProductService productService,
+                                 ProductRepository productRepository) {
         this.reviewRepository = reviewRepository;
         this.ratingRepository = ratingRepository;
         this.productService = productService;
+        this.productRepository = productRepository;
     }
 
     /**
@@ -46,13 +59,12 @@ public class ReviewAndRatingService {
      * @throws RuntimeException if the product is not found.
      */
     public Review createReview(Long productId, User user, String comment) {
-        Optional<Product> product = productService.getProductById(productId);
-        if (product.isEmpty()) {
+        if (productService.getProductById(productId).isEmpty()) {
             throw new RuntimeException("Product not found");
         }
         
         Review review = new Review();
-        review.setProduct(product.get());
+        review.setProduct(productRepository.getReferenceById(productId));
         review.setUser(user);
         review.setComment(comment);
         review.setCreatedAt(LocalDateTime.now());
@@ -74,8 +86,7 @@ public class ReviewAndRatingService {
             throw new IllegalArgumentException("Rating value must be between 1 and 5.");
         }
         
-        Optional<Product> product = productService.getProductById(productId);
-        if (product.isEmpty()) {
+        if (productService.getProductById(productId).isEmpty()) {
             throw new RuntimeException("Product not found");
         }
         
@@ -84,7 +95,7 @@ public class ReviewAndRatingService {
         Rating rating = existingRating.orElse(new Rating());
         
         // Update rating details
-        rating.setProduct(product.get());
+        rating.setProduct(productRepository.getReferenceById(productId));
         rating.setUser(user);
         rating.setRatingValue(ratingValue);
         
@@ -99,4 +110,28 @@ public class ReviewAndRatingService {
     public List<Review> getReviewsByProductId(Long productId) {
         return reviewRepository.findByProductId(productId);
     }
+
+    /**
+     * Reads a window of a product's reviews with keyset pagination, without a count query.
+     * @param productId The ID of the product.
+     * @param cursor The cursor returned with the previous window, or null for the first window.
+     * @param sort The sort of the first window, on createdAt or rating (default: newest first).
+     * @param size The number of reviews per window.
+     * @return A window of reviews with the cursor of the next window.
+     */
+    public CursorPageDTO<Review> scrollReviewsByProductId(Long productId, String cursor, Sort sort, int size) {
+        ScrollCursor.Request request = ScrollCursor.resolve(cursor, sort, DEFAULT_SCROLL_SORT, SCROLL_PROPERTIES, size);
+        return ScrollCursor.toPage(reviewRepository.findWindowByProductId(
+                productId, request.position(), request.sort(), request.limit()), request);
+    }
+
+    /**
+     * Retrieves a page of a product's reviews without counting the total number of reviews.
+     * @param productId The ID of the product.
+     * @param pageable The pagination information.
+     * @return A slice of reviews.
+     */
+    public Slice<Review> getReviewSliceByProductId(Long productId, Pageable pageable) {
+        return reviewRepository.findSliceByProductId(productId, pageable);
+    }
 }
@@ -1,11 +1,15 @@
 package com.healthstore.service;
 
+import com.healthstore.config.SalesReportProperties;
+import com.healthstore.dto.report.CustomerActivityDTO;
 import com.healthstore.dto.report.SalesReportRequest;
 import com.healthstore.dto.report.SalesReportResponse;
+import com.healthstore.exception.LoadTimeoutException;
 import com.healthstore.model.*;
+import com.healthstore.repository.CustomerAnalyticsRepository;
 import com.healthstore.repository.OrderRepository;
 import com.healthstore.repository.ProductVariantRepository;
-import com.healthstore.repository.UserRepository;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -13,21 +17,37 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.time.temporal.TemporalAdjusters;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import static java.time.temporal.ChronoField.ALIGNED_WEEK_OF_YEAR;
 
 /**
  * Service for generating sales reports with various filtering and grouping options.
+ * <p>
+ * The sections of a report do not depend on each other, so they are computed at the same time on
+ * a dedicated pool of workers, each in its own read-only transaction and within its own timeout.
+ * A report then takes about as long as its slowest section.
  */
 @Slf4j
 @Service
@@ -39,19 +59,50 @@ public class SalesReportService {
     private final AdminReportService adminReportService;
     private final OrderRepository orderRepository;
     private final ProductVariantRepository productVariantRepository;
-    private final UserRepository userRepository;
     private final ProductService productService;
+    private final Duration sectionTimeout;
+    private final TransactionTemplate sectionTransactionTemplate;
+    private final ThreadPoolExecutor sectionExecutor;
 
     public SalesReportService(AdminReportService adminReportService,
                             OrderRepository orderRepository,
                             ProductVariantRepository productVariantRepository,
-                            UserRepository userRepository,
-                            ProductService productService) {
+                            ProductService productService,
+                            PlatformTransactionManager transactionManager,
+                            SalesReportProperties properties) {
         this.adminReportService = adminReportService;
         this.orderRepository = orderRepository;
         this.productVariantRepository = productVariantRepository;
-        this.userRepository = userRepository;
         this.productService = productService;
+        this.sectionTimeout = properties.getSectionTimeout();
+        this.sectionTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.sectionTransactionTemplate.setReadOnly(true);
+        // Also applied as the query timeout, so the queries of a section that timed out are cancelled.
+        this.sectionTransactionTemplate.setTimeout((int) Math.max(1, sectionTimeout.toSeconds()));
+        int workers = Math.max(1, properties.getSectionWorkers());
+        AtomicInteger threadCount = new AtomicInteger();
+        this.sectionExecutor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, properties.getSectionQueueCapacity())), runnable -> {
+                    Thread thread = new Thread(runnable, "report-section-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Receives the progress of a report as its sections are completed.
+     * It is called on the thread of each section, once per section, and may be called by several
+     * sections at once, so the counts can arrive out of order. It must not block.
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+
+        /**
+         * @param section The name of the completed section: totals, or the name of its field in {@link SalesReportResponse}
+         * @param completed The number of sections completed so far
+         * @param total The number of sections of the report
+         */
+        void sectionCompleted(String section, int completed, int total);
     }
 
     /**
@@ -59,92 +110,156 @@ public class SalesReportService {
      *
      * @param request The sales report request containing filtering and grouping options
      * @return A SalesReportResponse containing the report data
+     * @throws LoadTimeoutException if a section of the report takes longer than the section timeout
      */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public SalesReportResponse generateSalesReport(SalesReportRequest request) {
+        return generateSalesReport(request, (section, completed, total) -> { });
+    }
+
+    /**
+     * Generates a comprehensive sales report based on the provided request parameters,
+     * reporting each section as it is completed.
+     *
+     * @param request The sales report request containing filtering and grouping options
+     * @param progress The listener of the completed sections
+     * @return A SalesReportResponse containing the report data
+     * @throws LoadTimeoutException if a section of the report takes longer than the section timeout
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public SalesReportResponse generateSalesReport(SalesReportRequest request, ProgressListener progress) {
         log.info("Generating sales report for period: {} to {}", request.getStartDate(), request.getEndDate());
+        LocalDate startDate = request.getStartDate();
+        LocalDate endDate = request.getEndDate();
         
         // Adjust dates to cover the full day
-        LocalDateTime startDateTime = request.getStartDate().atStartOfDay();
-        LocalDateTime endDateTime = request.getEndDate().plusDays(1).atStartOfDay();
+        LocalDateTime startDateTime = startDate.atStartOfDay();
+        LocalDateTime endDateTime = endDate.plusDays(1).atStartOfDay();
+        
+        // Start every requested section at once; the totals are read once for revenue, orders and average
+        ReportSections sections = new ReportSections(progress,
+                3 + (request.isIncludeCustomerStats() ? 1 : 0) + (request.isIncludeInventoryStatus() ? 1 : 0));
+        CompletableFuture<AdminReportService.SalesTotals> totals = sections.start("totals",
+                () -> adminReportService.getSalesTotals(startDate, endDate));
+        CompletableFuture<Map<String, BigDecimal>> salesTrend = sections.start("salesTrend",
+                () -> adminReportService.getSalesTrend(startDate, endDate, request.getGroupBy()));
+        CompletableFuture<List<SalesReportResponse.ProductSalesData>> topProducts = sections.start("topSellingProducts",
+                () -> adminReportService.getTopPerformingProducts(startDate, endDate, 10)
+                        .stream()
+                        .map(this::mapToProductSalesData)
+                        .collect(Collectors.toList()));
+        CompletableFuture<SalesReportResponse.CustomerStats> customerStats = request.isIncludeCustomerStats()
+                ? sections.start("customerStats", () -> generateCustomerStats(startDateTime, endDateTime))
+                : null;
+        CompletableFuture<SalesReportResponse.InventoryStatus> inventoryStatus = request.isIncludeInventoryStatus()
+                ? sections.start("inventoryStatus", () -> generateInventoryStatus(request.getLowStockThreshold()))
+                : null;
         
         // Initialize the response
         SalesReportResponse response = new SalesReportResponse();
-        response.setPeriodStart(request.getStartDate());
-        response.setPeriodEnd(request.getEndDate());
-        
-        // Get basic sales data
-        response.setTotalRevenue(adminReportService.getTotalRevenue(request.getStartDate(), request.getEndDate()));
-        response.setTotalOrders(adminReportService.getTotalOrders(request.getStartDate(), request.getEndDate()));
-        response.setAverageOrderValue(adminReportService.getAverageOrderValue(request.getStartDate(), request.getEndDate()));
-        
-        // Get sales trend data
-        response.setSalesTrend(adminReportService.getSalesTrend(
-                request.getStartDate(), 
-                request.getEndDate(), 
-                request.getGroupBy()
-        ));
+        response.setPeriodStart(startDate);
+        response.setPeriodEnd(endDate);
         
-        // Get top selling products
-        List<SalesReportResponse.ProductSalesData> topProducts = adminReportService
-                .getTopPerformingProducts(request.getStartDate(), request.getEndDate(), 10)
-                .stream()
-                .map(this::mapToProductSalesData)
-                .collect(Collectors.toList());
-        response.setTopSellingProducts(topProducts);
-        
-        // Get customer statistics if requested
-        if (request.isIncludeCustomerStats()) {
-            response.setCustomerStats(generateCustomerStats(startDateTime, endDateTime));
+        AdminReportService.SalesTotals salesTotals = join("totals", totals);
+        response.setTotalRevenue(salesTotals.revenue());
+        response.setTotalOrders(salesTotals.orders());
+        response.setAverageOrderValue(salesTotals.averageOrderValue());
+        response.setSalesTrend(join("salesTrend", salesTrend));
+        response.setTopSellingProducts(join("topSellingProducts", topProducts));
+        if (customerStats != null) {
+            response.setCustomerStats(join("customerStats", customerStats));
         }
-        
-        // Get inventory status if requested
-        if (request.isIncludeInventoryStatus()) {
-            response.setInventoryStatus(generateInventoryStatus(request.getLowStockThreshold()));
+        if (inventoryStatus != null) {
+            response.setInventoryStatus(join("inventoryStatus", inventoryStatus));
         }
         
         return response;
     }
+
+    /**
+     * The sections of one report, each computed on a section worker in its own read-only transaction.
+     */
+    private final class ReportSections {
+
+        private final ProgressListener progress;
+        private final int total;
+        private final AtomicInteger completed = new AtomicInteger();
+
+        ReportSections(ProgressListener progress, int total) {
+            this.progress = progress;
+            this.total = total;
+        }
+
+        <T> CompletableFuture<T> start(String name, Supplier<T> section) {
+            return CompletableFuture
+                    .supplyAsync(() -> sectionTransactionTemplate.execute(status -> section.get()), sectionExecutor)
+                    .orTimeout(sectionTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                    .whenComplete((value, e) -> {
+                        if (e == null) {
+                            completed(name);
+                        }
+                    });
+        }
+
+        private void completed(String name) {
+            // No lock is held while the listener runs, so a slow listener cannot hold up the other sections.
+            progress.sectionCompleted(name, completed.incrementAndGet(), total);
+        }
+    }
+
+    /**
+     * Waits for a section, which completes within the section timeout.
+     */
+    private <T> T join(String name, CompletableFuture<T> section) {
+        try {
+            return section.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof TimeoutException) {
+                throw new LoadTimeoutException("Report section " + name + " did not complete within " + sectionTimeout,
+                        e.getCause());
+            }
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        sectionExecutor.shutdownNow();
+    }
     
     /**
      * Generates customer statistics for the report.
+     * The totals and the top spenders are each read with one grouped query.
      */
     private SalesReportResponse.CustomerStats generateCustomerStats(LocalDateTime startDate, LocalDateTime endDate) {
         SalesReportResponse.CustomerStats stats = new SalesReportResponse.CustomerStats();
         
-        // Get all active customers (customers who placed orders in the period)
-        List<User> activeCustomers = userRepository.findActiveCustomers(startDate, endDate);
-        stats.setTotalCustomers(activeCustomers.size());
+        // Count the customers who placed orders in the period, with their orders and spending
+        CustomerAnalyticsRepository.CustomerOrderTotals totals = orderRepository.findCustomerOrderTotals(startDate, endDate);
+        stats.setTotalCustomers(totals.customers());
         
-        if (!activeCustomers.isEmpty()) {
-            // Calculate average orders per customer
-            long totalOrders = orderRepository.countByOrderDateBetween(startDate, endDate);
-            stats.setAverageOrdersPerCustomer(
-                    (double) totalOrders / activeCustomers.size()
-            );
-            
-            // Calculate average spending per customer
-            BigDecimal totalRevenue = orderRepository.calculateTotalRevenue(startDate, endDate)
-                    .orElse(BigDecimal.ZERO);
+        if (totals.customers() > 0) {
+            stats.setAverageOrdersPerCustomer((double) totals.orders() / totals.customers());
             stats.setAverageSpendingPerCustomer(
-                    totalRevenue.divide(BigDecimal.valueOf(activeCustomers.size()), 2, RoundingMode.HALF_UP)
+                    totals.revenue().divide(BigDecimal.valueOf(totals.customers()), 2, RoundingMode.HALF_UP)
             );
             
             // Get top spending customers
             stats.setTopSpendingCustomers(
-                    userRepository.findTopSpendingUsers(startDate, endDate, 5)
+                    orderRepository.findTopCustomers(startDate, endDate, CustomerAnalyticsRepository.CustomerSort.TOTAL_SPENT, 5)
                             .stream()
-                            .map(result -> {
-                                User user = (User) result[0];
-                                BigDecimal totalSpent = (BigDecimal) result[1];
+                            .map(customer -> {
+                                CustomerActivityDTO activity = CustomerActivityDTO.fromStats(customer);
                                 
                                 SalesReportResponse.CustomerSpending customerSpending = new SalesReportResponse.CustomerSpending();
-                                customerSpending.setCustomerId(user.getId());
-                                customerSpending.setCustomerName(user.getFullName());
-                                customerSpending.setCustomerEmail(user.getEmail());
-                                customerSpending.setTotalSpent(totalSpent);
-                                customerSpending.setOrderCount(
-                                        orderRepository.countByUserAndOrderDateBetween(user, startDate, endDate).intValue()
-                                );
+                                customerSpending.setCustomerId(activity.getCustomerId());
+                                customerSpending.setCustomerName(activity.getCustomerName());
+                                customerSpending.setCustomerEmail(activity.getCustomerEmail());
+                                customerSpending.setTotalSpent(activity.getTotalSpent());
+                                customerSpending.setOrderCount((int) activity.getOrderCount());
                                 return customerSpending;
                             })
                             .collect(Collectors.toList())
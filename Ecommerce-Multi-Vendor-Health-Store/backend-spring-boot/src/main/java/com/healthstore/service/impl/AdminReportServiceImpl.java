@@ -1,20 +1,24 @@
 package com.healthstore.service.impl;
 
 import com.healthstore.model.*;
+import com.healthstore.repository.CustomerAnalyticsRepository;
 import com.healthstore.repository.OrderRepository;
 import com.healthstore.repository.ProductRepository;
 import com.healthstore.repository.ProductVariantRepository;
+import com.healthstore.repository.SalesRollupRepository;
 import com.healthstore.repository.UserRepository;
 import com.healthstore.dto.UserActivityReportDTO;
+import com.healthstore.dto.report.CustomerActivityDTO;
 import com.healthstore.service.AdminReportService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoField;
@@ -25,6 +29,9 @@ import java.util.stream.Collectors;
 
 /**
  * Implementation of the AdminReportService interface.
+ * Sales figures are read from the {@link SalesRollup} rows rather than the orders, so a report costs
+ * a few rows per period of its range whatever the number of orders. Cancelled, refunded and failed
+ * orders are not counted as sales.
  */
 @Service
 @Transactional(readOnly = true)
@@ -34,38 +41,33 @@ public class AdminReportServiceImpl implements AdminReportService {
     private final ProductVariantRepository productVariantRepository;
     private final UserRepository userRepository;
     private final ProductRepository productRepository;
+    private final SalesRollupRepository salesRollupRepository;
 
     @Autowired
     public AdminReportServiceImpl(OrderRepository orderRepository,
                                  ProductVariantRepository productVariantRepository,
                                  UserRepository userRepository,
-                                 ProductRepository productRepository) {
+                                 ProductRepository productRepository,
+                                 SalesRollupRepository salesRollupRepository) {
         this.orderRepository = orderRepository;
         this.productVariantRepository = productVariantRepository;
         this.userRepository = userRepository;
         this.productRepository = productRepository;
+        this.salesRollupRepository = salesRollupRepository;
     }
 
+    /**
+     * Sales totals of a date range.
+     */
     @Override
     public Map<String, Object> generateSalesReport(LocalDate startDate, LocalDate endDate) {
         Map<String, Object> report = new HashMap<>();
         
-        // Adjust end date to include the entire end day
-        LocalDateTime startDateTime = startDate.atStartOfDay();
-        LocalDateTime endDateTime = endDate.plusDays(1).atStartOfDay();
-        
-        // Get all orders in the date range
-        List<Order> orders = orderRepository.findByOrderDateBetween(startDateTime, endDateTime);
-        
         // Calculate metrics
-        BigDecimal totalRevenue = orders.stream()
-                .map(Order::getTotalAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        
-        long totalOrders = orders.size();
-        BigDecimal averageOrderValue = totalOrders > 0 
-                ? totalRevenue.divide(BigDecimal.valueOf(totalOrders), 2, RoundingMode.HALF_UP)
-                : BigDecimal.ZERO;
+        SalesTotals totals = getSalesTotals(startDate, endDate);
+        BigDecimal totalRevenue = totals.revenue();
+        long totalOrders = totals.orders();
+        BigDecimal averageOrderValue = totals.averageOrderValue();
         
         // Get top products
         List<Map<String, Object>> topProducts = getTopPerformingProducts(startDate, endDate, 5);
@@ -73,35 +75,44 @@ public class AdminReportServiceImpl implements AdminReportService {
         // Get sales trend
         Map<String, BigDecimal> salesTrend = getSalesTrend(startDate, endDate, "day");
         
+        // Get revenue by category
+        Map<Long, BigDecimal> revenueByCategory = new LinkedHashMap<>();
+        for (Object[] row : salesRollupRepository.sumCovered(SalesRollup.Dimension.CATEGORY,
+                SalesRollupRepository.Coverage.of(startDate, endDate, SalesRollup.PeriodType.MONTH), Pageable.unpaged())) {
+            revenueByCategory.put((Long) row[0], (BigDecimal) row[1]);
+        }
+        
         // Prepare report
         report.put("periodStart", startDate);
         report.put("periodEnd", endDate);
         report.put("totalRevenue", totalRevenue);
         report.put("totalOrders", totalOrders);
+        report.put("unitsSold", totals.units());
         report.put("averageOrderValue", averageOrderValue);
         report.put("topProducts", topProducts);
         report.put("salesTrend", salesTrend);
+        report.put("revenueByCategory", revenueByCategory);
         
         return report;
     }
 
     @Override
     public List<Map<String, Object>> getTopPerformingProducts(LocalDate startDate, LocalDate endDate, int limit) {
-        LocalDateTime startDateTime = startDate.atStartOfDay();
-        LocalDateTime endDateTime = endDate.plusDays(1).atStartOfDay();
-        
-        return productVariantRepository.findTopSellingProducts(startDateTime, endDateTime, 
-                PageRequest.of(0, limit, Sort.by(Sort.Direction.DESC, "quantity")))
+        List<Object[]> sales = salesRollupRepository.sumCovered(SalesRollup.Dimension.VARIANT,
+                SalesRollupRepository.Coverage.of(startDate, endDate, SalesRollup.PeriodType.MONTH),
+                PageRequest.of(0, limit));
+        Map<Long, ProductVariant> variants = productVariantRepository
+                .findAllById(sales.stream().map(result -> (Long) result[0]).toList())
                 .stream()
+                .collect(Collectors.toMap(ProductVariant::getId, variant -> variant));
+        
+        return sales.stream()
+                .filter(result -> variants.containsKey((Long) result[0]))
                 .map(result -> {
                     Map<String, Object> productData = new HashMap<>();
-                    ProductVariant variant = (ProductVariant) result[0];
-                    Long quantity = (Long) result[1];
-                    BigDecimal revenue = (BigDecimal) result[2];
-                    
-                    productData.put("productVariant", variant);
-                    productData.put("quantitySold", quantity);
-                    productData.put("revenue", revenue);
+                    productData.put("productVariant", variants.get((Long) result[0]));
+                    productData.put("quantitySold", (Long) result[3]);
+                    productData.put("revenue", (BigDecimal) result[1]);
                     return productData;
                 })
                 .collect(Collectors.toList());
@@ -146,57 +157,60 @@ public class AdminReportServiceImpl implements AdminReportService {
         LocalDateTime startDateTime = startDate.atStartOfDay();
         LocalDateTime endDateTime = endDate.plusDays(1).atStartOfDay();
         
-        return userRepository.findActiveCustomers(startDateTime, endDateTime)
+        // One grouped query for the aggregates of all customers, and one for the users themselves
+        List<CustomerAnalyticsRepository.CustomerOrderStats> stats = orderRepository.findTopCustomers(
+                startDateTime, endDateTime, CustomerAnalyticsRepository.CustomerSort.ORDER_COUNT, Integer.MAX_VALUE);
+        Map<Long, User> users = userRepository
+                .findAllById(stats.stream().map(CustomerAnalyticsRepository.CustomerOrderStats::userId).toList())
                 .stream()
-                .map(user -> {
+                .collect(Collectors.toMap(User::getId, user -> user));
+        
+        return stats.stream()
+                .map(customer -> {
                     Map<String, Object> activity = new HashMap<>();
-                    List<Order> userOrders = orderRepository.findByUserAndOrderDateBetween(
-                            user, startDateTime, endDateTime);
-                    
-                    BigDecimal totalSpent = userOrders.stream()
-                            .map(Order::getTotalAmount)
-                            .reduce(BigDecimal.ZERO, BigDecimal::add);
-                    
-                    activity.put("user", user);
-                    activity.put("orderCount", userOrders.size());
-                    activity.put("totalSpent", totalSpent);
-                    activity.put("lastOrderDate", userOrders.stream()
-                            .map(Order::getOrderDate)
-                            .max(LocalDateTime::compareTo)
-                            .orElse(null));
-                    
+                    activity.put("user", users.get(customer.userId()));
+                    activity.put("orderCount", customer.orderCount());
+                    activity.put("totalSpent", customer.totalSpent());
+                    activity.put("lastOrderDate", customer.lastOrderDate());
                     return activity;
                 })
-                .sorted((a, b) -> ((Long) b.get("orderCount")).compareTo((Long) a.get("orderCount")))
                 .collect(Collectors.toList());
     }
 
+    @Override
+    public Page<CustomerActivityDTO> getCustomerActivity(LocalDate startDate, LocalDate endDate,
+                                                         CustomerAnalyticsRepository.CustomerSort sort, Pageable pageable) {
+        return orderRepository.findCustomerOrderStats(startDate.atStartOfDay(), endDate.plusDays(1).atStartOfDay(),
+                sort, pageable).map(CustomerActivityDTO::fromStats);
+    }
+
     @Override
     public BigDecimal getTotalRevenue(LocalDate startDate, LocalDate endDate) {
-        LocalDateTime startDateTime = startDate.atStartOfDay();
-        LocalDateTime endDateTime = endDate.plusDays(1).atStartOfDay();
-        
-        return orderRepository.calculateTotalRevenue(startDateTime, endDateTime)
-                .orElse(BigDecimal.ZERO);
+        return getSalesTotals(startDate, endDate).revenue();
     }
 
     @Override
     public long getTotalOrders(LocalDate startDate, LocalDate endDate) {
-        LocalDateTime startDateTime = startDate.atStartOfDay();
-        LocalDateTime endDateTime = endDate.plusDays(1).atStartOfDay();
-        
-        return orderRepository.countByOrderDateBetween(startDateTime, endDateTime);
+        return getSalesTotals(startDate, endDate).orders();
     }
 
     @Override
     public BigDecimal getAverageOrderValue(LocalDate startDate, LocalDate endDate) {
-        long orderCount = getTotalOrders(startDate, endDate);
-        if (orderCount == 0) {
-            return BigDecimal.ZERO;
+        return getSalesTotals(startDate, endDate).averageOrderValue();
+    }
+
+    /**
+     * Sums the total rollups of a date range: whole months, plus days at the ends.
+     */
+    @Override
+    public SalesTotals getSalesTotals(LocalDate startDate, LocalDate endDate) {
+        List<Object[]> rows = salesRollupRepository.sumCovered(SalesRollup.Dimension.TOTAL,
+                SalesRollupRepository.Coverage.of(startDate, endDate, SalesRollup.PeriodType.MONTH), Pageable.unpaged());
+        if (rows.isEmpty()) {
+            return new SalesTotals(BigDecimal.ZERO, 0, 0);
         }
-        
-        BigDecimal totalRevenue = getTotalRevenue(startDate, endDate);
-        return totalRevenue.divide(BigDecimal.valueOf(orderCount), 2, RoundingMode.HALF_UP);
+        Object[] row = rows.get(0);
+        return new SalesTotals((BigDecimal) row[1], (Long) row[2], (Long) row[3]);
     }
 
     @Override
@@ -236,21 +250,28 @@ public class AdminReportServiceImpl implements AdminReportService {
             current = incrementPeriod(current, period);
         }
         
-        // Get all orders in the date range
-        LocalDateTime startDateTime = startDate.atStartOfDay();
-        LocalDateTime endDateTime = endDate.plusDays(1).atStartOfDay();
-        List<Order> orders = orderRepository.findByOrderDateBetween(startDateTime, endDateTime);
-        
-        // Group orders by period and sum amounts
-        orders.forEach(order -> {
-            String periodKey = formatPeriod(order.getOrderDate().toLocalDate(), period);
-            BigDecimal currentTotal = trend.getOrDefault(periodKey, BigDecimal.ZERO);
-            trend.put(periodKey, currentTotal.add(order.getTotalAmount()));
-        });
+        // Sum the rollups of whole periods, and of days where the range covers a period in part
+        SalesRollupRepository.Coverage coverage = SalesRollupRepository.Coverage.of(startDate, endDate, rollupPeriod(period));
+        for (SalesRollup rollup : salesRollupRepository.findCovered(SalesRollup.Dimension.TOTAL, coverage)) {
+            trend.merge(formatPeriod(rollup.getPeriodStart(), period), rollup.getRevenue(), BigDecimal::add);
+        }
         
         return trend;
     }
     
+    private SalesRollup.PeriodType rollupPeriod(String period) {
+        switch (period.toLowerCase()) {
+            case "week":
+                return SalesRollup.PeriodType.WEEK;
+            case "month":
+            case "quarter":
+            case "year":
+                return SalesRollup.PeriodType.MONTH;
+            default:
+                return SalesRollup.PeriodType.DAY;
+        }
+    }
+    
     private String formatPeriod(LocalDate date, String period) {
         switch (period.toLowerCase()) {
             case "day":
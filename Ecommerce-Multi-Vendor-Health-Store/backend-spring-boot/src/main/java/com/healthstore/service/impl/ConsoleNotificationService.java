@@ -1,5 +1,7 @@
 package com.healthstore.service.impl;
 
+import com.healthstore.model.Order;
+import com.healthstore.model.OrderItem;
 import com.healthstore.model.ProductVariant;
 import com.healthstore.service.NotificationService;
 import org.slf4j.Logger;
@@ -53,4 +55,28 @@ public class ConsoleNotificationService implements NotificationService {
         );
         logger.info(message);
     }
+
+    @Override
+    public void sendOrderPlacedNotification(Order order) {
+        String message = String.format(
+            "[ORDER PLACED] To %s: your order %s of %s was received and awaits payment.",
+            order.getUser().getEmail(),
+            order.getOrderNumber(),
+            order.getTotalAmount()
+        );
+        logger.info(message);
+    }
+
+    @Override
+    public void sendNewOrderAlert(Order order) {
+        String message = String.format(
+            "[NEW ORDER] Order %s (ID: %d) placed by %s: %d units for %s.",
+            order.getOrderNumber(),
+            order.getId(),
+            order.getUser().getEmail(),
+            order.getOrderItems().stream().mapToInt(OrderItem::getQuantity).sum(),
+            order.getTotalAmount()
+        );
+        logger.info(message);
+    }
 }
@@ -39,21 +39,27 @@ public class ProductSpecification {
                 predicates.add(criteriaBuilder.or(namePredicate, descriptionPredicate));
             }
 
-            // Price range filtering
+            // Price range filtering on the indexed variant price range:
+            // a product matches when any of its variants may fall in the range
             if (filters.getMinPrice() != null) {
                 predicates.add(criteriaBuilder.greaterThanOrEqualTo(
-                    root.get("price"), 
+                    root.get("maxPrice"), 
                     filters.getMinPrice()
                 ));
             }
 
             if (filters.getMaxPrice() != null) {
                 predicates.add(criteriaBuilder.lessThanOrEqualTo(
-                    root.get("price"), 
+                    root.get("minPrice"), 
                     filters.getMaxPrice()
                 ));
             }
 
+            // In-stock filtering on the indexed total stock
+            if (Boolean.TRUE.equals(filters.getInStock())) {
+                predicates.add(criteriaBuilder.greaterThan(root.get("totalStock"), 0));
+            }
+
             // Category filtering
             if (filters.getCategoryIds() != null && !filters.getCategoryIds().isEmpty()) {
                 predicates.add(root.get("category").get("id").in(filters.getCategoryIds()));
@@ -0,0 +1,120 @@
+package com.healthstore.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generator of time-ordered, node-aware keys for order numbers and other business keys.
+ * A key is a 63-bit number laid out like a Snowflake ID: 41 bits of milliseconds since 2024-01-01 UTC,
+ * 10 bits of node ID and 12 bits of sequence within the millisecond. Keys of one node are strictly
+ * increasing, and keys of different nodes never collide as long as every node has its own node ID.
+ * <p>
+ * Node IDs are therefore configured with {@code app.ids.node-id}. A single node may leave it out and
+ * use an ID derived from the host name, but two host names can map to the same one of the 1024 IDs,
+ * so once {@code app.ids.node-count} says more than one node shares the database, a missing node ID
+ * fails the startup instead.
+ * <p>
+ * The time and sequence are packed into one {@link AtomicLong}, so generating a key is a single
+ * compare-and-set without locks or random numbers. When more than 4096 keys are needed within a
+ * millisecond, or the clock moves backwards, the generator runs ahead of the clock instead of
+ * waiting for it, which keeps keys unique and increasing.
+ * <p>
+ * As text, keys are 13 characters of Crockford base 32, which sort in the same order as the numbers,
+ * so new keys land at the end of an index instead of at random pages.
+ */
+@Component
+public class BusinessKeyGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(BusinessKeyGenerator.class);
+
+    static final long EPOCH_MILLIS = 1704067200000L; // 2024-01-01T00:00:00Z
+    static final int NODE_BITS = 10;
+    static final int SEQUENCE_BITS = 12;
+    static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+    static final int ENCODED_LENGTH = 13;
+
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+
+    private final long nodeBits;
+    private final AtomicLong lastTimeAndSequence = new AtomicLong();
+
+    /**
+     * @param nodeId The ID of this node, from 0 to 1023, or -1 to derive it from the host name.
+     *               Nodes sharing a database must have distinct IDs.
+     * @param nodeCount The number of nodes sharing the database; above 1 the node ID is required.
+     * @throws IllegalArgumentException if the node ID is out of range
+     * @throws IllegalStateException if the node ID is missing while several nodes share the database
+     */
+    public BusinessKeyGenerator(@Value("${app.ids.node-id:-1}") int nodeId,
+                                @Value("${app.ids.node-count:1}") int nodeCount) {
+        if (nodeId < 0) {
+            if (nodeCount > 1) {
+                throw new IllegalStateException("app.ids.node-id must be set to a distinct value on each of the "
+                        + nodeCount + " nodes, since node IDs derived from host names can collide");
+            }
+            nodeId = nodeIdFromHostName();
+            logger.warn("No app.ids.node-id configured, using node ID {} derived from the host name; "
+                    + "it may collide with the node ID of another node sharing the database", nodeId);
+        } else if (nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("app.ids.node-id must be between 0 and " + MAX_NODE_ID);
+        }
+        this.nodeBits = (long) nodeId << SEQUENCE_BITS;
+    }
+
+    /**
+     * Generates a key.
+     * @return A positive key, greater than any key generated before by this generator.
+     */
+    public long nextId() {
+        long next;
+        long last;
+        do {
+            last = lastTimeAndSequence.get();
+            long now = (System.currentTimeMillis() - EPOCH_MILLIS) << SEQUENCE_BITS;
+            // Within the same millisecond, or behind the last key, count up; a full sequence carries into the time.
+            next = now > last ? now : last + 1;
+        } while (!lastTimeAndSequence.compareAndSet(last, next));
+        return ((next >>> SEQUENCE_BITS) << (NODE_BITS + SEQUENCE_BITS)) | nodeBits | (next & SEQUENCE_MASK);
+    }
+
+    /**
+     * Generates a key as text.
+     * @param prefix The text put in front of the key, such as "ORD-".
+     * @return The prefix followed by the 13 characters of the key.
+     */
+    public String next(String prefix) {
+        long id = nextId();
+        int length = prefix.length();
+        char[] chars = new char[length + ENCODED_LENGTH];
+        prefix.getChars(0, length, chars, 0);
+        for (int i = chars.length - 1; i >= length; i--) {
+            chars[i] = ALPHABET[(int) (id & 31)];
+            id >>>= 5;
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Reads the time a key was generated at.
+     * @param id The key.
+     * @return The epoch milliseconds the key was generated at, or later if the generator ran ahead of the clock.
+     */
+    public static long timestampOf(long id) {
+        return (id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH_MILLIS;
+    }
+
+    private static int nodeIdFromHostName() {
+        try {
+            return (InetAddress.getLocalHost().getHostName().hashCode() & Integer.MAX_VALUE) % (MAX_NODE_ID + 1);
+        } catch (UnknownHostException e) {
+            return (ProcessHandle.current().pid() > 0 ? (int) ProcessHandle.current().pid() : 0) & MAX_NODE_ID;
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.healthstore.util;
+
+import com.healthstore.dto.CursorPageDTO;
+import com.healthstore.exception.InvalidCursorException;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+
+import java.math.BigDecimal;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keyset pagination helpers based on Spring Data {@link Window}s.
+ * A cursor is an opaque, URL-safe token holding the sort and the sort key values of the last
+ * item returned, so the next window is read with an indexed seek on (sort key, id) instead of
+ * skipping an offset, and without a count query.
+ */
+public final class ScrollCursor {
+
+    public static final int MAX_SIZE = 100;
+
+    private static final String VERSION = "v1";
+    private static final String ID = "id";
+
+    private ScrollCursor() {
+    }
+
+    /**
+     * A resolved scroll request: where to continue from, in which order, and how many items to read.
+     * @param position The keyset position to continue from.
+     * @param sort The sort, ending with the ID as tie-breaker.
+     * @param limit The window size.
+     */
+    public record Request(ScrollPosition position, Sort sort, Limit limit) {
+    }
+
+    /**
+     * Resolves the scroll request for a listing.
+     * Without a cursor, the listing starts at the top with the requested sort, or the default sort.
+     * With a cursor, the sort stored in the cursor is used and the requested sort is ignored.
+     * @param cursor The cursor returned with the previous window, or null for the first window.
+     * @param requested The requested sort.
+     * @param defaultSort The sort used when none is requested.
+     * @param sortable The properties that may be sorted on; they must not be nullable.
+     * @param size The requested window size, capped at {@value #MAX_SIZE}.
+     * @return The scroll request.
+     * @throws InvalidCursorException if the cursor is malformed or the sort is not supported
+     */
+    public static Request resolve(String cursor, Sort requested, Sort defaultSort, Set<String> sortable, int size) {
+        Limit limit = Limit.of(Math.max(1, Math.min(size, MAX_SIZE)));
+        if (cursor == null || cursor.isBlank()) {
+            Sort sort = withIdTieBreaker(requested.isSorted() ? requested : defaultSort);
+            requireSortable(sort, sortable);
+            return new Request(ScrollPosition.keyset(), sort, limit);
+        }
+        Request decoded = decode(cursor, limit);
+        requireSortable(decoded.sort(), sortable);
+        return decoded;
+    }
+
+    /**
+     * Converts a window into a cursor page whose next cursor continues after its last item.
+     * @param window The window read with the request.
+     * @param request The scroll request the window was read with.
+     * @return The cursor page.
+     */
+    public static <T> CursorPageDTO<T> toPage(Window<T> window, Request request) {
+        List<T> content = window.getContent();
+        String nextCursor = null;
+        if (window.hasNext() && !window.isEmpty()) {
+            nextCursor = encode((KeysetScrollPosition) window.positionAt(window.size() - 1), request.sort());
+        }
+        return new CursorPageDTO<>(content, content.size(), nextCursor, nextCursor != null);
+    }
+
+    private static Sort withIdTieBreaker(Sort sort) {
+        if (sort.getOrderFor(ID) != null) {
+            return sort;
+        }
+        Sort.Direction direction = sort.stream().reduce((first, second) -> second)
+                .map(Sort.Order::getDirection)
+                .orElse(Sort.Direction.ASC);
+        return sort.and(Sort.by(direction, ID));
+    }
+
+    private static void requireSortable(Sort sort, Set<String> sortable) {
+        for (Sort.Order order : sort) {
+            if (!ID.equals(order.getProperty()) && !sortable.contains(order.getProperty())) {
+                throw new InvalidCursorException("Cannot scroll sorted by '" + order.getProperty()
+                        + "', supported properties are " + sortable);
+            }
+        }
+    }
+
+    private static String encode(KeysetScrollPosition position, Sort sort) {
+        StringBuilder token = new StringBuilder(VERSION).append('|');
+        List<String> orders = new ArrayList<>();
+        for (Sort.Order order : sort) {
+            orders.add(order.getProperty() + ":" + order.getDirection());
+        }
+        token.append(String.join(",", orders)).append('|');
+        List<String> keys = new ArrayList<>();
+        for (Map.Entry<String, Object> key : position.getKeys().entrySet()) {
+            keys.add(key.getKey() + "=" + encodeValue(key.getValue()));
+        }
+        token.append(String.join("&", keys));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(token.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Request decode(String cursor, Limit limit) {
+        try {
+            String token = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = token.split("\\|", -1);
+            if (parts.length != 3 || !VERSION.equals(parts[0]) || parts[1].isEmpty() || parts[2].isEmpty()) {
+                throw new InvalidCursorException("Malformed cursor");
+            }
+
+            List<Sort.Order> orders = new ArrayList<>();
+            for (String order : parts[1].split(",")) {
+                String[] fields = order.split(":");
+                orders.add(new Sort.Order(Sort.Direction.valueOf(fields[1]), fields[0]));
+            }
+
+            Map<String, Object> keys = new LinkedHashMap<>();
+            for (String key : parts[2].split("&")) {
+                int separator = key.indexOf('=');
+                if (keys.put(key.substring(0, separator), decodeValue(key.substring(separator + 1))) != null) {
+                    throw new InvalidCursorException("Malformed cursor");
+                }
+            }
+            requireKeysOfSort(orders, keys);
+            return new Request(ScrollPosition.forward(keys), Sort.by(orders), limit);
+        } catch (InvalidCursorException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            throw new InvalidCursorException("Malformed cursor", e);
+        }
+    }
+
+    /**
+     * Checks that a decoded cursor holds a value for every property of its sort and nothing else,
+     * and that its sort ends on the ID. Spring Data fails with a server error on a missing key.
+     */
+    private static void requireKeysOfSort(List<Sort.Order> orders, Map<String, Object> keys) {
+        Set<String> properties = new LinkedHashSet<>();
+        for (Sort.Order order : orders) {
+            properties.add(order.getProperty());
+        }
+        if (properties.size() != orders.size() || !properties.contains(ID) || !properties.equals(keys.keySet())) {
+            throw new InvalidCursorException("Cursor keys do not match its sort " + properties);
+        }
+    }
+
+    /**
+     * Encodes a key value with a type tag so that it is bound with its original type when decoded.
+     */
+    private static String encodeValue(Object value) {
+        String tag;
+        if (value instanceof Long) {
+            tag = "L";
+        } else if (value instanceof Integer) {
+            tag = "I";
+        } else if (value instanceof Double) {
+            tag = "D";
+        } else if (value instanceof BigDecimal) {
+            tag = "N";
+        } else if (value instanceof LocalDateTime) {
+            tag = "T";
+        } else if (value instanceof String) {
+            tag = "S";
+        } else {
+            throw new IllegalStateException("Unsupported cursor key type: " + (value == null ? "null" : value.getClass()));
+        }
+        return tag + ":" + URLEncoder.encode(value.toString(), StandardCharsets.UTF_8);
+    }
+
+    private static Object decodeValue(String encoded) {
+        String value = URLDecoder.decode(encoded.substring(2), StandardCharsets.UTF_8);
+        return switch (encoded.charAt(0)) {
+            case 'L' -> Long.valueOf(value);
+            case 'I' -> Integer.valueOf(value);
+            case 'D' -> Double.valueOf(value);
+            case 'N' -> new BigDecimal(value);
+            case 'T' -> LocalDateTime.parse(value);
+            case 'S' -> value;
+            default -> throw new InvalidCursorException("Malformed cursor");
+        };
+    }
+}
@@ -0,0 +1,214 @@
+package com.healthstore.cache;
+
+import com.healthstore.dto.ProductCardDTO;
+import com.healthstore.dto.ProductResponseDTO;
+import com.healthstore.event.ProductChangedEvent;
+import com.healthstore.event.ProductChangedEvent.ChangeType;
+import com.healthstore.event.StockChangedEvent;
+import com.healthstore.repository.ProductVariantRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Drives the {@link ProductCache} through the {@link ProductCacheInvalidator} as committed writes
+ * would, and counts the page and product loads to tell which entries were evicted.
+ */
+class ProductCacheTest {
+
+    private static final Pageable NEWEST_0 = PageRequest.of(0, 2, Sort.by(Sort.Direction.DESC, "createdAt"));
+    private static final Pageable NEWEST_1 = PageRequest.of(1, 2, Sort.by(Sort.Direction.DESC, "createdAt"));
+    private static final Pageable BY_NAME = PageRequest.of(0, 2, Sort.by("name"));
+
+    private final ProductVariantRepository productVariantRepository = mock(ProductVariantRepository.class);
+    private final Map<String, AtomicInteger> loads = new HashMap<>();
+    private ProductCache productCache;
+    private ProductCacheInvalidator invalidator;
+
+    @BeforeEach
+    void setUp() {
+        productCache = new ProductCache(new ConcurrentMapCacheManager(ProductCache.PAGES_CACHE, ProductCache.PRODUCT_CACHE),
+                new ProductPageIndex(), new SingleFlightLoader(new SimpleMeterRegistry(), Duration.ofSeconds(5)));
+        invalidator = new ProductCacheInvalidator(productCache, productVariantRepository);
+    }
+
+    @Test
+    void servesACachedPageWithoutLoadingIt() {
+        Page<ProductCardDTO> first = getPage(NEWEST_0, 1L, 2L);
+        Page<ProductCardDTO> second = getPage(NEWEST_0, 1L, 2L);
+
+        assertThat(second).isSameAs(first);
+        assertThat(loadsOf(NEWEST_0)).isEqualTo(1);
+    }
+
+    @Test
+    void anUpdateEvictsOnlyThePagesShowingTheProduct() {
+        getPage(NEWEST_0, 1L, 2L);
+        getPage(NEWEST_1, 3L, 4L);
+
+        invalidator.onProductChanged(new ProductChangedEvent(3L, ChangeType.UPDATED));
+        getPage(NEWEST_0, 1L, 2L);
+        getPage(NEWEST_1, 3L, 4L);
+
+        assertThat(loadsOf(NEWEST_0)).isEqualTo(1);
+        assertThat(loadsOf(NEWEST_1)).isEqualTo(2);
+    }
+
+    @Test
+    void anUpdateEvictsPagesSortedOnAPropertyItCanChange() {
+        getPage(BY_NAME, 1L, 2L);
+        getPage(NEWEST_0, 1L, 2L);
+
+        // Renaming product 9 can move it onto the page sorted by name, but not onto the newest products.
+        invalidator.onProductChanged(new ProductChangedEvent(9L, ChangeType.UPDATED));
+        getPage(BY_NAME, 1L, 2L);
+        getPage(NEWEST_0, 1L, 2L);
+
+        assertThat(loadsOf(BY_NAME)).isEqualTo(2);
+        assertThat(loadsOf(NEWEST_0)).isEqualTo(1);
+    }
+
+    @Test
+    void aCreationEvictsEveryPage() {
+        getPage(NEWEST_0, 1L, 2L);
+        getPage(NEWEST_1, 3L, 4L);
+
+        invalidator.onProductChanged(new ProductChangedEvent(5L, ChangeType.CREATED));
+        getPage(NEWEST_0, 5L, 1L);
+        getPage(NEWEST_1, 2L, 3L);
+
+        assertThat(loadsOf(NEWEST_0)).isEqualTo(2);
+        assertThat(loadsOf(NEWEST_1)).isEqualTo(2);
+    }
+
+    @Test
+    void aDeletionEvictsEveryPageAndTheProduct() {
+        getPage(NEWEST_0, 1L, 2L);
+        getPage(NEWEST_1, 3L, 4L);
+        getProduct(1L);
+
+        invalidator.onProductChanged(new ProductChangedEvent(1L, ChangeType.DELETED));
+        getPage(NEWEST_0, 2L, 3L);
+        getPage(NEWEST_1, 4L);
+        getProduct(1L);
+
+        assertThat(loadsOf(NEWEST_0)).isEqualTo(2);
+        assertThat(loadsOf(NEWEST_1)).isEqualTo(2);
+        assertThat(productLoadsOf(1L)).isEqualTo(2);
+    }
+
+    @Test
+    void aStockChangeEvictsThePagesOfTheVariantsProducts() {
+        when(productVariantRepository.findProductIdsByIdIn(List.of(30L))).thenReturn(List.of(3L));
+        getPage(NEWEST_0, 1L, 2L);
+        getPage(NEWEST_1, 3L, 4L);
+        getProduct(3L);
+
+        invalidator.onStockChanged(new StockChangedEvent(30L));
+        getPage(NEWEST_0, 1L, 2L);
+        getPage(NEWEST_1, 3L, 4L);
+        getProduct(3L);
+
+        assertThat(loadsOf(NEWEST_0)).isEqualTo(1);
+        assertThat(loadsOf(NEWEST_1)).isEqualTo(2);
+        assertThat(productLoadsOf(3L)).isEqualTo(2);
+    }
+
+    @Test
+    void aPageLoadedWhileAWriteIsAppliedIsNotCached() {
+        // The write commits after the load read the page, so the page may show the product as it was.
+        Page<ProductCardDTO> stale = productCache.getPage(NEWEST_0, () -> {
+            count(ProductCache.pageKey(NEWEST_0));
+            invalidator.onProductChanged(new ProductChangedEvent(1L, ChangeType.UPDATED));
+            return page(NEWEST_0, 1L, 2L);
+        });
+        getPage(NEWEST_0, 1L, 2L);
+        getPage(NEWEST_0, 1L, 2L);
+
+        assertThat(stale.getContent()).extracting(ProductCardDTO::getId).containsExactly(1L, 2L);
+        assertThat(loadsOf(NEWEST_0)).isEqualTo(2);
+    }
+
+    @Test
+    void aProductLoadedWhileAWriteIsAppliedIsNotCached() {
+        productCache.getProduct(1L, () -> {
+            count("product-1");
+            invalidator.onProductChanged(new ProductChangedEvent(1L, ChangeType.UPDATED));
+            return Optional.of(product(1L));
+        });
+        getProduct(1L);
+        getProduct(1L);
+
+        assertThat(productLoadsOf(1L)).isEqualTo(2);
+    }
+
+    @Test
+    void everyReaderGetsItsOwnCopyOfACachedProduct() {
+        ProductResponseDTO first = getProduct(1L).orElseThrow();
+        first.setName("Changed by a caller");
+
+        assertThat(getProduct(1L)).hasValueSatisfying(product -> {
+            assertThat(product).isNotSameAs(first);
+            assertThat(product.getName()).isEqualTo("Product 1");
+        });
+        assertThat(productLoadsOf(1L)).isEqualTo(1);
+    }
+
+    private Page<ProductCardDTO> getPage(Pageable pageable, Long... productIds) {
+        return productCache.getPage(pageable, () -> {
+            count(ProductCache.pageKey(pageable));
+            return page(pageable, productIds);
+        });
+    }
+
+    private Optional<ProductResponseDTO> getProduct(Long id) {
+        return productCache.getProduct(id, () -> {
+            count("product-" + id);
+            return Optional.of(product(id));
+        });
+    }
+
+    private void count(String key) {
+        loads.computeIfAbsent(key, k -> new AtomicInteger()).incrementAndGet();
+    }
+
+    private int loadsOf(Pageable pageable) {
+        return loads.getOrDefault(ProductCache.pageKey(pageable), new AtomicInteger()).get();
+    }
+
+    private int productLoadsOf(Long id) {
+        return loads.getOrDefault("product-" + id, new AtomicInteger()).get();
+    }
+
+    private static Page<ProductCardDTO> page(Pageable pageable, Long... productIds) {
+        List<ProductCardDTO> cards = Arrays.stream(productIds)
+                .map(id -> new ProductCardDTO(id, "Product " + id, null, 10.0, 5, null, 1L, "Vitamins", null, 0L))
+                .toList();
+        return new PageImpl<>(cards, pageable, 10);
+    }
+
+    private static ProductResponseDTO product(Long id) {
+        ProductResponseDTO product = new ProductResponseDTO();
+        product.setId(id);
+        product.setName("Product " + id);
+        return product;
+    }
+}
@@ -0,0 +1,63 @@
+package com.healthstore.cache;
+
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductPageIndexTest {
+
+    private final ProductPageIndex index = new ProductPageIndex();
+
+    @Test
+    void removesOnlyThePagesShowingAChangedProduct() {
+        index.registerPage("p0", List.of(1L, 2L), false);
+        index.registerPage("p1", List.of(2L, 3L), false);
+        index.registerPage("p2", List.of(4L), false);
+
+        assertThat(index.removePagesAffectedBy(List.of(2L))).containsExactlyInAnyOrder("p0", "p1");
+        assertThat(index.removePagesAffectedBy(List.of(1L, 3L))).isEmpty();
+        assertThat(index.removePagesAffectedBy(List.of(4L))).containsExactly("p2");
+    }
+
+    @Test
+    void removesReorderablePagesWhateverProductChanged() {
+        index.registerPage("byName", List.of(1L), true);
+        index.registerPage("byDate", List.of(2L), false);
+
+        assertThat(index.removePagesAffectedBy(List.of(9L))).containsExactly("byName");
+        assertThat(index.removePagesAffectedBy(List.of(9L))).isEmpty();
+    }
+
+    @Test
+    void aRegisteredPageReplacesItsPreviousProducts() {
+        index.registerPage("p0", List.of(1L, 2L), true);
+        index.registerPage("p0", List.of(3L), false);
+
+        assertThat(index.removePagesAffectedBy(List.of(1L, 2L))).isEmpty();
+        assertThat(index.removePagesAffectedBy(List.of(3L))).containsExactly("p0");
+    }
+
+    @Test
+    void forgetsPagesTheCacheEvicted() {
+        index.registerPage("p0", List.of(1L), true);
+        index.registerPage("p1", List.of(1L), false);
+
+        index.onRemoval("p0", null, RemovalCause.SIZE);
+
+        assertThat(index.removePagesAffectedBy(List.of(1L))).containsExactly("p1");
+        assertThat(index.getCacheName()).isEqualTo(ProductCache.PAGES_CACHE);
+    }
+
+    @Test
+    void clearForgetsEveryPage() {
+        index.registerPage("p0", List.of(1L), true);
+        index.registerPage("p1", List.of(2L), false);
+
+        index.clear();
+
+        assertThat(index.removePagesAffectedBy(List.of(1L, 2L))).isEmpty();
+    }
+}
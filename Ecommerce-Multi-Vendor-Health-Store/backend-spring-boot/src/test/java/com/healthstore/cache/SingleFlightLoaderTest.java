@@ -0,0 +1,142 @@
+package com.healthstore.cache;
+
+import com.healthstore.exception.LoadTimeoutException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightLoaderTest {
+
+    private static final int JOINERS = 4;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ExecutorService callers = Executors.newFixedThreadPool(JOINERS + 1);
+    private final CountDownLatch entered = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void shutdown() {
+        release.countDown();
+        callers.shutdownNow();
+    }
+
+    @Test
+    void concurrentCallersShareOneLoad() throws Exception {
+        SingleFlightLoader loader = new SingleFlightLoader(meterRegistry, Duration.ofSeconds(5));
+        AtomicInteger loads = new AtomicInteger();
+        Supplier<String> load = () -> {
+            loads.incrementAndGet();
+            entered.countDown();
+            await(release);
+            return "value";
+        };
+
+        Future<String> leader = callers.submit(() -> loader.load("test", 1, load));
+        assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+        List<Future<String>> joiners = new ArrayList<>();
+        for (int i = 0; i < JOINERS; i++) {
+            joiners.add(callers.submit(() -> loader.load("test", 1, load)));
+        }
+        awaitCalls("joined", JOINERS);
+        release.countDown();
+
+        assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo("value");
+        for (Future<String> joiner : joiners) {
+            assertThat(joiner.get(5, TimeUnit.SECONDS)).isSameAs(leader.get());
+        }
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void loadsAgainOnceTheSharedLoadIsDone() {
+        SingleFlightLoader loader = new SingleFlightLoader(meterRegistry, Duration.ofSeconds(5));
+        AtomicInteger loads = new AtomicInteger();
+
+        loader.load("test", 1, loads::incrementAndGet);
+        loader.load("test", 1, loads::incrementAndGet);
+
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void loadsOfOtherKeysDoNotWait() throws Exception {
+        SingleFlightLoader loader = new SingleFlightLoader(meterRegistry, Duration.ofSeconds(5));
+        callers.submit(() -> loader.load("test", 1, () -> {
+            entered.countDown();
+            return await(release);
+        }));
+        assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(loader.load("test", 2, () -> "other")).isEqualTo("other");
+        assertThat(loader.load("other", 1, () -> "other")).isEqualTo("other");
+    }
+
+    @Test
+    void joinerTimesOutWhenTheSharedLoadTakesTooLong() throws Exception {
+        SingleFlightLoader loader = new SingleFlightLoader(meterRegistry, Duration.ofMillis(50));
+        callers.submit(() -> loader.load("test", 1, () -> {
+            entered.countDown();
+            return await(release);
+        }));
+        assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThatThrownBy(() -> loader.load("test", 1, () -> "never loaded"))
+                .isInstanceOf(LoadTimeoutException.class);
+        assertThat(meterRegistry.counter("single.flight.calls", "name", "test", "result", "timeout").count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void joinersReceiveTheFailureOfTheLeader() throws Exception {
+        SingleFlightLoader loader = new SingleFlightLoader(meterRegistry, Duration.ofSeconds(5));
+        IllegalStateException failure = new IllegalStateException("database down");
+        Supplier<String> load = () -> {
+            entered.countDown();
+            await(release);
+            throw failure;
+        };
+
+        Future<String> leader = callers.submit(() -> loader.load("test", 1, load));
+        assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+        Future<String> joiner = callers.submit(() -> loader.load("test", 1, () -> "never loaded"));
+        awaitCalls("joined", 1);
+        release.countDown();
+
+        assertThatThrownBy(() -> leader.get(5, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class)
+                .hasCause(failure);
+        assertThatThrownBy(() -> joiner.get(5, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class)
+                .hasCause(failure);
+    }
+
+    private void awaitCalls(String result, int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.counter("single.flight.calls", "name", "test", "result", result).count() < count) {
+            assertThat(System.nanoTime()).isLessThan(deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    private static String await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "value";
+    }
+}
@@ -0,0 +1,154 @@
+package com.healthstore.cart;
+
+import com.healthstore.config.CartProperties;
+import com.healthstore.model.Cart;
+import com.healthstore.model.CartItem;
+import com.healthstore.model.Product;
+import com.healthstore.model.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CartSessionStoreTest {
+
+    private static final Long USER_ID = 7L;
+    private static final CartSession.Line A = new CartSession.Line(1L, null, 1);
+    private static final CartSession.Line B = new CartSession.Line(2L, null, 2);
+
+    private final CartWriteBack writeBack = mock(CartWriteBack.class);
+    private final CartSessionStore store = new CartSessionStore(writeBack, new CartProperties());
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        store.shutdown();
+    }
+
+    @Test
+    void movesTheCopyOntoACartSavedOutsideATransaction() {
+        when(writeBack.load(USER_ID)).thenReturn(new CartSession(USER_ID, 5, List.of(A, B)));
+        store.withUserCart(USER_ID, session -> session);
+
+        store.writtenDirectly(cart(6, B));
+
+        assertThat(store.withUserCart(USER_ID, CartSession::getLines)).containsExactly(B);
+        verify(writeBack, times(1)).load(USER_ID);
+    }
+
+    @Test
+    void keepsChangesMadeWhileACheckoutWritesTheCart() {
+        when(writeBack.load(USER_ID)).thenReturn(new CartSession(USER_ID, 5, List.of(A)));
+        when(writeBack.write(any())).thenReturn(CartWriteBack.CONFLICT);
+        store.withUserCart(USER_ID, session -> session);
+        TransactionSynchronizationManager.initSynchronization();
+
+        store.writtenDirectly(cart(6));
+        store.withUserCart(USER_ID, session -> {
+            session.put(B);
+            return session;
+        });
+        // Refused, since the checkout moved the revision, but the copy is kept.
+        store.writeBack(USER_ID);
+        completeTransaction(TransactionSynchronization.STATUS_COMMITTED);
+
+        CartSession session = store.withUserCart(USER_ID, s -> s);
+        assertThat(session.getLines()).containsExactly(B);
+        assertThat(session.getRevision()).isEqualTo(6);
+        verify(writeBack, times(1)).load(USER_ID);
+    }
+
+    @Test
+    void leavesTheCopyAloneWhenTheCheckoutRollsBack() {
+        when(writeBack.load(USER_ID)).thenReturn(new CartSession(USER_ID, 5, List.of(A)));
+        store.withUserCart(USER_ID, session -> session);
+        TransactionSynchronizationManager.initSynchronization();
+
+        store.writtenDirectly(cart(6));
+        completeTransaction(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        CartSession session = store.withUserCart(USER_ID, s -> s);
+        assertThat(session.getLines()).containsExactly(A);
+        assertThat(session.getRevision()).isEqualTo(5);
+    }
+
+    @Test
+    void dropsACopyWrittenElsewhere() {
+        when(writeBack.load(USER_ID)).thenReturn(new CartSession(USER_ID, 5, List.of(A)));
+        when(writeBack.write(any())).thenReturn(CartWriteBack.CONFLICT);
+        store.withUserCart(USER_ID, session -> {
+            session.put(B);
+            return session;
+        });
+
+        store.writeBack(USER_ID);
+        store.withUserCart(USER_ID, session -> session);
+
+        verify(writeBack, times(2)).load(USER_ID);
+    }
+
+    @Test
+    void loadsWithoutHoldingUpOtherUsers() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(writeBack.load(USER_ID)).thenAnswer(invocation -> {
+            loading.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return new CartSession(USER_ID, 5, List.of(A));
+        });
+        when(writeBack.load(8L)).thenReturn(new CartSession(8L, 1, List.of(B)));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<List<CartSession.Line>> slow = executor.submit(() -> store.withUserCart(USER_ID, CartSession::getLines));
+            assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+
+            assertThat(store.withUserCart(8L, CartSession::getLines)).containsExactly(B);
+
+            release.countDown();
+            assertThat(slow.get(5, TimeUnit.SECONDS)).containsExactly(A);
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    private static void completeTransaction(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(synchronization -> synchronization.afterCompletion(status));
+    }
+
+    private static Cart cart(long revision, CartSession.Line... lines) {
+        User user = new User();
+        user.setId(USER_ID);
+        Cart cart = new Cart();
+        cart.setUser(user);
+        cart.setRevision(revision);
+        for (CartSession.Line line : lines) {
+            Product product = new Product();
+            product.setId(line.productId());
+            CartItem item = new CartItem();
+            item.setCart(cart);
+            item.setProduct(product);
+            item.setQuantity(line.quantity());
+            cart.getItems().add(item);
+        }
+        return cart;
+    }
+}
@@ -0,0 +1,72 @@
+package com.healthstore.cart;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CartSessionTest {
+
+    private static final CartSession.Line A = new CartSession.Line(1L, 11L, 1);
+    private static final CartSession.Line B = new CartSession.Line(2L, 21L, 2);
+    private static final CartSession.Line C = new CartSession.Line(3L, 31L, 1);
+
+    @Test
+    void takesTheSavedLinesWhenTheCopyHasNoChanges() {
+        CartSession session = new CartSession(7L, 5, List.of(A, B));
+
+        session.rebase(6, List.of(B));
+
+        assertThat(session.getLines()).containsExactly(B);
+        assertThat(session.getRevision()).isEqualTo(6);
+    }
+
+    @Test
+    void keepsLinesAddedToTheCopySinceItWasWrittenBack() {
+        CartSession session = new CartSession(7L, 5, List.of(A, B));
+        session.put(C);
+
+        session.rebase(6, List.of());
+
+        assertThat(session.getLines()).containsExactly(C);
+    }
+
+    @Test
+    void keepsLinesRemovedFromTheCopySinceItWasWrittenBack() {
+        CartSession session = new CartSession(7L, 5, List.of(A, B));
+        session.remove(B.productId());
+
+        session.rebase(6, List.of(A, B));
+
+        assertThat(session.getLines()).containsExactly(A);
+    }
+
+    @Test
+    void mergesAgainstTheLinesOfTheLastWriteBack() {
+        CartSession session = new CartSession(7L, 5, List.of(A));
+        session.put(B);
+        session.written(session.snapshot(), session.getVersion());
+        session.put(C);
+
+        session.rebase(session.getRevision() + 1, List.of());
+
+        assertThat(session.getLines()).containsExactly(C);
+    }
+
+    @Test
+    void movesTheVersionPastEveryVersionHandedOutAndWritesItBack() {
+        CartSession session = new CartSession(7L, 5, List.of(A));
+        session.put(B);
+        session.put(C);
+        long handedOut = session.getVersion();
+
+        session.rebase(6, List.of());
+
+        assertThat(session.getVersion()).isGreaterThan(handedOut);
+        assertThat(session.isDirty()).isTrue();
+        CartSession.Snapshot snapshot = session.snapshot();
+        assertThat(snapshot.revision()).isEqualTo(6);
+        assertThat(snapshot.version()).isEqualTo(session.getVersion());
+    }
+}
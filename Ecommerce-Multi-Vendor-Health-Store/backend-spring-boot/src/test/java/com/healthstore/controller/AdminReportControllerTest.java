@@ -0,0 +1,83 @@
+package com.healthstore.controller;
+
+import com.healthstore.config.ReportJobProperties;
+import com.healthstore.exception.GlobalExceptionHandler;
+import com.healthstore.exception.TooManyReportJobsException;
+import com.healthstore.report.OrderExporter;
+import com.healthstore.report.ReportJobEngine;
+import com.healthstore.report.SalesRollupUpdater;
+import com.healthstore.service.AdminReportService;
+import com.healthstore.service.SalesReportService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.web.method.annotation.AuthenticationPrincipalArgumentResolver;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class AdminReportControllerTest {
+
+    private static final String REPORT_REQUEST = "{\"startDate\":\"2025-03-01\",\"endDate\":\"2025-03-31\"}";
+
+    private final ReportJobEngine reportJobEngine = mock(ReportJobEngine.class);
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        AdminReportController controller = new AdminReportController(mock(SalesReportService.class),
+                mock(AdminReportService.class), mock(SalesRollupUpdater.class), mock(OrderExporter.class),
+                reportJobEngine, new ReportJobProperties());
+        mockMvc = MockMvcBuilders.standaloneSetup(controller)
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .setCustomArgumentResolvers(new AuthenticationPrincipalArgumentResolver())
+                .build();
+
+        UserDetails admin = User.withUsername("alice").password("secret").roles("ADMIN").build();
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(admin, null, admin.getAuthorities()));
+    }
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void answersTooManyRequestsWhenTheAdminHasTooManyJobs() throws Exception {
+        when(reportJobEngine.submit(any(), eq("alice"))).thenThrow(new TooManyReportJobsException("At most 2"));
+
+        mockMvc.perform(post("/api/admin/reports/jobs").contentType(MediaType.APPLICATION_JSON).content(REPORT_REQUEST))
+                .andExpect(status().isTooManyRequests());
+    }
+
+    @Test
+    void answersServiceUnavailableWhenTheQueueIsFull() throws Exception {
+        when(reportJobEngine.submit(any(), eq("alice"))).thenThrow(new RejectedExecutionException());
+
+        mockMvc.perform(post("/api/admin/reports/jobs").contentType(MediaType.APPLICATION_JSON).content(REPORT_REQUEST))
+                .andExpect(status().isServiceUnavailable());
+    }
+
+    @Test
+    void answersNotFoundForTheJobOfAnotherAdmin() throws Exception {
+        when(reportJobEngine.getJob("RPT-1", "alice")).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/api/admin/reports/jobs/RPT-1")).andExpect(status().isNotFound());
+    }
+}
@@ -0,0 +1,116 @@
+package com.healthstore.inventory;
+
+import com.healthstore.config.InventoryProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CartReservationRegistryTest {
+
+    private static final Long ALICE = 1L;
+    private static final Long BOB = 2L;
+    private static final Long VARIANT_ID = 10L;
+    private static final Long OTHER_VARIANT_ID = 11L;
+
+    private final CartReservationRegistry registry = new CartReservationRegistry(properties(Duration.ofMillis(200)));
+
+    @AfterEach
+    void shutdown() {
+        registry.shutdown();
+    }
+
+    @Test
+    void holdsStockAgainstOtherCarts() {
+        assertThat(registry.hold(ALICE, VARIANT_ID, 3, 5)).isNotNull();
+
+        assertThat(registry.getHeld(VARIANT_ID)).isEqualTo(3);
+        assertThat(registry.getHeldByOthers(VARIANT_ID, ALICE)).isZero();
+        assertThat(registry.getHeldByOthers(VARIANT_ID, BOB)).isEqualTo(3);
+        assertThat(registry.hold(BOB, VARIANT_ID, 3, 5)).isNull();
+        assertThat(registry.hold(BOB, VARIANT_ID, 2, 5)).isNotNull();
+    }
+
+    @Test
+    void renewalReplacesTheHeldQuantity() {
+        registry.hold(ALICE, VARIANT_ID, 3, 5);
+
+        assertThat(registry.hold(ALICE, VARIANT_ID, 5, 5)).isNotNull();
+
+        assertThat(registry.getHeld(VARIANT_ID)).isEqualTo(5);
+        assertThat(registry.getReservations(ALICE)).hasSize(1);
+    }
+
+    @Test
+    void releasesAHoldOnceItsTtlHasPassed() throws InterruptedException {
+        CartReservationRegistry.Reservation reservation = registry.hold(ALICE, VARIANT_ID, 3, 5);
+
+        assertThat(reservation.expiresAt()).isAfter(Instant.now());
+        assertThat(eventually(() -> registry.getHeld(VARIANT_ID) == 0)).isTrue();
+        assertThat(registry.getReservations(ALICE)).isEmpty();
+        assertThat(registry.hold(BOB, VARIANT_ID, 5, 5)).isNotNull();
+    }
+
+    @Test
+    void renewedHoldOutlivesTheTimeoutOfTheHoldItReplaced() throws InterruptedException {
+        registry.hold(ALICE, VARIANT_ID, 3, 5);
+        Thread.sleep(120);
+
+        registry.hold(ALICE, VARIANT_ID, 2, 5);
+        Thread.sleep(120);
+
+        // The first hold would have expired by now; the renewed one has not.
+        assertThat(registry.getHeld(VARIANT_ID)).isEqualTo(2);
+        assertThat(eventually(() -> registry.getHeld(VARIANT_ID) == 0)).isTrue();
+    }
+
+    @Test
+    void releasesHoldsOnRequest() {
+        registry.hold(ALICE, VARIANT_ID, 3, 5);
+        registry.hold(ALICE, OTHER_VARIANT_ID, 1, 5);
+        registry.hold(BOB, VARIANT_ID, 1, 5);
+
+        registry.release(ALICE, VARIANT_ID);
+        assertThat(registry.getHeld(VARIANT_ID)).isEqualTo(1);
+        assertThat(registry.getReservations(ALICE)).extracting(CartReservationRegistry.Reservation::variantId)
+                .containsExactly(OTHER_VARIANT_ID);
+
+        registry.releaseAll(ALICE);
+        assertThat(registry.getReservations(ALICE)).isEmpty();
+        assertThat(registry.getHeld(OTHER_VARIANT_ID)).isZero();
+        assertThat(registry.getHeld(VARIANT_ID)).isEqualTo(1);
+    }
+
+    @Test
+    void listsReservationsSoonestToExpireFirst() throws InterruptedException {
+        registry.hold(ALICE, VARIANT_ID, 1, 5);
+        Thread.sleep(5);
+        registry.hold(ALICE, OTHER_VARIANT_ID, 1, 5);
+
+        assertThat(registry.getReservations(ALICE)).extracting(CartReservationRegistry.Reservation::variantId)
+                .containsExactly(VARIANT_ID, OTHER_VARIANT_ID);
+    }
+
+    private static InventoryProperties properties(Duration ttl) {
+        InventoryProperties properties = new InventoryProperties();
+        properties.getReservation().setTtl(ttl);
+        properties.getReservation().setTickDuration(Duration.ofMillis(5));
+        properties.getReservation().setWheelSize(16);
+        return properties;
+    }
+
+    private static boolean eventually(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(2).toNanos();
+        while (System.nanoTime() < deadline) {
+            if (condition.getAsBoolean()) {
+                return true;
+            }
+            Thread.sleep(5);
+        }
+        return condition.getAsBoolean();
+    }
+}
@@ -0,0 +1,167 @@
+package com.healthstore.inventory;
+
+import com.healthstore.config.InventoryProperties;
+import com.healthstore.repository.ProductVariantRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class HotStockLedgerTest {
+
+    private static final Long VARIANT_ID = 7L;
+
+    @TempDir
+    Path directory;
+
+    private ProductVariantRepository productVariantRepository;
+    private StockWriteBehind writeBehind;
+    private HotStockLedger ledger;
+
+    @BeforeEach
+    void startLedger() throws Exception {
+        InventoryProperties properties = new InventoryProperties();
+        properties.getHot().setEnabled(true);
+        properties.getHot().setStripes(4);
+        properties.getHot().setFlushInterval(Duration.ofHours(1));
+        properties.getHot().setJournal(directory.resolve("hot-stock.journal").toString());
+        productVariantRepository = mock(ProductVariantRepository.class);
+        writeBehind = mock(StockWriteBehind.class);
+        when(productVariantRepository.findStockQuantityById(VARIANT_ID)).thenReturn(Optional.of(5));
+
+        ledger = new HotStockLedger(properties, productVariantRepository, writeBehind);
+        ledger.start();
+        ledger.enable(VARIANT_ID);
+    }
+
+    @AfterEach
+    void stopLedger() {
+        ledger.shutdown();
+    }
+
+    @Test
+    void reservesUntilTheStockRunsOut() {
+        assertThat(ledger.reserve(VARIANT_ID, 3)).isEqualTo(HotStockLedger.Reservation.RESERVED);
+        assertThat(ledger.reserve(VARIANT_ID, 3)).isEqualTo(HotStockLedger.Reservation.INSUFFICIENT);
+        assertThat(ledger.reserve(VARIANT_ID, 2)).isEqualTo(HotStockLedger.Reservation.RESERVED);
+        assertThat(ledger.findAvailable(VARIANT_ID)).hasValue(0);
+    }
+
+    @Test
+    void reportsVariantsThatAreNotHot() {
+        assertThat(ledger.reserve(8L, 1)).isEqualTo(HotStockLedger.Reservation.NOT_HOT);
+        assertThat(ledger.findAvailable(8L)).isEmpty();
+    }
+
+    @Test
+    void flushWritesTheJournaledReservationsBack() {
+        ledger.reserve(VARIANT_ID, 2);
+
+        ledger.flush();
+
+        verify(writeBehind).apply(anyString(), eq(Map.of(VARIANT_ID, -2)), eq(1L));
+    }
+
+    @Test
+    void reservationDuringDisableFallsBackToTheDatabase() throws Exception {
+        CountDownLatch writingBack = new CountDownLatch(1);
+        CountDownLatch finishWriteBack = new CountDownLatch(1);
+        ledger.reserve(VARIANT_ID, 1);
+        doAnswer(invocation -> {
+            writingBack.countDown();
+            finishWriteBack.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(writeBehind).apply(anyString(), anyMap(), anyLong());
+
+        CompletableFuture<Void> disabling = CompletableFuture.runAsync(() -> ledger.disable(VARIANT_ID));
+        assertThat(writingBack.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<HotStockLedger.Reservation> reservation =
+                CompletableFuture.supplyAsync(() -> ledger.reserve(VARIANT_ID, 1));
+
+        // The counter is drained while the journal is written back; the buyer waits instead of being refused.
+        Thread.sleep(100);
+        assertThat(reservation).isNotDone();
+        finishWriteBack.countDown();
+
+        assertThat(reservation.get(5, TimeUnit.SECONDS)).isEqualTo(HotStockLedger.Reservation.NOT_HOT);
+        disabling.get(5, TimeUnit.SECONDS);
+        assertThat(ledger.isHot(VARIANT_ID)).isFalse();
+        verify(writeBehind, timeout(1000)).apply(anyString(), eq(Map.of(VARIANT_ID, -1)), eq(1L));
+    }
+
+    @Test
+    void everyReservationIsWrittenBackBeforeTheVariantLeavesHotMode() throws Exception {
+        Long busyVariantId = 9L;
+        when(productVariantRepository.findStockQuantityById(busyVariantId)).thenReturn(Optional.of(100_000));
+        ledger.enable(busyVariantId);
+        AtomicInteger writtenBack = new AtomicInteger();
+        doAnswer(invocation -> {
+            Map<Long, Integer> deltas = invocation.getArgument(1);
+            writtenBack.addAndGet(deltas.getOrDefault(busyVariantId, 0));
+            return null;
+        }).when(writeBehind).apply(anyString(), anyMap(), anyLong());
+
+        AtomicInteger reserved = new AtomicInteger();
+        CountDownLatch firstReserved = new CountDownLatch(1);
+        List<Thread> buyers = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Thread buyer = new Thread(() -> {
+                while (ledger.reserve(busyVariantId, 1) == HotStockLedger.Reservation.RESERVED) {
+                    reserved.incrementAndGet();
+                    firstReserved.countDown();
+                }
+            });
+            buyer.start();
+            buyers.add(buyer);
+        }
+        assertThat(firstReserved.await(5, TimeUnit.SECONDS)).isTrue();
+        Thread.sleep(50);
+
+        ledger.disable(busyVariantId);
+        int writtenBackAtSwitch = writtenBack.get();
+        for (Thread buyer : buyers) {
+            buyer.join(TimeUnit.SECONDS.toMillis(5));
+        }
+
+        // The database stock already counts every reservation acknowledged while the variant was hot.
+        assertThat(writtenBackAtSwitch).isEqualTo(-reserved.get());
+        assertThat(ledger.isHot(busyVariantId)).isFalse();
+    }
+
+    @Test
+    void variantStaysHotWhenItsReservationsCannotBeWrittenBack() {
+        ledger.reserve(VARIANT_ID, 1);
+        doThrow(new IllegalStateException("database down"))
+                .when(writeBehind).apply(anyString(), anyMap(), anyLong());
+
+        assertThatThrownBy(() -> ledger.disable(VARIANT_ID)).isInstanceOf(IllegalStateException.class);
+
+        assertThat(ledger.isHot(VARIANT_ID)).isTrue();
+        assertThat(ledger.findAvailable(VARIANT_ID)).hasValue(4);
+        assertThat(ledger.reserve(VARIANT_ID, 4)).isEqualTo(HotStockLedger.Reservation.RESERVED);
+    }
+}
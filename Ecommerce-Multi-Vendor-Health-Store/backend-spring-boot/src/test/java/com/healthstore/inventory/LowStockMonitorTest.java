@@ -0,0 +1,166 @@
+package com.healthstore.inventory;
+
+import com.healthstore.config.InventoryProperties;
+import com.healthstore.model.ProductVariant;
+import com.healthstore.repository.ProductVariantRepository;
+import com.healthstore.service.NotificationService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Moves variants through their alert states with the default thresholds, low at 10 and critical
+ * at 3, and checks which notifications each change sends.
+ */
+class LowStockMonitorTest {
+
+    private static final Long VARIANT_ID = 7L;
+
+    private final ProductVariantRepository productVariantRepository = mock(ProductVariantRepository.class);
+    private final HotStockLedger hotStockLedger = mock(HotStockLedger.class);
+    private final NotificationService notificationService = mock(NotificationService.class);
+    private final Map<Long, Integer> stock = new HashMap<>();
+    private LowStockMonitor monitor;
+
+    @BeforeEach
+    void setUp() {
+        when(productVariantRepository.findStockQuantitiesByIdIn(anyCollection())).thenAnswer(invocation -> {
+            List<Object[]> rows = new ArrayList<>();
+            for (Long variantId : invocation.<Collection<Long>>getArgument(0)) {
+                if (stock.containsKey(variantId)) {
+                    rows.add(new Object[] {variantId, stock.get(variantId)});
+                }
+            }
+            return rows;
+        });
+        when(productVariantRepository.findAllById(any())).thenAnswer(invocation -> {
+            List<ProductVariant> variants = new ArrayList<>();
+            for (Long variantId : invocation.<Iterable<Long>>getArgument(0)) {
+                ProductVariant variant = new ProductVariant();
+                variant.setId(variantId);
+                variants.add(variant);
+            }
+            return variants;
+        });
+        monitor = new LowStockMonitor(productVariantRepository, hotStockLedger, notificationService,
+                new InventoryProperties(), mock(PlatformTransactionManager.class));
+    }
+
+    @Test
+    void aVariantThatStaysLowIsReportedOnce() {
+        checkAt(8);
+        checkAt(6);
+        checkAt(4);
+
+        verify(notificationService).sendLowStockAlert(variant(VARIANT_ID), eq("LOW"));
+        verifyNoMoreInteractions(notificationService);
+    }
+
+    @Test
+    void aVariantIsReportedAgainAsItGetsWorse() {
+        checkAt(8);
+        checkAt(2);
+        checkAt(0);
+
+        verify(notificationService).sendLowStockAlert(variant(VARIANT_ID), eq("LOW"));
+        verify(notificationService).sendLowStockAlert(variant(VARIANT_ID), eq("CRITICAL"));
+        verify(notificationService).sendOutOfStockNotification(variant(VARIANT_ID));
+        verifyNoMoreInteractions(notificationService);
+    }
+
+    @Test
+    void aVariantComingBackFromOutOfStockIsReportedBackInStock() {
+        checkAt(0);
+        clearInvocations(notificationService);
+
+        checkAt(5);
+
+        ArgumentCaptor<ProductVariant> variant = ArgumentCaptor.forClass(ProductVariant.class);
+        verify(notificationService).sendBackInStockNotification(variant.capture());
+        assertThat(variant.getValue().getStockQuantity()).isEqualTo(5);
+        verifyNoMoreInteractions(notificationService);
+    }
+
+    @Test
+    void aVariantRecoveringFromLowStockIsNotReported() {
+        checkAt(2);
+        clearInvocations(notificationService);
+
+        checkAt(6);
+        checkAt(50);
+
+        verifyNoInteractions(notificationService);
+
+        // Back to OK, the variant is reported again when it next runs low.
+        checkAt(8);
+        verify(notificationService).sendLowStockAlert(variant(VARIANT_ID), eq("LOW"));
+    }
+
+    @Test
+    void aDeletedVariantIsForgotten() {
+        checkAt(8);
+        stock.remove(VARIANT_ID);
+        monitor.check(List.of(VARIANT_ID));
+        clearInvocations(notificationService);
+
+        // A variant recreated with the same ID starts over from OK.
+        checkAt(8);
+
+        verify(notificationService).sendLowStockAlert(variant(VARIANT_ID), eq("LOW"));
+        verifyNoMoreInteractions(notificationService);
+    }
+
+    @Test
+    void theStockOfAHotVariantIsReadFromTheLedger() {
+        when(hotStockLedger.findAvailable(VARIANT_ID)).thenReturn(OptionalInt.of(0));
+
+        checkAt(40);
+
+        ArgumentCaptor<ProductVariant> variant = ArgumentCaptor.forClass(ProductVariant.class);
+        verify(notificationService).sendOutOfStockNotification(variant.capture());
+        assertThat(variant.getValue().getStockQuantity()).isZero();
+    }
+
+    @Test
+    void checksManyVariantsWithOneQuery() {
+        stock.put(1L, 50);
+        stock.put(2L, 9);
+        stock.put(3L, 0);
+
+        monitor.check(List.of(1L, 2L, 3L, 4L));
+
+        verify(productVariantRepository).findStockQuantitiesByIdIn(List.of(1L, 2L, 3L, 4L));
+        verify(notificationService).sendLowStockAlert(variant(2L), eq("LOW"));
+        verify(notificationService).sendOutOfStockNotification(variant(3L));
+        verifyNoMoreInteractions(notificationService);
+    }
+
+    private void checkAt(int quantity) {
+        stock.put(VARIANT_ID, quantity);
+        monitor.check(List.of(VARIANT_ID));
+    }
+
+    private static ProductVariant variant(Long id) {
+        return argThat(variant -> variant != null && id.equals(variant.getId()));
+    }
+}
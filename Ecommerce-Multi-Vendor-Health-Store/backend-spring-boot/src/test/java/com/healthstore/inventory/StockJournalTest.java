@@ -0,0 +1,154 @@
+package com.healthstore.inventory;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StockJournalTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void syncsAppendedChangesAndSumsThemPerVariant() throws Exception {
+        Path path = directory.resolve("stock.journal");
+        try (StockJournal journal = StockJournal.open(path, 0, 16)) {
+            journal.append(1, -2).get(5, TimeUnit.SECONDS);
+            journal.append(1, -3).get(5, TimeUnit.SECONDS);
+            journal.append(2, 4).get(5, TimeUnit.SECONDS);
+
+            StockJournal.Snapshot snapshot = journal.drain();
+
+            assertThat(snapshot.deltas()).isEqualTo(Map.of(1L, -5, 2L, 4));
+            assertThat(snapshot.sequence()).isEqualTo(3);
+            assertThat(journal.drain().isEmpty()).isTrue();
+        }
+        assertThat(Files.readAllLines(path, StandardCharsets.UTF_8)).containsExactly("1 1 -2", "2 1 -3", "3 2 4");
+    }
+
+    @Test
+    void dropsChangesThatCancelOut() throws Exception {
+        try (StockJournal journal = StockJournal.open(directory.resolve("stock.journal"), 0, 16)) {
+            journal.append(1, -2).get(5, TimeUnit.SECONDS);
+            journal.append(1, 2).get(5, TimeUnit.SECONDS);
+
+            assertThat(journal.drain().isEmpty()).isTrue();
+        }
+    }
+
+    @Test
+    void restoredChangesAreDrainedAgain() throws Exception {
+        try (StockJournal journal = StockJournal.open(directory.resolve("stock.journal"), 0, 16)) {
+            journal.append(1, -2).get(5, TimeUnit.SECONDS);
+            StockJournal.Snapshot failed = journal.drain();
+            journal.append(1, -1).get(5, TimeUnit.SECONDS);
+
+            journal.restore(failed);
+
+            assertThat(journal.drain().deltas()).isEqualTo(Map.of(1L, -3));
+        }
+    }
+
+    @Test
+    void continuesNumberingAfterTheGivenSequence() throws Exception {
+        Path path = directory.resolve("stock.journal");
+        try (StockJournal journal = StockJournal.open(path, 41, 16)) {
+            journal.append(7, -1).get(5, TimeUnit.SECONDS);
+
+            assertThat(journal.drain().sequence()).isEqualTo(42);
+        }
+        assertThat(Files.readString(path, StandardCharsets.UTF_8)).isEqualTo("42 7 -1\n");
+    }
+
+    @Test
+    void replaysOnlyRecordsPastTheCheckpoint() throws Exception {
+        Path path = directory.resolve("stock.journal");
+        Files.writeString(path, "1 1 -2\n2 1 -3\n3 2 4\n", StandardCharsets.UTF_8);
+
+        StockJournal.Snapshot replayed = StockJournal.replay(path, 1);
+
+        assertThat(replayed.deltas()).isEqualTo(Map.of(1L, -3, 2L, 4));
+        assertThat(replayed.sequence()).isEqualTo(3);
+    }
+
+    @Test
+    void replayStopsAtATornRecord() throws Exception {
+        Path path = directory.resolve("stock.journal");
+        Files.writeString(path, "1 1 -2\n2 1 -3\n3 2", StandardCharsets.UTF_8);
+
+        StockJournal.Snapshot replayed = StockJournal.replay(path, 0);
+
+        assertThat(replayed.deltas()).isEqualTo(Map.of(1L, -5));
+        assertThat(replayed.sequence()).isEqualTo(2);
+    }
+
+    @Test
+    void replayOfAMissingFileIsEmpty() throws Exception {
+        StockJournal.Snapshot replayed = StockJournal.replay(directory.resolve("missing.journal"), 5);
+
+        assertThat(replayed.isEmpty()).isTrue();
+        assertThat(replayed.sequence()).isEqualTo(5);
+    }
+
+    @Test
+    void groupCommitsConcurrentAppendsWithoutLosingOrRenumberingAny() throws Exception {
+        Path path = directory.resolve("stock.journal");
+        int threads = 16;
+        int appendsPerThread = 200;
+        List<CompletableFuture<Void>> written = new ArrayList<>();
+        try (StockJournal journal = StockJournal.open(path, 0, 64)) {
+            List<Thread> appenders = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                long variantId = t % 4;
+                Thread appender = new Thread(() -> {
+                    for (int i = 0; i < appendsPerThread; i++) {
+                        CompletableFuture<Void> future = journal.append(variantId, -1);
+                        synchronized (written) {
+                            written.add(future);
+                        }
+                    }
+                });
+                appender.start();
+                appenders.add(appender);
+            }
+            for (Thread appender : appenders) {
+                appender.join();
+            }
+            CompletableFuture.allOf(written.toArray(CompletableFuture[]::new)).get(10, TimeUnit.SECONDS);
+
+            StockJournal.Snapshot snapshot = journal.drain();
+            assertThat(snapshot.sequence()).isEqualTo(threads * appendsPerThread);
+            assertThat(snapshot.deltas().values()).allMatch(delta -> delta == -threads / 4 * appendsPerThread);
+        }
+
+        List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+        Set<Long> sequences = new HashSet<>();
+        lines.forEach(line -> sequences.add(Long.parseLong(line.split(" ")[0])));
+        assertThat(lines).hasSize(threads * appendsPerThread);
+        assertThat(sequences).hasSize(threads * appendsPerThread)
+                .allMatch(sequence -> sequence >= 1 && sequence <= threads * appendsPerThread);
+    }
+
+    @Test
+    void refusesAppendsOnceClosed() throws Exception {
+        StockJournal journal = StockJournal.open(directory.resolve("stock.journal"), 0, 16);
+        journal.close();
+
+        assertThatThrownBy(() -> journal.append(1, -1).get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(IOException.class);
+    }
+}
@@ -0,0 +1,132 @@
+package com.healthstore.inventory;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StripedStockCounterTest {
+
+    @Test
+    void spreadsTheStockOverTheStripes() {
+        StripedStockCounter counter = new StripedStockCounter(4, 10);
+
+        assertThat(counter.available()).isEqualTo(10);
+    }
+
+    @Test
+    void takesFromOtherStripesWhenItsOwnRunsShort() {
+        StripedStockCounter counter = new StripedStockCounter(4, 10);
+
+        assertThat(counter.tryTake(9)).isTrue();
+        assertThat(counter.available()).isEqualTo(1);
+    }
+
+    @Test
+    void refusesMoreThanIsAvailableAndLeavesTheCounterUnchanged() {
+        StripedStockCounter counter = new StripedStockCounter(4, 10);
+
+        assertThat(counter.tryTake(11)).isFalse();
+        assertThat(counter.available()).isEqualTo(10);
+    }
+
+    @Test
+    void addsHandedBackStock() {
+        StripedStockCounter counter = new StripedStockCounter(2, 3);
+        counter.tryTake(3);
+
+        counter.add(2);
+
+        assertThat(counter.available()).isEqualTo(2);
+        assertThat(counter.tryTake(2)).isTrue();
+    }
+
+    @Test
+    void drainTakesEverythingAndRetiresTheCounter() {
+        StripedStockCounter counter = new StripedStockCounter(4, 10);
+
+        assertThat(counter.isRetired()).isFalse();
+        assertThat(counter.drain()).isEqualTo(10);
+        assertThat(counter.isRetired()).isTrue();
+        assertThat(counter.tryTake(1)).isFalse();
+    }
+
+    @Test
+    void refusesToBeEnteredOnceRetired() {
+        StripedStockCounter counter = new StripedStockCounter(4, 10);
+        assertThat(counter.enter()).isTrue();
+        counter.exit();
+
+        counter.retire();
+
+        assertThat(counter.enter()).isFalse();
+        counter.awaitIdle();
+    }
+
+    @Test
+    void awaitIdleWaitsForTheChangesEnteredBeforeTheRetirement() throws InterruptedException {
+        StripedStockCounter counter = new StripedStockCounter(4, 10);
+        assertThat(counter.enter()).isTrue();
+        counter.retire();
+
+        Thread retiring = new Thread(counter::awaitIdle);
+        retiring.start();
+        retiring.join(100);
+        assertThat(retiring.isAlive()).isTrue();
+
+        counter.exit();
+        retiring.join(5000);
+        assertThat(retiring.isAlive()).isFalse();
+    }
+
+    @Test
+    void awaitReplacedReturnsOnceTheCounterIsReplaced() throws InterruptedException {
+        StripedStockCounter counter = new StripedStockCounter(4, 10);
+        counter.retire();
+        Thread waiting = new Thread(counter::awaitReplaced);
+        waiting.start();
+        waiting.join(100);
+        assertThat(waiting.isAlive()).isTrue();
+
+        counter.replaced();
+        waiting.join(5000);
+        assertThat(waiting.isAlive()).isFalse();
+    }
+
+    @Test
+    void concurrentBuyersNeverTakeMoreThanTheStock() throws InterruptedException {
+        int stock = 1000;
+        StripedStockCounter counter = new StripedStockCounter(8, stock);
+        AtomicInteger sold = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> buyers = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            Thread buyer = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int attempt = 0; attempt < 500; attempt++) {
+                    int quantity = 1 + attempt % 3;
+                    if (counter.tryTake(quantity)) {
+                        sold.addAndGet(quantity);
+                    }
+                }
+            });
+            buyer.start();
+            buyers.add(buyer);
+        }
+        start.countDown();
+        for (Thread buyer : buyers) {
+            buyer.join();
+        }
+
+        assertThat(sold.get()).isLessThanOrEqualTo(stock);
+        assertThat(sold.get() + counter.available()).isEqualTo(stock);
+    }
+}
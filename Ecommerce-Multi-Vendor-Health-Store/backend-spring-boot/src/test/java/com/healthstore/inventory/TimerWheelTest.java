@@ -0,0 +1,138 @@
+package com.healthstore.inventory;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TimerWheelTest {
+
+    private static final Duration TICK = Duration.ofMillis(10);
+
+    // Four buckets of 10ms, so any delay over 40ms has to wait for more than one round.
+    private final TimerWheel wheel = new TimerWheel("test-wheel", TICK, 4);
+
+    @AfterEach
+    void closeWheel() {
+        wheel.close();
+    }
+
+    @Test
+    void runsATaskOnceItsDelayHasPassed() throws InterruptedException {
+        CountDownLatch ran = new CountDownLatch(1);
+        long start = System.nanoTime();
+
+        wheel.schedule(ran::countDown, Duration.ofMillis(30));
+
+        assertThat(ran.await(1, TimeUnit.SECONDS)).isTrue();
+        assertThat(elapsedMillis(start)).isGreaterThanOrEqualTo(30);
+    }
+
+    @Test
+    void waitsForTheRoundsOfADelayLongerThanTheWheel() throws InterruptedException {
+        CountDownLatch ran = new CountDownLatch(1);
+        long start = System.nanoTime();
+
+        wheel.schedule(ran::countDown, Duration.ofMillis(150));
+
+        assertThat(ran.await(1, TimeUnit.SECONDS)).isTrue();
+        assertThat(elapsedMillis(start)).isGreaterThanOrEqualTo(150);
+    }
+
+    @Test
+    void runsTasksHashedToTheSameBucketInTheirOwnRound() throws InterruptedException {
+        List<String> order = new CopyOnWriteArrayList<>();
+        CountDownLatch ran = new CountDownLatch(2);
+
+        // 20ms and 60ms land in the same bucket, one round apart.
+        wheel.schedule(() -> {
+            order.add("late");
+            ran.countDown();
+        }, Duration.ofMillis(60));
+        wheel.schedule(() -> {
+            order.add("early");
+            ran.countDown();
+        }, Duration.ofMillis(20));
+
+        assertThat(ran.await(1, TimeUnit.SECONDS)).isTrue();
+        assertThat(order).containsExactly("early", "late");
+    }
+
+    @Test
+    void runsATaskThatIsAlreadyDue() throws InterruptedException {
+        CountDownLatch ran = new CountDownLatch(1);
+
+        wheel.schedule(ran::countDown, Duration.ZERO);
+
+        assertThat(ran.await(1, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void cancelledTaskNeverRuns() throws InterruptedException {
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch later = new CountDownLatch(1);
+
+        TimerWheel.Timeout timeout = wheel.schedule(runs::incrementAndGet, Duration.ofMillis(30));
+        wheel.schedule(later::countDown, Duration.ofMillis(80));
+
+        assertThat(timeout.cancel()).isTrue();
+        assertThat(later.await(1, TimeUnit.SECONDS)).isTrue();
+        assertThat(runs.get()).isZero();
+    }
+
+    @Test
+    void cancellingAfterTheTaskRanOrTwiceHasNoEffect() throws InterruptedException {
+        CountDownLatch ran = new CountDownLatch(1);
+        TimerWheel.Timeout ranTimeout = wheel.schedule(ran::countDown, Duration.ofMillis(10));
+        TimerWheel.Timeout waiting = wheel.schedule(() -> { }, Duration.ofSeconds(10));
+
+        assertThat(ran.await(1, TimeUnit.SECONDS)).isTrue();
+        assertThat(ranTimeout.cancel()).isFalse();
+        assertThat(waiting.cancel()).isTrue();
+        assertThat(waiting.cancel()).isFalse();
+    }
+
+    @Test
+    void cancelsATaskAlreadyInTheWheel() throws InterruptedException {
+        AtomicInteger runs = new AtomicInteger();
+        TimerWheel.Timeout timeout = wheel.schedule(runs::incrementAndGet, Duration.ofMillis(100));
+
+        // Let the wheel move the task from the queue into its bucket first.
+        Thread.sleep(40);
+        assertThat(timeout.cancel()).isTrue();
+        Thread.sleep(120);
+
+        assertThat(runs.get()).isZero();
+    }
+
+    @Test
+    void keepsRunningAfterAFailingTask() throws InterruptedException {
+        CountDownLatch ran = new CountDownLatch(1);
+
+        wheel.schedule(() -> {
+            throw new IllegalStateException("failed");
+        }, Duration.ofMillis(10));
+        wheel.schedule(ran::countDown, Duration.ofMillis(30));
+
+        assertThat(ran.await(1, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void refusesTasksOnceClosed() {
+        wheel.close();
+
+        assertThatThrownBy(() -> wheel.schedule(() -> { }, TICK)).isInstanceOf(IllegalStateException.class);
+    }
+
+    private static long elapsedMillis(long start) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+}
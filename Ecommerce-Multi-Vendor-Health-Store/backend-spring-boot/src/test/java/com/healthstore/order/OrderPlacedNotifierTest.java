@@ -0,0 +1,55 @@
+package com.healthstore.order;
+
+import com.healthstore.event.OrderPlacedEvent;
+import com.healthstore.model.Order;
+import com.healthstore.service.NotificationService;
+import com.healthstore.service.OrderService;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OrderPlacedNotifierTest {
+
+    private final OrderService orderService = mock(OrderService.class);
+    private final NotificationService notificationService = mock(NotificationService.class);
+    private final OrderPlacedNotifier notifier = new OrderPlacedNotifier(orderService, notificationService);
+
+    @Test
+    void notifiesTheCustomerAndTheAdminsOfThePlacedOrder() {
+        Order order = new Order();
+        when(orderService.getOrderForEmail(5L)).thenReturn(Optional.of(order));
+
+        notifier.onOrderPlaced(new OrderPlacedEvent(5L, "ORD-1", 9L));
+
+        verify(notificationService).sendOrderPlacedNotification(order);
+        verify(notificationService).sendNewOrderAlert(order);
+    }
+
+    @Test
+    void alertsTheAdminsEvenWhenTheCustomerNotificationFails() {
+        Order order = new Order();
+        when(orderService.getOrderForEmail(5L)).thenReturn(Optional.of(order));
+        doThrow(new IllegalStateException("mail server down")).when(notificationService).sendOrderPlacedNotification(order);
+
+        notifier.onOrderPlaced(new OrderPlacedEvent(5L, "ORD-1", 9L));
+
+        verify(notificationService).sendNewOrderAlert(order);
+    }
+
+    @Test
+    void skipsAnOrderThatNoLongerExists() {
+        when(orderService.getOrderForEmail(5L)).thenReturn(Optional.empty());
+
+        notifier.onOrderPlaced(new OrderPlacedEvent(5L, "ORD-1", 9L));
+
+        verify(notificationService, never()).sendOrderPlacedNotification(any());
+        verify(notificationService, never()).sendNewOrderAlert(any());
+    }
+}
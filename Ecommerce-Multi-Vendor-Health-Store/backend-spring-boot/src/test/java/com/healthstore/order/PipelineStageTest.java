@@ -0,0 +1,94 @@
+package com.healthstore.order;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PipelineStageTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void completesTheFutureWithTheResultOfTheTask() throws Exception {
+        try (PipelineStage stage = new PipelineStage("test", 1, 1, false, meterRegistry)) {
+            assertThat(stage.submit(() -> 42).get(1, TimeUnit.SECONDS)).isEqualTo(42);
+        }
+    }
+
+    @Test
+    void failsTheFutureWhenTheTaskFails() {
+        try (PipelineStage stage = new PipelineStage("test", 1, 1, false, meterRegistry)) {
+            CompletableFuture<Object> result = stage.submit(() -> {
+                throw new IllegalStateException("boom");
+            });
+
+            assertThatThrownBy(() -> result.get(1, TimeUnit.SECONDS))
+                    .isInstanceOf(ExecutionException.class)
+                    .hasCauseInstanceOf(IllegalStateException.class);
+        }
+    }
+
+    @Test
+    void runsTheTaskOnTheCallerWhenTheQueueIsFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        try (PipelineStage stage = new PipelineStage("test", 1, 1, false, meterRegistry)) {
+            stage.submit(() -> await(release));
+            stage.submit(() -> await(release));
+
+            CompletableFuture<String> result = stage.submit(() -> Thread.currentThread().getName());
+
+            assertThat(result).isDone();
+            assertThat(result.get()).isEqualTo(Thread.currentThread().getName());
+            release.countDown();
+        }
+    }
+
+    @Test
+    void rejectsNewWorkWhenTheQueueIsFullAtTheEntry() {
+        CountDownLatch release = new CountDownLatch(1);
+        try (PipelineStage stage = new PipelineStage("test", 1, 1, true, meterRegistry)) {
+            stage.submit(() -> await(release));
+            stage.submit(() -> await(release));
+
+            assertThatThrownBy(() -> stage.submit(() -> 1)).isInstanceOf(RejectedExecutionException.class);
+            release.countDown();
+        }
+        assertThat(meterRegistry.counter("order.pipeline.rejected", "stage", "test").count()).isEqualTo(1);
+    }
+
+    @Test
+    void failsTheFutureOnceTheStageIsShutDown() {
+        PipelineStage stage = new PipelineStage("test", 1, 1, false, meterRegistry);
+        stage.close();
+
+        CompletableFuture<Integer> result = stage.submit(() -> 1);
+
+        assertThat(result).isCompletedExceptionally();
+        assertThatThrownBy(result::join).hasCauseInstanceOf(RejectedExecutionException.class);
+    }
+
+    @Test
+    void rejectsNewWorkAtTheEntryOnceTheStageIsShutDown() {
+        PipelineStage stage = new PipelineStage("test", 1, 1, true, meterRegistry);
+        stage.close();
+
+        assertThatThrownBy(() -> stage.submit(() -> 1)).isInstanceOf(RejectedExecutionException.class);
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.healthstore.report;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.healthstore.config.ExportProperties;
+import com.healthstore.model.Order;
+import com.healthstore.model.OrderItem;
+import com.healthstore.model.Product;
+import com.healthstore.model.User;
+import com.healthstore.support.DatabaseTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DatabaseTest
+@MockBean(SalesRollupUpdater.class)
+class OrderExporterTest {
+
+    private static final LocalDate DAY = LocalDate.of(2025, 3, 10);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private OrderExporter exporter;
+    private User customer;
+    private Order order;
+    private OrderItem formulaItem;
+    private OrderItem quotedItem;
+
+    @BeforeEach
+    void seedOrder() {
+        ExportProperties properties = new ExportProperties();
+        properties.setFetchSize(2);
+        exporter = new OrderExporter(jdbcTemplate, new ObjectMapper(), properties);
+
+        customer = new User();
+        customer.setEmail("@evil@example.com");
+        entityManager.persist(customer);
+
+        order = new Order();
+        order.setOrderNumber("ORD-1");
+        order.setUser(customer);
+        order.setStatus(Order.OrderStatus.PAID);
+        order.setOrderDate(DAY.atTime(14, 30));
+        order.setTotalAmount(new BigDecimal("25.50"));
+        order.setPaymentStatus("-1+2");
+        order.setPaymentMethod("card, \"visa\"");
+        formulaItem = item(order, "=SUM(A1,A2)");
+        quotedItem = item(order, "Fish Oil \"Omega\"\nLemon");
+        entityManager.persist(order);
+
+        // The end date is inclusive: the last minute of the day is exported, the next day is not.
+        placeOrder("ORD-2", DAY.atTime(23, 59));
+        placeOrder("ORD-3", DAY.plusDays(1).atStartOfDay());
+        entityManager.flush();
+    }
+
+    @Test
+    void writesAHeaderAndOneCsvLinePerOrderOfTheRange() throws IOException {
+        String csv = exportOrders(OrderExporter.Format.CSV);
+
+        String[] lines = csv.split("\r\n");
+        assertThat(lines).hasSize(3);
+        assertThat(lines[0]).isEqualToIgnoringCase("orderId,orderNumber,orderDate,status,customerId,customerEmail,"
+                + "totalAmount,paymentStatus,paymentMethod");
+        assertThat(csv).contains("ORD-2").doesNotContain("ORD-3");
+    }
+
+    @Test
+    void prefixesFormulasAndQuotesSeparatorsAndQuotesInCsv() throws IOException {
+        String csv = exportOrders(OrderExporter.Format.CSV);
+
+        assertThat(csv).contains(order.getId() + ",ORD-1,2025-03-10T14:30:00,PAID," + customer.getId()
+                + ",'@evil@example.com,25.50,'-1+2,\"card, \"\"visa\"\"\"\r\n");
+    }
+
+    @Test
+    void quotesLineBreaksInCsvAndKeepsNumbersAsTheyAre() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long rows = exporter.exportOrderItems(DAY, DAY, OrderExporter.Format.CSV, out);
+        String csv = out.toString(StandardCharsets.UTF_8);
+
+        assertThat(rows).isEqualTo(2);
+        String prefix = order.getId() + ",ORD-1,2025-03-10T14:30:00,PAID,";
+        assertThat(csv).contains(prefix + formulaItem.getId() + "," + formulaItem.getProduct().getId()
+                + ",\"'=SUM(A1,A2)\",,,2,5.00,0.00,10.00\r\n");
+        assertThat(csv).contains(prefix + quotedItem.getId() + "," + quotedItem.getProduct().getId()
+                + ",\"Fish Oil \"\"Omega\"\"\nLemon\",,,2,5.00,0.00,10.00\r\n");
+    }
+
+    @Test
+    void writesNdjsonWithoutCsvEscaping() throws IOException {
+        String ndjson = exportOrders(OrderExporter.Format.NDJSON);
+
+        String[] lines = ndjson.split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(new ObjectMapper().readTree(lines[0]).size()).isEqualTo(9);
+        assertThat(lines[0]).contains("\"@evil@example.com\"", "\"card, \\\"visa\\\"\"", "25.50");
+    }
+
+    @Test
+    void gzippedExportDecompressesToThePlainExport() throws IOException {
+        String plain = exportOrders(OrderExporter.Format.CSV);
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        // As the export endpoint does: closing the stream writes the gzip trailer.
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed, 8 * 1024)) {
+            exporter.exportOrders(DAY, DAY, OrderExporter.Format.CSV, out);
+        }
+
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed.toByteArray()))) {
+            assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo(plain);
+        }
+    }
+
+    private String exportOrders(OrderExporter.Format format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exporter.exportOrders(DAY, DAY, format, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private void placeOrder(String orderNumber, LocalDateTime orderDate) {
+        Order other = new Order();
+        other.setOrderNumber(orderNumber);
+        other.setUser(customer);
+        other.setOrderDate(orderDate);
+        other.setTotalAmount(BigDecimal.TEN);
+        entityManager.persist(other);
+    }
+
+    private OrderItem item(Order order, String productName) {
+        Product product = new Product();
+        product.setName(productName);
+        product.setSeller(customer);
+        entityManager.persist(product);
+
+        OrderItem item = new OrderItem();
+        item.setOrder(order);
+        item.setProduct(product);
+        item.setQuantity(2);
+        item.setPriceAtPurchase(new BigDecimal("5.00"));
+        order.getOrderItems().add(item);
+        return item;
+    }
+}
@@ -0,0 +1,204 @@
+package com.healthstore.report;
+
+import com.healthstore.config.ReportJobProperties;
+import com.healthstore.dto.report.SalesReportRequest;
+import com.healthstore.dto.report.SalesReportResponse;
+import com.healthstore.exception.TooManyReportJobsException;
+import com.healthstore.service.SalesReportService;
+import com.healthstore.util.BusinessKeyGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReportJobEngineTest {
+
+    private final SalesReportService salesReportService = mock(SalesReportService.class);
+    private final SalesReportResponse report = new SalesReportResponse();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final CountDownLatch started = new CountDownLatch(1);
+    private ReportJobEngine engine;
+
+    @BeforeEach
+    void blockReportsUntilReleased() {
+        when(salesReportService.generateSalesReport(any(), any())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return report;
+        });
+    }
+
+    @AfterEach
+    void shutdown() {
+        release.countDown();
+        if (engine != null) {
+            engine.shutdown();
+        }
+    }
+
+    @Test
+    void refusesMoreJobsOfAnAdminThanTheLimit() {
+        engine = engine(1, 5, 2);
+        engine.submit(request("day"), "alice");
+        engine.submit(request("week"), "alice");
+
+        assertThatThrownBy(() -> engine.submit(request("month"), "alice"))
+                .isInstanceOf(TooManyReportJobsException.class);
+        assertThat(engine.submit(request("year"), "bob").getStatus()).isEqualTo(ReportJob.Status.QUEUED);
+    }
+
+    @Test
+    void freesTheSlotOfAnAdminOnceTheirJobIsDone() throws InterruptedException {
+        engine = engine(1, 5, 1);
+        engine.submit(request("day"), "alice");
+        // The single worker only picks the next job up once the first has freed its slot.
+        ReportJob next = engine.submit(request("week"), "bob");
+        release.countDown();
+        awaitDone(next);
+
+        assertThat(engine.submit(request("month"), "alice")).isNotNull();
+    }
+
+    @Test
+    void rejectsJobsWhenTheQueueIsFull() throws InterruptedException {
+        engine = engine(1, 1, 1);
+        engine.submit(request("day"), "alice");
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        ReportJob queued = engine.submit(request("week"), "bob");
+
+        assertThatThrownBy(() -> engine.submit(request("month"), "carol"))
+                .isInstanceOf(RejectedExecutionException.class);
+
+        // The rejected job does not count against the limit of its admin.
+        release.countDown();
+        awaitDone(queued);
+        assertThat(engine.submit(request("year"), "carol")).isNotNull();
+    }
+
+    @Test
+    void attachesIdenticalRequestsToTheRunningJob() throws InterruptedException {
+        engine = engine(1, 5, 1);
+        ReportJob first = engine.submit(request("day"), "alice");
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // Attached jobs take no worker and do not count against the limit of their admin.
+        ReportJob attached = engine.submit(request(" DAY"), "bob");
+        ReportJob again = engine.submit(request("day"), "alice");
+        assertThat(attached.getStatus()).isEqualTo(ReportJob.Status.RUNNING);
+        release.countDown();
+        awaitDone(first);
+        awaitDone(attached);
+        awaitDone(again);
+
+        assertThat(first.isCached()).isFalse();
+        assertThat(attached.isCached()).isTrue();
+        assertThat(attached.getResult()).isSameAs(report);
+        assertThat(again.getResult()).isSameAs(report);
+        assertThat(engine.getJob(attached.getId(), "bob")).containsSame(attached);
+        verify(salesReportService, times(1)).generateSalesReport(any(), any());
+    }
+
+    @Test
+    void attachedJobsFailWithTheirRun() throws InterruptedException {
+        when(salesReportService.generateSalesReport(any(), any())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            throw new IllegalStateException("database down");
+        });
+        engine = engine(1, 5, 1);
+        ReportJob first = engine.submit(request("day"), "alice");
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        ReportJob attached = engine.submit(request("day"), "bob");
+        release.countDown();
+        awaitDone(attached);
+
+        assertThat(first.getStatus()).isEqualTo(ReportJob.Status.FAILED);
+        assertThat(attached.getStatus()).isEqualTo(ReportJob.Status.FAILED);
+        assertThat(attached.getFailure()).isEqualTo("database down");
+    }
+
+    @Test
+    void completesAnIdenticalRequestFromTheEarlierReport() throws InterruptedException {
+        engine = engine(1, 5, 2);
+        release.countDown();
+        ReportJob first = engine.submit(request(" Day "), "alice");
+        awaitDone(first);
+
+        SalesReportRequest identical = request("day");
+        identical.setLowStockThreshold(99);
+        ReportJob second = engine.submit(identical, "bob");
+
+        assertThat(first.isCached()).isFalse();
+        assertThat(second.getStatus()).isEqualTo(ReportJob.Status.COMPLETED);
+        assertThat(second.isCached()).isTrue();
+        assertThat(second.getResult()).isSameAs(report);
+        verify(salesReportService, times(1)).generateSalesReport(any(), any());
+    }
+
+    @Test
+    void generatesADifferentRequestAgain() throws InterruptedException {
+        engine = engine(1, 5, 2);
+        release.countDown();
+        awaitDone(engine.submit(request("day"), "alice"));
+
+        SalesReportRequest withInventory = request("day");
+        withInventory.setIncludeInventoryStatus(true);
+        ReportJob job = engine.submit(withInventory, "alice");
+        awaitDone(job);
+
+        assertThat(job.isCached()).isFalse();
+        verify(salesReportService, times(2)).generateSalesReport(any(), any());
+    }
+
+    @Test
+    void letsOnlyTheOwnerLookAJobUp() {
+        engine = engine(1, 5, 2);
+        ReportJob job = engine.submit(request(), "alice");
+
+        assertThat(engine.getJob(job.getId(), "alice")).containsSame(job);
+        assertThat(engine.getJob(job.getId(), "bob")).isEmpty();
+        assertThat(engine.getJob("RPT-unknown", "alice")).isEmpty();
+    }
+
+    private ReportJobEngine engine(int workers, int queueCapacity, int maxJobsPerAdmin) {
+        ReportJobProperties properties = new ReportJobProperties();
+        properties.setWorkers(workers);
+        properties.setQueueCapacity(queueCapacity);
+        properties.setMaxJobsPerAdmin(maxJobsPerAdmin);
+        return new ReportJobEngine(salesReportService, new BusinessKeyGenerator(1, 1), properties);
+    }
+
+    private static SalesReportRequest request() {
+        return request("day");
+    }
+
+    private static SalesReportRequest request(String groupBy) {
+        SalesReportRequest request = new SalesReportRequest();
+        request.setStartDate(LocalDate.of(2025, 3, 1));
+        request.setEndDate(LocalDate.of(2025, 3, 31));
+        request.setGroupBy(groupBy);
+        return request;
+    }
+
+    private static void awaitDone(ReportJob job) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        job.subscribe(changed -> {
+            if (changed.isDone()) {
+                done.countDown();
+            }
+        });
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+}
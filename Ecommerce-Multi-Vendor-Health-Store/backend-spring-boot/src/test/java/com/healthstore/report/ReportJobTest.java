@@ -0,0 +1,119 @@
+package com.healthstore.report;
+
+import com.healthstore.dto.report.SalesReportResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReportJobTest {
+
+    private final ExecutorService notifier = Executors.newFixedThreadPool(2);
+    private final ReportJob job = new ReportJob("RPT-1", "alice", notifier);
+
+    @AfterEach
+    void shutdown() {
+        notifier.shutdownNow();
+    }
+
+    @Test
+    void passesTheCurrentStateToANewListener() throws InterruptedException {
+        CountDownLatch received = new CountDownLatch(1);
+
+        job.subscribe(changed -> received.countDown());
+
+        assertThat(received.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void aBlockedListenerDoesNotHoldUpTheJob() throws InterruptedException {
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        job.subscribe(changed -> {
+            blocked.countDown();
+            await(release);
+        });
+        assertThat(blocked.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // Runs on the test thread while the listener is stuck on the notifier.
+        job.start();
+        for (int section = 1; section <= 5; section++) {
+            job.progress(section, 5);
+        }
+        job.complete(new SalesReportResponse(), false);
+
+        assertThat(job.getStatus()).isEqualTo(ReportJob.Status.COMPLETED);
+        release.countDown();
+    }
+
+    @Test
+    void coalescesTheChangesMadeWhileTheListenerIsBusyIntoTheLatestState() throws InterruptedException {
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        List<String> received = new CopyOnWriteArrayList<>();
+        job.subscribe(changed -> {
+            ReportJob.Status status = changed.getStatus();
+            received.add(status + " " + changed.getSectionsCompleted());
+            blocked.countDown();
+            await(release);
+            if (status == ReportJob.Status.COMPLETED) {
+                done.countDown();
+            }
+        });
+        assertThat(blocked.await(5, TimeUnit.SECONDS)).isTrue();
+
+        job.start();
+        for (int section = 1; section <= 5; section++) {
+            job.progress(section, 5);
+        }
+        job.complete(new SalesReportResponse(), false);
+        release.countDown();
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(received).containsExactly("QUEUED 0", "COMPLETED 5");
+    }
+
+    @Test
+    void keepsTheHighestProgressWhenSectionsReportOutOfOrder() {
+        job.progress(2, 5);
+        job.progress(1, 5);
+
+        assertThat(job.getSectionsCompleted()).isEqualTo(2);
+    }
+
+    @Test
+    void stopsPassingChangesToAnUnsubscribedListener() throws InterruptedException {
+        CountDownLatch first = new CountDownLatch(1);
+        List<ReportJob.Status> received = new CopyOnWriteArrayList<>();
+        Consumer<ReportJob> listener = changed -> {
+            received.add(changed.getStatus());
+            first.countDown();
+        };
+        job.subscribe(listener);
+        assertThat(first.await(5, TimeUnit.SECONDS)).isTrue();
+
+        job.unsubscribe(listener);
+        job.fail("boom");
+        notifier.shutdown();
+        assertThat(notifier.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(received).containsExactly(ReportJob.Status.QUEUED);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
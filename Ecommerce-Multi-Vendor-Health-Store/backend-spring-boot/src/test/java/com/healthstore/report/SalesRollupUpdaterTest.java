@@ -0,0 +1,170 @@
+package com.healthstore.report;
+
+import com.healthstore.config.SalesReportProperties;
+import com.healthstore.model.SalesRollup.PeriodType;
+import com.healthstore.repository.SalesRollupRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+
+import java.sql.Date;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SalesRollupUpdaterTest {
+
+    private static final LocalDate DAY = LocalDate.of(2025, 3, 12);
+
+    private final SalesRollupRepository salesRollupRepository = mock(SalesRollupRepository.class);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final SalesReportProperties properties = new SalesReportProperties();
+    private SalesRollupUpdater updater;
+
+    @BeforeEach
+    void setUp() {
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(mock(TransactionStatus.class));
+        properties.setRollupRetryDelay(Duration.ofMillis(50));
+        properties.setRollupMaxRetryDelay(Duration.ofMillis(200));
+        properties.setRollupVerifyDays(7);
+        updater = new SalesRollupUpdater(salesRollupRepository, jdbcTemplate, transactionManager, properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        updater.shutdown();
+    }
+
+    @Test
+    void recomputesTheDayOfAChangeAndItsWeekAndMonth() {
+        updater.orderChanged(DAY);
+
+        verify(salesRollupRepository, timeout(2000)).rebuildPeriod(PeriodType.MONTH, LocalDate.of(2025, 3, 1));
+        verify(salesRollupRepository).rebuildDay(DAY);
+        verify(salesRollupRepository).rebuildPeriod(PeriodType.WEEK, PeriodType.WEEK.startOf(DAY));
+    }
+
+    @Test
+    void aDayThatFailedIsRetriedWithoutAnotherChange() {
+        doThrow(new DataAccessResourceFailureException("down")).doNothing()
+                .when(salesRollupRepository).rebuildDay(DAY);
+
+        updater.orderChanged(DAY);
+
+        verify(salesRollupRepository, timeout(2000).times(2)).rebuildDay(DAY);
+        verify(salesRollupRepository, timeout(2000)).rebuildPeriod(PeriodType.MONTH, LocalDate.of(2025, 3, 1));
+        verify(salesRollupRepository, after(300).times(2)).rebuildDay(DAY);
+    }
+
+    @Test
+    void aPeriodThatFailedIsRetriedWithoutAnotherChange() {
+        LocalDate month = LocalDate.of(2025, 3, 1);
+        doThrow(new DataAccessResourceFailureException("down")).doNothing()
+                .when(salesRollupRepository).rebuildPeriod(PeriodType.MONTH, month);
+
+        updater.orderChanged(DAY);
+
+        verify(salesRollupRepository, timeout(2000).times(2)).rebuildPeriod(PeriodType.MONTH, month);
+    }
+
+    @Test
+    void retriesWaitLongerWithEachFailureUpToTheMaximum() {
+        List<Long> attempts = new CopyOnWriteArrayList<>();
+        doAnswer(invocation -> {
+            attempts.add(System.nanoTime());
+            throw new DataAccessResourceFailureException("down");
+        }).when(salesRollupRepository).rebuildDay(DAY);
+
+        updater.orderChanged(DAY);
+
+        verify(salesRollupRepository, timeout(5000).times(6)).rebuildDay(DAY);
+        // 50, 100, 200 and then 200 ms again
+        assertThat(gapMillis(attempts, 1)).isGreaterThanOrEqualTo(50);
+        assertThat(gapMillis(attempts, 2)).isGreaterThanOrEqualTo(100);
+        assertThat(gapMillis(attempts, 3)).isGreaterThanOrEqualTo(200);
+        assertThat(gapMillis(attempts, 5)).isGreaterThanOrEqualTo(200).isLessThan(800);
+    }
+
+    @Test
+    void aSuccessfulPassResetsTheDelay() {
+        List<Long> attempts = new CopyOnWriteArrayList<>();
+        doAnswer(invocation -> {
+            attempts.add(System.nanoTime());
+            if (attempts.size() != 3) {
+                throw new DataAccessResourceFailureException("down");
+            }
+            return null;
+        }).when(salesRollupRepository).rebuildDay(DAY);
+
+        updater.orderChanged(DAY);
+        verify(salesRollupRepository, timeout(2000).times(3)).rebuildDay(DAY);
+        verify(salesRollupRepository, timeout(2000)).rebuildPeriod(PeriodType.MONTH, LocalDate.of(2025, 3, 1));
+        updater.orderChanged(DAY);
+
+        verify(salesRollupRepository, timeout(2000).times(5)).rebuildDay(DAY);
+        assertThat(gapMillis(attempts, 4)).isGreaterThanOrEqualTo(50).isLessThan(200);
+    }
+
+    @Test
+    void buildsEveryDayWithOrdersWhenThereAreNoRollups() {
+        when(salesRollupRepository.count()).thenReturn(0L);
+        when(jdbcTemplate.queryForList(anyString(), eq(Date.class))).thenReturn(
+                List.of(Date.valueOf(DAY), Date.valueOf(DAY.plusDays(40))));
+
+        updater.initialize();
+
+        verify(salesRollupRepository, timeout(2000)).rebuildPeriod(PeriodType.MONTH, LocalDate.of(2025, 4, 1));
+        verify(salesRollupRepository).rebuildDay(DAY);
+        verify(salesRollupRepository).rebuildDay(DAY.plusDays(40));
+        verify(salesRollupRepository, never()).findStaleDays(any(), any());
+    }
+
+    @Test
+    void recomputesTheRecentDaysThatDisagreeWithTheirOrdersOnStartup() {
+        LocalDate today = LocalDate.now();
+        LocalDate stale = today.minusDays(2);
+        when(salesRollupRepository.count()).thenReturn(10L);
+        when(salesRollupRepository.findStaleDays(today.minusDays(6), today)).thenReturn(List.of(stale));
+
+        updater.initialize();
+
+        verify(salesRollupRepository, timeout(2000)).rebuildPeriod(PeriodType.MONTH, stale.withDayOfMonth(1));
+        verify(salesRollupRepository).rebuildDay(stale);
+        verify(salesRollupRepository, times(1)).rebuildDay(any());
+    }
+
+    @Test
+    void recomputesNothingOnStartupWhenTheRecentDaysAgree() {
+        when(salesRollupRepository.count()).thenReturn(10L);
+        when(salesRollupRepository.findStaleDays(any(), any())).thenReturn(List.of());
+
+        updater.initialize();
+
+        verify(salesRollupRepository, timeout(2000)).findStaleDays(any(), any());
+        verify(salesRollupRepository, after(200).never()).rebuildDay(any());
+    }
+
+    private static long gapMillis(List<Long> attempts, int attempt) {
+        return (attempts.get(attempt) - attempts.get(attempt - 1)) / 1_000_000;
+    }
+}
@@ -0,0 +1,164 @@
+package com.healthstore.repository;
+
+import com.healthstore.model.Order;
+import com.healthstore.model.SalesRollup;
+import com.healthstore.model.User;
+import com.healthstore.report.SalesRollupUpdater;
+import com.healthstore.repository.CustomerAnalyticsRepository.CustomerOrderStats;
+import com.healthstore.repository.CustomerAnalyticsRepository.CustomerOrderTotals;
+import com.healthstore.repository.CustomerAnalyticsRepository.CustomerSort;
+import com.healthstore.support.DatabaseTest;
+import org.assertj.core.api.recursive.comparison.RecursiveComparisonConfiguration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the grouped customer queries against the same aggregates computed naively,
+ * one customer at a time, from the seeded orders.
+ */
+@DatabaseTest
+@MockBean(SalesRollupUpdater.class)
+class CustomerAnalyticsRepositoryImplTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2025, 3, 1, 0, 0);
+    private static final LocalDateTime END = LocalDateTime.of(2025, 4, 1, 0, 0);
+    private static final Order.OrderStatus[] STATUSES = Order.OrderStatus.values();
+    private static final RecursiveComparisonConfiguration AMOUNTS_BY_VALUE = RecursiveComparisonConfiguration.builder()
+            .withComparatorForTypes(Comparator.<BigDecimal>naturalOrder(), BigDecimal.class)
+            .build();
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private final List<Order> orders = new ArrayList<>();
+
+    @BeforeEach
+    void seedOrders() {
+        Random random = new Random(42);
+        int number = 0;
+        for (int c = 0; c < 25; c++) {
+            User customer = new User();
+            customer.setFirstName("Customer");
+            customer.setLastName(String.valueOf(c));
+            customer.setEmail("customer" + c + "@example.com");
+            entityManager.persist(customer);
+
+            int orderCount = random.nextInt(6);
+            for (int i = 0; i < orderCount; i++) {
+                Order order = new Order();
+                order.setOrderNumber("ORD-" + ++number);
+                order.setUser(customer);
+                order.setStatus(STATUSES[random.nextInt(STATUSES.length)]);
+                order.setTotalAmount(BigDecimal.valueOf(100 + random.nextInt(20_000), 2));
+                // Some orders fall before or after the period, one exactly on its start and one on its end.
+                LocalDateTime orderDate = START.minusDays(5).plusHours(random.nextInt(41 * 24));
+                order.setOrderDate(number == 1 ? START : number == 2 ? END : orderDate);
+                orders.add(entityManager.persist(order));
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void totalsMatchTheNaiveComputation() {
+        List<CustomerOrderStats> expected = naiveStats(CustomerSort.TOTAL_SPENT);
+
+        CustomerOrderTotals totals = orderRepository.findCustomerOrderTotals(START, END);
+
+        assertThat(totals.customers()).isEqualTo(expected.size());
+        assertThat(totals.orders()).isEqualTo(expected.stream().mapToLong(CustomerOrderStats::orderCount).sum());
+        assertThat(totals.revenue()).isEqualByComparingTo(
+                expected.stream().map(CustomerOrderStats::totalSpent).reduce(BigDecimal.ZERO, BigDecimal::add));
+    }
+
+    @Test
+    void topCustomersMatchTheNaiveComputationForEverySort() {
+        for (CustomerSort sort : CustomerSort.values()) {
+            List<CustomerOrderStats> expected = naiveStats(sort);
+
+            List<CustomerOrderStats> top = orderRepository.findTopCustomers(START, END, sort, 5);
+
+            assertThat(top).as(sort.name()).usingRecursiveFieldByFieldElementComparator(AMOUNTS_BY_VALUE)
+                    .containsExactlyElementsOf(expected.subList(0, Math.min(5, expected.size())));
+        }
+    }
+
+    @Test
+    void pagesMatchTheNaiveComputationForEverySort() {
+        for (CustomerSort sort : CustomerSort.values()) {
+            List<CustomerOrderStats> expected = naiveStats(sort);
+            List<CustomerOrderStats> paged = new ArrayList<>();
+
+            for (int page = 0; page * 4 < expected.size(); page++) {
+                Page<CustomerOrderStats> result =
+                        orderRepository.findCustomerOrderStats(START, END, sort, PageRequest.of(page, 4));
+                assertThat(result.getTotalElements()).isEqualTo(expected.size());
+                paged.addAll(result.getContent());
+            }
+
+            assertThat(paged).as(sort.name()).usingRecursiveFieldByFieldElementComparator(AMOUNTS_BY_VALUE)
+                    .containsExactlyElementsOf(expected);
+        }
+    }
+
+    @Test
+    void leavesOutOrdersOfExcludedStatesAndOutsideThePeriod() {
+        assertThat(orderRepository.findTopCustomers(START, END, CustomerSort.ORDER_COUNT, 100))
+                .extracting(CustomerOrderStats::userId)
+                .containsExactlyInAnyOrderElementsOf(naiveStats(CustomerSort.ORDER_COUNT).stream()
+                        .map(CustomerOrderStats::userId).toList());
+        assertThat(orderRepository.findTopCustomers(END, END.plusYears(1), CustomerSort.ORDER_COUNT, 100))
+                .allSatisfy(stats -> assertThat(stats.lastOrderDate()).isAfterOrEqualTo(END));
+    }
+
+    /**
+     * Computes the aggregates of each customer from the seeded orders in memory, one customer at a time.
+     */
+    private List<CustomerOrderStats> naiveStats(CustomerSort sort) {
+        Map<Long, List<Order>> byCustomer = new LinkedHashMap<>();
+        for (Order order : orders) {
+            boolean counted = !order.getOrderDate().isBefore(START) && order.getOrderDate().isBefore(END)
+                    && !SalesRollup.EXCLUDED_STATUSES.contains(order.getStatus());
+            if (counted) {
+                byCustomer.computeIfAbsent(order.getUser().getId(), id -> new ArrayList<>()).add(order);
+            }
+        }
+
+        List<CustomerOrderStats> stats = new ArrayList<>();
+        byCustomer.forEach((userId, customerOrders) -> {
+            User customer = customerOrders.get(0).getUser();
+            stats.add(new CustomerOrderStats(userId, customer.getFirstName(), customer.getLastName(),
+                    customer.getEmail(), customerOrders.size(),
+                    customerOrders.stream().map(Order::getTotalAmount).reduce(BigDecimal.ZERO, BigDecimal::add),
+                    customerOrders.stream().map(Order::getOrderDate).max(Comparator.naturalOrder()).orElseThrow()));
+        });
+
+        Comparator<CustomerOrderStats> order = switch (sort) {
+            case TOTAL_SPENT -> Comparator.comparing(CustomerOrderStats::totalSpent).reversed();
+            case ORDER_COUNT -> Comparator.comparingLong(CustomerOrderStats::orderCount).reversed();
+            case LAST_ORDER -> Comparator.comparing(CustomerOrderStats::lastOrderDate).reversed();
+        };
+        stats.sort(order.thenComparing(CustomerOrderStats::userId));
+        return stats;
+    }
+}
@@ -0,0 +1,201 @@
+package com.healthstore.repository;
+
+import com.healthstore.model.Address;
+import com.healthstore.model.Category;
+import com.healthstore.model.Order;
+import com.healthstore.model.OrderItem;
+import com.healthstore.model.Product;
+import com.healthstore.model.ProductVariant;
+import com.healthstore.model.Role;
+import com.healthstore.model.User;
+import com.healthstore.report.SalesRollupUpdater;
+import com.healthstore.support.DatabaseTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that walking an order, a page of orders or an order email costs a fixed number of
+ * statements, however many orders and items there are.
+ */
+@DatabaseTest
+@MockBean(SalesRollupUpdater.class)
+class OrderFetchStatementsTest {
+
+    private static final Sort NEWEST_FIRST = Sort.by(Sort.Order.desc("orderDate"), Sort.Order.desc("id"));
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private StatementCounter statements;
+    private Role customerRole;
+    private User seller;
+    private Category category;
+    private int sequence;
+
+    @BeforeEach
+    void setUp() {
+        statements = new StatementCounter(entityManager.getEntityManager());
+
+        customerRole = new Role();
+        customerRole.setName(Role.RoleName.USER);
+        entityManager.persist(customerRole);
+
+        seller = new User();
+        seller.setEmail("seller@example.com");
+        entityManager.persist(seller);
+
+        category = new Category();
+        category.setName("Vitamins");
+        entityManager.persist(category);
+    }
+
+    @Test
+    void orderDetailCostsTheSameForOneItemAndManyItems() {
+        Long small = placeOrder(1).getId();
+        Long large = placeOrder(20).getId();
+
+        long smallCount = statements.count(() -> walkDetail(orderRepository.findDetailById(small).orElseThrow()));
+        long largeCount = statements.count(() -> walkDetail(orderRepository.findDetailById(large).orElseThrow()));
+
+        assertThat(largeCount).isEqualTo(smallCount);
+        assertThat(largeCount).isLessThanOrEqualTo(3);
+    }
+
+    @Test
+    void orderEmailCostsTheSameForOneItemAndManyItems() {
+        Long small = placeOrder(1).getId();
+        Long large = placeOrder(20).getId();
+
+        long smallCount = statements.count(() -> walkEmail(orderRepository.findForEmailById(small).orElseThrow()));
+        long largeCount = statements.count(() -> walkEmail(orderRepository.findForEmailById(large).orElseThrow()));
+
+        assertThat(largeCount).isEqualTo(smallCount);
+        assertThat(largeCount).isLessThanOrEqualTo(3);
+    }
+
+    @Test
+    void adminOrderPageCostsTheSameForFewAndManyOrders() {
+        placeOrders(30, 3);
+
+        long smallCount = statements.count(() ->
+                orderRepository.findAll(PageRequest.of(0, 2, NEWEST_FIRST)).forEach(this::walkSummary));
+        long largeCount = statements.count(() ->
+                orderRepository.findAll(PageRequest.of(0, 30, NEWEST_FIRST)).forEach(this::walkSummary));
+
+        assertThat(largeCount).isEqualTo(smallCount);
+        // the page, its count, and the roles, items and products of its orders
+        assertThat(largeCount).isLessThanOrEqualTo(5);
+    }
+
+    @Test
+    void adminOrderWindowCostsTheSameForFewAndManyOrders() {
+        placeOrders(30, 3);
+
+        long smallCount = statements.count(() -> orderRepository
+                .findWindowBy(ScrollPosition.keyset(), NEWEST_FIRST, Limit.of(2)).forEach(this::walkSummary));
+        long largeCount = statements.count(() -> orderRepository
+                .findWindowBy(ScrollPosition.keyset(), NEWEST_FIRST, Limit.of(30)).forEach(this::walkSummary));
+
+        assertThat(largeCount).isEqualTo(smallCount);
+        assertThat(largeCount).isLessThanOrEqualTo(4);
+    }
+
+    private void walkDetail(Order order) {
+        walkSummary(order);
+        for (OrderItem item : order.getOrderItems()) {
+            assertThat(item.getProductVariant().getSku()).isNotNull();
+        }
+    }
+
+    private void walkEmail(Order order) {
+        assertThat(order.getUser().getFullName()).isNotEmpty();
+        assertThat(order.getShippingAddress().getCity()).isNotNull();
+        for (OrderItem item : order.getOrderItems()) {
+            assertThat(item.getProduct().getName()).isNotNull();
+            assertThat(item.getQuantity()).isPositive();
+        }
+    }
+
+    private void walkSummary(Order order) {
+        assertThat(order.getUser().getFullName()).isNotEmpty();
+        assertThat(order.getUser().getRoles()).isNotEmpty();
+        assertThat(order.getShippingAddress().getCity()).isNotNull();
+        for (OrderItem item : order.getOrderItems()) {
+            assertThat(item.getProduct().getName()).isNotNull();
+        }
+    }
+
+    private void placeOrders(int orders, int itemsPerOrder) {
+        for (int i = 0; i < orders; i++) {
+            placeOrder(itemsPerOrder);
+        }
+    }
+
+    /**
+     * Places an order of a new customer for new products, so that nothing is shared between orders.
+     */
+    private Order placeOrder(int items) {
+        int number = ++sequence;
+
+        User customer = new User();
+        customer.setFirstName("Customer");
+        customer.setLastName(String.valueOf(number));
+        customer.setEmail("customer" + number + "@example.com");
+        customer.getRoles().add(customerRole);
+        entityManager.persist(customer);
+
+        Address address = new Address();
+        address.setStreet(number + " Main Street");
+        address.setCity("Springfield");
+        address.setUser(customer);
+        entityManager.persist(address);
+
+        Order order = new Order();
+        order.setOrderNumber("ORD-" + number);
+        order.setUser(customer);
+        order.setShippingAddress(address);
+        BigDecimal total = BigDecimal.ZERO;
+        for (int i = 0; i < items; i++) {
+            ProductVariant variant = newVariant(number + "-" + i);
+            OrderItem item = new OrderItem();
+            item.setOrder(order);
+            item.setProduct(variant.getProduct());
+            item.setProductVariant(variant);
+            item.setQuantity(1);
+            item.setPriceAtPurchase(BigDecimal.TEN);
+            order.getOrderItems().add(item);
+            total = total.add(BigDecimal.TEN);
+        }
+        order.setTotalAmount(total);
+        return entityManager.persist(order);
+    }
+
+    private ProductVariant newVariant(String name) {
+        Product product = new Product();
+        product.setName("Product " + name);
+        product.setCategory(category);
+        product.setSeller(seller);
+        entityManager.persist(product);
+
+        ProductVariant variant = new ProductVariant();
+        variant.setProduct(product);
+        variant.setSku("SKU-" + name);
+        variant.setPrice(10.0);
+        variant.setStockQuantity(100);
+        return entityManager.persist(variant);
+    }
+}
@@ -0,0 +1,131 @@
+package com.healthstore.repository;
+
+import com.healthstore.dto.ProductCardDTO;
+import com.healthstore.dto.ProductResponseDTO;
+import com.healthstore.model.Category;
+import com.healthstore.model.Product;
+import com.healthstore.model.ProductVariant;
+import com.healthstore.model.Rating;
+import com.healthstore.model.User;
+import com.healthstore.support.DatabaseTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that a page of product listing cards costs one query, plus its count for a page,
+ * however many products the page holds, where loading the products as entities does not.
+ */
+@DatabaseTest
+class ProductCardStatementsTest {
+
+    private static final int PRODUCTS = 40;
+    private static final PageRequest ALL_BY_ID = PageRequest.of(0, PRODUCTS, Sort.by("id"));
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private StatementCounter statements;
+    private final List<Long> productIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        statements = new StatementCounter(entityManager.getEntityManager());
+
+        User seller = new User();
+        seller.setEmail("seller@example.com");
+        entityManager.persist(seller);
+
+        User customer = new User();
+        customer.setEmail("customer@example.com");
+        entityManager.persist(customer);
+
+        List<Category> categories = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Category category = new Category();
+            category.setName("Category " + i);
+            categories.add(entityManager.persist(category));
+        }
+
+        for (int i = 0; i < PRODUCTS; i++) {
+            Product product = new Product();
+            product.setName("Product " + i);
+            product.setCategory(categories.get(i % categories.size()));
+            product.setSeller(seller);
+            entityManager.persist(product);
+            productIds.add(product.getId());
+
+            ProductVariant variant = new ProductVariant();
+            variant.setProduct(product);
+            variant.setSku("SKU-" + i);
+            variant.setPrice(10.0 + i);
+            variant.setStockQuantity(5);
+            entityManager.persist(variant);
+            product.getVariants().add(variant);
+
+            // ratings of 2 and 4 for every other product, none for the rest
+            if (i % 2 == 0) {
+                rate(product, customer, 2);
+                rate(product, customer, 4);
+            }
+        }
+    }
+
+    @Test
+    void cardPageCostsOneQueryAndItsCountWhateverThePageSize() {
+        long small = statements.count(() -> productRepository.findCards(PageRequest.of(0, 2, Sort.by("id"))));
+        long large = statements.count(() -> productRepository.findCards(ALL_BY_ID));
+
+        assertThat(small).isEqualTo(2);
+        assertThat(large).isEqualTo(2);
+    }
+
+    @Test
+    void cardSliceAndCardsByIdCostOneQuery() {
+        assertThat(statements.count(() -> productRepository.findCardSlice(ALL_BY_ID))).isEqualTo(1);
+        assertThat(statements.count(() -> productRepository.findCardsByIdIn(productIds))).isEqualTo(1);
+    }
+
+    @Test
+    void cardsCarryTheCategoryAndRatingsOfTheirProduct() {
+        List<ProductCardDTO> cards = productRepository.findCardSlice(ALL_BY_ID).getContent();
+
+        assertThat(cards).hasSize(PRODUCTS);
+        assertThat(cards.get(0).getCategoryName()).isEqualTo("Category 0");
+        assertThat(cards.get(0).getAverageRating()).isEqualTo(3.0);
+        assertThat(cards.get(0).getRatingCount()).isEqualTo(2);
+        assertThat(cards.get(1).getCategoryName()).isEqualTo("Category 1");
+        assertThat(cards.get(1).getAverageRating()).isNull();
+        assertThat(cards.get(1).getRatingCount()).isZero();
+    }
+
+    @Test
+    void cardsCostFewerStatementsThanLoadingTheProducts() {
+        long cards = statements.count(() -> productRepository.findCardSlice(ALL_BY_ID));
+        long entities = statements.count(() -> productRepository.findSliceBy(ALL_BY_ID).forEach(product -> {
+            ProductResponseDTO.fromProduct(product);
+            product.getRatings().stream().mapToInt(Rating::getValue).average();
+        }));
+
+        assertThat(cards).isLessThan(entities);
+    }
+
+    private void rate(Product product, User customer, int value) {
+        Rating rating = new Rating();
+        rating.setProduct(product);
+        rating.setUser(customer);
+        rating.setValue(value);
+        entityManager.persist(rating);
+    }
+}
@@ -0,0 +1,117 @@
+package com.healthstore.repository;
+
+import com.healthstore.model.SalesRollup.PeriodType;
+import com.healthstore.repository.SalesRollupRepository.Coverage;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SalesRollupCoverageTest {
+
+    @Test
+    void aRangeInsideOnePeriodIsReadFromItsDays() {
+        Coverage coverage = Coverage.of(LocalDate.of(2025, 3, 10), LocalDate.of(2025, 3, 20), PeriodType.MONTH);
+
+        assertThat(periods(coverage)).isEmpty();
+        assertThat(coverage.headFrom()).isEqualTo(LocalDate.of(2025, 3, 10));
+        assertThat(coverage.headTo()).isEqualTo(LocalDate.of(2025, 3, 20));
+        assertThat(days(coverage.tailFrom(), coverage.tailTo())).isEmpty();
+    }
+
+    @Test
+    void aRangeOfWholeMonthsIsReadFromTheMonths() {
+        Coverage coverage = Coverage.of(LocalDate.of(2024, 2, 1), LocalDate.of(2024, 3, 31), PeriodType.MONTH);
+
+        assertThat(periods(coverage)).containsExactly(LocalDate.of(2024, 2, 1), LocalDate.of(2024, 3, 1));
+        assertThat(days(coverage.headFrom(), coverage.headTo())).isEmpty();
+        assertThat(days(coverage.tailFrom(), coverage.tailTo())).isEmpty();
+    }
+
+    @Test
+    void partialMonthsAtTheEndsAreReadFromTheirDays() {
+        Coverage coverage = Coverage.of(LocalDate.of(2025, 1, 31), LocalDate.of(2025, 3, 1), PeriodType.MONTH);
+
+        assertThat(periods(coverage)).containsExactly(LocalDate.of(2025, 2, 1));
+        assertThat(days(coverage.headFrom(), coverage.headTo())).containsExactly(LocalDate.of(2025, 1, 31));
+        assertThat(days(coverage.tailFrom(), coverage.tailTo())).containsExactly(LocalDate.of(2025, 3, 1));
+    }
+
+    @Test
+    void theShortLastWeekOfTheYearIsAWholeWeek() {
+        // Weeks start on January 1st, so the last week of 2025 is December 31st alone.
+        Coverage coverage = Coverage.of(LocalDate.of(2025, 12, 24), LocalDate.of(2025, 12, 31), PeriodType.WEEK);
+
+        assertThat(periods(coverage)).containsExactly(LocalDate.of(2025, 12, 24), LocalDate.of(2025, 12, 31));
+        assertThat(days(coverage.headFrom(), coverage.headTo())).isEmpty();
+        assertThat(days(coverage.tailFrom(), coverage.tailTo())).isEmpty();
+    }
+
+    @Test
+    void weeksDoNotCrossTheNewYear() {
+        Coverage coverage = Coverage.of(LocalDate.of(2024, 12, 20), LocalDate.of(2025, 1, 3), PeriodType.WEEK);
+
+        // 2024 is a leap year: its last full week starts on December 23rd and its last week is December 30th and 31st.
+        assertThat(periods(coverage)).containsExactly(LocalDate.of(2024, 12, 23), LocalDate.of(2024, 12, 30));
+        assertThat(days(coverage.headFrom(), coverage.headTo()))
+                .containsExactlyElementsOf(days(LocalDate.of(2024, 12, 20), LocalDate.of(2024, 12, 22)));
+        assertThat(days(coverage.tailFrom(), coverage.tailTo()))
+                .containsExactlyElementsOf(days(LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 3)));
+    }
+
+    @Test
+    void aSingleDayIsReadFromItsDayRow() {
+        LocalDate day = LocalDate.of(2025, 6, 15);
+
+        for (PeriodType unit : List.of(PeriodType.WEEK, PeriodType.MONTH)) {
+            Coverage coverage = Coverage.of(day, day, unit);
+            assertThat(expand(coverage)).as(unit.name()).containsExactly(day);
+        }
+    }
+
+    @Test
+    void everyRangeIsCoveredExactlyOnce() {
+        Random random = new Random(42);
+        LocalDate origin = LocalDate.of(2023, 11, 1);
+
+        for (int i = 0; i < 2_000; i++) {
+            LocalDate startDate = origin.plusDays(random.nextInt(800));
+            LocalDate endDate = startDate.plusDays(random.nextInt(120));
+            for (PeriodType unit : List.of(PeriodType.WEEK, PeriodType.MONTH)) {
+                assertThat(expand(Coverage.of(startDate, endDate, unit)))
+                        .as("%s to %s by %s", startDate, endDate, unit)
+                        .containsExactlyElementsOf(days(startDate, endDate));
+            }
+        }
+    }
+
+    /**
+     * Lists the days a coverage reads, in order and repeating a day read twice.
+     */
+    private static List<LocalDate> expand(Coverage coverage) {
+        List<LocalDate> covered = new ArrayList<>(days(coverage.headFrom(), coverage.headTo()));
+        for (LocalDate periodStart : periods(coverage)) {
+            covered.addAll(days(periodStart, coverage.unit().endOf(periodStart)));
+        }
+        covered.addAll(days(coverage.tailFrom(), coverage.tailTo()));
+        return covered;
+    }
+
+    private static List<LocalDate> periods(Coverage coverage) {
+        List<LocalDate> periodStarts = new ArrayList<>();
+        for (LocalDate periodStart = coverage.unitFrom(); !periodStart.isAfter(coverage.unitTo());
+             periodStart = coverage.unit().endOf(periodStart).plusDays(1)) {
+            assertThat(coverage.unit().startOf(periodStart)).isEqualTo(periodStart);
+            periodStarts.add(periodStart);
+        }
+        return periodStarts;
+    }
+
+    private static List<LocalDate> days(LocalDate from, LocalDate to) {
+        return from.isAfter(to) ? List.of() : from.datesUntil(to.plusDays(1)).toList();
+    }
+}
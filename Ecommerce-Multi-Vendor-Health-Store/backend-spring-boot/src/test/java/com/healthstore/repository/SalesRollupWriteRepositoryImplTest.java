@@ -0,0 +1,264 @@
+package com.healthstore.repository;
+
+import com.healthstore.model.Category;
+import com.healthstore.model.Order;
+import com.healthstore.model.OrderItem;
+import com.healthstore.model.Product;
+import com.healthstore.model.ProductVariant;
+import com.healthstore.model.SalesRollup;
+import com.healthstore.model.SalesRollup.Dimension;
+import com.healthstore.model.SalesRollup.PeriodType;
+import com.healthstore.model.User;
+import com.healthstore.report.SalesRollupUpdater;
+import com.healthstore.repository.SalesRollupRepository.Coverage;
+import com.healthstore.support.DatabaseTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageRequest;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Builds the rollups of a few months of orders and checks the figures read through them for
+ * many date ranges against the same figures summed naively from the orders.
+ */
+@DatabaseTest
+@MockBean(SalesRollupUpdater.class)
+class SalesRollupWriteRepositoryImplTest {
+
+    private static final LocalDate FIRST_DAY = LocalDate.of(2024, 12, 1);
+    private static final LocalDate LAST_DAY = LocalDate.of(2025, 3, 31);
+    private static final Order.OrderStatus[] STATUSES = Order.OrderStatus.values();
+
+    @Autowired
+    private SalesRollupRepository salesRollupRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private final List<Order> orders = new ArrayList<>();
+    private final Map<Long, Long> categoryOfProduct = new HashMap<>();
+
+    @BeforeEach
+    void seedOrders() {
+        Random random = new Random(42);
+        User seller = new User();
+        seller.setEmail("seller@example.com");
+        entityManager.persist(seller);
+        User customer = new User();
+        customer.setEmail("customer@example.com");
+        entityManager.persist(customer);
+
+        List<ProductVariant> variants = new ArrayList<>();
+        for (int c = 0; c < 3; c++) {
+            Category category = new Category();
+            category.setName("Category " + c);
+            entityManager.persist(category);
+            for (int p = 0; p < 2; p++) {
+                Product product = new Product();
+                product.setName("Product " + c + "-" + p);
+                product.setCategory(category);
+                product.setSeller(seller);
+                entityManager.persist(product);
+                categoryOfProduct.put(product.getId(), category.getId());
+
+                ProductVariant variant = new ProductVariant();
+                variant.setProduct(product);
+                variant.setSku("SKU-" + c + "-" + p);
+                variant.setPrice(10.0);
+                variant.setStockQuantity(100);
+                variants.add(entityManager.persist(variant));
+            }
+        }
+
+        int days = (int) (LAST_DAY.toEpochDay() - FIRST_DAY.toEpochDay()) + 1;
+        for (int i = 0; i < 300; i++) {
+            Order order = new Order();
+            order.setOrderNumber("ORD-" + i);
+            order.setUser(customer);
+            order.setStatus(STATUSES[random.nextInt(STATUSES.length)]);
+            // Some days have no orders, and some orders fall on the first or last minute of their day.
+            int minute = random.nextInt(3) == 0 ? (random.nextBoolean() ? 0 : 24 * 60 - 1) : random.nextInt(24 * 60);
+            order.setOrderDate(FIRST_DAY.plusDays(random.nextInt(days)).atStartOfDay().plusMinutes(minute));
+            BigDecimal total = BigDecimal.ZERO;
+            for (int n = 1 + random.nextInt(3); n > 0; n--) {
+                ProductVariant variant = variants.get(random.nextInt(variants.size()));
+                OrderItem item = new OrderItem();
+                item.setOrder(order);
+                item.setProduct(variant.getProduct());
+                item.setProductVariant(variant);
+                item.setQuantity(1 + random.nextInt(4));
+                item.setPriceAtPurchase(BigDecimal.valueOf(100 + random.nextInt(5_000), 2));
+                order.getOrderItems().add(item);
+                total = total.add(item.getPriceAtPurchase().multiply(BigDecimal.valueOf(item.getQuantity())));
+            }
+            order.setTotalAmount(total);
+            orders.add(entityManager.persist(order));
+        }
+        entityManager.flush();
+        rebuildAll();
+    }
+
+    @Test
+    void totalsReadThroughTheRollupsMatchTheOrders() {
+        for (LocalDate[] range : ranges()) {
+            for (PeriodType unit : List.of(PeriodType.WEEK, PeriodType.MONTH)) {
+                Coverage coverage = Coverage.of(range[0], range[1], unit);
+                Figures expected = naiveFigures(range[0], range[1]).get(0L);
+                Figures actual = new Figures();
+                for (SalesRollup row : salesRollupRepository.findCovered(Dimension.TOTAL, coverage)) {
+                    actual.add(row.getRevenue(), row.getOrderCount(), row.getUnits());
+                }
+
+                assertThat(actual).as("%s to %s by %s", range[0], range[1], unit)
+                        .isEqualTo(expected != null ? expected : new Figures());
+            }
+        }
+    }
+
+    @Test
+    void categoriesSummedThroughTheRollupsMatchTheOrders() {
+        for (LocalDate[] range : ranges()) {
+            for (PeriodType unit : List.of(PeriodType.WEEK, PeriodType.MONTH)) {
+                Map<Long, Figures> expected = naiveFigures(range[0], range[1]);
+                expected.remove(0L);
+                Map<Long, Figures> actual = new HashMap<>();
+                for (Object[] row : salesRollupRepository.sumCovered(Dimension.CATEGORY,
+                        Coverage.of(range[0], range[1], unit), PageRequest.of(0, 10))) {
+                    Figures figures = new Figures();
+                    figures.add((BigDecimal) row[1], ((Number) row[2]).longValue(), ((Number) row[3]).longValue());
+                    actual.put((Long) row[0], figures);
+                }
+
+                assertThat(actual).as("%s to %s by %s", range[0], range[1], unit).isEqualTo(expected);
+            }
+        }
+    }
+
+    @Test
+    void findsNoStaleDaysRightAfterARebuild() {
+        assertThat(salesRollupRepository.findStaleDays(FIRST_DAY, LAST_DAY)).isEmpty();
+    }
+
+    @Test
+    void findsTheDaysWhoseOrdersChangedSinceTheirRollups() {
+        Order counted = orders.stream()
+                .filter(order -> !SalesRollup.EXCLUDED_STATUSES.contains(order.getStatus())).findFirst().orElseThrow();
+        Order excluded = orders.stream()
+                .filter(order -> SalesRollup.EXCLUDED_STATUSES.contains(order.getStatus())).findFirst().orElseThrow();
+        counted.setStatus(Order.OrderStatus.CANCELLED);
+        excluded.setStatus(Order.OrderStatus.DELIVERED);
+        entityManager.flush();
+
+        assertThat(salesRollupRepository.findStaleDays(FIRST_DAY, LAST_DAY)).containsExactlyElementsOf(
+                new TreeSet<>(List.of(counted.getOrderDate().toLocalDate(), excluded.getOrderDate().toLocalDate())));
+
+        salesRollupRepository.rebuildDay(counted.getOrderDate().toLocalDate());
+        salesRollupRepository.rebuildDay(excluded.getOrderDate().toLocalDate());
+        assertThat(salesRollupRepository.findStaleDays(FIRST_DAY, LAST_DAY)).isEmpty();
+    }
+
+    /**
+     * Whole months, ranges inside a week or a month, ranges across month and year boundaries,
+     * single days and ranges reaching past the orders.
+     */
+    private static List<LocalDate[]> ranges() {
+        List<LocalDate[]> ranges = new ArrayList<>(List.of(
+                new LocalDate[] {FIRST_DAY, LAST_DAY},
+                new LocalDate[] {LocalDate.of(2025, 2, 1), LocalDate.of(2025, 2, 28)},
+                new LocalDate[] {LocalDate.of(2025, 1, 10), LocalDate.of(2025, 1, 12)},
+                new LocalDate[] {LocalDate.of(2025, 1, 31), LocalDate.of(2025, 3, 1)},
+                new LocalDate[] {LocalDate.of(2024, 12, 24), LocalDate.of(2025, 1, 7)},
+                new LocalDate[] {LocalDate.of(2024, 12, 31), LocalDate.of(2024, 12, 31)},
+                new LocalDate[] {LocalDate.of(2024, 11, 1), LocalDate.of(2025, 5, 31)}));
+        Random random = new Random(7);
+        for (int i = 0; i < 20; i++) {
+            LocalDate startDate = FIRST_DAY.plusDays(random.nextInt(110));
+            ranges.add(new LocalDate[] {startDate, startDate.plusDays(random.nextInt(60))});
+        }
+        return ranges;
+    }
+
+    /**
+     * Sums the counted orders of a range in memory: the totals under ID 0 and every category under its ID.
+     */
+    private Map<Long, Figures> naiveFigures(LocalDate startDate, LocalDate endDate) {
+        Map<Long, Figures> figures = new HashMap<>();
+        for (Order order : orders) {
+            LocalDate day = order.getOrderDate().toLocalDate();
+            if (day.isBefore(startDate) || day.isAfter(endDate) || SalesRollup.EXCLUDED_STATUSES.contains(order.getStatus())) {
+                continue;
+            }
+            long units = order.getOrderItems().stream().mapToLong(OrderItem::getQuantity).sum();
+            figures.computeIfAbsent(0L, id -> new Figures()).add(order.getTotalAmount(), 1, units);
+
+            Map<Long, Figures> ofOrder = new HashMap<>();
+            for (OrderItem item : order.getOrderItems()) {
+                ofOrder.computeIfAbsent(categoryOfProduct.get(item.getProduct().getId()), id -> new Figures())
+                        .add(item.getPriceAtPurchase().multiply(BigDecimal.valueOf(item.getQuantity())), 0,
+                                item.getQuantity());
+            }
+            // An order counts once per category, however many of its items are in the category.
+            ofOrder.forEach((categoryId, ofCategory) -> figures.computeIfAbsent(categoryId, id -> new Figures())
+                    .add(ofCategory.revenue, 1, ofCategory.units));
+        }
+        return figures;
+    }
+
+    private void rebuildAll() {
+        Set<LocalDate> weeks = new HashSet<>();
+        Set<LocalDate> months = new HashSet<>();
+        for (LocalDate day : FIRST_DAY.datesUntil(LAST_DAY.plusDays(1)).toList()) {
+            salesRollupRepository.rebuildDay(day);
+            weeks.add(PeriodType.WEEK.startOf(day));
+            months.add(PeriodType.MONTH.startOf(day));
+        }
+        weeks.forEach(week -> salesRollupRepository.rebuildPeriod(PeriodType.WEEK, week));
+        months.forEach(month -> salesRollupRepository.rebuildPeriod(PeriodType.MONTH, month));
+    }
+
+    /**
+     * Revenue, order count and units, compared with the revenue's scale ignored.
+     */
+    private static final class Figures {
+        private BigDecimal revenue = BigDecimal.ZERO;
+        private long orderCount;
+        private long units;
+
+        void add(BigDecimal revenue, long orderCount, long units) {
+            this.revenue = this.revenue.add(revenue);
+            this.orderCount += orderCount;
+            this.units += units;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Figures figures && revenue.compareTo(figures.revenue) == 0
+                    && orderCount == figures.orderCount && units == figures.units;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(orderCount) * 31 + Long.hashCode(units);
+        }
+
+        @Override
+        public String toString() {
+            return revenue.stripTrailingZeros().toPlainString() + " from " + orderCount + " orders, " + units + " units";
+        }
+    }
+}
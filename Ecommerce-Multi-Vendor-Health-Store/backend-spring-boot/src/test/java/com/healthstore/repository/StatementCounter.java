@@ -0,0 +1,32 @@
+package com.healthstore.repository;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+
+/**
+ * Counts the JDBC statements Hibernate prepares while a piece of test code runs.
+ * Needs hibernate.generate_statistics, which {@link com.healthstore.support.DatabaseTest} turns on.
+ */
+final class StatementCounter {
+
+    private final EntityManager entityManager;
+    private final Statistics statistics;
+
+    StatementCounter(EntityManager entityManager) {
+        this.entityManager = entityManager;
+        this.statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+    }
+
+    /**
+     * Flushes and clears the persistence context, so that nothing is served from it,
+     * then counts the statements prepared by the given code.
+     */
+    long count(Runnable code) {
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+        code.run();
+        return statistics.getPrepareStatementCount();
+    }
+}
@@ -0,0 +1,98 @@
+package com.healthstore.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FacetIndexTest {
+
+    private final FacetIndex facets = new FacetIndex();
+
+    @Test
+    void putsABoundIntoTheBucketAboveIt() {
+        assertThat(FacetIndex.priceBucket(9.99)).isZero();
+        assertThat(FacetIndex.priceBucket(10)).isEqualTo(1);
+        assertThat(FacetIndex.priceBucket(100)).isEqualTo(FacetIndex.PRICE_BOUNDS.length);
+    }
+
+    @Test
+    void bandsRatingsInWholeStars() {
+        assertThat(FacetIndex.ratingBand(null)).isZero();
+        assertThat(FacetIndex.ratingBand(4.9)).isEqualTo(4);
+        assertThat(FacetIndex.ratingBand(7.0)).isEqualTo(FacetIndex.MAX_RATING);
+    }
+
+    @Test
+    void setsTheBitsOfEveryFacetValueOfAProduct() {
+        facets.add(document(1L, 1L, 30, 5, 4.5));
+
+        int ordinal = facets.ordinal(1L);
+        assertThat(facets.category(1L).get(ordinal)).isTrue();
+        assertThat(facets.priceBucket(2).get(ordinal)).isTrue();
+        assertThat(facets.ratingBand(4).get(ordinal)).isTrue();
+        assertThat(facets.ratingBand(1).get(ordinal)).isTrue();
+        assertThat(facets.ratingBand(5).get(ordinal)).isFalse();
+        assertThat(facets.inStock().get(ordinal)).isTrue();
+    }
+
+    @Test
+    void reusesTheOrdinalOfARemovedProductWithoutItsFacetValues() {
+        facets.add(document(1L, 1L, 30, 5, 4.5));
+        facets.add(document(2L, 1L, 45, 0, null));
+        int freed = facets.ordinal(1L);
+
+        facets.remove(1L);
+        facets.add(document(3L, 2L, 5, 0, null));
+
+        assertThat(facets.ordinal(3L)).isEqualTo(freed);
+        assertThat(facets.document(freed).getId()).isEqualTo(3L);
+        assertThat(facets.category(1L).get(freed)).isFalse();
+        assertThat(facets.category(2L).get(freed)).isTrue();
+        assertThat(facets.priceBucket(2).get(freed)).isFalse();
+        assertThat(facets.ratingBand(1).get(freed)).isFalse();
+        assertThat(facets.inStock().get(freed)).isFalse();
+    }
+
+    @Test
+    void dropsACategoryOnceItsLastProductIsRemoved() {
+        facets.add(document(1L, 1L, 30, 5, null));
+
+        facets.remove(1L);
+
+        assertThat(facets.categories()).isEmpty();
+        assertThat(facets.categoryName(1L)).isNull();
+        assertThat(facets.category(1L).isEmpty()).isTrue();
+    }
+
+    @Test
+    void replacesAProductAddedAgain() {
+        facets.add(document(1L, 1L, 30, 5, null));
+
+        facets.add(document(1L, 2L, 60, 0, null));
+
+        int ordinal = facets.ordinal(1L);
+        assertThat(facets.categories()).containsOnlyKeys(2L);
+        assertThat(facets.priceBucket(2).get(ordinal)).isFalse();
+        assertThat(facets.priceBucket(3).get(ordinal)).isTrue();
+        assertThat(facets.inStock().get(ordinal)).isFalse();
+    }
+
+    @Test
+    void updatesTheStockBitInPlace() {
+        facets.add(document(1L, 1L, 30, 0, null));
+        int ordinal = facets.ordinal(1L);
+
+        facets.updateStock(document(1L, 1L, 30, 3, null));
+
+        assertThat(facets.ordinal(1L)).isEqualTo(ordinal);
+        assertThat(facets.inStock().get(ordinal)).isTrue();
+        assertThat(facets.document(ordinal).getStock()).isEqualTo(3);
+    }
+
+    private static ProductDocument document(Long id, Long categoryId, double price, int stock, Double rating) {
+        return new ProductDocument(id, "Product " + id, null, null, categoryId, "Category " + categoryId,
+                price, stock, true, LocalDateTime.of(2026, 1, 1, 0, 0), rating);
+    }
+}
@@ -0,0 +1,223 @@
+package com.healthstore.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductSearchIndexTest {
+
+    private final ProductSearchIndex index = new ProductSearchIndex();
+
+    @BeforeEach
+    void setUp() {
+        index.rebuild(List.of(
+                document(1L, "Whey Protein", "Chocolate powder"),
+                document(2L, "Chocolate Bar", "With added protein")));
+    }
+
+    @Test
+    void ranksAMatchInTheNameAboveAMatchInTheDescription() {
+        assertThat(ids(index.search("protein", document -> true))).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void ranksTheShorterOfTwoEqualMatchesFirst() {
+        index.rebuild(List.of(
+                document(4L, "Zinc", "Tablets for immune support and daily wellness"),
+                document(5L, "Zinc", null)));
+
+        assertThat(ids(index.search("zinc", document -> true))).containsExactly(5L, 4L);
+    }
+
+    @Test
+    void matchesEveryWordOfTheQuery() {
+        assertThat(ids(index.search("whey chocolate", document -> true))).containsExactly(1L);
+    }
+
+    @Test
+    void returnsNothingForAQueryOfStopWordsOnly() {
+        assertThat(index.search("the and of", document -> true)).isEmpty();
+    }
+
+    @Test
+    void ignoresStopWordsBetweenOtherWords() {
+        assertThat(ids(index.search("the whey", document -> true))).containsExactly(1L);
+    }
+
+    @Test
+    void returnsEveryProductByIdForABlankQuery() {
+        assertThat(ids(index.search("  ", document -> true))).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void expandsOnlyTheLastWordAsAPrefix() {
+        assertThat(ids(index.search("choc", document -> true))).containsExactly(2L, 1L);
+        assertThat(index.search("whe protein", document -> true)).isEmpty();
+    }
+
+    @Test
+    void fallsBackToTermsWithinAnEditOfAnUnknownWord() {
+        assertThat(ids(index.search("protien", document -> true))).containsExactly(1L, 2L);
+    }
+
+    @Test
+    void appliesTheFilterToTheMatches() {
+        assertThat(ids(index.search("protein", document -> document.getId() == 2L))).containsExactly(2L);
+    }
+
+    @Test
+    void forgetsTheTermsOfARemovedProduct() {
+        index.remove(1L);
+        index.remove(99L);
+
+        assertThat(index.search("whey", document -> true)).isEmpty();
+        assertThat(ids(index.search("protein", document -> true))).containsExactly(2L);
+        assertThat(index.size()).isEqualTo(1);
+    }
+
+    @Test
+    void replacesThePreviousVersionWhenAProductIsIndexedAgain() {
+        index.index(document(1L, "Casein Protein", "Vanilla powder"));
+
+        assertThat(index.search("whey", document -> true)).isEmpty();
+        assertThat(ids(index.search("casein", document -> true))).containsExactly(1L);
+        assertThat(index.size()).isEqualTo(2);
+    }
+
+    @Test
+    void updatesTheStockWithoutTouchingTheText() {
+        index.updateStock(Map.of(1L, 0, 99L, 5));
+
+        List<ProductDocument> hits = index.search("whey", document -> true);
+        assertThat(hits).hasSize(1);
+        assertThat(hits.get(0).getStock()).isZero();
+        assertThat(hits.get(0).getName()).isEqualTo("Whey Protein");
+    }
+
+    @Test
+    void countsEveryFacetExceptTheCategoryWithTheCategorySelection() {
+        indexFacetProducts();
+
+        FacetedHits result = index.facetedSearch(null, new FacetFilter(List.of(1L), null, null, null, null));
+
+        assertThat(ids(result.hits())).containsExactly(1L, 2L);
+        assertThat(result.categories()).containsExactly(
+                new FacetedHits.Count("1", "Protein", 2), new FacetedHits.Count("2", "Snacks", 1));
+        assertThat(result.priceRanges()).extracting(FacetedHits.Count::count).containsExactly(0, 0, 2, 0, 0);
+        assertThat(result.ratings()).extracting(FacetedHits.Count::count).containsExactly(1, 2, 2, 2);
+        assertThat(result.inStock()).isEqualTo(1);
+    }
+
+    @Test
+    void countsThePriceBucketsWithoutThePriceSelection() {
+        indexFacetProducts();
+
+        FacetedHits result = index.facetedSearch(null, new FacetFilter(null, 20.0, 50.0, null, null));
+
+        assertThat(ids(result.hits())).containsExactly(1L, 2L);
+        assertThat(result.priceRanges()).extracting(FacetedHits.Count::count).containsExactly(1, 0, 2, 0, 0);
+        assertThat(result.priceRanges().get(0)).isEqualTo(new FacetedHits.Count("0-10", "Under $10", 1));
+        assertThat(result.categories()).containsExactly(new FacetedHits.Count("1", "Protein", 2));
+    }
+
+    @Test
+    void countsTheRatingBandsWithoutTheRatingSelection() {
+        indexFacetProducts();
+
+        FacetedHits result = index.facetedSearch(null, new FacetFilter(null, null, null, 4, null));
+
+        assertThat(ids(result.hits())).containsExactly(1L);
+        assertThat(result.ratings()).extracting(FacetedHits.Count::count).containsExactly(1, 2, 2, 2);
+        assertThat(result.categories()).containsExactly(new FacetedHits.Count("1", "Protein", 1));
+    }
+
+    @Test
+    void countsTheStockWithoutTheStockSelection() {
+        indexFacetProducts();
+
+        FacetedHits result = index.facetedSearch(null, new FacetFilter(null, null, null, null, true));
+
+        assertThat(ids(result.hits())).containsExactly(1L, 3L);
+        assertThat(result.inStock()).isEqualTo(2);
+        assertThat(result.categories()).containsExactly(
+                new FacetedHits.Count("1", "Protein", 1), new FacetedHits.Count("2", "Snacks", 1));
+    }
+
+    @Test
+    void countsOnlyTheMatchesOfTheQuery() {
+        indexFacetProducts();
+
+        FacetedHits result = index.facetedSearch("whey", new FacetFilter(null, null, null, null, null));
+
+        assertThat(ids(result.hits())).containsExactly(1L);
+        assertThat(result.categories()).containsExactly(new FacetedHits.Count("1", "Protein", 1));
+        assertThat(result.inStock()).isEqualTo(1);
+    }
+
+    @Test
+    void countsAProductIndexedInTheSlotOfARemovedOne() {
+        indexFacetProducts();
+
+        index.remove(3L);
+        index.index(facetDocument(4L, "Zinc", 3L, "Minerals", 12, 3, 5.0));
+        FacetedHits result = index.facetedSearch(null, new FacetFilter(null, null, null, null, null));
+
+        assertThat(ids(result.hits())).containsExactly(1L, 2L, 4L);
+        assertThat(result.categories()).containsExactly(
+                new FacetedHits.Count("1", "Protein", 2), new FacetedHits.Count("3", "Minerals", 1));
+        assertThat(result.priceRanges()).extracting(FacetedHits.Count::count).containsExactly(0, 1, 2, 0, 0);
+        assertThat(result.ratings()).extracting(FacetedHits.Count::count).containsExactly(2, 3, 3, 3);
+        assertThat(result.inStock()).isEqualTo(2);
+    }
+
+    @Test
+    void movesTheFacetValuesOfAProductIndexedAgain() {
+        indexFacetProducts();
+
+        index.index(facetDocument(2L, "Vegan Protein", 2L, "Snacks", 60, 4, 3.2));
+        FacetedHits result = index.facetedSearch(null, new FacetFilter(null, null, null, null, null));
+
+        assertThat(result.categories()).containsExactly(
+                new FacetedHits.Count("2", "Snacks", 2), new FacetedHits.Count("1", "Protein", 1));
+        assertThat(result.priceRanges()).extracting(FacetedHits.Count::count).containsExactly(1, 0, 1, 1, 0);
+        assertThat(result.inStock()).isEqualTo(3);
+    }
+
+    @Test
+    void countsAStockUpdateInTheStockFacet() {
+        indexFacetProducts();
+
+        index.updateStock(Map.of(2L, 7));
+        FacetedHits result = index.facetedSearch(null, new FacetFilter(null, null, null, null, true));
+
+        assertThat(ids(result.hits())).containsExactly(1L, 2L, 3L);
+        assertThat(result.inStock()).isEqualTo(3);
+    }
+
+    private void indexFacetProducts() {
+        index.rebuild(List.of(
+                facetDocument(1L, "Whey Protein", 1L, "Protein", 30, 5, 4.5),
+                facetDocument(2L, "Vegan Protein", 1L, "Protein", 45, 0, 3.2),
+                facetDocument(3L, "Protein Bar", 2L, "Snacks", 5, 10, null)));
+    }
+
+    private static ProductDocument facetDocument(Long id, String name, Long categoryId, String categoryName,
+                                                 double price, int stock, Double rating) {
+        return new ProductDocument(id, name, null, null, categoryId, categoryName, price, stock, true,
+                LocalDateTime.of(2026, 1, 1, 0, 0), rating);
+    }
+
+    private static ProductDocument document(Long id, String name, String description) {
+        return new ProductDocument(id, name, description, null, null, null, 20.0, 10, true,
+                LocalDateTime.of(2026, 1, 1, 0, 0), null);
+    }
+
+    private static List<Long> ids(List<ProductDocument> documents) {
+        return documents.stream().map(ProductDocument::getId).toList();
+    }
+}
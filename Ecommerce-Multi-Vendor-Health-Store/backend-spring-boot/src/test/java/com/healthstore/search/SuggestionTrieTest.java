@@ -0,0 +1,96 @@
+package com.healthstore.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SuggestionTrieTest {
+
+    private static final SuggestionTrie.Suggestion VITAMIN_C = product("Vitamin C", 1L, 50);
+    private static final SuggestionTrie.Suggestion VITAMIN_D3 = product("Vitamin D3", 2L, 80);
+    private static final SuggestionTrie.Suggestion VITAL_GREENS = product("Vital Greens", 3L, 10);
+    private static final SuggestionTrie.Suggestion VITAMINS = new SuggestionTrie.Suggestion("Vitamins", "CATEGORY", 10L, 140);
+
+    private final SuggestionTrie trie = SuggestionTrie.build(List.of(VITAMIN_C, VITAMIN_D3, VITAL_GREENS, VITAMINS), 10);
+
+    @Test
+    void returnsEverySuggestionUnderAPrefixBestFirst() {
+        assertThat(trie.suggest("vit", 10)).containsExactly(VITAMINS, VITAMIN_D3, VITAMIN_C, VITAL_GREENS);
+    }
+
+    @Test
+    void followsTheBranchesOfANodeSplitByASharedPrefix() {
+        assertThat(trie.suggest("vita", 10)).containsExactly(VITAMINS, VITAMIN_D3, VITAMIN_C, VITAL_GREENS);
+        assertThat(trie.suggest("vitam", 10)).containsExactly(VITAMINS, VITAMIN_D3, VITAMIN_C);
+        assertThat(trie.suggest("vital", 10)).containsExactly(VITAL_GREENS);
+        assertThat(trie.suggest("vitamin d", 10)).containsExactly(VITAMIN_D3);
+        assertThat(trie.suggest("vitamins", 10)).containsExactly(VITAMINS);
+    }
+
+    @Test
+    void matchesAPrefixEndingWithinAnEdgeLabel() {
+        assertThat(trie.suggest("vitami", 10)).containsExactly(VITAMINS, VITAMIN_D3, VITAMIN_C);
+        assertThat(trie.suggest("gree", 10)).containsExactly(VITAL_GREENS);
+    }
+
+    @Test
+    void offersASuggestionEndingWhereTheTrieBranches() {
+        SuggestionTrie.Suggestion vita = product("Vita", 5L, 1);
+        SuggestionTrie withVita = SuggestionTrie.build(List.of(VITAMIN_C, VITAL_GREENS, vita), 10);
+
+        assertThat(withVita.suggest("vita", 10)).containsExactly(VITAMIN_C, VITAL_GREENS, vita);
+        assertThat(withVita.suggest("vitam", 10)).containsExactly(VITAMIN_C);
+    }
+
+    @Test
+    void matchesFromTheStartOfEveryWordOnly() {
+        assertThat(trie.suggest("d3", 10)).containsExactly(VITAMIN_D3);
+        assertThat(trie.suggest("c", 10)).containsExactly(VITAMIN_C);
+        assertThat(trie.suggest("itamin", 10)).isEmpty();
+        assertThat(trie.suggest("vitb", 10)).isEmpty();
+    }
+
+    @Test
+    void normalizesCaseAndPunctuationOfThePrefix() {
+        assertThat(trie.suggest("  VITAMIN--c!", 10)).containsExactly(VITAMIN_C);
+    }
+
+    @Test
+    void returnsASuggestionOnceWhenSeveralOfItsWordsMatch() {
+        SuggestionTrie.Suggestion mix = product("Vitamin Vital Mix", 1L, 5);
+        SuggestionTrie repeated = SuggestionTrie.build(List.of(mix), 10);
+
+        assertThat(repeated.suggest("vita", 10)).containsExactly(mix);
+    }
+
+    @Test
+    void keepsEntriesWithTheSameTextApart() {
+        SuggestionTrie.Suggestion product = product("Protein", 1L, 5);
+        SuggestionTrie.Suggestion category = new SuggestionTrie.Suggestion("Protein", "CATEGORY", 2L, 9);
+        SuggestionTrie duplicates = SuggestionTrie.build(List.of(product, category), 10);
+
+        assertThat(duplicates.suggest("prot", 10)).containsExactly(category, product);
+    }
+
+    @Test
+    void keepsOnlyTheTopKSuggestionsPerPrefix() {
+        SuggestionTrie topTwo = SuggestionTrie.build(List.of(VITAMIN_C, VITAMIN_D3, VITAL_GREENS, VITAMINS), 2);
+
+        assertThat(topTwo.suggest("vit", 10)).containsExactly(VITAMINS, VITAMIN_D3);
+        assertThat(topTwo.suggest("vital", 10)).containsExactly(VITAL_GREENS);
+        assertThat(trie.suggest("vit", 2)).containsExactly(VITAMINS, VITAMIN_D3);
+    }
+
+    @Test
+    void returnsNothingForABlankPrefixOrAnEmptyTrie() {
+        assertThat(trie.suggest(" - ", 10)).isEmpty();
+        assertThat(SuggestionTrie.empty().suggest("vit", 10)).isEmpty();
+        assertThat(SuggestionTrie.build(List.of(product("!!", 1L, 1)), 10).suggest("vit", 10)).isEmpty();
+    }
+
+    private static SuggestionTrie.Suggestion product(String text, Long id, long weight) {
+        return new SuggestionTrie.Suggestion(text, "PRODUCT", id, weight);
+    }
+}
@@ -0,0 +1,51 @@
+package com.healthstore.search;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TextAnalyzerTest {
+
+    @Test
+    void splitsOnAnythingThatIsNotALetterOrDigit() {
+        assertThat(TextAnalyzer.tokenize("Omega-3 Fish  Oil!")).containsExactly("omega", "3", "fish", "oil");
+        assertThat(TextAnalyzer.tokenize(null)).isEmpty();
+        assertThat(TextAnalyzer.tokenize("")).isEmpty();
+    }
+
+    @Test
+    void dropsStopWordsAndStemsTheRest() {
+        assertThat(TextAnalyzer.analyze("The Vitamins for Kids")).containsExactly("vitamin", "kid");
+    }
+
+    @Test
+    void leavesNothingOfAStopWordOnlyText() {
+        assertThat(TextAnalyzer.analyze("the of and")).isEmpty();
+    }
+
+    @Test
+    void reducesPluralsToTheSameStem() {
+        assertThat(TextAnalyzer.stem("berries")).isEqualTo("berry");
+        assertThat(TextAnalyzer.stem("capsules")).isEqualTo(TextAnalyzer.stem("capsule"));
+        assertThat(TextAnalyzer.stem("vitamins")).isEqualTo("vitamin");
+    }
+
+    @Test
+    void leavesShortWordsCodesAndLatinEndingsAlone() {
+        assertThat(TextAnalyzer.stem("gas")).isEqualTo("gas");
+        assertThat(TextAnalyzer.stem("b12")).isEqualTo("b12");
+        assertThat(TextAnalyzer.stem("citrus")).isEqualTo("citrus");
+    }
+
+    @Test
+    void countsAnAdjacentTranspositionAsOneEdit() {
+        assertThat(TextAnalyzer.editDistance("vitamin", "vitamni", 2)).isEqualTo(1);
+        assertThat(TextAnalyzer.editDistance("zinc", "zinc", 1)).isZero();
+    }
+
+    @Test
+    void givesUpPastTheMaximumDistance() {
+        assertThat(TextAnalyzer.editDistance("vitamin", "protein", 1)).isEqualTo(2);
+        assertThat(TextAnalyzer.editDistance("zinc", "magnesium", 2)).isEqualTo(3);
+    }
+}
@@ -0,0 +1,198 @@
+package com.healthstore.service;
+
+import com.healthstore.cart.CartSessionStore;
+import com.healthstore.cart.CartWriteBack;
+import com.healthstore.config.CartProperties;
+import com.healthstore.dto.CartItemDTO;
+import com.healthstore.dto.CartPatchDTO;
+import com.healthstore.dto.CartPatchRequest.Operation;
+import com.healthstore.dto.CartPatchRequest.OperationType;
+import com.healthstore.dto.ProductResponseDTO;
+import com.healthstore.exception.CartVersionConflictException;
+import com.healthstore.exception.GlobalExceptionHandler;
+import com.healthstore.exception.InsufficientStockException;
+import com.healthstore.model.User;
+import com.healthstore.repository.CartRepository;
+import jakarta.persistence.EntityManager;
+import org.assertj.core.groups.Tuple;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.catchThrowableOfType;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Applies batches of cart operations to an in-memory cart, with the stock holds of the
+ * {@link InventoryService} mocked, and checks the lines, the version and the holds afterwards.
+ */
+class CartServiceTest {
+
+    private static final Long USER_ID = 7L;
+
+    private final ProductService productService = mock(ProductService.class);
+    private final InventoryService inventoryService = mock(InventoryService.class);
+    private final User user = new User();
+    private CartService cartService;
+
+    @BeforeEach
+    void setUp() {
+        user.setId(USER_ID);
+        // Product 1 comes in two variants, product 3 has none and product 4 is short of stock.
+        product(1L, 5.0, new ProductResponseDTO.Variant(11L, 5.0, 10), new ProductResponseDTO.Variant(12L, 7.0, 10));
+        product(2L, 3.0, new ProductResponseDTO.Variant(21L, 3.0, 10));
+        product(3L, 2.0);
+        product(4L, 1.0, new ProductResponseDTO.Variant(41L, 1.0, 0));
+        when(inventoryService.reserveForCart(USER_ID, 41L, 1))
+                .thenThrow(new InsufficientStockException("Insufficient stock for variant 41"));
+
+        CartSessionStore cartSessionStore = new CartSessionStore(
+                new CartWriteBack(mock(CartRepository.class), mock(EntityManager.class)), new CartProperties());
+        cartService = new CartService(mock(CartRepository.class), productService, inventoryService, cartSessionStore);
+    }
+
+    @Test
+    void appliesAddsSetsAndRemovesInOrder() {
+        cartService.patchCart(user, List.of(add(1L, 2), add(2L, 1)), null);
+        clearInvocations(inventoryService);
+
+        CartPatchDTO result = cartService.patchCart(user, List.of(
+                add(1L, 1), set(2L, 0), add(3L, 2), add(3L, 1), remove(9L)), 2L);
+
+        assertThat(result.getChangedItems()).extracting(CartItemDTO::getProductId, CartItemDTO::getVariantId,
+                CartItemDTO::getQuantity).containsExactly(tuple(1L, 11L, 3), tuple(3L, null, 3));
+        // Product 9 was not in the cart, so removing it changes nothing.
+        assertThat(result.getRemovedProductIds()).containsExactly(2L);
+        assertThat(result.getTotalQuantity()).isEqualTo(6);
+        assertThat(result.getTotalPrice()).isEqualByComparingTo("21");
+        assertThat(result.getVersion()).isEqualTo(5);
+        assertThat(cartService.getCartByUser(user).getVersion()).isEqualTo(5);
+
+        verify(inventoryService).reserveForCart(USER_ID, 11L, 3);
+        verify(inventoryService).releaseCartReservation(USER_ID, 21L);
+        verifyNoMoreInteractions(inventoryService);
+    }
+
+    @Test
+    void movesTheHoldWhenALineChangesVariant() {
+        cartService.patchCart(user, List.of(add(1L, 2)), null);
+        clearInvocations(inventoryService);
+
+        CartPatchDTO result = cartService.patchCart(user, List.of(add(1L, 12L, 1)), null);
+
+        assertThat(result.getChangedItems()).singleElement().satisfies(item -> {
+            assertThat(item.getVariantId()).isEqualTo(12L);
+            assertThat(item.getQuantity()).isEqualTo(3);
+        });
+        assertThat(result.getTotalPrice()).isEqualByComparingTo("21");
+        InOrder holds = inOrder(inventoryService);
+        holds.verify(inventoryService).releaseCartReservation(USER_ID, 11L);
+        holds.verify(inventoryService).reserveForCart(USER_ID, 12L, 3);
+    }
+
+    @Test
+    void refusesABatchMadeForAnotherVersion() {
+        cartService.patchCart(user, List.of(add(1L, 2), add(2L, 1)), null);
+        clearInvocations(inventoryService);
+
+        CartVersionConflictException conflict = catchThrowableOfType(
+                () -> cartService.patchCart(user, List.of(set(1L, 5)), 1L), CartVersionConflictException.class);
+
+        assertThat(conflict).hasMessageContaining("version 2");
+        assertThat(new GlobalExceptionHandler().handleCartVersionConflictException(conflict,
+                new ServletWebRequest(new MockHttpServletRequest())).getStatusCode())
+                .isEqualTo(HttpStatus.PRECONDITION_FAILED);
+        assertThat(lines()).containsExactly(tuple(1L, 11L, 2), tuple(2L, 21L, 1));
+        verifyNoInteractions(inventoryService);
+
+        assertThat(cartService.patchCart(user, List.of(set(1L, 5)), 2L).getVersion()).isEqualTo(3);
+    }
+
+    @Test
+    void putsTheHoldsBackWhenALineOfTheBatchIsShortOfStock() {
+        cartService.patchCart(user, List.of(add(1L, 2), add(2L, 1)), null);
+        clearInvocations(inventoryService);
+
+        assertThatThrownBy(() -> cartService.patchCart(user, List.of(set(1L, 5), remove(2L), add(4L, 1)), 2L))
+                .isInstanceOf(InsufficientStockException.class);
+
+        InOrder holds = inOrder(inventoryService);
+        holds.verify(inventoryService).reserveForCart(USER_ID, 11L, 5);
+        holds.verify(inventoryService).releaseCartReservation(USER_ID, 21L);
+        holds.verify(inventoryService).reserveForCart(USER_ID, 41L, 1);
+        holds.verify(inventoryService).reserveForCart(USER_ID, 11L, 2);
+        holds.verify(inventoryService).reserveForCart(USER_ID, 21L, 1);
+        verifyNoMoreInteractions(inventoryService);
+        assertThat(cartService.getCartByUser(user).getVersion()).isEqualTo(2);
+        assertThat(lines()).containsExactly(tuple(1L, 11L, 2), tuple(2L, 21L, 1));
+    }
+
+    @Test
+    void refusesAMalformedBatchBeforeTouchingTheCart() {
+        cartService.patchCart(user, List.of(add(1L, 2)), null);
+        clearInvocations(inventoryService);
+
+        assertThatThrownBy(() -> cartService.patchCart(user, List.of(add(2L, 1), add(3L, 0)), null))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> cartService.patchCart(user, List.of(set(2L, -1)), null))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        verifyNoInteractions(inventoryService);
+        assertThat(lines()).containsExactly(tuple(1L, 11L, 2));
+    }
+
+    private List<Tuple> lines() {
+        return cartService.getCartByUser(user).getCartItems().stream()
+                .map(item -> tuple(item.getProductId(), item.getVariantId(), item.getQuantity()))
+                .toList();
+    }
+
+    private void product(Long id, double price, ProductResponseDTO.Variant... variants) {
+        ProductResponseDTO product = new ProductResponseDTO();
+        product.setId(id);
+        product.setName("Product " + id);
+        product.setPrice(price);
+        product.setVariants(List.of(variants));
+        when(productService.getProductById(id)).thenReturn(Optional.of(product));
+    }
+
+    private static Operation add(Long productId, int quantity) {
+        return add(productId, null, quantity);
+    }
+
+    private static Operation add(Long productId, Long variantId, int quantity) {
+        return operation(OperationType.ADD, productId, variantId, quantity);
+    }
+
+    private static Operation set(Long productId, int quantity) {
+        return operation(OperationType.SET, productId, null, quantity);
+    }
+
+    private static Operation remove(Long productId) {
+        return operation(OperationType.REMOVE, productId, null, 0);
+    }
+
+    private static Operation operation(OperationType type, Long productId, Long variantId, int quantity) {
+        Operation operation = new Operation();
+        operation.setOp(type);
+        operation.setProductId(productId);
+        operation.setVariantId(variantId);
+        operation.setQuantity(quantity);
+        return operation;
+    }
+}
@@ -0,0 +1,182 @@
+package com.healthstore.service;
+
+import com.healthstore.config.IdempotencyConfig;
+import com.healthstore.config.IdempotencyProperties;
+import com.healthstore.exception.GlobalExceptionHandler;
+import com.healthstore.exception.IdempotencyConflictException;
+import com.healthstore.repository.IdempotencyRecordRepository;
+import com.healthstore.service.IdempotencyService.Claim;
+import com.healthstore.support.DatabaseTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.catchThrowableOfType;
+
+/**
+ * Runs claims, completions and releases of idempotency keys against the database, each in its own
+ * transaction as in a request, including retries that take over an abandoned claim and keys whose TTL passed.
+ */
+@DatabaseTest
+@Import({IdempotencyService.class, IdempotencyConfig.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class IdempotencyServiceTest {
+
+    private static final Long USER_ID = 7L;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Autowired
+    private IdempotencyProperties properties;
+
+    @AfterEach
+    void tearDown() {
+        idempotencyRecordRepository.deleteAll();
+        properties.setTtl(Duration.ofHours(24));
+        properties.setLockTimeout(Duration.ofSeconds(30));
+    }
+
+    @Test
+    void aNewKeyIsRun() {
+        Claim claim = idempotencyService.claim("checkout", USER_ID, "key-1", "cart=1");
+
+        assertThat(claim.isReplay()).isFalse();
+        assertThat(idempotencyRecordRepository.findById(claim.id()))
+                .hasValueSatisfying(record -> assertThat(record.getClaimedAt()).isEqualTo(claim.claimedAt()));
+    }
+
+    @Test
+    void aCompletedKeyIsReplayed() {
+        Claim claim = idempotencyService.claim("checkout", USER_ID, "key-1", "cart=1");
+        idempotencyService.complete(claim, 42L);
+
+        Claim retry = idempotencyService.claim("checkout", USER_ID, "key-1", "cart=1");
+
+        assertThat(retry.isReplay()).isTrue();
+        assertThat(retry.resourceId()).isEqualTo(42L);
+    }
+
+    @Test
+    void keysOfOtherUsersAndScopesDoNotCollide() {
+        Claim claim = idempotencyService.claim("checkout", USER_ID, "key-1", "cart=1");
+        idempotencyService.complete(claim, 42L);
+
+        assertThat(idempotencyService.claim("checkout", USER_ID + 1, "key-1", "cart=1").isReplay()).isFalse();
+        assertThat(idempotencyService.claim("refund", USER_ID, "key-1", "cart=1").isReplay()).isFalse();
+    }
+
+    @Test
+    void aKeyReusedForADifferentRequestIsAConflict() {
+        Claim claim = idempotencyService.claim("checkout", USER_ID, "key-1", "cart=1");
+        idempotencyService.complete(claim, 42L);
+
+        IdempotencyConflictException conflict = catchThrowableOfType(
+                () -> idempotencyService.claim("checkout", USER_ID, "key-1", "cart=2"),
+                IdempotencyConflictException.class);
+
+        assertThat(conflict).hasMessageContaining("different request");
+        assertThat(new GlobalExceptionHandler().handleIdempotencyConflictException(conflict,
+                new ServletWebRequest(new MockHttpServletRequest())).getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+    }
+
+    @Test
+    void aRetryWhileTheRequestIsRunningIsAConflict() {
+        Claim claim = idempotencyService.claim("checkout", USER_ID, "key-1", "cart=1");
+
+        assertThatThrownBy(() -> idempotencyService.claim("checkout", USER_ID, "key-1", "cart=1"))
+                .isInstanceOf(IdempotencyConflictException.class)
+                .hasMessageContaining("still in progress");
+        assertThat(idempotencyRecordRepository.findById(claim.id()))
+                .hasValueSatisfying(record -> assertThat(record.getClaimedAt()).isEqualTo(claim.claimedAt()));
+    }
+
+    @Test
+    void aRetryAfterTheLockTimeoutTakesTheKeyOver() throws InterruptedException {
+        properties.setLockTimeout(Duration.ZERO);
+        Claim abandoned = idempotencyService.claim("checkout", USER_ID, "key-1", "cart=1");
+        // Claims are told apart by their time, to the microsecond
+        Thread.sleep(2);
+
+        Claim retry = idempotencyService.claim("checkout", USER_ID, "key-1", "cart=1");
+
+        assertThat(retry.isReplay()).isFalse();
+        assertThat(retry.claimedAt()).isAfter(abandoned.claimedAt());
+        assertThat(idempotencyRecordRepository.findById(retry.id()))
+                .hasValueSatisfying(record -> assertThat(record.getClaimedAt()).isEqualTo(retry.claimedAt()));
+    }
+
+    @Test
+    void aRequestWhoseKeyWasTakenOverCannotCompleteOrReleaseIt() throws InterruptedException {
+        properties.setLockTimeout(Duration.ZERO);
+        Claim slow = idempotencyService.claim("checkout", USER_ID, "key-1", "cart=1");
+        Thread.sleep(2);
+        Claim retry = idempotencyService.claim("checkout", USER_ID, "key-1", "cart=1");
+
+        assertThatThrownBy(() -> idempotencyService.complete(slow, 41L))
+                .isInstanceOf(IdempotencyConflictException.class)
+                .hasMessageContaining("taken over");
+        idempotencyService.release(slow);
+        assertThat(idempotencyRecordRepository.findById(retry.id()))
+                .hasValueSatisfying(record -> assertThat(record.getClaimedAt()).isEqualTo(retry.claimedAt()));
+        idempotencyService.complete(retry, 42L);
+
+        properties.setLockTimeout(Duration.ofSeconds(30));
+        Claim replay = idempotencyService.claim("checkout", USER_ID, "key-1", "cart=1");
+        assertThat(replay.isReplay()).isTrue();
+        assertThat(replay.resourceId()).isEqualTo(42L);
+    }
+
+    @Test
+    void aReleasedKeyIsRunAgain() {
+        Claim failed = idempotencyService.claim("checkout", USER_ID, "key-1", "cart=1");
+        idempotencyService.release(failed);
+
+        Claim retry = idempotencyService.claim("checkout", USER_ID, "key-1", "cart=1");
+
+        assertThat(retry.isReplay()).isFalse();
+        assertThat(idempotencyRecordRepository.count()).isEqualTo(1);
+    }
+
+    @Test
+    void anExpiredKeyIsReplacedByANewClaim() throws InterruptedException {
+        properties.setTtl(Duration.ZERO);
+        Claim expired = idempotencyService.claim("checkout", USER_ID, "key-1", "cart=1");
+        idempotencyService.complete(expired, 42L);
+        Thread.sleep(2);
+        properties.setTtl(Duration.ofHours(24));
+
+        // Even for a different request: the expired key is deleted and inserted again
+        Claim claim = idempotencyService.claim("checkout", USER_ID, "key-1", "cart=2");
+
+        assertThat(claim.isReplay()).isFalse();
+        assertThat(idempotencyRecordRepository.findAll()).singleElement().satisfies(record -> {
+            assertThat(record.getResourceId()).isNull();
+            assertThat(record.getClaimedAt()).isEqualTo(claim.claimedAt());
+            assertThat(record.getExpiresAt()).isEqualTo(claim.claimedAt().plusHours(24));
+        });
+    }
+
+    @Test
+    void blankAndOverlongKeysAreRefused() {
+        assertThatThrownBy(() -> idempotencyService.claim("checkout", USER_ID, " ", "cart=1"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> idempotencyService.claim("checkout", USER_ID,
+                "k".repeat(properties.getMaxKeyLength() + 1), "cart=1"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(idempotencyRecordRepository.count()).isZero();
+    }
+}
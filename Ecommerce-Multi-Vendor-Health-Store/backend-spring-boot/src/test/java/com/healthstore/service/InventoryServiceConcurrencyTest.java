@@ -0,0 +1,179 @@
+package com.healthstore.service;
+
+import com.healthstore.exception.InsufficientStockException;
+import com.healthstore.inventory.CartReservationRegistry;
+import com.healthstore.inventory.HotStockLedger;
+import com.healthstore.model.Product;
+import com.healthstore.model.ProductVariant;
+import com.healthstore.model.User;
+import com.healthstore.repository.ProductRepository;
+import com.healthstore.repository.ProductVariantRepository;
+import com.healthstore.repository.UserRepository;
+import com.healthstore.support.DatabaseTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs many concurrent checkouts of one variant against the database, each in its own transaction,
+ * and checks that the conditional stock updates sell exactly the stock and never more.
+ */
+@DatabaseTest
+@Import(InventoryService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class InventoryServiceConcurrencyTest {
+
+    private static final int BUYERS = 500;
+    private static final int STOCK = 200;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private ProductVariantRepository productVariantRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @MockBean
+    private HotStockLedger hotStockLedger;
+
+    @MockBean
+    private CartReservationRegistry cartReservations;
+
+    @BeforeEach
+    void setUp() {
+        when(hotStockLedger.reserve(anyLong(), anyInt())).thenReturn(HotStockLedger.Reservation.NOT_HOT);
+    }
+
+    @Test
+    void concurrentBuyersTakeExactlyTheStockAndNeverMore() throws InterruptedException {
+        Long variantId = newVariant(STOCK);
+        AtomicInteger sold = new AtomicInteger();
+        AtomicInteger refused = new AtomicInteger();
+        Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        AtomicInteger lowestStock = new AtomicInteger(STOCK);
+        AtomicBoolean selling = new AtomicBoolean(true);
+        CountDownLatch start = new CountDownLatch(1);
+
+        // Single takes and batch takes go through different statements, so half the buyers use each.
+        List<Thread> buyers = new ArrayList<>();
+        for (int i = 0; i < BUYERS; i++) {
+            boolean batch = i % 2 == 1;
+            Thread buyer = new Thread(() -> {
+                try {
+                    start.await();
+                    if (batch) {
+                        inventoryService.reduceStockBulk(Map.of(variantId, 1));
+                    } else {
+                        inventoryService.reduceStock(variantId, 1);
+                    }
+                    sold.incrementAndGet();
+                } catch (InsufficientStockException e) {
+                    refused.incrementAndGet();
+                } catch (Throwable e) {
+                    failures.add(e);
+                }
+            });
+            buyer.start();
+            buyers.add(buyer);
+        }
+        Thread watcher = new Thread(() -> {
+            while (selling.get()) {
+                productVariantRepository.findStockQuantityById(variantId)
+                        .ifPresent(stock -> lowestStock.accumulateAndGet(stock, Math::min));
+            }
+        });
+        watcher.start();
+
+        start.countDown();
+        for (Thread buyer : buyers) {
+            buyer.join();
+        }
+        selling.set(false);
+        watcher.join();
+
+        assertThat(failures).isEmpty();
+        assertThat(sold.get()).isEqualTo(STOCK);
+        assertThat(refused.get()).isEqualTo(BUYERS - STOCK);
+        assertThat(productVariantRepository.findStockQuantityById(variantId)).contains(0);
+        assertThat(lowestStock.get()).isGreaterThanOrEqualTo(0);
+    }
+
+    @Test
+    void concurrentBatchesOfSeveralUnitsNeverOversell() throws InterruptedException {
+        Long variantId = newVariant(STOCK);
+        AtomicInteger unitsSold = new AtomicInteger();
+        Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Thread> buyers = new ArrayList<>();
+        for (int i = 0; i < BUYERS; i++) {
+            int quantity = 1 + i % 3;
+            Thread buyer = new Thread(() -> {
+                try {
+                    start.await();
+                    inventoryService.reduceStockBulk(Map.of(variantId, quantity));
+                    unitsSold.addAndGet(quantity);
+                } catch (InsufficientStockException e) {
+                    // sold out for this quantity
+                } catch (Throwable e) {
+                    failures.add(e);
+                }
+            });
+            buyer.start();
+            buyers.add(buyer);
+        }
+        start.countDown();
+        for (Thread buyer : buyers) {
+            buyer.join();
+        }
+
+        int left = productVariantRepository.findStockQuantityById(variantId).orElseThrow();
+        assertThat(failures).isEmpty();
+        assertThat(left).isGreaterThanOrEqualTo(0);
+        assertThat(unitsSold.get() + left).isEqualTo(STOCK);
+    }
+
+    /**
+     * Saves a variant with the given stock, committed so that the buyer threads can see it.
+     */
+    private Long newVariant(int stock) {
+        User seller = new User();
+        seller.setEmail("seller-" + System.nanoTime() + "@example.com");
+        userRepository.save(seller);
+
+        Product product = new Product();
+        product.setName("Vitamin D3");
+        product.setSeller(seller);
+        productRepository.save(product);
+
+        ProductVariant variant = new ProductVariant();
+        variant.setProduct(product);
+        variant.setSku("D3-1000");
+        variant.setPrice(9.99);
+        variant.setStockQuantity(stock);
+        return productVariantRepository.save(variant).getId();
+    }
+}
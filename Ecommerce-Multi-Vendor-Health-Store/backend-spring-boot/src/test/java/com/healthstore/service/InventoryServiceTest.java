@@ -0,0 +1,100 @@
+package com.healthstore.service;
+
+import com.healthstore.exception.InsufficientStockException;
+import com.healthstore.inventory.CartReservationRegistry;
+import com.healthstore.inventory.HotStockLedger;
+import com.healthstore.model.Product;
+import com.healthstore.model.ProductVariant;
+import com.healthstore.repository.ProductRepository;
+import com.healthstore.repository.ProductVariantRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class InventoryServiceTest {
+
+    private static final Long VARIANT_ID = 7L;
+
+    private ProductVariantRepository productVariantRepository;
+    private InventoryService inventoryService;
+
+    @BeforeEach
+    void setUp() {
+        productVariantRepository = mock(ProductVariantRepository.class);
+        HotStockLedger hotStockLedger = mock(HotStockLedger.class);
+        when(hotStockLedger.reserve(anyLong(), anyInt())).thenReturn(HotStockLedger.Reservation.NOT_HOT);
+
+        Product product = new Product();
+        product.setId(3L);
+        ProductVariant variant = new ProductVariant();
+        variant.setId(VARIANT_ID);
+        variant.setProduct(product);
+        when(productVariantRepository.findAllById(any())).thenReturn(List.of(variant));
+        when(productVariantRepository.findStockQuantityById(VARIANT_ID)).thenReturn(Optional.of(0));
+
+        inventoryService = new InventoryService(productVariantRepository, mock(ProductRepository.class),
+                mock(ApplicationEventPublisher.class), mock(EntityManager.class), hotStockLedger,
+                mock(CartReservationRegistry.class));
+    }
+
+    @Test
+    void takesTheStockWhenEveryUpdateReportsOneRow() {
+        when(productVariantRepository.decrementStockBatch(anyList())).thenReturn(new int[] {1});
+
+        inventoryService.reduceStockBulk(Map.of(VARIANT_ID, 2));
+
+        verify(productVariantRepository).adjustTotalStockBatch(Map.of(3L, -2));
+    }
+
+    @Test
+    void refusesTheStockWhenAnUpdateMatchedNoRow() {
+        when(productVariantRepository.decrementStockBatch(anyList())).thenReturn(new int[] {0});
+
+        assertThatThrownBy(() -> inventoryService.reduceStockBulk(Map.of(VARIANT_ID, 2)))
+                .isInstanceOf(InsufficientStockException.class);
+        verify(productVariantRepository, never()).adjustTotalStockBatch(anyMap());
+    }
+
+    @Test
+    void failsWhenTheDriverCannotTellWhetherTheStockWasTaken() {
+        when(productVariantRepository.decrementStockBatch(anyList())).thenReturn(new int[] {Statement.SUCCESS_NO_INFO});
+
+        assertThatThrownBy(() -> inventoryService.reduceStockBulk(Map.of(VARIANT_ID, 2)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining(String.valueOf(Statement.SUCCESS_NO_INFO));
+        verify(productVariantRepository, never()).adjustTotalStockBatch(anyMap());
+    }
+
+    @Test
+    void failsWhenAnUpdateReportsMoreThanOneRow() {
+        when(productVariantRepository.decrementStockBatch(anyList())).thenReturn(new int[] {2});
+
+        assertThatThrownBy(() -> inventoryService.reduceStockBulk(Map.of(VARIANT_ID, 2)))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void failsWhenTheBatchReportsTooFewUpdateCounts() {
+        when(productVariantRepository.decrementStockBatch(anyList())).thenReturn(new int[0]);
+
+        assertThatThrownBy(() -> inventoryService.reduceStockBulk(Map.of(VARIANT_ID, 2)))
+                .isInstanceOf(IllegalStateException.class);
+    }
+}
@@ -0,0 +1,152 @@
+package com.healthstore.service;
+
+import com.healthstore.config.SalesReportProperties;
+import com.healthstore.dto.report.SalesReportRequest;
+import com.healthstore.exception.LoadTimeoutException;
+import com.healthstore.repository.CustomerAnalyticsRepository.CustomerOrderTotals;
+import com.healthstore.repository.OrderRepository;
+import com.healthstore.repository.ProductVariantRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SalesReportServiceTest {
+
+    private static final LocalDate START = LocalDate.of(2025, 3, 1);
+    private static final LocalDate END = LocalDate.of(2025, 3, 31);
+
+    private final AdminReportService adminReportService = mock(AdminReportService.class);
+    private final OrderRepository orderRepository = mock(OrderRepository.class);
+    private final List<String> progress = Collections.synchronizedList(new ArrayList<>());
+    private final CountDownLatch release = new CountDownLatch(1);
+    private SalesReportService salesReportService;
+
+    @BeforeEach
+    void setUp() {
+        when(adminReportService.getSalesTotals(START, END)).thenReturn(
+                new AdminReportService.SalesTotals(new BigDecimal("100.00"), 4, 6));
+        when(adminReportService.getSalesTrend(any(), any(), any())).thenReturn(Map.of());
+        when(adminReportService.getTopPerformingProducts(any(), any(), anyInt())).thenReturn(List.of());
+        when(adminReportService.getInventoryStatusReport(anyInt())).thenReturn(Map.of("totalItems", 3L,
+                "inStock", 2L, "outOfStock", 1L, "lowStock", 1L, "totalInventoryValue", BigDecimal.TEN));
+        when(orderRepository.findCustomerOrderTotals(any(), any())).thenReturn(new CustomerOrderTotals(0, 0, BigDecimal.ZERO));
+
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(mock(TransactionStatus.class));
+        SalesReportProperties properties = new SalesReportProperties();
+        properties.setSectionTimeout(Duration.ofMillis(200));
+        salesReportService = new SalesReportService(adminReportService, orderRepository,
+                mock(ProductVariantRepository.class), mock(ProductService.class), transactionManager, properties);
+    }
+
+    @AfterEach
+    void shutdown() {
+        release.countDown();
+        salesReportService.shutdown();
+    }
+
+    @Test
+    void reportsEachSectionOnceWithItsCount() {
+        SalesReportRequest request = request();
+        request.setIncludeInventoryStatus(true);
+
+        salesReportService.generateSalesReport(request,
+                (section, completed, total) -> progress.add(section + " " + completed + "/" + total));
+
+        assertThat(progress).hasSize(5);
+        assertThat(progress).extracting(line -> line.substring(line.indexOf(' ') + 1))
+                .containsExactlyInAnyOrder("1/5", "2/5", "3/5", "4/5", "5/5");
+        assertThat(progress).extracting(line -> line.substring(0, line.indexOf(' ')))
+                .containsExactlyInAnyOrder("totals", "salesTrend", "topSellingProducts", "customerStats",
+                        "inventoryStatus");
+    }
+
+    @Test
+    void countsOnlyTheRequestedSections() {
+        SalesReportRequest request = request();
+        request.setIncludeCustomerStats(false);
+
+        salesReportService.generateSalesReport(request,
+                (section, completed, total) -> progress.add(section + " " + completed + "/" + total));
+
+        assertThat(progress).extracting(line -> line.substring(line.indexOf(' ') + 1))
+                .containsExactlyInAnyOrder("1/3", "2/3", "3/3");
+    }
+
+    @Test
+    void aBlockedListenerDoesNotHoldUpTheOtherSections() {
+        SalesReportRequest request = request();
+        request.setIncludeCustomerStats(false);
+        CountDownLatch allStarted = new CountDownLatch(3);
+        CountDownLatch allReported = new CountDownLatch(3);
+        when(adminReportService.getSalesTotals(START, END)).thenAnswer(invocation -> {
+            awaitAll(allStarted);
+            return new AdminReportService.SalesTotals(BigDecimal.ZERO, 0, 0);
+        });
+        when(adminReportService.getSalesTrend(any(), any(), any())).thenAnswer(invocation -> {
+            awaitAll(allStarted);
+            return Map.of();
+        });
+        when(adminReportService.getTopPerformingProducts(any(), any(), anyInt())).thenAnswer(invocation -> {
+            awaitAll(allStarted);
+            return List.of();
+        });
+
+        // Each call waits for the others, which only works if no lock is held around the listener.
+        salesReportService.generateSalesReport(request, (section, completed, total) -> {
+            progress.add(section + " " + awaitAll(allReported));
+        });
+
+        assertThat(progress).containsExactlyInAnyOrder("totals true", "salesTrend true", "topSellingProducts true");
+    }
+
+    @Test
+    void failsWithALoadTimeoutWhenASectionTakesTooLong() {
+        when(adminReportService.getSalesTrend(any(), any(), any())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return Map.of();
+        });
+
+        assertThatThrownBy(() -> salesReportService.generateSalesReport(request(),
+                (section, completed, total) -> progress.add(section)))
+                .isInstanceOf(LoadTimeoutException.class)
+                .hasMessageContaining("salesTrend");
+        assertThat(progress).doesNotContain("salesTrend");
+    }
+
+    private static boolean awaitAll(CountDownLatch latch) {
+        latch.countDown();
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static SalesReportRequest request() {
+        SalesReportRequest request = new SalesReportRequest();
+        request.setStartDate(START);
+        request.setEndDate(END);
+        return request;
+    }
+}
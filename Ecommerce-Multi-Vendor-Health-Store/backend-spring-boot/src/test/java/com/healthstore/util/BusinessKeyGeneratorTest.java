@@ -0,0 +1,50 @@
+package com.healthstore.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BusinessKeyGeneratorTest {
+
+    @Test
+    void carriesTheConfiguredNodeIdInEveryKey() {
+        BusinessKeyGenerator generator = new BusinessKeyGenerator(513, 2);
+
+        long id = generator.nextId();
+
+        assertThat((id >>> BusinessKeyGenerator.SEQUENCE_BITS) & BusinessKeyGenerator.MAX_NODE_ID).isEqualTo(513);
+    }
+
+    @Test
+    void generatesIncreasingKeysThatSortAsText() {
+        BusinessKeyGenerator generator = new BusinessKeyGenerator(1, 1);
+
+        String previous = generator.next("ORD-");
+        for (int i = 0; i < 10_000; i++) {
+            String next = generator.next("ORD-");
+            assertThat(next).hasSize(4 + BusinessKeyGenerator.ENCODED_LENGTH).isGreaterThan(previous);
+            previous = next;
+        }
+    }
+
+    @Test
+    void derivesTheNodeIdFromTheHostNameOnASingleNode() {
+        BusinessKeyGenerator generator = new BusinessKeyGenerator(-1, 1);
+
+        assertThat(generator.nextId()).isPositive();
+    }
+
+    @Test
+    void requiresTheNodeIdWhenSeveralNodesShareTheDatabase() {
+        assertThatThrownBy(() -> new BusinessKeyGenerator(-1, 3))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("app.ids.node-id");
+    }
+
+    @Test
+    void rejectsANodeIdOutOfRange() {
+        assertThatThrownBy(() -> new BusinessKeyGenerator(BusinessKeyGenerator.MAX_NODE_ID + 1, 1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,150 @@
+package com.healthstore.util;
+
+import com.healthstore.dto.CursorPageDTO;
+import com.healthstore.exception.InvalidCursorException;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ScrollCursorTest {
+
+    private static final Set<String> SORTABLE = Set.of("price", "createdAt", "name", "rating", "stock");
+    private static final Sort DEFAULT_SORT = Sort.by(Sort.Direction.DESC, "createdAt");
+
+    @Test
+    void startsAtTheTopWithTheRequestedSortAndTheIdAsTieBreaker() {
+        ScrollCursor.Request request = ScrollCursor.resolve(null, Sort.by(Sort.Direction.DESC, "price"),
+                DEFAULT_SORT, SORTABLE, 20);
+
+        assertThat(request.position()).isEqualTo(ScrollPosition.keyset());
+        assertThat(request.sort()).isEqualTo(Sort.by(Sort.Direction.DESC, "price", "id"));
+        assertThat(request.limit().max()).isEqualTo(20);
+        assertThat(ScrollCursor.resolve("", Sort.unsorted(), DEFAULT_SORT, SORTABLE, 500).sort())
+                .isEqualTo(Sort.by(Sort.Direction.DESC, "createdAt", "id"));
+        assertThat(ScrollCursor.resolve(null, Sort.unsorted(), DEFAULT_SORT, SORTABLE, 500).limit().max())
+                .isEqualTo(ScrollCursor.MAX_SIZE);
+    }
+
+    @Test
+    void theNextCursorContinuesAfterTheLastItemInTheSameSort() {
+        Sort sort = Sort.by(Sort.Order.asc("name"), Sort.Order.desc("price"), Sort.Order.asc("createdAt"),
+                Sort.Order.desc("rating"), Sort.Order.asc("stock"), Sort.Order.asc("id"));
+        Map<String, Object> keys = new LinkedHashMap<>();
+        // Values holding the separators of the token must survive it.
+        keys.put("name", "Omega 3 | 1000mg & more: a=b, c");
+        keys.put("price", new BigDecimal("12.50"));
+        keys.put("createdAt", LocalDateTime.of(2025, 3, 1, 9, 30, 15));
+        keys.put("rating", 4.5);
+        keys.put("stock", 7);
+        keys.put("id", 42L);
+        ScrollCursor.Request first = ScrollCursor.resolve(null, sort, DEFAULT_SORT, SORTABLE, 2);
+
+        CursorPageDTO<String> page = ScrollCursor.toPage(window(keys, true), first);
+        ScrollCursor.Request next = ScrollCursor.resolve(page.getNextCursor(), Sort.by("price"), DEFAULT_SORT, SORTABLE, 2);
+
+        assertThat(page.isHasNext()).isTrue();
+        assertThat(page.getNextCursor()).matches("[A-Za-z0-9_-]+");
+        assertThat(next.sort()).isEqualTo(sort);
+        assertThat(((KeysetScrollPosition) next.position()).getKeys()).isEqualTo(keys);
+        assertThat(((KeysetScrollPosition) next.position()).scrollsForward()).isTrue();
+    }
+
+    @Test
+    void theLastWindowHasNoNextCursor() {
+        ScrollCursor.Request request = ScrollCursor.resolve(null, Sort.unsorted(), DEFAULT_SORT, SORTABLE, 2);
+
+        CursorPageDTO<String> page = ScrollCursor.toPage(window(Map.of("createdAt", LocalDateTime.now(), "id", 1L), false),
+                request);
+
+        assertThat(page.getNextCursor()).isNull();
+        assertThat(page.isHasNext()).isFalse();
+    }
+
+    @Test
+    void refusesASortOnAnUnsupportedProperty() {
+        assertThatThrownBy(() -> ScrollCursor.resolve(null, Sort.by("description"), DEFAULT_SORT, SORTABLE, 20))
+                .isInstanceOf(InvalidCursorException.class)
+                .hasMessageContaining("description");
+    }
+
+    @Test
+    void refusesACursorSortedOnAnUnsupportedProperty() {
+        // A cursor of another listing, or one edited to sort on a property this listing does not index.
+        String cursor = token("v1|description:ASC,id:ASC|description=S:x&id=L:1");
+
+        assertThatThrownBy(() -> ScrollCursor.resolve(cursor, Sort.unsorted(), DEFAULT_SORT, SORTABLE, 20))
+                .isInstanceOf(InvalidCursorException.class)
+                .hasMessageContaining("description");
+    }
+
+    @Test
+    void refusesACursorWhoseKeysDoNotMatchItsSort() {
+        List<String> tampered = List.of(
+                // A key of the sort is missing.
+                "v1|price:DESC,id:DESC|id=L:1",
+                // A key is not in the sort.
+                "v1|price:DESC,id:DESC|price=N:1&stock=I:3&id=L:1",
+                // The keys of another sort.
+                "v1|price:DESC,id:DESC|name=S:x&id=L:1",
+                // The sort does not end on the ID.
+                "v1|price:DESC|price=N:1",
+                // A property is sorted on twice.
+                "v1|price:DESC,price:ASC,id:DESC|price=N:1&id=L:1",
+                // A key is given twice.
+                "v1|price:DESC,id:DESC|price=N:1&price=N:2&id=L:1");
+
+        for (String plain : tampered) {
+            assertThatThrownBy(() -> ScrollCursor.resolve(token(plain), Sort.unsorted(), DEFAULT_SORT, SORTABLE, 20))
+                    .as(plain)
+                    .isInstanceOf(InvalidCursorException.class);
+        }
+    }
+
+    @Test
+    void refusesAMalformedCursor() {
+        List<String> malformed = List.of(
+                token("v2|price:DESC,id:DESC|price=N:1&id=L:1"),
+                token("v1|price:DESC,id:DESC"),
+                token("v1||price=N:1&id=L:1"),
+                token("v1|price:DESC,id:DESC|"),
+                token("v1|price:DOWN,id:DESC|price=N:1&id=L:1"),
+                token("v1|price,id:DESC|price=N:1&id=L:1"),
+                token("v1|price:DESC,id:DESC|price=X:1&id=L:1"),
+                token("v1|price:DESC,id:DESC|price=N:abc&id=L:1"),
+                token("v1|price:DESC,id:DESC|price&id=L:1"),
+                token("v1|price:DESC,id:DESC|price=N&id=L:1"),
+                token("v1|createdAt:DESC,id:DESC|createdAt=T:yesterday&id=L:1"),
+                "not a cursor!",
+                "%%%");
+
+        for (String cursor : malformed) {
+            assertThatThrownBy(() -> ScrollCursor.resolve(cursor, Sort.unsorted(), DEFAULT_SORT, SORTABLE, 20))
+                    .as(cursor)
+                    .isInstanceOf(InvalidCursorException.class);
+        }
+    }
+
+    private static Window<String> window(Map<String, Object> lastKeys, boolean hasNext) {
+        return Window.from(List.of("first", "last"),
+                index -> index == 1 ? ScrollPosition.forward(lastKeys) : ScrollPosition.forward(Map.of("id", 0L)),
+                hasNext);
+    }
+
+    private static String token(String plain) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(plain.getBytes(StandardCharsets.UTF_8));
+    }
+}